@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Generates deterministic data shaped like real tables: long, shared-prefix rows, many column
+ * families, multi-term visibility expressions and timestamps that differ between versions. A fixed
+ * seed is used so that reports from different runs and different commits are comparable.
+ */
+final class BenchmarkData {
+
+  static final long SEED = 0x5eed_acc0L;
+
+  static final String[] VISIBILITIES = {"", "A", "A&B", "(A|B)&C", "(PRIVATE|PUBLIC)&(US|UK)",
+      "ADMIN|(AUDIT&(A|B|C))", "X&Y&Z"};
+
+  private BenchmarkData() {}
+
+  static String row(int i) {
+    // long rows that share a prefix are typical of entity and time-series tables
+    return String.format("entity/region-%02d/tenant-%04d/%012d", i % 17, i % 1013, i);
+  }
+
+  static String family(int i) {
+    return String.format("fam_%03d", i);
+  }
+
+  static String qualifier(int i) {
+    return String.format("attribute.%05d", i);
+  }
+
+  /**
+   * Creates a sorted map with {@code rows} rows, each having {@code families} column families and
+   * {@code qualifiers} qualifiers per family.
+   */
+  static SortedMap<Key,Value> sortedData(int rows, int families, int qualifiers, int valueSize) {
+    Random random = new Random(SEED);
+    TreeMap<Key,Value> data = new TreeMap<>();
+    for (int r = 0; r < rows; r++) {
+      byte[] row = row(r).getBytes(UTF_8);
+      for (int f = 0; f < families; f++) {
+        byte[] cf = family(f).getBytes(UTF_8);
+        for (int q = 0; q < qualifiers; q++) {
+          byte[] cq = qualifier(q).getBytes(UTF_8);
+          byte[] cv = VISIBILITIES[random.nextInt(VISIBILITIES.length)].getBytes(UTF_8);
+          long ts = 1_700_000_000_000L + random.nextInt(1_000_000);
+          data.put(new Key(row, cf, cq, cv, ts), new Value(randomBytes(random, valueSize)));
+        }
+      }
+    }
+    return data;
+  }
+
+  static List<Key> sortedKeys(int rows, int families, int qualifiers) {
+    return new ArrayList<>(sortedData(rows, families, qualifiers, 0).keySet());
+  }
+
+  static byte[] randomBytes(Random random, int size) {
+    byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.dataImpl.thrift.TMutation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building and serializing mutations, which happens for every write on the client, in the
+ * write-ahead log and when the tablet server applies updates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int updates;
+
+  private byte[] row;
+  private byte[][] families;
+  private byte[][] qualifiers;
+  private byte[][] visibilities;
+  private byte[] value;
+
+  private Mutation mutation;
+  private byte[] serialized;
+
+  @Setup
+  public void setup() throws IOException {
+    Random random = new Random(BenchmarkData.SEED);
+    row = BenchmarkData.row(42).getBytes(UTF_8);
+    families = new byte[updates][];
+    qualifiers = new byte[updates][];
+    visibilities = new byte[updates][];
+    for (int i = 0; i < updates; i++) {
+      families[i] = BenchmarkData.family(i % 20).getBytes(UTF_8);
+      qualifiers[i] = BenchmarkData.qualifier(i).getBytes(UTF_8);
+      visibilities[i] = BenchmarkData.VISIBILITIES[i % BenchmarkData.VISIBILITIES.length]
+          .getBytes(UTF_8);
+    }
+    value = BenchmarkData.randomBytes(random, 64);
+
+    mutation = build();
+    serialized = serialize(mutation);
+  }
+
+  private Mutation build() {
+    Mutation m = new Mutation(row);
+    for (int i = 0; i < updates; i++) {
+      m.at().family(families[i]).qualifier(qualifiers[i]).visibility(visibilities[i])
+          .timestamp(1_700_000_000_000L + i).put(value);
+    }
+    return m;
+  }
+
+  private static byte[] serialize(Mutation m) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    m.write(out);
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  @Benchmark
+  public Mutation buildMutation() {
+    return build();
+  }
+
+  @Benchmark
+  public byte[] writeMutation() throws IOException {
+    return serialize(build());
+  }
+
+  @Benchmark
+  public Mutation readMutation() throws IOException {
+    Mutation m = new Mutation();
+    m.readFields(new DataInputStream(new ByteArrayInputStream(serialized)));
+    // force the updates to be decoded, as the tablet server does when applying a mutation
+    m.getUpdates();
+    return m;
+  }
+
+  @Benchmark
+  public TMutation toThrift() {
+    return mutation.toThrift();
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.impl.BasicCacheProvider;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachableBuilder;
+import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.VisibilityFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures full scans and point lookups through {@link RFile.Reader} over an in memory RFile, with
+ * and without a block cache, and with a {@link VisibilityFilter} on top as the tablet server scan
+ * path does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RFileReaderBenchmark {
+
+  private static final List<ByteSequence> NO_FAMILIES = List.of();
+
+  @Param({"true", "false"})
+  public boolean cached;
+
+  @Param({"16384", "65536"})
+  public int blockSize;
+
+  private byte[] fileData;
+  private Key[] lookupKeys;
+  private BlockCacheManager cacheManager;
+  private CacheProvider cacheProvider;
+  private RFile.Reader reader;
+
+  @Setup
+  public void setup() throws Exception {
+    SortedMap<Key,Value> data = BenchmarkData.sortedData(2000, 20, 5, 32);
+    fileData = write(data, blockSize);
+
+    Random random = new Random(BenchmarkData.SEED);
+    Key[] keys = data.keySet().toArray(new Key[0]);
+    lookupKeys = new Key[1000];
+    for (int i = 0; i < lookupKeys.length; i++) {
+      lookupKeys[i] = keys[random.nextInt(keys.length)];
+    }
+
+    if (cached) {
+      ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+      cc.set(Property.GENERAL_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+      cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, Integer.toString(blockSize));
+      cc.set(Property.TSERV_DATACACHE_SIZE, Long.toString(4L * fileData.length));
+      cc.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(fileData.length));
+      cacheManager = BlockCacheManagerFactory.getInstance(cc);
+      cacheManager.start(BlockCacheConfiguration.forTabletServer(cc));
+      cacheProvider = new BasicCacheProvider(cacheManager.getBlockCache(CacheType.INDEX),
+          cacheManager.getBlockCache(CacheType.DATA));
+    } else {
+      cacheProvider = CacheProvider.NULL_PROVIDER;
+    }
+
+    reader = open();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    reader.close();
+    if (cacheManager != null) {
+      cacheManager.stop();
+    }
+  }
+
+  static byte[] write(SortedMap<Key,Value> data, int blockSize) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    FSDataOutputStream dos = new FSDataOutputStream(baos, new FileSystem.Statistics("bench"));
+    BCFile.Writer bcw =
+        new BCFile.Writer(dos, "gz", new Configuration(), NoCryptoServiceFactory.NONE);
+    RFile.Writer writer = new RFile.Writer(bcw, blockSize);
+    writer.startDefaultLocalityGroup();
+    for (Map.Entry<Key,Value> entry : data.entrySet()) {
+      writer.append(entry.getKey(), entry.getValue());
+    }
+    writer.close();
+    dos.close();
+    return baos.toByteArray();
+  }
+
+  private RFile.Reader open() throws IOException {
+    FSDataInputStream in = new FSDataInputStream(new InMemoryFileInputStream(fileData));
+    CachableBuilder cb =
+        new CachableBuilder().input(in, "bench-" + blockSize).length(fileData.length)
+            .conf(new Configuration()).cacheProvider(cacheProvider)
+            .cryptoService(NoCryptoServiceFactory.NONE);
+    return new RFile.Reader(cb);
+  }
+
+  @Benchmark
+  public void fullScan(Blackhole bh) throws IOException {
+    reader.seek(new Range(), NO_FAMILIES, false);
+    consumeAll(reader, bh);
+  }
+
+  @Benchmark
+  public void fullScanWithVisibilityFilter(Blackhole bh) throws IOException {
+    SortedKeyValueIterator<Key,Value> iter =
+        VisibilityFilter.wrap(reader, new Authorizations("A", "B", "PUBLIC", "US"), new byte[0]);
+    iter.seek(new Range(), NO_FAMILIES, false);
+    consumeAll(iter, bh);
+  }
+
+  @Benchmark
+  public void pointLookups(Blackhole bh) throws IOException {
+    for (Key key : lookupKeys) {
+      reader.seek(new Range(key, true, key, true), NO_FAMILIES, false);
+      if (reader.hasTop()) {
+        bh.consume(reader.getTopValue());
+      }
+    }
+  }
+
+  @Benchmark
+  public void openAndSeek(Blackhole bh) throws IOException {
+    try (RFile.Reader r = open()) {
+      r.seek(new Range(lookupKeys[0], null), NO_FAMILIES, false);
+      bh.consume(r.getTopKey());
+    }
+  }
+
+  private static void consumeAll(SortedKeyValueIterator<Key,Value> iter, Blackhole bh)
+      throws IOException {
+    while (iter.hasTop()) {
+      bh.consume(iter.getTopKey());
+      bh.consume(iter.getTopValue());
+      iter.next();
+    }
+  }
+}
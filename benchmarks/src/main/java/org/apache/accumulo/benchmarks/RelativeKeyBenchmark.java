@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.rfile.RelativeKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures relative key encoding and decoding for a block worth of keys. Decoding is the innermost
+ * loop of every RFile scan, and {@link RelativeKey#fastSkip} is used by every seek within a block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelativeKeyBenchmark {
+
+  @Param({"1", "16"})
+  public int families;
+
+  private Key[] keys;
+  private byte[] encoded;
+  private Key middleKey;
+
+  @Setup
+  public void setup() throws IOException {
+    List<Key> sorted = BenchmarkData.sortedKeys(1024 / families, families, 1);
+    keys = sorted.toArray(new Key[0]);
+    encoded = encode();
+    middleKey = keys[keys.length / 2];
+  }
+
+  private byte[] encode() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    Key prev = null;
+    for (Key key : keys) {
+      new RelativeKey(prev, key).write(out);
+      // same layout as RFile, a key is always followed by its value
+      out.writeInt(0);
+      prev = key;
+    }
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] encodeBlock() throws IOException {
+    return encode();
+  }
+
+  @Benchmark
+  public void decodeBlock(Blackhole bh) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(new Key());
+    for (int i = 0; i < keys.length; i++) {
+      rk.readFields(in);
+      in.skipBytes(in.readInt());
+      bh.consume(rk.getKey());
+    }
+  }
+
+  @Benchmark
+  public Object fastSkipToMiddle() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+    ArrayByteSequence value = new ArrayByteSequence(new byte[64], 0, 0);
+    return RelativeKey.fastSkip(in, middleKey, value, new Key(), null, keys.length);
+  }
+}
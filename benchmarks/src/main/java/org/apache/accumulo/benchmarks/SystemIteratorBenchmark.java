@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.HeapIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.MultiIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.VisibilityFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the system iterators that sit between the files and user iterators on every scan:
+ * {@link HeapIterator} merging of many sources (one per file and in-memory map) and
+ * {@link VisibilityFilter}. Sources are in-memory maps so that only the iterator overhead is
+ * measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SystemIteratorBenchmark {
+
+  private static final List<ByteSequence> NO_FAMILIES = List.of();
+
+  @Param({"1", "4", "16"})
+  public int sources;
+
+  private List<SortedMap<Key,Value>> sourceData;
+  private SortedMap<Key,Value> allData;
+
+  @Setup
+  public void setup() {
+    allData = BenchmarkData.sortedData(500, 10, 4, 16);
+    sourceData = new ArrayList<>();
+    for (int i = 0; i < sources; i++) {
+      sourceData.add(new TreeMap<>());
+    }
+    // spread keys round robin so every source participates in every part of the merge, which is
+    // the worst case for the heap
+    int i = 0;
+    for (Map.Entry<Key,Value> entry : allData.entrySet()) {
+      sourceData.get(i++ % sources).put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Benchmark
+  public void heapMerge(Blackhole bh) throws IOException {
+    List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(sources);
+    for (SortedMap<Key,Value> map : sourceData) {
+      iters.add(new SortedMapIterator(map));
+    }
+    MultiIterator multi = new MultiIterator(iters, true);
+    multi.seek(new Range(), NO_FAMILIES, false);
+    consumeAll(multi, bh);
+  }
+
+  @Benchmark
+  public void visibilityFilter(Blackhole bh) throws IOException {
+    SortedKeyValueIterator<Key,Value> iter = VisibilityFilter.wrap(new SortedMapIterator(allData),
+        new Authorizations("A", "B", "PUBLIC", "US"), new byte[0]);
+    iter.seek(new Range(), NO_FAMILIES, false);
+    consumeAll(iter, bh);
+  }
+
+  private static void consumeAll(SortedKeyValueIterator<Key,Value> iter, Blackhole bh)
+      throws IOException {
+    while (iter.hasTop()) {
+      bh.consume(iter.getTopKey());
+      iter.next();
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.accumulo.core.client;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.accumulo.core.conf.ClientProperty.CONDITIONAL_WRITER_REQUESTS_MAX;
 import static org.apache.accumulo.core.conf.ClientProperty.CONDITIONAL_WRITER_THREADS_MAX;
 import static org.apache.accumulo.core.conf.ClientProperty.CONDITIONAL_WRITER_TIMEOUT_MAX;
 
@@ -37,9 +38,12 @@ public class ConditionalWriterConfig {
   private static final Long DEFAULT_TIMEOUT = getDefaultTimeout();
   private static final Integer DEFAULT_MAX_WRITE_THREADS =
       Integer.parseInt(CONDITIONAL_WRITER_THREADS_MAX.getDefaultValue());
+  private static final Integer DEFAULT_MAX_REQUESTS_PER_SERVER =
+      Integer.parseInt(CONDITIONAL_WRITER_REQUESTS_MAX.getDefaultValue());
 
   private Long timeout = null;
   private Integer maxWriteThreads = null;
+  private Integer maxRequestsPerServer = null;
   private Authorizations auths = null;
   private Durability durability = null;
   private String classLoaderContext = null;
@@ -112,6 +116,30 @@ public class ConditionalWriterConfig {
     return this;
   }
 
+  /**
+   * Sets the maximum number of conditional update requests to have in flight to each tablet server.
+   * With more than one, mutations for a server are sent while it is still processing earlier ones,
+   * each request using its own session, instead of waiting for every response. The requests to all
+   * servers are still sent using at most {@link #setMaxWriteThreads(int)} threads.
+   *
+   * <p>
+   * <b>Default:</b> 1
+   *
+   * @param maxRequestsPerServer the maximum requests in flight to each server
+   * @throws IllegalArgumentException if {@code maxRequestsPerServer} is non-positive
+   * @return {@code this} to allow chaining of set methods
+   * @since 4.0.0
+   */
+  public ConditionalWriterConfig setMaxRequestsPerServer(int maxRequestsPerServer) {
+    if (maxRequestsPerServer <= 0) {
+      throw new IllegalArgumentException(
+          "Max requests per server must be positive " + maxRequestsPerServer);
+    }
+
+    this.maxRequestsPerServer = maxRequestsPerServer;
+    return this;
+  }
+
   /**
    * Sets the Durability for the mutation, if applied.
    * <p>
@@ -137,6 +165,13 @@ public class ConditionalWriterConfig {
     return maxWriteThreads != null ? maxWriteThreads : DEFAULT_MAX_WRITE_THREADS;
   }
 
+  /**
+   * @since 4.0.0
+   */
+  public int getMaxRequestsPerServer() {
+    return maxRequestsPerServer != null ? maxRequestsPerServer : DEFAULT_MAX_REQUESTS_PER_SERVER;
+  }
+
   public Durability getDurability() {
     return durability != null ? durability : Durability.DEFAULT;
   }
@@ -198,6 +233,7 @@ public class ConditionalWriterConfig {
     ConditionalWriterConfig result = new ConditionalWriterConfig();
     result.timeout = merge(this.timeout, other.timeout);
     result.maxWriteThreads = merge(this.maxWriteThreads, other.maxWriteThreads);
+    result.maxRequestsPerServer = merge(this.maxRequestsPerServer, other.maxRequestsPerServer);
     result.durability = merge(this.durability, other.durability);
     result.auths = merge(this.auths, other.auths);
     return result;
@@ -468,6 +468,10 @@ public class ClientContext implements AccumuloClient {
     if (maxThreads != null) {
       conditionalWriterConfig.setMaxWriteThreads(maxThreads);
     }
+    Integer maxRequests = ClientProperty.CONDITIONAL_WRITER_REQUESTS_MAX.getInteger(props);
+    if (maxRequests != null) {
+      conditionalWriterConfig.setMaxRequestsPerServer(maxRequests);
+    }
     return conditionalWriterConfig;
   }
 
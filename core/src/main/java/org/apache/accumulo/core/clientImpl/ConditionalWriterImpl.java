@@ -108,10 +108,11 @@ public class ConditionalWriterImpl implements ConditionalWriter {
   private final Durability durability;
   private final String classLoaderContext;
   private final ConditionalWriterConfig config;
+  private final int maxRequestsPerServer;
 
   private static class ServerQueue {
     final BlockingQueue<TabletServerMutations<QCMutation>> queue = new LinkedBlockingQueue<>();
-    boolean taskQueued = false;
+    int tasksQueued = 0;
   }
 
   private final Map<String,ServerQueue> serverQueues;
@@ -318,10 +319,11 @@ public class ConditionalWriterImpl implements ConditionalWriter {
 
     synchronized (serverQueue) {
       serverQueue.queue.add(mutations);
-      // never execute more than one task per server
-      if (!serverQueue.taskQueued) {
+      // never execute more tasks per server than the requests allowed in flight to it, each task
+      // sends one request at a time
+      if (serverQueue.tasksQueued < maxRequestsPerServer) {
         threadPool.execute(new SendTask(location));
-        serverQueue.taskQueued = true;
+        serverQueue.tasksQueued++;
       }
     }
 
@@ -338,7 +340,7 @@ public class ConditionalWriterImpl implements ConditionalWriter {
 
     synchronized (serverQueue) {
       if (serverQueue.queue.isEmpty()) {
-        serverQueue.taskQueued = false;
+        serverQueue.tasksQueued--;
       } else {
         threadPool.execute(task);
       }
@@ -373,13 +375,19 @@ public class ConditionalWriterImpl implements ConditionalWriter {
 
   ConditionalWriterImpl(ClientContext context, TableId tableId, String tableName,
       ConditionalWriterConfig config) {
+    this(context, tableId, tableName, config, new SyncingClientTabletCache(context, tableId));
+  }
+
+  ConditionalWriterImpl(ClientContext context, TableId tableId, String tableName,
+      ConditionalWriterConfig config, ClientTabletCache locator) {
     this.config = config;
+    this.maxRequestsPerServer = config.getMaxRequestsPerServer();
     this.context = context;
     this.auths = config.getAuthorizations();
     this.accessEvaluator = AccessEvaluator.of(config.getAuthorizations().toAccessAuthorizations());
     this.threadPool = context.threadPools().createScheduledExecutorService(
         config.getMaxWriteThreads(), CONDITIONAL_WRITER_POOL.poolName);
-    this.locator = new SyncingClientTabletCache(context, tableId);
+    this.locator = locator;
     this.serverQueues = new HashMap<>();
     this.tableId = tableId;
     this.tableName = tableName;
@@ -483,23 +491,22 @@ public class ConditionalWriterImpl implements ConditionalWriter {
     }
   }
 
-  private final HashMap<HostAndPort,SessionID> cachedSessionIDs = new HashMap<>();
+  // a server processes one request at a time per session, so there is a session for each request
+  // in flight to a server
+  private final HashMap<HostAndPort,List<SessionID>> cachedSessionIDs = new HashMap<>();
 
   private SessionID reserveSessionID(HostAndPort location, TabletIngestClientService.Iface client,
       TInfo tinfo) throws ThriftSecurityException, TException {
     // avoid cost of repeatedly making RPC to create sessions, reuse sessions
     synchronized (cachedSessionIDs) {
-      SessionID sid = cachedSessionIDs.get(location);
-      if (sid != null) {
-        if (sid.reserved) {
-          throw new IllegalStateException();
-        }
-
-        if (sid.isActive()) {
-          sid.reserved = true;
-          return sid;
-        } else {
-          cachedSessionIDs.remove(location);
+      List<SessionID> sids = cachedSessionIDs.get(location);
+      if (sids != null) {
+        sids.removeIf(sid -> !sid.reserved && !sid.isActive());
+        for (SessionID sid : sids) {
+          if (!sid.reserved) {
+            sid.reserved = true;
+            return sid;
+          }
         }
       }
     }
@@ -515,46 +522,55 @@ public class ConditionalWriterImpl implements ConditionalWriter {
       sid.lockId = tcs.tserverLock;
       sid.ttl = tcs.ttl;
       sid.location = location;
-      if (cachedSessionIDs.put(location, sid) != null) {
+      List<SessionID> sids = cachedSessionIDs.computeIfAbsent(location, k -> new ArrayList<>());
+      if (sids.size() >= maxRequestsPerServer) {
         throw new IllegalStateException();
       }
+      sids.add(sid);
 
       return sid;
     }
 
   }
 
-  private void invalidateSessionID(HostAndPort location) {
+  private void invalidateSessionID(SessionID sid) {
     synchronized (cachedSessionIDs) {
-      cachedSessionIDs.remove(location);
+      List<SessionID> sids = cachedSessionIDs.get(sid.location);
+      if (sids != null) {
+        sids.remove(sid);
+        if (sids.isEmpty()) {
+          cachedSessionIDs.remove(sid.location);
+        }
+      }
     }
 
   }
 
-  private void unreserveSessionID(HostAndPort location) {
+  private void unreserveSessionID(SessionID sid) {
     synchronized (cachedSessionIDs) {
-      SessionID sid = cachedSessionIDs.get(location);
-      if (sid != null) {
-        if (!sid.reserved) {
-          throw new IllegalStateException();
-        }
-        sid.reserved = false;
-        sid.lastAccessTime = System.currentTimeMillis();
+      if (!sid.reserved) {
+        throw new IllegalStateException();
       }
+      sid.reserved = false;
+      sid.lastAccessTime = System.currentTimeMillis();
     }
   }
 
   List<SessionID> getActiveSessions() {
     ArrayList<SessionID> activeSessions = new ArrayList<>();
-    for (SessionID sid : cachedSessionIDs.values()) {
-      if (sid.isActive()) {
-        activeSessions.add(sid);
+    synchronized (cachedSessionIDs) {
+      for (List<SessionID> sids : cachedSessionIDs.values()) {
+        for (SessionID sid : sids) {
+          if (sid.isActive()) {
+            activeSessions.add(sid);
+          }
+        }
       }
     }
     return activeSessions;
   }
 
-  private TabletIngestClientService.Iface getClient(HostAndPort location)
+  TabletIngestClientService.Iface getClient(HostAndPort location)
       throws TTransportException {
     TabletIngestClientService.Iface client;
     if (timeout < context.getClientTimeoutInMillis()) {
@@ -591,8 +607,8 @@ public class ConditionalWriterImpl implements ConditionalWriter {
           tresults = client.conditionalUpdate(tinfo, sessionId.sessionID, tmutations,
               compressedIters.getSymbolTable());
         } catch (NoSuchScanIDException nssie) {
+          invalidateSessionID(sessionId);
           sessionId = null;
-          invalidateSessionID(location);
         }
       }
 
@@ -631,7 +647,7 @@ public class ConditionalWriterImpl implements ConditionalWriter {
       queueException(location, cmidToCm, e);
     } finally {
       if (sessionId != null) {
-        unreserveSessionID(location);
+        unreserveSessionID(sessionId);
       }
       ThriftUtil.returnClient((TServiceClient) client, context);
     }
@@ -81,6 +81,11 @@ public enum ClientProperty {
       "2.1.0", false),
   CONDITIONAL_WRITER_THREADS_MAX("conditional.writer.threads.max", "3", PropertyType.COUNT,
       "Maximum number of threads to use for writing data to tablet servers.", "2.1.0", false),
+  CONDITIONAL_WRITER_REQUESTS_MAX("conditional.writer.requests.max", "1", PropertyType.COUNT,
+      "Maximum number of conditional update requests to have in flight to each tablet server."
+          + " Values greater than 1 allow sending more mutations to a server before it responds"
+          + " to earlier ones.",
+      "4.0.0", false),
   CONDITIONAL_WRITER_DURABILITY("conditional.writer.durability", "default", PropertyType.DURABILITY,
       Property.TABLE_DURABILITY.getDescription() + " Setting this property will change the "
           + "durability for the ConditionalWriter session. A value of \"default\" will use the"
@@ -252,6 +252,16 @@ public enum Property {
   GENERAL_FILE_NAME_ALLOCATION_BATCH_SIZE_MAX("general.file.name.allocation.batch.size.max", "200",
       PropertyType.COUNT,
       "The maximum number of filenames that will be allocated from ZooKeeper at a time.", "2.1.3"),
+  GENERAL_FILE_COMPRESSION_MAXCONCURRENT("general.file.compress.concurrent.max", "16",
+      PropertyType.COUNT,
+      "The maximum number of threads in a process that compress RFile blocks in the background."
+          + " See table.file.compress.pending.blocks.",
+      "4.0.0"),
+  GENERAL_FILE_READAHEAD_MAXCONCURRENT("general.file.readahead.concurrent.max", "16",
+      PropertyType.COUNT,
+      "The maximum number of threads in a process that read RFile data blocks ahead of"
+          + " sequential scans and compactions. See table.file.readahead.blocks.",
+      "4.0.0"),
   GENERAL_RPC_TIMEOUT("general.rpc.timeout", "120s", PropertyType.TIMEDURATION,
       "Time to wait on I/O for simple, short RPC calls.", "1.3.5"),
   @Experimental
@@ -297,6 +307,10 @@ public enum Property {
   GENERAL_CACHE_MANAGER_IMPL("general.block.cache.manager.class",
       TinyLfuBlockCacheManager.class.getName(), PropertyType.STRING,
       "Specifies the class name of the block cache factory implementation.", "2.1.4"),
+  GENERAL_CACHE_WARMUP_RATE("general.cache.warmup.rate", "200", PropertyType.COUNT,
+      "The maximum number of data blocks per second that a server reads into its data cache when"
+          + " warming the cache of tablets it starts hosting. See table.cache.warmup.enable.",
+      "4.0.0"),
   GENERAL_DELEGATION_TOKEN_LIFETIME("general.delegation.token.lifetime", "7d",
       PropertyType.TIMEDURATION,
       "The length of time that delegation tokens and secret keys are valid.", "1.7.0"),
@@ -491,6 +505,16 @@ public enum Property {
       "Specifies the size of the cache for summary data on each scan server.", "2.1.0"),
   SSERV_DEFAULT_BLOCKSIZE("sserver.default.blocksize", "1M", PropertyType.BYTES,
       "Specifies a default blocksize for the scan server caches.", "2.1.0"),
+  SSERV_DISKCACHE_DIR("sserver.cache.disk.dir", "", PropertyType.PATH,
+      "A directory on local storage where the scan server keeps a second tier cache of RFile data"
+          + " blocks. Data blocks read from the filesystem are also written here, and lookups that"
+          + " miss the in memory data cache are served from here before reading the filesystem."
+          + " The cache is disabled when this is not set or sserver.cache.disk.size is 0.",
+      "4.0.0"),
+  SSERV_DISKCACHE_SIZE("sserver.cache.disk.size", "0", PropertyType.BYTES,
+      "The maximum amount of local storage used by the scan server second tier data block cache"
+          + " in sserver.cache.disk.dir.",
+      "4.0.0"),
   SSERV_GROUP_NAME("sserver.group", ScanServerSelector.DEFAULT_SCAN_SERVER_GROUP_NAME,
       PropertyType.STRING,
       "Resource group name for this ScanServer. Resource groups support at least two use cases:"
@@ -561,6 +585,23 @@ public enum Property {
       "Specifies the size of the cache for RFile index blocks.", "1.3.5"),
   TSERV_SUMMARYCACHE_SIZE("tserver.cache.summary.size", "10%", PropertyType.MEMORY,
       "Specifies the size of the cache for summary data on each tablet server.", "2.0.0"),
+  TSERV_DISKCACHE_DIR("tserver.cache.disk.dir", "", PropertyType.PATH,
+      "A directory on local storage where the tablet server keeps a second tier cache of RFile"
+          + " data blocks. Data blocks read from the filesystem are also written here, and lookups"
+          + " that miss the in memory data cache are served from here before reading the"
+          + " filesystem. The cache is disabled when this is not set or tserver.cache.disk.size"
+          + " is 0.",
+      "4.0.0"),
+  TSERV_DISKCACHE_SIZE("tserver.cache.disk.size", "0", PropertyType.BYTES,
+      "The maximum amount of local storage used by the tablet server second tier data block"
+          + " cache in tserver.cache.disk.dir.",
+      "4.0.0"),
+  TSERV_CACHE_WARMUP_RECORD_INTERVAL("tserver.cache.warmup.record.interval", "10m",
+      PropertyType.TIMEDURATION,
+      "How often the tablet server records the data blocks of its tablets that are in the data"
+          + " cache, for tables with table.cache.warmup.enable set. The blocks are also recorded"
+          + " when a tablet is unloaded. Set to 0 to only record them on unload.",
+      "4.0.0"),
   TSERV_PORTSEARCH("tserver.port.search", "true", PropertyType.BOOLEAN,
       "if the tserver.port.client ports are in use, search higher ports until one is available.",
       "1.3.5"),
@@ -580,6 +621,19 @@ public enum Property {
       "2.1.0"),
   TSERV_WAL_MAX_AGE("tserver.wal.max.age", "24h", PropertyType.TIMEDURATION,
       "The maximum age for each write-ahead log.", "2.1.0"),
+  TSERV_WAL_STRIPES("tserver.wal.stripes", "1", PropertyType.COUNT,
+      "The number of write-ahead logs a tablet server writes to concurrently. Each tablet always"
+          + " writes to the same one of them, chosen by its extent, and each log is synced by its"
+          + " own thread. The limit in `tserver.wal.max.referenced` applies to the closed logs of"
+          + " all of them together, so consider raising it along with this property.",
+      "4.0.0"),
+  TSERV_WAL_COMPRESSION_TYPE("tserver.wal.compress.type", "none", PropertyType.STRING,
+      "Compression algorithm used on the entries of write-ahead logs. The entries written"
+          + " together are compressed together, so this works best when many mutations are"
+          + " written at once. A change applies to the next write-ahead log created. Logs that are"
+          + " not compressed can be read by older versions. Possible values: zstd, gz, snappy,"
+          + " bzip2, lzo, lz4, none.",
+      "4.0.0"),
   TSERV_WAL_TOLERATED_CREATION_FAILURES("tserver.wal.tolerated.creation.failures", "50",
       PropertyType.COUNT,
       "The maximum number of failures tolerated when creating a new write-ahead"
@@ -606,6 +660,22 @@ public enum Property {
       "An off-heap in-memory data store for accumulo implemented in c++ that increases"
           + " the amount of data accumulo can hold in memory and avoids Java GC pauses.",
       "1.3.5"),
+  TSERV_OFF_HEAP_MAP_ENABLED("tserver.memory.maps.offheap.enabled", "false",
+      PropertyType.BOOLEAN,
+      "An in-memory data store implemented in Java that keeps its data in direct memory outside"
+          + " of the Java heap, which avoids Java GC pauses without needing the native library."
+          + " It is used when tserver.memory.maps.native.enabled is false. The JVM limits direct"
+          + " memory with -XX:MaxDirectMemorySize, which has to leave room for"
+          + " tserver.memory.maps.max.",
+      "4.0.0"),
+  TSERV_MEMORY_MAP_CONCURRENT_WRITES("tserver.memory.maps.concurrent.writes", "false",
+      PropertyType.BOOLEAN,
+      "Allows writes to the same tablet to be inserted into its in-memory map in parallel instead"
+          + " of one at a time. A write is not visible to scans until every write to the tablet"
+          + " that started before it is inserted. The native map still inserts one write at a"
+          + " time, so this mainly helps when tserver.memory.maps.native.enabled is false. Applies"
+          + " to in-memory maps created after the property is changed.",
+      "4.0.0"),
   TSERV_MAXMEM("tserver.memory.maps.max", "33%", PropertyType.MEMORY,
       "Maximum amount of memory that can be used to buffer data written to a"
           + " tablet server. There are two other properties that can effectively limit"
@@ -614,6 +684,13 @@ public enum Property {
           + " * `tserver.wal.max.size` >= this property. This map is created in off-heap"
           + " memory when " + TSERV_NATIVEMAP_ENABLED.name() + " is enabled.",
       "1.3.5"),
+  TSERV_MEMORY_MANAGER_PREDICTIVE("tserver.memory.manager.predictive.enabled", "false",
+      PropertyType.BOOLEAN,
+      "When enabled, the tablet server measures how fast its tablets are written and how fast"
+          + " minor compactions free memory. It starts minor compactions early when it predicts"
+          + " that memory would fill up before they finish, which avoids holding commits during"
+          + " bursts of writes.",
+      "4.0.0"),
   TSERV_SESSION_MAXIDLE("tserver.session.idle.max", "1m", PropertyType.TIMEDURATION,
       "When a tablet server's SimpleTimer thread triggers to check idle"
           + " sessions, this configurable option will be used to evaluate scan sessions"
@@ -649,10 +726,32 @@ public enum Property {
       PropertyType.TIMEDURATION,
       "Max time for the thrift client handler to wait for scan results before timing out.",
       "2.1.0"),
+  TSERV_SCAN_READ_AHEAD_MAX_MEMORY("tserver.scan.readahead.memory.max", "0", PropertyType.BYTES,
+      "The maximum memory for batches of single range scans that tablet and scan servers read"
+          + " before clients request them. While the batches being read ahead, estimated from the"
+          + " size of the batch before them, fit in this memory, the next batch of a scan is read"
+          + " as soon as the current one is returned. Scans always read ahead once they returned"
+          + " more batches than the read-ahead threshold of their scanner. Set to zero to only"
+          + " read ahead after that threshold.",
+      "4.0.0"),
   TSERV_MIGRATE_MAXCONCURRENT("tserver.migrations.concurrent.max", "1", PropertyType.COUNT,
       "The maximum number of concurrent tablet migrations for a tablet server.", "1.3.5"),
   TSERV_MINC_MAXCONCURRENT("tserver.compaction.minor.concurrent.max", "4", PropertyType.COUNT,
       "The maximum number of concurrent minor compactions for a tablet server.", "1.3.5"),
+  TSERV_MINC_LOCALITY_GROUP_THREADS("tserver.compaction.minor.locality.group.threads", "0",
+      PropertyType.COUNT,
+      "The number of threads a tablet server uses to read the locality groups of minor"
+          + " compactions concurrently. The locality groups are still written to a single file in"
+          + " order, while the groups after the one being written are read ahead into a buffer."
+          + " Set to 0 to read the locality groups one after another on the minor compaction"
+          + " thread.",
+      "4.0.0"),
+  TSERV_MINC_LOCALITY_GROUP_BUFFER("tserver.compaction.minor.locality.group.buffer", "8M",
+      PropertyType.BYTES,
+      "The maximum amount of data held in the heap for each locality group of a minor compaction"
+          + " that is read ahead of the locality group being written. Only used when"
+          + " tserver.compaction.minor.locality.group.threads is greater than 0.",
+      "4.0.0"),
   TSERV_BLOOM_LOAD_MAXCONCURRENT("tserver.bloom.load.concurrent.max", "4", PropertyType.COUNT,
       "The number of concurrent threads that will load bloom filters in the background. "
           + "Setting this to zero will make bloom filters load in the foreground.",
@@ -697,6 +796,11 @@ public enum Property {
       "The maximum number of threads to use to sort logs during recovery.", "2.1.0"),
   TSERV_WAL_SORT_BUFFER_SIZE("tserver.wal.sort.buffer.size", "10%", PropertyType.MEMORY,
       "The amount of memory to use when sorting logs during recovery.", "2.1.0"),
+  TSERV_WAL_SORT_THREADS("tserver.wal.sort.threads", "2", PropertyType.COUNT,
+      "The number of threads used to sort each log during recovery, in addition to the thread"
+          + " reading it. The number of logs sorted at once is set by"
+          + " `tserver.wal.sort.concurrent.max`.",
+      "4.0.0"),
   TSERV_WAL_SORT_FILE_PREFIX("tserver.wal.sort.file.", null, PropertyType.PREFIX,
       "The rfile properties to use when sorting logs during recovery. Most of the properties"
           + " that begin with 'table.file' can be used here. For example, to set the compression"
@@ -946,12 +1050,47 @@ public enum Property {
       "Compression algorithm used on index and data blocks before they are"
           + " written. Possible values: zstd, gz, snappy, bzip2, lzo, lz4, none.",
       "1.3.5"),
+  TABLE_FILE_COMPRESSION_DICTIONARY_SIZE("table.file.compress.dictionary.size", "0",
+      PropertyType.BYTES,
+      "When greater than 0 and the compression type is gz, a preset compression dictionary of up"
+          + " to this size (at most 32K) is built for each RFile from a sample of its first blocks"
+          + " and used to compress the rest of its blocks. This improves compression of small data"
+          + " blocks, which otherwise are compressed without any shared context. The dictionary is"
+          + " stored in the file, and files written with one can not be read by older versions.",
+      "4.0.0"),
+  TABLE_FILE_COMPRESSION_PENDING_BLOCKS("table.file.compress.pending.blocks", "0",
+      PropertyType.COUNT,
+      "When greater than 0, RFile blocks are compressed on a shared pool of threads while the"
+          + " writer moves on to the next block, and are written to the file in order. This is the"
+          + " maximum number of blocks a writer has waiting to be compressed and written, each of"
+          + " which holds its uncompressed and compressed data in memory. Setting this to 0"
+          + " compresses blocks on the writing thread. See general.file.compress.concurrent.max.",
+      "4.0.0"),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE("table.file.compress.blocksize", "100k", PropertyType.BYTES,
       "The maximum size of data blocks in RFiles before they are compressed and written.", "1.3.5"),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX("table.file.compress.blocksize.index", "128k",
       PropertyType.BYTES,
       "The maximum size of index blocks in RFiles before they are compressed and written.",
       "1.4.0"),
+  TABLE_FILE_RESTART_INTERVAL("table.file.restart.interval", "32", PropertyType.COUNT,
+      "The number of key values between restart points in RFile data blocks. At a restart point a"
+          + " key is stored in full instead of relative to the previous key, allowing a seek to"
+          + " binary search within a cached data block. Smaller values make seeks within a block"
+          + " faster at the cost of larger blocks. Setting this to 0 disables restart points.",
+      "4.0.0"),
+  TABLE_FILE_INDEX_FAMILY_SUMMARY_MAX("table.file.index.family.summary.max", "64",
+      PropertyType.COUNT,
+      "The most column families a data block of an RFile can hold and still have its column"
+          + " families summarized in the index. Scans that fetch column families skip blocks whose"
+          + " summary shows they hold none of the fetched families. Blocks with more column"
+          + " families than this are always read. Setting this to 0 disables the summaries.",
+      "4.0.0"),
+  TABLE_FILE_READAHEAD_BLOCKS("table.file.readahead.blocks", "0", PropertyType.COUNT,
+      "The number of RFile data blocks to read and decompress in the background ahead of a scan"
+          + " or compaction that is reading a file sequentially. Read ahead starts once a reader"
+          + " has moved through consecutive blocks without seeking. Setting this to 0 disables"
+          + " read ahead.",
+      "4.0.0"),
   TABLE_FILE_BLOCK_SIZE("table.file.blocksize", "0B", PropertyType.BYTES,
       "The HDFS block size used when writing RFiles. When set to 0B, the"
           + " value/defaults of HDFS property 'dfs.block.size' will be used.",
@@ -1019,6 +1158,19 @@ public enum Property {
       "1.3.5"),
   TABLE_BLOOM_HASHTYPE("table.bloom.hash.type", "murmur", PropertyType.STRING,
       "The bloom filter hash type.", "1.3.5"),
+  TABLE_BLOOM_TYPE("table.bloom.type", "bloom", PropertyType.STRING,
+      "The type of filter written to new files when bloom filters are enabled. Legal values are:"
+          + " bloom, which writes a bloom filter sized by table.bloom.size and"
+          + " table.bloom.error.rate; and xor, which writes an xor filter sized to the keys in the"
+          + " file with a false positive rate of about 0.4%, using about 10 bits per key. That is"
+          + " about 15% smaller than a bloom filter with the same false positive rate. Files"
+          + " written with either type can always be read.",
+      "4.0.0"),
+  TABLE_BLOOM_XOR_MAX_KEYS("table.bloom.xor.max.keys", "4194304", PropertyType.COUNT,
+      "The most distinct keys an xor filter is built from. Writing a file buffers 8 bytes for"
+          + " each key of its xor filter, the keys appended after this many are added to a bloom"
+          + " filter sized by table.bloom.size and table.bloom.error.rate instead.",
+      "4.0.0"),
   TABLE_DURABILITY("table.durability", "sync", PropertyType.DURABILITY,
       "The durability used to write to the write-ahead log. Legal values are:"
           + " none, which skips the write-ahead log; log, which sends the data to the"
@@ -1059,6 +1211,13 @@ public enum Property {
       "Determines whether index block cache is enabled for a table.", "1.3.5"),
   TABLE_BLOCKCACHE_ENABLED("table.cache.block.enable", "false", PropertyType.BOOLEAN,
       "Determines whether data block cache is enabled for a table.", "1.3.5"),
+  TABLE_CACHE_WARMUP_ENABLED("table.cache.warmup.enable", "false", PropertyType.BOOLEAN,
+      "Determines whether the data blocks of a tablet that are in the data cache of its server are"
+          + " recorded in the tablet directory, so that the next server to host the tablet, and"
+          + " scan servers that read it, can load them into their data cache before they are"
+          + " scanned. The blocks are loaded in the background at the rate set by"
+          + " general.cache.warmup.rate.",
+      "4.0.0"),
   TABLE_ITERATOR_PREFIX("table.iterator.", null, PropertyType.PREFIX,
       "Properties in this category specify iterators that are applied at"
           + " various stages (scopes) of interaction with a table. These properties"
@@ -1469,6 +1628,7 @@ public enum Property {
       // block cache options
       GENERAL_CACHE_MANAGER_IMPL, TSERV_DATACACHE_SIZE, TSERV_INDEXCACHE_SIZE,
       TSERV_SUMMARYCACHE_SIZE, SSERV_DATACACHE_SIZE, SSERV_INDEXCACHE_SIZE, SSERV_SUMMARYCACHE_SIZE,
+      TSERV_DISKCACHE_DIR, TSERV_DISKCACHE_SIZE, SSERV_DISKCACHE_DIR, SSERV_DISKCACHE_SIZE,
 
       // blocksize options
       TSERV_DEFAULT_BLOCKSIZE, SSERV_DEFAULT_BLOCKSIZE,
@@ -1482,7 +1642,8 @@ public enum Property {
       COMPACTOR_MINTHREADS_TIMEOUT,
 
       // others
-      TSERV_NATIVEMAP_ENABLED, TSERV_SCAN_MAX_OPENFILES, MANAGER_RECOVERY_WAL_EXISTENCE_CACHE_TIME);
+      TSERV_NATIVEMAP_ENABLED, TSERV_SCAN_MAX_OPENFILES, MANAGER_RECOVERY_WAL_EXISTENCE_CACHE_TIME,
+      TSERV_WAL_STRIPES);
 
   /**
    * Checks if the given property may be changed via Zookeeper, but not recognized until the restart
@@ -27,6 +27,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -36,6 +37,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.bloomfilter.DynamicBloomFilter;
+import org.apache.accumulo.core.bloomfilter.XorFilter;
 import org.apache.accumulo.core.classloader.ClassLoaderUtil;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.ConfigurationCopy;
@@ -46,6 +48,7 @@ import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
 import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
 import org.apache.accumulo.core.file.keyfunctor.KeyFunctor;
 import org.apache.accumulo.core.file.rfile.RFile;
@@ -64,6 +67,8 @@ import org.apache.hadoop.util.hash.Hash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+
 /**
  * A class that sits on top of different accumulo file formats and provides bloom filter
  * functionality.
@@ -72,6 +77,7 @@ public class BloomFilterLayer {
 
   private static final Logger LOG = LoggerFactory.getLogger(BloomFilterLayer.class);
   public static final String BLOOM_FILE_NAME = "acu_bloom";
+  public static final String XOR_FILE_NAME = "acu_xor";
   public static final int HASH_COUNT = 5;
 
   private static ExecutorService loadThreadPool = null;
@@ -89,7 +95,15 @@ public class BloomFilterLayer {
   }
 
   public static class Writer implements FileSKVWriter {
+    // only one of these is used, depending on the filter type
     private DynamicBloomFilter bloomFilter;
+    private long[] xorHashes;
+    private int xorHashCount = 0;
+    // once this many hashes are buffered, the keys after them are added to a bloom filter
+    private int xorMaxKeys;
+    // the filter of the hashes buffered before the buffer was full
+    private XorFilter xorFilter;
+    private int hashType;
     private int numKeys;
     private int vectorSize;
 
@@ -106,6 +120,15 @@ public class BloomFilterLayer {
     private synchronized void initBloomFilter(AccumuloConfiguration acuconf,
         boolean useAccumuloStart) {
 
+      String filterType = acuconf.get(Property.TABLE_BLOOM_TYPE);
+      if (filterType.equals("xor")) {
+        xorMaxKeys = acuconf.getCount(Property.TABLE_BLOOM_XOR_MAX_KEYS);
+        xorHashes = new long[Math.max(1, Math.min(1024, xorMaxKeys))];
+      } else if (!filterType.equals("bloom")) {
+        throw new IllegalArgumentException(
+            "Unknown " + Property.TABLE_BLOOM_TYPE.getKey() + " : " + filterType);
+      }
+
       numKeys = acuconf.getCount(Property.TABLE_BLOOM_SIZE);
       // vector size should be <code>-kn / (ln(1 - c^(1/k)))</code> bits for
       // single key, where <code> is the number of hash functions,
@@ -115,8 +138,10 @@ public class BloomFilterLayer {
       double errorRate = acuconf.getFraction(Property.TABLE_BLOOM_ERRORRATE);
       vectorSize = (int) Math
           .ceil(-HASH_COUNT * numKeys / Math.log(1.0 - Math.pow(errorRate, 1.0 / HASH_COUNT)));
-      bloomFilter = new DynamicBloomFilter(vectorSize, HASH_COUNT,
-          Hash.parseHashType(acuconf.get(Property.TABLE_BLOOM_HASHTYPE)), numKeys);
+      hashType = Hash.parseHashType(acuconf.get(Property.TABLE_BLOOM_HASHTYPE));
+      if (xorHashes == null) {
+        bloomFilter = new DynamicBloomFilter(vectorSize, HASH_COUNT, hashType, numKeys);
+      }
 
       /**
        * load KeyFunctor
@@ -148,7 +173,29 @@ public class BloomFilterLayer {
       writer.append(key, val);
       Key bloomKey = transformer.transform(key);
       if (bloomKey.getBytes().length > 0) {
-        bloomFilter.add(bloomKey);
+        if (xorHashes != null) {
+          long hash = XorFilter.hash(bloomKey.getBytes());
+          // keys are sorted, so keys that transform to the same bloom key are usually adjacent
+          if (xorHashCount > 0 && xorHashes[xorHashCount - 1] == hash) {
+            return;
+          }
+          if (xorHashCount == xorMaxKeys) {
+            // bound the memory used for a large file, the hashes buffered so far are replaced by
+            // their xor filter and the remaining keys are added to a bloom filter
+            xorFilter = XorFilter.build(xorHashes, xorHashCount);
+            xorHashes = null;
+            bloomFilter = new DynamicBloomFilter(vectorSize, HASH_COUNT, hashType, numKeys);
+            bloomFilter.add(bloomKey);
+            return;
+          }
+          if (xorHashCount == xorHashes.length) {
+            xorHashes =
+                Arrays.copyOf(xorHashes, (int) Math.min(xorHashes.length * 2L, xorMaxKeys));
+          }
+          xorHashes[xorHashCount++] = hash;
+        } else {
+          bloomFilter.add(bloomKey);
+        }
       }
     }
 
@@ -159,9 +206,25 @@ public class BloomFilterLayer {
         return;
       }
 
-      DataOutputStream out = writer.createMetaStore(BLOOM_FILE_NAME);
-      out.writeUTF(transformer.getClass().getName());
-      bloomFilter.write(out);
+      DataOutputStream out;
+      if (xorHashes != null || xorFilter != null) {
+        out = writer.createMetaStore(XOR_FILE_NAME);
+        out.writeUTF(transformer.getClass().getName());
+        if (xorFilter == null) {
+          xorFilter = XorFilter.build(xorHashes, xorHashCount);
+          xorHashes = null;
+        }
+        xorFilter.write(out);
+        // the keys appended after the hash buffer was full
+        out.writeBoolean(bloomFilter != null);
+        if (bloomFilter != null) {
+          bloomFilter.write(out);
+        }
+      } else {
+        out = writer.createMetaStore(BLOOM_FILE_NAME);
+        out.writeUTF(transformer.getClass().getName());
+        bloomFilter.write(out);
+      }
       out.flush();
       out.close();
       writer.close();
@@ -169,6 +232,14 @@ public class BloomFilterLayer {
       closed = true;
     }
 
+    /**
+     * @return the number of key hashes buffered for the xor filter
+     */
+    @VisibleForTesting
+    synchronized int getXorHashCount() {
+      return xorHashCount;
+    }
+
     @Override
     public DataOutputStream createMetaStore(String name) throws IOException {
       return writer.createMetaStore(name);
@@ -203,6 +274,9 @@ public class BloomFilterLayer {
   static class BloomFilterLoader {
 
     private volatile DynamicBloomFilter bloomFilter;
+    private volatile XorFilter xorFilter;
+    // the keys of an xor filter file that were added to a bloom filter, because there were too many
+    private volatile DynamicBloomFilter xorOverflowFilter;
     private int loadRequest = 0;
     private int loadThreshold = 1;
     private final int maxLoadThreads;
@@ -227,8 +301,13 @@ public class BloomFilterLayer {
         DataInputStream in = null;
 
         try {
-          in = reader.getMetaStore(BLOOM_FILE_NAME);
-          DynamicBloomFilter tmpBloomFilter = new DynamicBloomFilter();
+          boolean xor = true;
+          try {
+            in = reader.getMetaStore(XOR_FILE_NAME);
+          } catch (NoSuchMetaStoreException nsme) {
+            xor = false;
+            in = reader.getMetaStore(BLOOM_FILE_NAME);
+          }
 
           // check for closed again after open but before reading the bloom filter in
           if (closed) {
@@ -245,12 +324,21 @@ public class BloomFilterLayer {
           transformer = clazz.getDeclaredConstructor().newInstance();
 
           /**
-           * read in bloom filter
+           * read in bloom filter, only setting it after it is fully constructed
            */
-
-          tmpBloomFilter.readFields(in);
-          // only set the bloom filter after it is fully constructed
-          bloomFilter = tmpBloomFilter;
+          if (xor) {
+            XorFilter tmpXorFilter = readXorFilter(in);
+            if (in.readBoolean()) {
+              DynamicBloomFilter tmpBloomFilter = new DynamicBloomFilter();
+              tmpBloomFilter.readFields(in);
+              xorOverflowFilter = tmpBloomFilter;
+            }
+            xorFilter = tmpXorFilter;
+          } else {
+            DynamicBloomFilter tmpBloomFilter = new DynamicBloomFilter();
+            tmpBloomFilter.readFields(in);
+            bloomFilter = tmpBloomFilter;
+          }
         } catch (NoSuchMetaStoreException nsme) {
           // file does not have a bloom filter, ignore it
         } catch (IOException ioe) {
@@ -288,6 +376,20 @@ public class BloomFilterLayer {
 
     }
 
+    /**
+     * When the filter was read from the index cache, it is used in place in the cached block
+     * instead of being copied. The stream is positioned after the filter.
+     */
+    private static XorFilter readXorFilter(DataInputStream in) throws IOException {
+      if (in instanceof CachedBlockRead && ((CachedBlockRead) in).isIndexable()) {
+        CachedBlockRead cachedBlock = (CachedBlockRead) in;
+        XorFilter filter = XorFilter.wrap(cachedBlock.getBuffer(), cachedBlock.getPosition());
+        cachedBlock.seek(cachedBlock.getPosition() + filter.getSerializedSize());
+        return filter;
+      }
+      return XorFilter.read(in);
+    }
+
     /**
      * Prevent potential CRLF injection into logs from read in user data. See the
      * <a href="https://find-sec-bugs.github.io/bugs.htm#CRLF_INJECTION_LOGS">bug description</a>
@@ -326,9 +428,9 @@ public class BloomFilterLayer {
      * @return false iff key doesn't exist, true if key probably exists.
      */
     boolean probablyHasKey(Range range) {
-      if (bloomFilter == null) {
+      if (bloomFilter == null && xorFilter == null) {
         initiateLoad(maxLoadThreads);
-        if (bloomFilter == null) {
+        if (bloomFilter == null && xorFilter == null) {
           return true;
         }
       }
@@ -339,6 +441,14 @@ public class BloomFilterLayer {
         return true;
       }
 
+      XorFilter xf = xorFilter;
+      if (xf != null) {
+        if (xf.mayContain(XorFilter.hash(bloomKey.getBytes()))) {
+          return true;
+        }
+        DynamicBloomFilter overflow = xorOverflowFilter;
+        return overflow != null && overflow.membershipTest(bloomKey);
+      }
       return bloomFilter.membershipTest(bloomKey);
     }
 
@@ -454,6 +564,39 @@ public class BloomFilterLayer {
     public void setCacheProvider(CacheProvider cacheProvider) {
       reader.setCacheProvider(cacheProvider);
     }
+
+    @Override
+    public long[] getCachedBlocks(int max) throws IOException {
+      return reader.getCachedBlocks(max);
+    }
+
+    @Override
+    public void prefetchBlocks(long[] offsets) throws IOException {
+      reader.prefetchBlocks(offsets);
+    }
+
+    @Override
+    public long getMinTimestamp() throws IOException {
+      return reader.getMinTimestamp();
+    }
+
+    @Override
+    public long getMaxTimestamp() throws IOException {
+      return reader.getMaxTimestamp();
+    }
+
+    @Override
+    public void prefetch(Collection<Range> ranges, Collection<ByteSequence> columnFamilies,
+        boolean inclusive) throws IOException {
+      // no need to read blocks for ranges the bloom filter rules out
+      ArrayList<Range> filtered = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        if (bfl.probablyHasKey(range)) {
+          filtered.add(range);
+        }
+      }
+      reader.prefetch(filtered, columnFamilies, inclusive);
+    }
   }
 
   public static void main(String[] args) throws IOException {
@@ -20,7 +20,10 @@ package org.apache.accumulo.core.file;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.Collection;
 
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
 import org.apache.accumulo.core.iteratorsImpl.system.InterruptibleIterator;
@@ -50,6 +53,47 @@ public interface FileSKVIterator extends InterruptibleIterator, AutoCloseable {
 
   void setCacheProvider(CacheProvider cacheProvider);
 
+  /**
+   * Returns the smallest timestamp of any key in the file, or {@link Long#MIN_VALUE} when it is not
+   * known. The minimum is greater than the maximum when the file is empty.
+   */
+  default long getMinTimestamp() throws IOException {
+    return Long.MIN_VALUE;
+  }
+
+  /**
+   * Returns the largest timestamp of any key in the file, or {@link Long#MAX_VALUE} when it is not
+   * known. The maximum is less than the minimum when the file is empty.
+   */
+  default long getMaxTimestamp() throws IOException {
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Hints that the given sorted ranges are about to be read, allowing the data they cover to be
+   * loaded with fewer, larger reads before iteration starts. Only the data that a seek with the
+   * given column families would read is loaded. Does nothing by default.
+   */
+  default void prefetch(Collection<Range> ranges, Collection<ByteSequence> columnFamilies,
+      boolean inclusive) throws IOException {}
+
+  /**
+   * Returns the offsets of the data blocks of the file that are in the data cache, in increasing
+   * order. Empty by default.
+   *
+   * @param max the most offsets to return
+   */
+  default long[] getCachedBlocks(int max) throws IOException {
+    return new long[0];
+  }
+
+  /**
+   * Loads the data blocks at the given sorted offsets, as returned by
+   * {@link #getCachedBlocks(int)}, into the data cache. Offsets that are not the start of a data
+   * block are ignored. Does nothing by default.
+   */
+  default void prefetchBlocks(long[] offsets) throws IOException {}
+
   @Override
   void close() throws IOException;
 }
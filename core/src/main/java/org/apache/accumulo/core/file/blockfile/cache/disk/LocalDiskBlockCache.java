@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.disk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of blocks stored in a single file on local storage.
+ *
+ * <p>
+ * The file is used as a ring buffer. Blocks are appended sequentially and when the end of the file
+ * is reached writing wraps around to the start, evicting the oldest blocks in FIFO order. Only the
+ * index of block locations is kept in memory. The file is private to the process that created it
+ * and is deleted when that process exits, nothing is recovered across restarts.
+ *
+ * <p>
+ * Space for a block is reserved while holding a lock, but the block is written without it, so
+ * threads that load blocks from the filesystem do not wait on each other's local writes.
+ */
+public final class LocalDiskBlockCache implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalDiskBlockCache.class);
+
+  private static final class Entry {
+    private final String name;
+    private final long logicalOffset;
+    private final int length;
+    // counted down when the write of the block finished or failed
+    private final CountDownLatch written = new CountDownLatch(1);
+
+    Entry(String name, long logicalOffset, int length) {
+      this.name = name;
+      this.logicalOffset = logicalOffset;
+      this.length = length;
+    }
+  }
+
+  private final Path file;
+  private final long capacity;
+  private final int maxEntrySize;
+  private final ConcurrentHashMap<String,Entry> index = new ConcurrentHashMap<>();
+  private volatile FileChannel channel;
+
+  // guarded by this, in the order space was reserved for entries
+  private final ArrayDeque<Entry> writeOrder = new ArrayDeque<>();
+  // guarded by this, the names of blocks being written
+  private final Set<String> writing = new HashSet<>();
+  // guarded by this
+  private boolean closed = false;
+  // guarded by this, the logical offset where the next block will be written
+  private long writeOffset = 0;
+  // the logical offset of the end of the last block being written, anything before
+  // reservedEnd - capacity may have been overwritten
+  private volatile long reservedEnd = 0;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public LocalDiskBlockCache(Path dir, String name, long capacity) throws IOException {
+    Files.createDirectories(dir);
+    this.file = Files.createTempFile(dir, name + "-", ".blocks");
+    this.file.toFile().deleteOnExit();
+    this.capacity = capacity;
+    // a block that takes a large fraction of the file would evict most of the cache
+    this.maxEntrySize = (int) Math.min(Integer.MAX_VALUE, capacity / 4);
+    this.channel = open();
+    log.info("Created local block cache {} with capacity {}", file, capacity);
+  }
+
+  private FileChannel open() throws IOException {
+    return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * A thread that is interrupted while doing I/O on a FileChannel closes it for every thread, so
+   * reopen it when that happens.
+   */
+  private synchronized FileChannel reopen(FileChannel closedChannel) throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (channel == closedChannel) {
+      channel = open();
+    }
+    return channel;
+  }
+
+  private long position(long logicalOffset) {
+    return logicalOffset % capacity;
+  }
+
+  /**
+   * @return true if the block is cached, without counting a request
+   */
+  public boolean contains(String blockName) {
+    return index.containsKey(blockName);
+  }
+
+  /**
+   * @return the block contents or null if the block is not cached
+   */
+  public byte[] get(String blockName) {
+    requests.increment();
+    Entry entry = index.get(blockName);
+    if (entry == null) {
+      return null;
+    }
+
+    ByteBuffer buf = ByteBuffer.allocate(entry.length);
+    long pos = position(entry.logicalOffset);
+    try {
+      FileChannel fc = channel;
+      while (buf.hasRemaining()) {
+        int read;
+        try {
+          read = fc.read(buf, pos + buf.position());
+        } catch (ClosedChannelException e) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw e;
+          }
+          fc = reopen(fc);
+          continue;
+        }
+        if (read < 0) {
+          return null;
+        }
+      }
+    } catch (IOException e) {
+      log.debug("Failed to read {} from local block cache {}", blockName, file, e);
+      return null;
+    }
+
+    if (entry.logicalOffset < reservedEnd - capacity) {
+      // overwritten while it was being read
+      index.remove(blockName, entry);
+      return null;
+    }
+
+    hits.increment();
+    return buf.array();
+  }
+
+  /**
+   * Writes a block to the cache, evicting the oldest blocks to make room. Blocks larger than a
+   * quarter of the cache are not stored. The block can be read once this method returns.
+   */
+  public void put(String blockName, byte[] data) {
+    Entry entry;
+    List<Entry> overwritten = null;
+    synchronized (this) {
+      if (closed || data.length > maxEntrySize || index.containsKey(blockName)
+          || !writing.add(blockName)) {
+        return;
+      }
+
+      long logicalOffset = writeOffset;
+      long pos = position(logicalOffset);
+      if (pos + data.length > capacity) {
+        // blocks never wrap around the end of the file
+        logicalOffset += capacity - pos;
+      }
+      long end = logicalOffset + data.length;
+
+      while (!writeOrder.isEmpty() && writeOrder.peekFirst().logicalOffset < end - capacity) {
+        Entry old = writeOrder.removeFirst();
+        index.remove(old.name, old);
+        evictions.increment();
+        if (old.written.getCount() > 0) {
+          if (overwritten == null) {
+            overwritten = new ArrayList<>();
+          }
+          overwritten.add(old);
+        }
+      }
+      // readers check this after reading, so it must be advanced before the data is overwritten
+      reservedEnd = end;
+      writeOffset = end;
+
+      entry = new Entry(blockName, logicalOffset, data.length);
+      writeOrder.addLast(entry);
+    }
+
+    boolean success = false;
+    try {
+      if (overwritten != null) {
+        // a write still in progress to the space being reused would overwrite this block
+        for (Entry old : overwritten) {
+          old.written.await();
+        }
+      }
+      write(entry, data);
+      success = true;
+    } catch (IOException e) {
+      log.debug("Failed to write {} to local block cache {}", blockName, file, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (this) {
+        writing.remove(blockName);
+        // the space may have been reused by other blocks while this one was written
+        if (success && !closed && entry.logicalOffset >= reservedEnd - capacity) {
+          index.put(blockName, entry);
+        }
+      }
+      entry.written.countDown();
+    }
+  }
+
+  private void write(Entry entry, byte[] data) throws IOException {
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    FileChannel fc = channel;
+    while (buf.hasRemaining()) {
+      try {
+        fc.write(buf, position(entry.logicalOffset) + buf.position());
+      } catch (ClosedChannelException e) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw e;
+        }
+        fc = reopen(fc);
+      }
+    }
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public int getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  public BlockCache.Stats getStats() {
+    return new BlockCache.Stats() {
+      @Override
+      public long hitCount() {
+        return hits.sum();
+      }
+
+      @Override
+      public long requestCount() {
+        return requests.sum();
+      }
+
+      @Override
+      public long evictionCount() {
+        return evictions.sum();
+      }
+    };
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closed = true;
+    index.clear();
+    writeOrder.clear();
+    channel.close();
+    Files.deleteIfExists(file);
+  }
+}
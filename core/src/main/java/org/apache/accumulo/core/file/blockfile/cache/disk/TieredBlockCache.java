@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.disk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheType;
+
+/**
+ * Places a {@link LocalDiskBlockCache} behind an in memory {@link BlockCache}. Blocks that are
+ * loaded from the filesystem are written to local storage, and blocks that are not in memory are
+ * looked for on local storage before the filesystem is read.
+ */
+public final class TieredBlockCache implements BlockCache, Closeable {
+
+  private final BlockCache memoryCache;
+  private final LocalDiskBlockCache diskCache;
+
+  public TieredBlockCache(BlockCache memoryCache, LocalDiskBlockCache diskCache) {
+    this.memoryCache = memoryCache;
+    this.diskCache = diskCache;
+  }
+
+  /**
+   * @return the cache backed by local storage if one is configured, otherwise the cache that was
+   *         passed in
+   */
+  public static BlockCache wrap(BlockCache memoryCache, BlockCacheConfiguration conf,
+      CacheType type) {
+    if (memoryCache == null || conf.getDiskCacheDir().isBlank() || conf.getDiskCacheSize() <= 0) {
+      return memoryCache;
+    }
+    try {
+      return new TieredBlockCache(memoryCache, new LocalDiskBlockCache(
+          Path.of(conf.getDiskCacheDir()), type.name().toLowerCase(), conf.getDiskCacheSize()));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to create local block cache", e);
+    }
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    return memoryCache.cacheBlock(blockName, buf);
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    CacheEntry ce = memoryCache.getBlock(blockName);
+    if (ce == null) {
+      byte[] data = diskCache.get(blockName);
+      if (data != null) {
+        ce = memoryCache.cacheBlock(blockName, data);
+      }
+    }
+    return ce;
+  }
+
+  @Override
+  public boolean containsBlock(String blockName) {
+    return memoryCache.containsBlock(blockName) || diskCache.contains(blockName);
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName, Loader loader) {
+    return memoryCache.getBlock(blockName, new Loader() {
+      @Override
+      public Map<String,Loader> getDependencies() {
+        return loader.getDependencies();
+      }
+
+      @Override
+      public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+        byte[] data = diskCache.get(blockName);
+        if (data != null) {
+          return data.length > maxSize ? null : data;
+        }
+        data = loader.load(maxSize, dependencies);
+        if (data != null) {
+          diskCache.put(blockName, data);
+        }
+        return data;
+      }
+    });
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    return memoryCache.getMaxHeapSize();
+  }
+
+  @Override
+  public long getMaxSize() {
+    return memoryCache.getMaxSize();
+  }
+
+  @Override
+  public Stats getStats() {
+    return memoryCache.getStats();
+  }
+
+  /**
+   * @return statistics for the blocks served from local storage
+   */
+  public Stats getDiskStats() {
+    return diskCache.getStats();
+  }
+
+  /**
+   * Deletes the blocks stored on local storage. The in memory cache is not affected.
+   */
+  @Override
+  public void close() throws IOException {
+    diskCache.close();
+  }
+}
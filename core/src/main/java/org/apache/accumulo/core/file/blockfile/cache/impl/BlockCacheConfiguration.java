@@ -42,21 +42,28 @@ public class BlockCacheConfiguration implements Configuration {
 
   private final long summaryMaxSize;
 
+  private final String diskCacheDir;
+
+  private final long diskCacheSize;
+
   public static BlockCacheConfiguration forTabletServer(AccumuloConfiguration conf) {
     return new BlockCacheConfiguration(conf, Property.TSERV_PREFIX, Property.TSERV_INDEXCACHE_SIZE,
         Property.TSERV_DATACACHE_SIZE, Property.TSERV_SUMMARYCACHE_SIZE,
-        Property.TSERV_DEFAULT_BLOCKSIZE);
+        Property.TSERV_DEFAULT_BLOCKSIZE, Property.TSERV_DISKCACHE_DIR,
+        Property.TSERV_DISKCACHE_SIZE);
   }
 
   public static BlockCacheConfiguration forScanServer(AccumuloConfiguration conf) {
     return new BlockCacheConfiguration(conf, Property.SSERV_PREFIX, Property.SSERV_INDEXCACHE_SIZE,
         Property.SSERV_DATACACHE_SIZE, Property.SSERV_SUMMARYCACHE_SIZE,
-        Property.SSERV_DEFAULT_BLOCKSIZE);
+        Property.SSERV_DEFAULT_BLOCKSIZE, Property.SSERV_DISKCACHE_DIR,
+        Property.SSERV_DISKCACHE_SIZE);
   }
 
   private BlockCacheConfiguration(AccumuloConfiguration conf, Property serverPrefix,
       Property indexCacheSizeProperty, Property dataCacheSizeProperty,
-      Property summaryCacheSizeProperty, Property defaultBlockSizeProperty) {
+      Property summaryCacheSizeProperty, Property defaultBlockSizeProperty,
+      Property diskCacheDirProperty, Property diskCacheSizeProperty) {
 
     this.serverPrefix = serverPrefix;
     this.genProps = conf.getAllPropertiesWithPrefix(serverPrefix);
@@ -64,6 +71,8 @@ public class BlockCacheConfiguration implements Configuration {
     this.dataMaxSize = conf.getAsBytes(dataCacheSizeProperty);
     this.summaryMaxSize = conf.getAsBytes(summaryCacheSizeProperty);
     this.blockSize = conf.getAsBytes(defaultBlockSizeProperty);
+    this.diskCacheDir = conf.get(diskCacheDirProperty);
+    this.diskCacheSize = conf.getAsBytes(diskCacheSizeProperty);
   }
 
   @Override
@@ -85,6 +94,21 @@ public class BlockCacheConfiguration implements Configuration {
     return this.blockSize;
   }
 
+  /**
+   * @return the local directory for the second tier data block cache, or an empty string if not
+   *         configured
+   */
+  public String getDiskCacheDir() {
+    return diskCacheDir;
+  }
+
+  /**
+   * @return the maximum size of the second tier data block cache in bytes
+   */
+  public long getDiskCacheSize() {
+    return diskCacheSize;
+  }
+
   @Override
   public String toString() {
     return "indexMaxSize: " + indexMaxSize + "dataMaxSize: " + dataMaxSize + "summaryMaxSize: "
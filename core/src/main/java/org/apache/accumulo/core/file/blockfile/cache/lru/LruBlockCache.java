@@ -277,6 +277,11 @@ public class LruBlockCache extends SynchronousLoadingBlockCache implements Block
     return wrap(cb);
   }
 
+  @Override
+  public boolean containsBlock(String blockName) {
+    return map.containsKey(blockName);
+  }
+
   @Override
   protected CacheEntry getBlockNoStats(String blockName) {
     CachedBlock cb = map.get(blockName);
@@ -0,0 +1,576 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.lru.SynchronousLoadingBlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+
+/**
+ * A block cache that stores block contents outside of the Java heap.
+ *
+ * <p>
+ * Memory is allocated as fixed size direct buffers (slabs). Each slab is assigned to a size class
+ * the first time the class needs space and is then carved into equal sized slots. Size classes
+ * grow geometrically, so a block wastes at most the growth factor of its length. Once every slab
+ * has been handed out, a size class reuses its own slots using the CLOCK algorithm, giving
+ * recently read blocks a second chance before they are evicted. A size class that has no slab
+ * then takes the slab whose blocks were read least recently from a size class that has more than
+ * one, so that block sizes which were not needed while the cache filled up can still be cached.
+ *
+ * <p>
+ * Only the block name, its location and any index built over the block stay on the heap. The
+ * weight of the indexes is limited by {@link OffHeapBlockCacheConfiguration#getIndexHeapSize()},
+ * past it the indexes built first are dropped and built again when they are next needed. Because
+ * {@link CacheEntry#getBuffer()} returns a {@code byte[]}, a cache hit copies the block onto the
+ * heap. That copy is short lived and is only referenced for the duration of the read.
+ */
+public final class OffHeapBlockCache extends SynchronousLoadingBlockCache implements BlockCache {
+
+  /** Approximate on heap cost of tracking one cached block */
+  private static final long PER_BLOCK_OVERHEAD = ClassSize
+      .align(ClassSize.OBJECT + 5 * ClassSize.REFERENCE + 4 * Integer.BYTES + Long.BYTES + 2)
+      + ClassSize.CONCURRENT_HASHMAP_ENTRY + ClassSize.STRING + ClassSize.REFERENCE;
+
+  private final OffHeapBlockCacheConfiguration conf;
+  private final ConcurrentHashMap<String,Block> map = new ConcurrentHashMap<>();
+  private final SizeClass[] sizeClasses;
+  private final int[] slotSizes;
+  private final AtomicInteger slabsLeft;
+  // blocks with an index, in the order the indexes were built
+  private final ConcurrentLinkedQueue<Block> indexedBlocks = new ConcurrentLinkedQueue<>();
+  private final AtomicLong indexWeight = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public OffHeapBlockCache(OffHeapBlockCacheConfiguration conf) {
+    this.conf = conf;
+    this.slabsLeft = new AtomicInteger(
+        (int) Math.min(Integer.MAX_VALUE, conf.getMaxSize() / Math.max(1, conf.getSlabSize())));
+
+    List<Integer> sizes = new ArrayList<>();
+    long size = conf.getMinSlotSize();
+    while (size < conf.getSlabSize()) {
+      sizes.add((int) size);
+      // keep slots 8 byte aligned and always make progress
+      size = Math.max(size + 8, ((long) Math.ceil(size * conf.getGrowthFactor()) + 7) & ~7L);
+    }
+    sizes.add(conf.getSlabSize());
+
+    this.slotSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+    this.sizeClasses = new SizeClass[slotSizes.length];
+    for (int i = 0; i < slotSizes.length; i++) {
+      sizeClasses[i] = new SizeClass(slotSizes[i]);
+    }
+  }
+
+  /**
+   * The location of a cached block. The slab, offset and length never change. Once a block is
+   * marked evicted its slot may be overwritten, so readers must confirm it is still live after
+   * copying the data out.
+   */
+  private final class Block {
+    private final String name;
+    private final SizeClass sizeClass;
+    private final ByteBuffer slab;
+    private final int slot;
+    private final int offset;
+    private final int length;
+    private volatile boolean referenced;
+    private volatile boolean evicted;
+    // System.nanoTime() of the last time the block was cached or read
+    private volatile long lastAccess = System.nanoTime();
+    private CacheEntry.Weighable index;
+    // the weight of the index counted in indexWeight
+    private int countedIndexWeight;
+
+    Block(String name, SizeClass sizeClass, ByteBuffer slab, int slot, int offset, int length) {
+      this.name = name;
+      this.sizeClass = sizeClass;
+      this.slab = slab;
+      this.slot = slot;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    void accessed() {
+      referenced = true;
+      lastAccess = System.nanoTime();
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends CacheEntry.Weighable> T getIndex(Supplier<T> supplier) {
+      if (index == null && !evicted) {
+        index = supplier.get();
+        if (index != null) {
+          indexedBlocks.add(this);
+          countIndexWeight();
+        }
+      }
+      return (T) index;
+    }
+
+    synchronized void countIndexWeight() {
+      int weight = index == null ? 0 : index.weight();
+      indexWeight.addAndGet(weight - countedIndexWeight);
+      countedIndexWeight = weight;
+    }
+
+    synchronized void dropIndex() {
+      index = null;
+      countIndexWeight();
+    }
+  }
+
+  /**
+   * Drops the indexes that were built first until the weight of the indexes fits in the index heap
+   * size. Evicted blocks stay in the queue until they are reached, so their indexes are counted
+   * until they are dropped.
+   */
+  private void dropIndexes() {
+    while (indexWeight.get() > conf.getIndexHeapSize()) {
+      Block block = indexedBlocks.poll();
+      if (block == null) {
+        return;
+      }
+      block.dropIndex();
+    }
+  }
+
+  /**
+   * All slots of one size. Slot assignment and eviction happen under the write lock, reads of
+   * block contents use optimistic reads so that hits on the same size class do not contend.
+   */
+  private final class SizeClass {
+    private final int slotSize;
+    private final StampedLock lock = new StampedLock();
+    // the following are guarded by the write lock
+    // a slab given to another size class leaves a null, which the next slab added fills
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final List<Block> owners = new ArrayList<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int slabCount = 0;
+    private int hand = 0;
+
+    SizeClass(int slotSize) {
+      this.slotSize = slotSize;
+    }
+
+    private int slotsPerSlab() {
+      return conf.getSlabSize() / slotSize;
+    }
+
+    private boolean addSlab() {
+      if (slabsLeft.getAndDecrement() <= 0) {
+        slabsLeft.incrementAndGet();
+        return false;
+      }
+      addSlab(ByteBuffer.allocateDirect(conf.getSlabSize()));
+      return true;
+    }
+
+    private void addSlab(ByteBuffer slab) {
+      int index = slabs.indexOf(null);
+      if (index < 0) {
+        index = slabs.size();
+        slabs.add(slab);
+        for (int i = 0; i < slotsPerSlab(); i++) {
+          owners.add(null);
+        }
+      } else {
+        slabs.set(index, slab);
+      }
+      int first = index * slotsPerSlab();
+      for (int i = 0; i < slotsPerSlab(); i++) {
+        freeSlots.add(first + i);
+      }
+      slabCount++;
+    }
+
+    private void evict(int slot) {
+      Block victim = owners.get(slot);
+      victim.evicted = true;
+      owners.set(slot, null);
+      map.remove(victim.name, victim);
+      evictions.increment();
+    }
+
+    private int evictOne() {
+      while (true) {
+        int slot = hand;
+        hand = (hand + 1) % owners.size();
+        Block victim = owners.get(slot);
+        if (victim == null) {
+          continue;
+        }
+        if (victim.referenced) {
+          victim.referenced = false;
+          continue;
+        }
+        evict(slot);
+        return slot;
+      }
+    }
+
+    /**
+     * Finds the slab whose blocks were read least recently. A slab without blocks is the coldest.
+     *
+     * @return the index of the slab and the most recent access of its blocks, or null if this size
+     *         class has less than two slabs
+     */
+    long[] findColdestSlab() {
+      long stamp = lock.readLock();
+      try {
+        if (slabCount <= 1) {
+          return null;
+        }
+        long[] times = new long[slabs.size()];
+        Arrays.fill(times, Long.MIN_VALUE);
+        for (Block block : owners) {
+          if (block != null) {
+            int index = block.slot / slotsPerSlab();
+            times[index] = Math.max(times[index], block.lastAccess);
+          }
+        }
+        int coldest = -1;
+        for (int i = 0; i < times.length; i++) {
+          if (slabs.get(i) != null && (coldest == -1 || times[i] < times[coldest])) {
+            coldest = i;
+          }
+        }
+        return new long[] {coldest, times[coldest]};
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Evicts the blocks of a slab and removes it from this size class, unless it is the last slab.
+     *
+     * @return the slab, or null if it was not removed
+     */
+    ByteBuffer removeSlab(int index) {
+      long stamp = lock.writeLock();
+      try {
+        if (slabCount <= 1 || index >= slabs.size() || slabs.get(index) == null) {
+          return null;
+        }
+        int first = index * slotsPerSlab();
+        for (int slot = first; slot < first + slotsPerSlab(); slot++) {
+          if (owners.get(slot) != null) {
+            evict(slot);
+          }
+        }
+        freeSlots.removeIf(slot -> slot / slotsPerSlab() == index);
+        ByteBuffer slab = slabs.set(index, null);
+        slabCount--;
+        return slab;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    /**
+     * Copies the data into a slot of this size class, evicting another block of the same size
+     * class if needed. When this size class has no memory and none is left to give it, it takes a
+     * slab from another size class. Returns null if no size class can give up a slab.
+     */
+    Block allocate(String name, byte[] data) {
+      Block block = allocate(name, data, null);
+      if (block == null) {
+        ByteBuffer slab = takeColdestSlab(this);
+        if (slab != null) {
+          block = allocate(name, data, slab);
+        }
+      }
+      return block;
+    }
+
+    private Block allocate(String name, byte[] data, ByteBuffer newSlab) {
+      long stamp = lock.writeLock();
+      try {
+        if (newSlab != null) {
+          addSlab(newSlab);
+        }
+        int slot;
+        if (!freeSlots.isEmpty() || addSlab()) {
+          slot = freeSlots.remove();
+        } else if (slabCount > 0) {
+          slot = evictOne();
+        } else {
+          return null;
+        }
+
+        ByteBuffer slab = slabs.get(slot / slotsPerSlab());
+        int offset = (slot % slotsPerSlab()) * slotSize;
+        ByteBuffer dup = slab.duplicate();
+        dup.position(offset);
+        dup.put(data);
+
+        Block block = new Block(name, this, slab, slot, offset, data.length);
+        owners.set(slot, block);
+        return block;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void free(Block block) {
+      long stamp = lock.writeLock();
+      try {
+        if (!block.evicted) {
+          block.evicted = true;
+          owners.set(block.slot, null);
+          freeSlots.add(block.slot);
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    /**
+     * Copies a block onto the heap, returning null if the block was evicted.
+     */
+    byte[] read(Block block) {
+      byte[] data = new byte[block.length];
+      long stamp = lock.tryOptimisticRead();
+      if (block.evicted) {
+        return null;
+      }
+      copy(block, data);
+      if (!lock.validate(stamp)) {
+        // the slot may have been reused while copying, so copy again holding the read lock
+        stamp = lock.readLock();
+        try {
+          if (block.evicted) {
+            return null;
+          }
+          copy(block, data);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return data;
+    }
+
+    private void copy(Block block, byte[] data) {
+      ByteBuffer dup = block.slab.duplicate();
+      dup.position(block.offset);
+      dup.get(data, 0, block.length);
+    }
+  }
+
+  /**
+   * Takes the slab whose blocks were read least recently from a size class other than the given
+   * one, evicting its blocks. A size class never gives up its last slab.
+   *
+   * @return the slab, or null if no size class has a slab to give up
+   */
+  private ByteBuffer takeColdestSlab(SizeClass taker) {
+    SizeClass donor = null;
+    int donorSlab = -1;
+    long coldest = 0;
+    // the locks of the size classes are taken one at a time, so this can not deadlock with a size
+    // class that is taking a slab at the same time
+    for (SizeClass sizeClass : sizeClasses) {
+      if (sizeClass == taker) {
+        continue;
+      }
+      long[] slab = sizeClass.findColdestSlab();
+      if (slab != null && (donor == null || slab[1] < coldest)) {
+        donor = sizeClass;
+        donorSlab = (int) slab[0];
+        coldest = slab[1];
+      }
+    }
+    return donor == null ? null : donor.removeSlab(donorSlab);
+  }
+
+  private SizeClass sizeClassFor(int length) {
+    int idx = Arrays.binarySearch(slotSizes, length);
+    if (idx < 0) {
+      idx = -idx - 1;
+    }
+    return idx < sizeClasses.length ? sizeClasses[idx] : null;
+  }
+
+  private CacheEntry read(Block block) {
+    byte[] data = block.sizeClass.read(block);
+    if (data == null) {
+      map.remove(block.name, block);
+      return null;
+    }
+    block.accessed();
+    return new OffHeapCacheEntry(block, data);
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    Block existing = map.get(blockName);
+    if (existing != null && !existing.evicted) {
+      existing.accessed();
+      return new OffHeapCacheEntry(existing, buf);
+    }
+
+    SizeClass sizeClass = sizeClassFor(buf.length);
+    Block block = sizeClass == null ? null : sizeClass.allocate(blockName, buf);
+    if (block == null) {
+      // too large or no memory for this size, hand the data back without caching it
+      return new OffHeapCacheEntry(null, buf);
+    }
+
+    Block prev = map.putIfAbsent(blockName, block);
+    if (prev != null) {
+      // another thread cached the same block
+      sizeClass.free(block);
+      return new OffHeapCacheEntry(prev, buf);
+    }
+    if (block.evicted) {
+      // evicted before it was visible in the map
+      map.remove(blockName, block);
+    }
+    return new OffHeapCacheEntry(block, buf);
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    requests.increment();
+    Block block = map.get(blockName);
+    if (block == null) {
+      return null;
+    }
+    CacheEntry ce = read(block);
+    if (ce != null) {
+      hits.increment();
+    }
+    return ce;
+  }
+
+  @Override
+  public boolean containsBlock(String blockName) {
+    return map.containsKey(blockName);
+  }
+
+  @Override
+  protected CacheEntry getBlockNoStats(String blockName) {
+    Block block = map.get(blockName);
+    return block == null ? null : read(block);
+  }
+
+  @Override
+  protected int getMaxEntrySize() {
+    return conf.getSlabSize();
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    // only bookkeeping and indexes live on the heap, estimate the bookkeeping from the expected
+    // number of blocks
+    return conf.getMaxSize() / Math.max(1, conf.getBlockSize()) * PER_BLOCK_OVERHEAD
+        + conf.getIndexHeapSize();
+  }
+
+  @Override
+  public long getMaxSize() {
+    return conf.getMaxSize();
+  }
+
+  /**
+   * @return the number of blocks currently cached
+   */
+  public long size() {
+    return map.size();
+  }
+
+  @Override
+  public Stats getStats() {
+    return new Stats() {
+      @Override
+      public long hitCount() {
+        return hits.sum();
+      }
+
+      @Override
+      public long requestCount() {
+        return requests.sum();
+      }
+
+      @Override
+      public long evictionCount() {
+        return evictions.sum();
+      }
+    };
+  }
+
+  private final class OffHeapCacheEntry implements CacheEntry {
+
+    private final Block block;
+    private final byte[] buffer;
+
+    OffHeapCacheEntry(Block block, byte[] buffer) {
+      this.block = block;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      if (block == null) {
+        return null;
+      }
+      T index = block.getIndex(supplier);
+      // outside of the lock of this block, dropping indexes takes the locks of other blocks
+      dropIndexes();
+      return index;
+    }
+
+    @Override
+    public void indexWeightChanged() {
+      if (block != null) {
+        block.countIndexWeight();
+        dropIndexes();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapBlockCache[" + conf + ", blocks: " + map.size() + "]";
+  }
+}
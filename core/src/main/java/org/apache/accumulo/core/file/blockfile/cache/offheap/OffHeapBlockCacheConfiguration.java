@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager.Configuration;
+import org.apache.accumulo.core.spi.cache.CacheType;
+
+/**
+ * Settings for {@link OffHeapBlockCache}. These are read from
+ * {@code tserver.cache.config.offheap.<type>.} and {@code tserver.cache.config.offheap.default.}
+ * (or the {@code sserver} equivalents).
+ */
+public final class OffHeapBlockCacheConfiguration {
+
+  public static final String PROPERTY_PREFIX = "offheap";
+
+  public static final long DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+  public static final int DEFAULT_MIN_SLOT_SIZE = 1024;
+  public static final float DEFAULT_GROWTH_FACTOR = 1.25f;
+  // the default on heap budget for block indexes, as a fraction of the cache size
+  public static final double DEFAULT_INDEX_HEAP_FRACTION = 0.1;
+
+  // property names
+  public static final String SLAB_SIZE_PROPERTY = "slab.size";
+  public static final String MIN_SLOT_SIZE_PROPERTY = "min.slot.size";
+  public static final String GROWTH_FACTOR_PROPERTY = "growth.factor";
+  public static final String INDEX_HEAP_SIZE_PROPERTY = "index.heap.size";
+
+  private final CacheType type;
+  private final long maxSize;
+  private final long blockSize;
+  private final int slabSize;
+  private final int minSlotSize;
+  private final float growthFactor;
+  private final long indexHeapSize;
+
+  public OffHeapBlockCacheConfiguration(Configuration conf, CacheType type) {
+    this.type = type;
+    this.maxSize = conf.getMaxSize(type);
+    this.blockSize = conf.getBlockSize();
+
+    Map<String,String> props = conf.getProperties(PROPERTY_PREFIX, type);
+
+    long slab = Optional.ofNullable(props.get(SLAB_SIZE_PROPERTY))
+        .map(ConfigurationTypeHelper::getFixedMemoryAsBytes).filter(s -> s > 0)
+        .orElse(DEFAULT_SLAB_SIZE);
+    // a single direct buffer is addressed with an int, and a slab larger than the cache could
+    // never be allocated
+    this.slabSize = (int) Math.min(Math.min(slab, Integer.MAX_VALUE), maxSize);
+    this.minSlotSize = Optional.ofNullable(props.get(MIN_SLOT_SIZE_PROPERTY))
+        .map(ConfigurationTypeHelper::getFixedMemoryAsBytes).filter(s -> s > 0)
+        .map(s -> (int) Math.min(s, slabSize)).orElse(Math.min(DEFAULT_MIN_SLOT_SIZE, slabSize));
+    this.growthFactor = Optional.ofNullable(props.get(GROWTH_FACTOR_PROPERTY)).map(Float::valueOf)
+        .orElse(DEFAULT_GROWTH_FACTOR);
+    this.indexHeapSize = Optional.ofNullable(props.get(INDEX_HEAP_SIZE_PROPERTY))
+        .map(ConfigurationTypeHelper::getFixedMemoryAsBytes).filter(s -> s >= 0)
+        .orElse((long) (maxSize * DEFAULT_INDEX_HEAP_FRACTION));
+
+    if (growthFactor <= 1.0f) {
+      throw new IllegalArgumentException("growth factor must be > 1");
+    }
+  }
+
+  public CacheType getType() {
+    return type;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public long getBlockSize() {
+    return blockSize;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public int getMinSlotSize() {
+    return minSlotSize;
+  }
+
+  public float getGrowthFactor() {
+    return growthFactor;
+  }
+
+  /**
+   * @return the most heap used by the indexes built over cached blocks
+   */
+  public long getIndexHeapSize() {
+    return indexHeapSize;
+  }
+
+  @Override
+  public String toString() {
+    return "type: " + type + ", maxSize: " + maxSize + ", slabSize: " + slabSize
+        + ", minSlotSize: " + minSlotSize + ", growthFactor: " + growthFactor + ", indexHeapSize: "
+        + indexHeapSize;
+  }
+}
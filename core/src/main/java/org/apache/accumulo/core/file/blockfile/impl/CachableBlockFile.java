@@ -23,19 +23,26 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
-import org.apache.accumulo.core.file.rfile.BlockIndex;
+import org.apache.accumulo.core.file.rfile.MultiLevelIndex.IndexEntry;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Reader.BlockReader;
 import org.apache.accumulo.core.file.rfile.bcfile.MetaBlockDoesNotExist;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
 import org.apache.accumulo.core.spi.cache.BlockCache;
 import org.apache.accumulo.core.spi.cache.BlockCache.Loader;
 import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
 import org.apache.accumulo.core.spi.crypto.CryptoService;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -157,6 +164,16 @@ public class CachableBlockFile {
     // https://stackoverflow.com/a/8381338
     private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
+    /**
+     * Blocks separated by at most this many bytes are read together when prefetching.
+     */
+    static final long MAX_PREFETCH_GAP = 64 * 1024;
+
+    /**
+     * The largest single read done when prefetching.
+     */
+    static final long MAX_PREFETCH_READ = 4 * 1024 * 1024;
+
     private long getCachedFileLen() throws IOException {
       try {
         return fileLenCache.get(cacheId, k -> {
@@ -310,6 +327,77 @@ public class CachableBlockFile {
       }
     }
 
+    /**
+     * A run of data blocks that are close together in the file. The run is read from the file the
+     * first time one of its blocks is loaded into the cache, starting at that block, so blocks that
+     * are already cached are not read again.
+     */
+    private static class PrefetchRun {
+      private final List<IndexEntry> blocks = new ArrayList<>();
+      private long end;
+      private byte[] region = null;
+      private long regionOffset;
+
+      PrefetchRun(IndexEntry first) {
+        add(first);
+      }
+
+      boolean canAdd(IndexEntry block) {
+        long start = blocks.get(0).getOffset();
+        long blockEnd = block.getOffset() + block.getCompressedSize();
+        return block.getOffset() - end <= MAX_PREFETCH_GAP
+            && blockEnd - start <= MAX_PREFETCH_READ;
+      }
+
+      void add(IndexEntry block) {
+        blocks.add(block);
+        end = Math.max(end, block.getOffset() + block.getCompressedSize());
+      }
+
+      byte[] read(BCFile.Reader bcfr, long offset) throws IOException {
+        if (region == null) {
+          regionOffset = offset;
+          region = bcfr.readRegion(offset, Math.toIntExact(end - offset));
+        }
+        return region;
+      }
+    }
+
+    private class PrefetchBlockLoader implements Loader {
+      private final PrefetchRun run;
+      private final IndexEntry block;
+
+      private PrefetchBlockLoader(PrefetchRun run, IndexEntry block) {
+        this.run = run;
+        this.block = block;
+      }
+
+      @Override
+      public Map<String,Loader> getDependencies() {
+        return Collections.emptyMap();
+      }
+
+      @Override
+      public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+        if (block.getRawSize() > Math.min(maxSize, MAX_ARRAY_SIZE)) {
+          return null;
+        }
+
+        try {
+          BCFile.Reader reader = getBCFile();
+          byte[] region = run.read(reader, block.getOffset());
+          try (BlockReader _currBlock = reader.getDataBlock(block.getOffset(),
+              block.getCompressedSize(), block.getRawSize(), region, run.regionOffset)) {
+            byte[] b = new byte[(int) block.getRawSize()];
+            _currBlock.readFully(b);
+            return b;
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
     private abstract class BaseBlockLoader implements Loader {
 
       abstract BlockReader getBlockReader(int maxSize, BCFile.Reader bcfr) throws IOException;
@@ -460,6 +548,77 @@ public class CachableBlockFile {
       return new CachedBlockRead(_currBlock);
     }
 
+    /**
+     * @return true if the data block at the given offset is in the data cache
+     */
+    public boolean isDataBlockCached(long offset) {
+      BlockCache _dCache = cacheProvider.getDataCache();
+      return _dCache != null && _dCache.containsBlock(this.cacheId + "R" + offset);
+    }
+
+    /**
+     * Loads data blocks into the data cache before they are needed. The blocks are sorted by offset
+     * and blocks that are adjacent or close together in the file are read with a single read, so
+     * many small blocks cost a few large reads instead of one read each. Blocks already in the
+     * cache are not read. At most a quarter of the data cache is filled so that prefetched blocks
+     * are not evicted before they are used. Does nothing when there is no data cache.
+     */
+    public void prefetchDataBlocks(Collection<IndexEntry> blocks) {
+      prefetchDataBlocks(blocks, null);
+    }
+
+    /**
+     * Loads data blocks into the data cache like {@link #prefetchDataBlocks(Collection)}, checking
+     * the interrupt flag before each block.
+     *
+     * @throws IterationInterruptedException if the flag is set before all blocks are loaded
+     */
+    public void prefetchDataBlocks(Collection<IndexEntry> blocks, AtomicBoolean interruptFlag) {
+      BlockCache _dCache = cacheProvider.getDataCache();
+      if (_dCache == null || blocks.isEmpty()) {
+        return;
+      }
+
+      List<IndexEntry> sorted = new ArrayList<>(blocks);
+      sorted.sort(Comparator.comparingLong(IndexEntry::getOffset));
+
+      long budget = _dCache.getMaxSize() / 4;
+      List<PrefetchRun> runs = new ArrayList<>();
+      PrefetchRun run = null;
+      long lastOffset = -1;
+      for (IndexEntry block : sorted) {
+        if (block.getOffset() == lastOffset) {
+          continue;
+        }
+        budget -= block.getRawSize();
+        if (budget < 0) {
+          break;
+        }
+        lastOffset = block.getOffset();
+        if (run != null && run.canAdd(block)) {
+          run.add(block);
+        } else {
+          run = new PrefetchRun(block);
+          runs.add(run);
+        }
+      }
+
+      try {
+        for (PrefetchRun prefetchRun : runs) {
+          for (IndexEntry block : prefetchRun.blocks) {
+            if (interruptFlag != null && interruptFlag.get()) {
+              throw new IterationInterruptedException();
+            }
+            _dCache.getBlock(this.cacheId + "R" + block.getOffset(),
+                new PrefetchBlockLoader(prefetchRun, block));
+          }
+        }
+      } catch (UncheckedIOException e) {
+        // the blocks will be read again when they are needed, which reports any error
+        log.debug("Failed to prefetch data blocks for file {}", cacheId, e);
+      }
+    }
+
     @Override
     public synchronized void close() throws IOException {
       if (closed) {
@@ -527,12 +686,21 @@ public class CachableBlockFile {
       return seekableInput.getBuffer();
     }
 
-    public BlockIndex getIndex(Supplier<BlockIndex> indexSupplier) {
+    public <T extends Weighable> T getIndex(Supplier<T> indexSupplier) {
       return cb.getIndex(indexSupplier);
     }
 
     public void indexWeightChanged() {
       cb.indexWeightChanged();
     }
+
+    /**
+     * @return a callback that reports a change in the weight of the index of the cached block. It
+     *         only references the cache entry, so it stays usable after this is closed.
+     */
+    public Runnable getIndexWeightChangedCallback() {
+      CacheEntry entry = cb;
+      return entry == null ? () -> {} : entry::indexWeightChanged;
+    }
   }
 }
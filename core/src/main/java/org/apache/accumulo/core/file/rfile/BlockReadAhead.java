@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.FILE_BLOCK_READ_AHEAD_POOL;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
+import org.apache.accumulo.core.file.rfile.MultiLevelIndex.IndexEntry;
+import org.apache.accumulo.core.file.rfile.MultiLevelIndex.Reader.IndexIterator;
+import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the data blocks of a locality group ahead of a sequential scan. Once a scan has moved
+ * through {@link #SEQUENTIAL_THRESHOLD} blocks without seeking, the following blocks are read and
+ * decompressed on a background pool. When a data cache is available the blocks are loaded into it,
+ * otherwise the decompressed bytes are held until the scan reaches them.
+ */
+class BlockReadAhead {
+
+  private static final Logger log = LoggerFactory.getLogger(BlockReadAhead.class);
+
+  /**
+   * The number of blocks a scan must move through without seeking before blocks are read ahead.
+   */
+  static final int SEQUENTIAL_THRESHOLD = 2;
+
+  /**
+   * The most index entries looked at when searching for the blocks a scan will read next.
+   */
+  private static final int MAX_LOOKAHEAD = 1024;
+
+  private static ExecutorService readAheadPool = null;
+
+  private static synchronized ExecutorService getReadAheadPool(int maxThreads) {
+    if (readAheadPool == null) {
+      readAheadPool = ThreadPools.getServerThreadPools().getPoolBuilder(FILE_BLOCK_READ_AHEAD_POOL)
+          .numCoreThreads(maxThreads).withTimeOut(60L, SECONDS).build();
+    }
+    return readAheadPool;
+  }
+
+  interface BlockSupplier {
+    CachedBlockRead get(IndexEntry indexEntry) throws IOException;
+  }
+
+  private static class PendingBlock {
+    private final long offset;
+    private final Future<CachedBlockRead> block;
+
+    PendingBlock(long offset, Future<CachedBlockRead> block) {
+      this.offset = offset;
+      this.block = block;
+    }
+  }
+
+  private final CachableBlockFile.Reader reader;
+  private final int depth;
+  private final ExecutorService executor;
+  private final ArrayDeque<PendingBlock> pending = new ArrayDeque<>();
+  private int sequentialBlocks = 0;
+
+  BlockReadAhead(CachableBlockFile.Reader reader, int depth, int maxThreads) {
+    this(reader, depth, getReadAheadPool(maxThreads));
+  }
+
+  BlockReadAhead(CachableBlockFile.Reader reader, int depth, ExecutorService executor) {
+    this.reader = reader;
+    this.depth = depth;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the block for an index entry that was just returned by {@code iiter}, using a block
+   * that was read ahead if there is one.
+   *
+   * @param sequential true if the scan moved to this block without seeking
+   * @param wanted the blocks the scan will read, blocks it skips are not read ahead
+   * @param supplier reads the block if it was not read ahead
+   */
+  CachedBlockRead getDataBlock(IndexEntry indexEntry, IndexIterator iiter, boolean sequential,
+      Predicate<IndexEntry> wanted, BlockSupplier supplier) throws IOException {
+    sequentialBlocks = sequential ? sequentialBlocks + 1 : 0;
+
+    CachedBlockRead block = null;
+    PendingBlock next = pending.peekFirst();
+    if (next != null && next.offset == indexEntry.getOffset()) {
+      pending.removeFirst();
+      block = take(next);
+    } else {
+      discardPending();
+    }
+
+    if (block == null) {
+      block = supplier.get(indexEntry);
+    }
+
+    if (sequentialBlocks >= SEQUENTIAL_THRESHOLD) {
+      schedule(iiter, wanted);
+    }
+
+    return block;
+  }
+
+  private CachedBlockRead take(PendingBlock pendingBlock) throws IOException {
+    try {
+      return pendingBlock.block.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting on read ahead block");
+    } catch (ExecutionException e) {
+      // read it again in the foreground so that any error is reported by the scan
+      log.debug("Failed to read ahead block at offset {}", pendingBlock.offset, e.getCause());
+      return null;
+    }
+  }
+
+  /**
+   * Starts reading the wanted blocks following the current position of {@code iiter} that are not
+   * already being read. The position of {@code iiter} is not changed.
+   */
+  private void schedule(IndexIterator iiter, Predicate<IndexEntry> wanted) {
+    int moved = 0;
+    try {
+      // skip over the blocks that are already being read
+      if (!pending.isEmpty()) {
+        long lastOffset = pending.peekLast().offset;
+        while (moved < MAX_LOOKAHEAD && iiter.hasNext()) {
+          moved++;
+          if (iiter.next().getOffset() == lastOffset) {
+            break;
+          }
+        }
+      }
+
+      while (pending.size() < depth && moved < MAX_LOOKAHEAD && iiter.hasNext()) {
+        IndexEntry indexEntry = iiter.next();
+        moved++;
+        if (!wanted.test(indexEntry)) {
+          continue;
+        }
+        pending.addLast(new PendingBlock(indexEntry.getOffset(),
+            executor.submit(() -> readBlock(indexEntry.getOffset(),
+                indexEntry.getCompressedSize(), indexEntry.getRawSize()))));
+      }
+    } finally {
+      for (int i = 0; i < moved; i++) {
+        iiter.previous();
+      }
+    }
+  }
+
+  private CachedBlockRead readBlock(long offset, long compressedSize, long rawSize)
+      throws IOException {
+    CachedBlockRead block = reader.getDataBlock(offset, compressedSize, rawSize);
+    if (block.isIndexable()) {
+      // came from the data cache, so it is already decompressed
+      return block;
+    }
+
+    try (block) {
+      byte[] data = new byte[Math.toIntExact(rawSize)];
+      block.readFully(data);
+      return new CachedBlockRead(new ByteArrayInputStream(data));
+    }
+  }
+
+  /**
+   * Stops reading ahead and discards any blocks that were read.
+   */
+  void cancel() {
+    sequentialBlocks = 0;
+    discardPending();
+  }
+
+  private void discardPending() {
+    for (PendingBlock pendingBlock : pending) {
+      if (!pendingBlock.block.cancel(false) && pendingBlock.block.isDone()) {
+        try {
+          pendingBlock.block.get().close();
+        } catch (IOException | ExecutionException e) {
+          log.trace("Ignoring error from discarded read ahead block", e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    pending.clear();
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+
+/**
+ * A bit set summarizing the column families in a data block, stored in the index entry of the
+ * block starting with {@link RFile#RINDEX_VER_11}. Each column family sets one bit chosen by a hash
+ * of the family, so a block whose summary does not have the bit of any wanted column family set
+ * contains none of them and does not need to be read. The size of the summary grows with the number
+ * of column families in the block. Blocks with too many column families, and the entries of the
+ * upper levels of the index, have an empty summary that matches every column family.
+ */
+final class ColumnFamilySummary {
+
+  static final long[] NONE = new long[0];
+
+  // keeps the chance that a block is read for a column family it does not contain near 1 in 8
+  private static final int BITS_PER_FAMILY = 8;
+
+  private ColumnFamilySummary() {}
+
+  private static int hash(byte[] data, int offset, int length) {
+    // FNV-1a followed by the murmur3 finalizer, so that the low bits used to pick a bit are mixed
+    int h = 0x811c9dc5;
+    for (int i = offset; i < offset + length; i++) {
+      h = (h ^ (data[i] & 0xff)) * 0x01000193;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static int hash(ByteSequence cf) {
+    if (cf.isBackedByArray()) {
+      return hash(cf.getBackingArray(), cf.offset(), cf.length());
+    }
+    byte[] data = cf.toArray();
+    return hash(data, 0, data.length);
+  }
+
+  private static boolean isSet(long[] summary, int hash) {
+    int bit = hash & (summary.length * 64 - 1);
+    return (summary[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Collects the column families of the keys written to a data block.
+   */
+  static class Builder {
+
+    private final int maxFamilies;
+    private int[] hashes = new int[16];
+    private int size = 0;
+    private boolean tooMany = false;
+
+    /**
+     * @param maxFamilies the most column families a block can have and still be summarized, 0 to
+     *        not summarize blocks
+     */
+    Builder(int maxFamilies) {
+      this.maxFamilies = maxFamilies;
+      this.tooMany = maxFamilies <= 0;
+    }
+
+    void add(Key key) {
+      if (tooMany) {
+        return;
+      }
+
+      ByteSequence cf = key.getColumnFamilyData();
+      int h = hash(cf.getBackingArray(), cf.offset(), cf.length());
+      // consecutive keys usually have the same column family
+      if (size > 0 && hashes[size - 1] == h) {
+        return;
+      }
+
+      if (size == hashes.length) {
+        size = dedupe();
+        if (size > maxFamilies) {
+          tooMany = true;
+          return;
+        }
+        if (size * 2 > hashes.length) {
+          hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+      }
+      hashes[size++] = h;
+    }
+
+    private int dedupe() {
+      Arrays.sort(hashes, 0, size);
+      int unique = 0;
+      for (int i = 0; i < size; i++) {
+        if (unique == 0 || hashes[unique - 1] != hashes[i]) {
+          hashes[unique++] = hashes[i];
+        }
+      }
+      return unique;
+    }
+
+    /**
+     * @return the summary of the column families added since the last call, or
+     *         {@link ColumnFamilySummary#NONE} if there were too many of them
+     */
+    long[] build() {
+      long[] summary = NONE;
+      if (!tooMany && size > 0) {
+        int families = dedupe();
+        if (families <= maxFamilies) {
+          int bits = Math.max(64, Integer.highestOneBit(families * BITS_PER_FAMILY - 1) << 1);
+          summary = new long[bits / 64];
+          for (int i = 0; i < families; i++) {
+            int bit = hashes[i] & (bits - 1);
+            summary[bit >>> 6] |= 1L << bit;
+          }
+        }
+      }
+
+      size = 0;
+      tooMany = maxFamilies <= 0;
+      return summary;
+    }
+  }
+
+  /**
+   * Tests the summaries of blocks against the column families a scan fetches.
+   */
+  static class Filter {
+
+    private final int[] hashes;
+
+    Filter(Collection<ByteSequence> columnFamilies) {
+      hashes = columnFamilies.stream().mapToInt(ColumnFamilySummary::hash).toArray();
+    }
+
+    /**
+     * @return false if the block with the given summary does not contain any of the column
+     *         families
+     */
+    boolean mayContain(long[] summary) {
+      if (summary.length == 0) {
+        return true;
+      }
+      for (int h : hashes) {
+        if (isSet(summary, h)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
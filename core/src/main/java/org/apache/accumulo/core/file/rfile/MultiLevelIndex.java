@@ -31,18 +31,24 @@ import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.blockfile.impl.SeekableByteArrayInputStream;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
 import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
 import org.apache.hadoop.io.WritableComparable;
 
 public class MultiLevelIndex {
@@ -53,19 +59,36 @@ public class MultiLevelIndex {
     private long offset;
     private long compressedSize;
     private long rawSize;
+    private long[] columnFamilies = ColumnFamilySummary.NONE;
     private final boolean newFormat;
+    private final boolean hasSummary;
 
     IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize) {
+      this(k, e, offset, compressedSize, rawSize, ColumnFamilySummary.NONE);
+    }
+
+    IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) {
       this.key = k;
       this.entries = e;
       this.offset = offset;
       this.compressedSize = compressedSize;
       this.rawSize = rawSize;
+      this.columnFamilies = columnFamilies;
       newFormat = true;
+      hasSummary = true;
     }
 
     public IndexEntry(boolean newFormat) {
+      this(newFormat, false);
+    }
+
+    /**
+     * @param hasSummary true if the serialized entry has a {@link ColumnFamilySummary}
+     */
+    IndexEntry(boolean newFormat, boolean hasSummary) {
       this.newFormat = newFormat;
+      this.hasSummary = hasSummary;
     }
 
     @Override
@@ -82,6 +105,13 @@ public class MultiLevelIndex {
         compressedSize = -1;
         rawSize = -1;
       }
+      if (hasSummary) {
+        int len = Utils.readVInt(in);
+        columnFamilies = len == 0 ? ColumnFamilySummary.NONE : new long[len];
+        for (int i = 0; i < len; i++) {
+          columnFamilies[i] = in.readLong();
+        }
+      }
     }
 
     @Override
@@ -93,6 +123,12 @@ public class MultiLevelIndex {
         Utils.writeVLong(out, compressedSize);
         Utils.writeVLong(out, rawSize);
       }
+      if (hasSummary) {
+        Utils.writeVInt(out, columnFamilies.length);
+        for (long bits : columnFamilies) {
+          out.writeLong(bits);
+        }
+      }
     }
 
     public Key getKey() {
@@ -115,6 +151,14 @@ public class MultiLevelIndex {
       return rawSize;
     }
 
+    /**
+     * @return the {@link ColumnFamilySummary} of the block, empty when the block may contain any
+     *         column family
+     */
+    long[] getColumnFamilySummary() {
+      return columnFamilies;
+    }
+
     @Override
     public int compareTo(IndexEntry o) {
       return key.compareTo(o.key);
@@ -210,16 +254,19 @@ public class MultiLevelIndex {
   private static class SerializedIndex extends SerializedIndexBase<IndexEntry> {
 
     private final boolean newFormat;
+    private final boolean hasSummaries;
 
-    SerializedIndex(int[] offsets, byte[] data, boolean newFormat) {
+    SerializedIndex(int[] offsets, byte[] data, boolean newFormat, boolean hasSummaries) {
       super(offsets, data);
       this.newFormat = newFormat;
+      this.hasSummaries = hasSummaries;
     }
 
     SerializedIndex(byte[] data, int offsetsOffset, int numOffsets, int indexOffset,
-        int indexSize) {
+        int indexSize, boolean hasSummaries) {
       super(data, offsetsOffset, numOffsets, indexOffset, indexSize);
       this.newFormat = true;
+      this.hasSummaries = hasSummaries;
     }
 
     public long sizeInBytes() {
@@ -232,7 +279,7 @@ public class MultiLevelIndex {
 
     @Override
     protected IndexEntry newValue() throws IOException {
-      IndexEntry ie = new IndexEntry(newFormat);
+      IndexEntry ie = new IndexEntry(newFormat, hasSummaries);
       ie.readFields(dis);
       return ie;
     }
@@ -257,7 +304,7 @@ public class MultiLevelIndex {
     }
   }
 
-  static class IndexBlock {
+  static class IndexBlock implements Weighable {
 
     private ByteArrayOutputStream indexBytes;
     private DataOutputStream indexOut;
@@ -274,6 +321,18 @@ public class MultiLevelIndex {
     private int indexSize;
     private int indexOffset;
     private boolean newFormat;
+    private boolean hasSummaries;
+
+    // Set once the block is decoded to be shared by readers through the index cache. The entries
+    // and their keys must not be modified.
+    private List<IndexEntry> entries;
+    private List<Key> keys;
+    private long serializedSize;
+    private int decodedWeight;
+    // the decoded children of a shared root block, kept for as long as the root block is
+    private AtomicReferenceArray<IndexBlock> children;
+    // the total weight of the children pinned so far
+    private AtomicLong childrenWeight;
 
     public IndexBlock(int level, int totalAdded) {
       // System.out.println("IndexBlock("+level+","+levelCount+","+totalAdded+")");
@@ -288,10 +347,10 @@ public class MultiLevelIndex {
 
     public IndexBlock() {}
 
-    public void add(Key key, int value, long offset, long compressedSize, long rawSize)
-        throws IOException {
+    public void add(Key key, int value, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       offsets.add(indexOut.size());
-      new IndexEntry(key, value, offset, compressedSize, rawSize).write(indexOut);
+      new IndexEntry(key, value, offset, compressedSize, rawSize, columnFamilies).write(indexOut);
     }
 
     int getSize() {
@@ -318,10 +377,12 @@ public class MultiLevelIndex {
     public void readFields(DataInput in, int version) throws IOException {
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
+        hasSummaries = version >= RFile.RINDEX_VER_11;
 
         CachableBlockFile.CachedBlockRead abr = (CachableBlockFile.CachedBlockRead) in;
         if (abr.isIndexable()) {
@@ -405,18 +466,36 @@ public class MultiLevelIndex {
 
     }
 
-    SerializedIndex getIndex() {
+    List<IndexEntry> getIndex() {
+      if (entries != null) {
+        return entries;
+      }
+      return getSerializedIndex();
+    }
+
+    private SerializedIndex getSerializedIndex() {
       // create SerializedIndex on demand as each has an internal input stream over byte array...
       // keeping a SerializedIndex ref for the object could lead to
       // problems with deep copies.
       if (offsetsArray == null) {
-        return new SerializedIndex(data, offsetsOffset, numOffsets, indexOffset, indexSize);
+        return new SerializedIndex(data, offsetsOffset, numOffsets, indexOffset, indexSize,
+            hasSummaries);
       } else {
-        return new SerializedIndex(offsetsArray, data, newFormat);
+        return new SerializedIndex(offsetsArray, data, newFormat, hasSummaries);
       }
     }
 
+    long sizeInBytes() {
+      if (entries != null) {
+        return serializedSize;
+      }
+      return getSerializedIndex().sizeInBytes();
+    }
+
     public List<Key> getKeyIndex() {
+      if (keys != null) {
+        return keys;
+      }
       // create KeyIndex on demand as each has an internal input stream over byte array... keeping a
       // KeyIndex ref for the object could lead to problems with
       // deep copies.
@@ -443,6 +522,70 @@ public class MultiLevelIndex {
       this.hasNext = b;
     }
 
+    /**
+     * Deserializes all of the index entries once, so that the readers sharing this block do not
+     * deserialize them on every lookup. The serialized data is not referenced afterwards.
+     */
+    void decode() {
+      SerializedIndex index = getSerializedIndex();
+      IndexEntry[] decoded = new IndexEntry[index.size()];
+      Key[] decodedKeys = new Key[decoded.length];
+      int weight = ClassSize.OBJECT + 16 * SizeConstants.SIZEOF_INT
+          + 2 * (ClassSize.ARRAY + ClassSize.REFERENCE);
+      for (int i = 0; i < decoded.length; i++) {
+        decoded[i] = index.get(i);
+        decodedKeys[i] = decoded[i].getKey();
+        weight += ClassSize.align(decodedKeys[i].getSize()) + 2 * ClassSize.OBJECT
+            + 4 * (ClassSize.ARRAY + ClassSize.REFERENCE) + 4 * SizeConstants.SIZEOF_LONG
+            + 3 * ClassSize.REFERENCE
+            + decoded[i].getColumnFamilySummary().length * SizeConstants.SIZEOF_LONG;
+      }
+
+      serializedSize = index.sizeInBytes();
+      entries = Collections.unmodifiableList(Arrays.asList(decoded));
+      keys = Collections.unmodifiableList(Arrays.asList(decodedKeys));
+      decodedWeight = weight;
+      data = null;
+      offsetsArray = null;
+    }
+
+    boolean isDecoded() {
+      return entries != null;
+    }
+
+    /**
+     * Keeps the decoded children of this block once they are read, so lookups through a shared
+     * root block do not go to the cache for the second level of the index.
+     */
+    void pinChildren() {
+      if (level > 0) {
+        children = new AtomicReferenceArray<>(entries.size());
+        childrenWeight = new AtomicLong();
+      }
+    }
+
+    /**
+     * Keeps the given decoded child, unless another one was already kept at the same position.
+     *
+     * @return true if the child was kept and the weight of this block changed
+     */
+    boolean pinChild(int pos, IndexBlock child) {
+      if (children.compareAndSet(pos, null, child)) {
+        childrenWeight.addAndGet(child.weight());
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public int weight() {
+      long weight = decodedWeight;
+      if (children != null) {
+        weight += ClassSize.ARRAY + (long) children.length() * ClassSize.REFERENCE
+            + ClassSize.align(ClassSize.OBJECT + SizeConstants.SIZEOF_LONG) + childrenWeight.get();
+      }
+      return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
   }
 
   /**
@@ -469,11 +612,11 @@ public class MultiLevelIndex {
 
       DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
 
-      IndexEntry ie = new IndexEntry(true);
+      IndexEntry ie = new IndexEntry(true, true);
       for (int i = 0; i < buffered; i++) {
         ie.readFields(dis);
         writer.add(ie.getKey(), ie.getNumEntries(), ie.getOffset(), ie.getCompressedSize(),
-            ie.getRawSize());
+            ie.getRawSize(), ie.getColumnFamilySummary());
       }
 
       buffered = 0;
@@ -484,18 +627,31 @@ public class MultiLevelIndex {
 
     public void add(Key key, int data, long offset, long compressedSize, long rawSize)
         throws IOException {
+      add(key, data, offset, compressedSize, rawSize, ColumnFamilySummary.NONE);
+    }
+
+    /**
+     * @param columnFamilies the {@link ColumnFamilySummary} of the block
+     */
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       if (buffer.size() > (10 * 1 << 20)) {
         flush();
       }
 
-      new IndexEntry(key, data, offset, compressedSize, rawSize).write(buffer);
+      new IndexEntry(key, data, offset, compressedSize, rawSize, columnFamilies).write(buffer);
       buffered++;
     }
 
     public void addLast(Key key, int data, long offset, long compressedSize, long rawSize)
         throws IOException {
+      addLast(key, data, offset, compressedSize, rawSize, ColumnFamilySummary.NONE);
+    }
+
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       flush();
-      writer.addLast(key, data, offset, compressedSize, rawSize);
+      writer.addLast(key, data, offset, compressedSize, rawSize, columnFamilies);
     }
 
     public void close(DataOutput out) throws IOException {
@@ -520,15 +676,15 @@ public class MultiLevelIndex {
       levels = new ArrayList<>();
     }
 
-    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize)
-        throws IOException {
+    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       if (level == levels.size()) {
         levels.add(new IndexBlock(level, 0));
       }
 
       IndexBlock iblock = levels.get(level);
 
-      iblock.add(key, data, offset, compressedSize, rawSize);
+      iblock.add(key, data, offset, compressedSize, rawSize, columnFamilies);
     }
 
     private void flush(int level, Key lastKey, boolean last) throws IOException {
@@ -544,7 +700,8 @@ public class MultiLevelIndex {
         iblock.write(out);
         out.close();
 
-        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize());
+        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize(),
+            ColumnFamilySummary.NONE);
         flush(level + 1, lastKey, last);
 
         if (last) {
@@ -555,21 +712,21 @@ public class MultiLevelIndex {
       }
     }
 
-    public void add(Key key, int data, long offset, long compressedSize, long rawSize)
-        throws IOException {
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, columnFamilies);
       flush(0, key, false);
     }
 
-    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize)
-        throws IOException {
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize,
+        long[] columnFamilies) throws IOException {
       if (addedLast) {
         throw new IllegalStateException("already added last");
       }
 
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, columnFamilies);
       flush(0, key, true);
       addedLast = true;
 
@@ -594,6 +751,7 @@ public class MultiLevelIndex {
   public static class Reader {
     private IndexBlock rootBlock;
     private final CachableBlockFile.Reader blockStore;
+    private final Runnable rootWeightChanged;
     private final int version;
     private int size;
 
@@ -635,8 +793,7 @@ public class MultiLevelIndex {
           return this;
         }
 
-        IndexEntry ie = indexBlock.getIndex().get(pos);
-        Node child = new Node(this, getIndexBlock(ie));
+        Node child = new Node(this, getChild(indexBlock, pos));
         return child.lookup(key);
       }
 
@@ -646,8 +803,7 @@ public class MultiLevelIndex {
           return this;
         }
 
-        IndexEntry ie = indexBlock.getIndex().get(currentPos);
-        Node child = new Node(this, getIndexBlock(ie));
+        Node child = new Node(this, getChild(indexBlock, currentPos));
         return child.getLast();
       }
 
@@ -657,8 +813,7 @@ public class MultiLevelIndex {
           return this;
         }
 
-        IndexEntry ie = indexBlock.getIndex().get(currentPos);
-        Node child = new Node(this, getIndexBlock(ie));
+        Node child = new Node(this, getChild(indexBlock, currentPos));
         return child.getFirst();
       }
 
@@ -669,8 +824,7 @@ public class MultiLevelIndex {
 
         currentPos--;
 
-        IndexEntry ie = indexBlock.getIndex().get(currentPos);
-        Node child = new Node(this, getIndexBlock(ie));
+        Node child = new Node(this, getChild(indexBlock, currentPos));
         return child.getLast();
 
       }
@@ -682,8 +836,7 @@ public class MultiLevelIndex {
 
         currentPos++;
 
-        IndexEntry ie = indexBlock.getIndex().get(currentPos);
-        Node child = new Node(this, getIndexBlock(ie));
+        Node child = new Node(this, getChild(indexBlock, currentPos));
         return child.getFirst();
 
       }
@@ -817,16 +970,70 @@ public class MultiLevelIndex {
     public Reader(CachableBlockFile.Reader blockStore, int version) {
       this.version = version;
       this.blockStore = blockStore;
+      this.rootWeightChanged = () -> {};
+    }
+
+    /**
+     * Creates a reader that shares the decoded root block of a reader that was shared through the
+     * index cache, and reads the rest of the index from the given file.
+     *
+     * @param rootWeightChanged called when the weight of the shared root block changes
+     */
+    Reader(Reader shared, CachableBlockFile.Reader blockStore, Runnable rootWeightChanged) {
+      this.version = shared.version;
+      this.size = shared.size;
+      this.rootBlock = shared.rootBlock;
+      this.blockStore = blockStore;
+      this.rootWeightChanged = rootWeightChanged;
     }
 
     private IndexBlock getIndexBlock(IndexEntry ie) throws IOException {
-      IndexBlock iblock = new IndexBlock();
-      CachableBlockFile.CachedBlockRead in =
-          blockStore.getMetaBlock(ie.getOffset(), ie.getCompressedSize(), ie.getRawSize());
-      iblock.readFields(in, version);
-      in.close();
+      try (CachableBlockFile.CachedBlockRead in =
+          blockStore.getMetaBlock(ie.getOffset(), ie.getCompressedSize(), ie.getRawSize())) {
+        if (in.isIndexable()) {
+          // share one decoded copy of the block with all readers of the file through the cache
+          IndexBlock[] created = new IndexBlock[1];
+          IndexBlock shared = in.getIndex(() -> {
+            try {
+              created[0] = new IndexBlock();
+              created[0].readFields(in, version);
+              created[0].decode();
+              return created[0];
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+          if (created[0] != null) {
+            in.indexWeightChanged();
+          }
+          if (shared != null) {
+            return shared;
+          }
+        }
 
-      return iblock;
+        IndexBlock iblock = new IndexBlock();
+        iblock.readFields(in, version);
+        return iblock;
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    private IndexBlock getChild(IndexBlock parent, int pos) throws IOException {
+      IndexEntry ie = parent.getIndex().get(pos);
+      AtomicReferenceArray<IndexBlock> children = parent.children;
+      if (children == null) {
+        return getIndexBlock(ie);
+      }
+
+      IndexBlock child = children.get(pos);
+      if (child == null) {
+        child = getIndexBlock(ie);
+        if (child.isDecoded() && parent.pinChild(pos, child)) {
+          rootWeightChanged.run();
+        }
+      }
+      return child;
     }
 
     public IndexIterator lookup(Key key) throws IOException {
@@ -839,7 +1046,8 @@ public class MultiLevelIndex {
       size = 0;
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         size = in.readInt();
       }
 
@@ -851,6 +1059,19 @@ public class MultiLevelIndex {
       }
     }
 
+    /**
+     * Decodes the root block so that it can be shared by readers, see
+     * {@link #Reader(Reader, CachableBlockFile.Reader, Runnable)}.
+     */
+    void decodeRoot() {
+      rootBlock.decode();
+      rootBlock.pinChildren();
+    }
+
+    int rootWeight() {
+      return rootBlock.weight();
+    }
+
     public int size() {
       return size;
     }
@@ -867,8 +1088,8 @@ public class MultiLevelIndex {
         count = 0L;
       }
 
-      SerializedIndex index = ib.getIndex();
-      size += index.sizeInBytes();
+      List<IndexEntry> index = ib.getIndex();
+      size += ib.sizeInBytes();
       count++;
 
       sizesByLevel.put(ib.getLevel(), size);
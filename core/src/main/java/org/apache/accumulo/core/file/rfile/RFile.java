@@ -27,7 +27,9 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +43,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.client.sample.Sampler;
@@ -56,6 +59,8 @@ import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.file.NoSuchMetaStoreException;
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachableBuilder;
 import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
@@ -77,6 +82,7 @@ import org.apache.accumulo.core.iteratorsImpl.system.LocalityGroupIterator.Local
 import org.apache.accumulo.core.iteratorsImpl.system.LocalityGroupIterator.LocalityGroupSeekCache;
 import org.apache.accumulo.core.metadata.TabletFile;
 import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
 import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.apache.hadoop.io.Text;
@@ -99,6 +105,17 @@ public class RFile {
 
   private static final int RINDEX_MAGIC = 0x20637474;
 
+  static final int RINDEX_VER_11 = 11; // Added a summary of the column families in each data block
+                                       // to the entries of the lowest level of the index, so that
+                                       // scans fetching column families can skip blocks.
+  static final int RINDEX_VER_10 = 10; // Added the minimum and maximum timestamp of the keys in
+                                       // each locality group, so that readers can skip files that
+                                       // hold no data in the time range of a scan.
+  static final int RINDEX_VER_9 = 9; // Added restart points to data blocks. Every N entries a key
+                                     // is written without relative encoding and its position is
+                                     // stored in a trailer at the end of the block. Readers binary
+                                     // search the restart points of a cached block when seeking
+                                     // instead of decoding the block from its beginning.
   static final int RINDEX_VER_8 = 8; // Added sample storage. There is a sample locality group for
                                      // each locality group. Sample are built using a Sampler and
                                      // sampler configuration. The Sampler and its configuration are
@@ -159,6 +176,9 @@ public class RFile {
     private int startBlock = -1;
     private Key firstKey;
     private Map<ByteSequence,MutableLong> columnFamilies;
+    // the range is empty when no keys were written, and unbounded when it is not known
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
 
     private boolean isDefaultLG = false;
     private String name;
@@ -174,6 +194,39 @@ public class RFile {
       this.version = version;
     }
 
+    /**
+     * Creates metadata for a reader of the file from metadata shared through the index cache. Only
+     * the index reader is not shared.
+     */
+    private LocalityGroupMetadata(LocalityGroupMetadata shared, CachableBlockFile.Reader br,
+        Runnable rootWeightChanged) {
+      this.startBlock = shared.startBlock;
+      this.firstKey = shared.firstKey;
+      this.columnFamilies = shared.columnFamilies;
+      this.minTimestamp = shared.minTimestamp;
+      this.maxTimestamp = shared.maxTimestamp;
+      this.isDefaultLG = shared.isDefaultLG;
+      this.name = shared.name;
+      this.version = shared.version;
+      this.indexReader = new MultiLevelIndex.Reader(shared.indexReader, br, rootWeightChanged);
+    }
+
+    private int weight() {
+      int weight = ClassSize.OBJECT + 8 * ClassSize.REFERENCE + 2 * SizeConstants.SIZEOF_LONG
+          + indexReader.rootWeight();
+      if (firstKey != null) {
+        weight += ClassSize.OBJECT + ClassSize.align(firstKey.getSize())
+            + 4 * (ClassSize.ARRAY + ClassSize.REFERENCE);
+      }
+      if (columnFamilies != null) {
+        for (ByteSequence cf : columnFamilies.keySet()) {
+          weight += 4 * ClassSize.OBJECT + ClassSize.align(cf.length()) + ClassSize.ARRAY
+              + 4 * ClassSize.REFERENCE;
+        }
+      }
+      return weight;
+    }
+
     public LocalityGroupMetadata(Set<ByteSequence> pcf, int indexBlockSize, BCFile.Writer bfw) {
       isDefaultLG = true;
       columnFamilies = new HashMap<>();
@@ -207,6 +260,11 @@ public class RFile {
       this.firstKey = new Key(key);
     }
 
+    private void updateTimestampRange(Key key) {
+      minTimestamp = Math.min(minTimestamp, key.getTimestamp());
+      maxTimestamp = Math.max(maxTimestamp, key.getTimestamp());
+    }
+
     public void updateColumnCount(Key key) {
 
       if (isDefaultLG && columnFamilies == null) {
@@ -297,6 +355,14 @@ public class RFile {
         firstKey = null;
       }
 
+      if (version >= RINDEX_VER_10) {
+        minTimestamp = in.readLong();
+        maxTimestamp = in.readLong();
+      } else {
+        minTimestamp = Long.MIN_VALUE;
+        maxTimestamp = Long.MAX_VALUE;
+      }
+
       indexReader.readFields(in);
     }
 
@@ -327,6 +393,9 @@ public class RFile {
         firstKey.write(out);
       }
 
+      out.writeLong(minTimestamp);
+      out.writeLong(maxTimestamp);
+
       indexWriter.close(out);
     }
 
@@ -363,6 +432,10 @@ public class RFile {
       }
 
       out.printf("\t%-22s : %,d\n", "Num entries", numKeys);
+      if (version >= RINDEX_VER_10 && numKeys > 0) {
+        out.printf("\t%-22s : %d\n", "Min timestamp", minTimestamp);
+        out.printf("\t%-22s : %d\n", "Max timestamp", maxTimestamp);
+      }
       out.printf("\t%-22s : %s\n", "Column families",
           (isDefaultLG && columnFamilies == null ? "<UNKNOWN>" : columnFamilies.keySet()));
 
@@ -451,15 +524,40 @@ public class RFile {
 
     private final SampleLocalityGroupWriter sample;
 
+    private final RestartPoints.Writer restarts;
+
+    private final ColumnFamilySummary.Builder columnFamilies;
+
     // Use windowed stats to fix ACCUMULO-4669
     private final RollingStats keyLenStats = new RollingStats(2017);
     private double averageKeySize = 0;
 
+    // Blocks compressed in the background are added to the index once they are written and their
+    // position in the file is known.
+    private final ArrayDeque<ClosedBlock> closedBlocks = new ArrayDeque<>();
+
+    private static class ClosedBlock {
+      private final Key key;
+      private final int entries;
+      private final BlockAppender block;
+      private final long[] columnFamilies;
+
+      ClosedBlock(Key key, int entries, BlockAppender block, long[] columnFamilies) {
+        this.key = key;
+        this.entries = entries;
+        this.block = block;
+        this.columnFamilies = columnFamilies;
+      }
+    }
+
     LocalityGroupWriter(BCFile.Writer fileWriter, long blockSize, long maxBlockSize,
-        LocalityGroupMetadata currentLocalityGroup, SampleLocalityGroupWriter sample) {
+        int restartInterval, int familySummaryMax, LocalityGroupMetadata currentLocalityGroup,
+        SampleLocalityGroupWriter sample) {
       this.fileWriter = fileWriter;
       this.blockSize = blockSize;
       this.maxBlockSize = maxBlockSize;
+      this.restarts = new RestartPoints.Writer(restartInterval);
+      this.columnFamilies = new ColumnFamilySummary.Builder(familySummaryMax);
       this.currentLocalityGroup = currentLocalityGroup;
       this.sample = sample;
     }
@@ -478,6 +576,7 @@ public class RFile {
       }
 
       currentLocalityGroup.updateColumnCount(key);
+      currentLocalityGroup.updateTimestampRange(key);
 
       if (currentLocalityGroup.getFirstKey() == null) {
         currentLocalityGroup.setFirstKey(key);
@@ -519,8 +618,15 @@ public class RFile {
         }
       }
 
+      if (restarts.isRestart(entries)) {
+        // write this key in full so that readers can start decoding here
+        restarts.add(blockWriter.getRawSize());
+        lastKeyInBlock = null;
+      }
+
       RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
 
+      columnFamilies.add(key);
       rk.write(blockWriter);
       value.write(blockWriter);
       entries++;
@@ -533,14 +639,21 @@ public class RFile {
     }
 
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      restarts.writeTrailer(blockWriter);
       blockWriter.close();
 
-      if (lastBlock) {
-        currentLocalityGroup.indexWriter.addLast(key, entries, blockWriter.getStartPos(),
-            blockWriter.getCompressedSize(), blockWriter.getRawSize());
-      } else {
-        currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(),
-            blockWriter.getCompressedSize(), blockWriter.getRawSize());
+      closedBlocks.add(new ClosedBlock(key, entries, blockWriter, columnFamilies.build()));
+      while (!closedBlocks.isEmpty() && (lastBlock || closedBlocks.peek().block.isWritten())) {
+        ClosedBlock closed = closedBlocks.remove();
+        BlockAppender block = closed.block;
+        if (closedBlocks.isEmpty() && lastBlock) {
+          currentLocalityGroup.indexWriter.addLast(closed.key, closed.entries,
+              block.getStartPos(), block.getCompressedSize(), block.getRawSize(),
+              closed.columnFamilies);
+        } else {
+          currentLocalityGroup.indexWriter.add(closed.key, closed.entries, block.getStartPos(),
+              block.getCompressedSize(), block.getRawSize(), closed.columnFamilies);
+        }
       }
 
       if (sample != null) {
@@ -573,6 +686,8 @@ public class RFile {
     private final long blockSize;
     private final long maxBlockSize;
     private final int indexBlockSize;
+    private final int restartInterval;
+    private final int familySummaryMax;
 
     private final ArrayList<LocalityGroupMetadata> localityGroups = new ArrayList<>();
     private final ArrayList<LocalityGroupMetadata> sampleGroups = new ArrayList<>();
@@ -598,9 +713,25 @@ public class RFile {
 
     public Writer(BCFile.Writer bfw, int blockSize, int indexBlockSize,
         SamplerConfigurationImpl samplerConfig, Sampler sampler) {
+      this(bfw, blockSize, indexBlockSize,
+          DefaultConfiguration.getInstance().getCount(Property.TABLE_FILE_RESTART_INTERVAL),
+          samplerConfig, sampler);
+    }
+
+    public Writer(BCFile.Writer bfw, int blockSize, int indexBlockSize, int restartInterval,
+        SamplerConfigurationImpl samplerConfig, Sampler sampler) {
+      this(bfw, blockSize, indexBlockSize, restartInterval,
+          DefaultConfiguration.getInstance().getCount(Property.TABLE_FILE_INDEX_FAMILY_SUMMARY_MAX),
+          samplerConfig, sampler);
+    }
+
+    public Writer(BCFile.Writer bfw, int blockSize, int indexBlockSize, int restartInterval,
+        int familySummaryMax, SamplerConfigurationImpl samplerConfig, Sampler sampler) {
       this.blockSize = blockSize;
       this.maxBlockSize = (long) (blockSize * MAX_BLOCK_MULTIPLIER);
       this.indexBlockSize = indexBlockSize;
+      this.restartInterval = restartInterval;
+      this.familySummaryMax = familySummaryMax;
       this.fileWriter = bfw;
       previousColumnFamilies = new HashSet<>();
       this.samplerConfig = samplerConfig;
@@ -619,7 +750,7 @@ public class RFile {
       BlockAppender mba = fileWriter.prepareMetaBlock("RFile.index");
 
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_8);
+      mba.writeInt(RINDEX_VER_11);
 
       if (currentLocalityGroup != null) {
         localityGroups.add(currentLocalityGroup);
@@ -721,14 +852,17 @@ public class RFile {
         previousColumnFamilies.addAll(columnFamilies);
       }
 
+      // every block of a locality group with a single column family has that family
+      int summaryMax =
+          columnFamilies != null && columnFamilies.size() == 1 ? 0 : familySummaryMax;
+
       SampleLocalityGroupWriter sampleWriter = null;
       if (sampler != null) {
-        sampleWriter = new SampleLocalityGroupWriter(
-            new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, sampleLocalityGroup, null),
-            sampler);
+        sampleWriter = new SampleLocalityGroupWriter(new LocalityGroupWriter(fileWriter, blockSize,
+            maxBlockSize, restartInterval, summaryMax, sampleLocalityGroup, null), sampler);
       }
-      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, currentLocalityGroup,
-          sampleWriter);
+      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, restartInterval,
+          summaryMax, currentLocalityGroup, sampleWriter);
     }
 
     @Override
@@ -767,6 +901,8 @@ public class RFile {
     private final int blockCount;
     private final Key firstKey;
     private final int startBlock;
+    private final long minTimestamp;
+    private final long maxTimestamp;
     private boolean closed = false;
     private final int version;
     private boolean checkRange = true;
@@ -777,6 +913,8 @@ public class RFile {
       this.firstKey = lgm.firstKey;
       this.index = lgm.indexReader;
       this.startBlock = lgm.startBlock;
+      this.minTimestamp = lgm.minTimestamp;
+      this.maxTimestamp = lgm.maxTimestamp;
       blockCount = index.size();
       this.version = version;
 
@@ -789,9 +927,74 @@ public class RFile {
       this.firstKey = lgr.firstKey;
       this.index = lgr.index;
       this.startBlock = lgr.startBlock;
+      this.minTimestamp = lgr.minTimestamp;
+      this.maxTimestamp = lgr.maxTimestamp;
       this.blockCount = lgr.blockCount;
       this.reader = lgr.reader;
       this.version = lgr.version;
+      this.readAheadBlocks = lgr.readAheadBlocks;
+      this.readAheadThreads = lgr.readAheadThreads;
+    }
+
+    void setReadAhead(int blocks, int maxThreads) {
+      // older versions locate blocks by position in the index rather than by offset
+      if (version != RINDEX_VER_3 && version != RINDEX_VER_4) {
+        this.readAheadBlocks = blocks;
+        this.readAheadThreads = maxThreads;
+      }
+    }
+
+    /**
+     * Adds the index entries of the data blocks that overlap the ranges to {@code blocks}, stopping
+     * once it holds {@code maxBlocks} entries.
+     */
+    void collectBlocks(Collection<Range> ranges, List<IndexEntry> blocks, int maxBlocks)
+        throws IOException {
+      collectBlocks(ranges, blocks, maxBlocks, indexEntry -> true);
+    }
+
+    /**
+     * Adds the index entries of the data blocks that overlap the ranges and match the filter to
+     * {@code blocks}, stopping once it holds {@code maxBlocks} entries.
+     */
+    void collectBlocks(Collection<Range> ranges, List<IndexEntry> blocks, int maxBlocks,
+        Predicate<IndexEntry> filter) throws IOException {
+      // older versions locate blocks by position in the index rather than by offset
+      if (blockCount == 0 || version == RINDEX_VER_3 || version == RINDEX_VER_4) {
+        return;
+      }
+
+      for (Range range : ranges) {
+        if (range.afterEndKey(firstKey)) {
+          continue;
+        }
+
+        Key startKey = range.getStartKey();
+        IndexIterator blockIter = index.lookup(startKey == null ? new Key() : startKey);
+        // the same key may be in the index multiple times, start at the earliest
+        while (blockIter.hasNext() && blockIter.hasPrevious()
+            && blockIter.peekPrevious().getKey().equals(blockIter.peek().getKey())) {
+          blockIter.previous();
+        }
+
+        while (blockIter.hasNext()) {
+          if (blocks.size() >= maxBlocks) {
+            return;
+          }
+          // the index of a large file has many entries, walking it may take a while
+          if (interruptFlag != null && interruptFlag.get()) {
+            throw new IterationInterruptedException();
+          }
+          IndexEntry indexEntry = blockIter.next();
+          if (filter.test(indexEntry)) {
+            blocks.add(indexEntry);
+          }
+          if (range.afterEndKey(indexEntry.getKey())) {
+            // the last key in this block is past the range
+            break;
+          }
+        }
+      }
     }
 
     Iterator<IndexEntry> getIndex() throws IOException {
@@ -802,6 +1005,9 @@ public class RFile {
     public void close() throws IOException {
       closed = true;
       hasTop = false;
+      if (readAhead != null) {
+        readAhead.cancel();
+      }
       if (currBlock != null) {
         currBlock.close();
       }
@@ -817,6 +1023,40 @@ public class RFile {
     private Range range = null;
     private boolean hasTop = false;
     private AtomicBoolean interruptFlag;
+    private final RelativeKey.FieldCache fieldCache = new RelativeKey.FieldCache();
+    private int readAheadBlocks = 0;
+    private int readAheadThreads = 0;
+    private BlockReadAhead readAhead;
+    private ColumnFamilySummary.Filter familyFilter = null;
+
+    /**
+     * Sets the column families the following seeks fetch, so that data blocks that hold none of
+     * them can be skipped.
+     *
+     * @param filter the fetched column families, or null to read every block
+     */
+    void setColumnFamilyFilter(ColumnFamilySummary.Filter filter) {
+      if (filter != familyFilter) {
+        familyFilter = filter;
+        // the current position may have skipped blocks the new filter wants
+        reset(false);
+      }
+    }
+
+    private boolean isWanted(IndexEntry indexEntry) {
+      return familyFilter == null || familyFilter.mayContain(indexEntry.getColumnFamilySummary());
+    }
+
+    /**
+     * Moves {@code iiter} past the blocks that hold none of the fetched column families and do not
+     * hold the end of the range.
+     */
+    private void skipUnwantedBlocks() {
+      while (familyFilter != null && iiter.hasNext() && !isWanted(iiter.peek())
+          && !range.afterEndKey(iiter.peek().getKey())) {
+        iiter.next();
+      }
+    }
 
     @Override
     public Key getTopKey() {
@@ -855,10 +1095,12 @@ public class RFile {
           metricsGatherer.startBlock();
         }
 
+        skipUnwantedBlocks();
+
         if (iiter.hasNext()) {
           IndexEntry indexEntry = iiter.next();
           entriesLeft = indexEntry.getNumEntries();
-          currBlock = getDataBlock(indexEntry);
+          currBlock = getDataBlock(indexEntry, true);
 
           checkRange = range.afterEndKey(indexEntry.getKey());
           if (!checkRange) {
@@ -887,12 +1129,24 @@ public class RFile {
       }
     }
 
-    private CachableBlockFile.CachedBlockRead getDataBlock(IndexEntry indexEntry)
-        throws IOException {
+    private CachableBlockFile.CachedBlockRead getDataBlock(IndexEntry indexEntry,
+        boolean sequential) throws IOException {
       if (interruptFlag != null && interruptFlag.get()) {
         throw new IterationInterruptedException();
       }
 
+      if (readAheadBlocks > 0) {
+        if (readAhead == null) {
+          readAhead = new BlockReadAhead(reader, readAheadBlocks, readAheadThreads);
+        }
+        return readAhead.getDataBlock(indexEntry, iiter, sequential, this::isWanted,
+            this::getDataBlock);
+      }
+      return getDataBlock(indexEntry);
+    }
+
+    private CachableBlockFile.CachedBlockRead getDataBlock(IndexEntry indexEntry)
+        throws IOException {
       if (version == RINDEX_VER_3 || version == RINDEX_VER_4) {
         return reader.getDataBlock(startBlock + iiter.previousIndex());
       } else {
@@ -929,6 +1183,9 @@ public class RFile {
     private void reset(boolean exceptionThrown) {
       rk = null;
       hasTop = false;
+      if (exceptionThrown && readAhead != null) {
+        readAhead.cancel();
+      }
       if (currBlock != null) {
         try {
           try {
@@ -1000,6 +1257,7 @@ public class RFile {
             val = new Value(valbs.toArray());
             prevKey = skippr.prevKey;
             rk = skippr.rk;
+            rk.setFieldCache(fieldCache);
           }
 
           reseek = false;
@@ -1038,6 +1296,11 @@ public class RFile {
             iiter.previous();
           }
 
+          skipUnwantedBlocks();
+        }
+
+        if (iiter.hasNext()) {
+
           if (iiter.hasPrevious()) {
             prevKey = new Key(iiter.peekPrevious().getKey()); // initially prevKey is the last key
                                                               // of the prev block
@@ -1047,7 +1310,7 @@ public class RFile {
 
           IndexEntry indexEntry = iiter.next();
           entriesLeft = indexEntry.getNumEntries();
-          currBlock = getDataBlock(indexEntry);
+          currBlock = getDataBlock(indexEntry, false);
 
           checkRange = range.afterEndKey(indexEntry.getKey());
           if (!checkRange) {
@@ -1058,7 +1321,20 @@ public class RFile {
 
           Key currKey = null;
 
-          if (currBlock.isIndexable()) {
+          RestartPoints.Restart restart = null;
+          if (version >= RINDEX_VER_9 && currBlock.isIndexable()) {
+            restart = RestartPoints.seek(currBlock, indexEntry.getNumEntries(), startKey);
+            if (restart != null) {
+              // The restart key is less than the start key, so decoding will move past it and
+              // compute the actual previous key. Keeping the last key of the previous block as
+              // prevKey keeps it ordered before the keys decoded from here.
+              entriesLeft = restart.entriesLeft;
+            } else {
+              currBlock.seek(0);
+            }
+          }
+
+          if (restart == null && currBlock.isIndexable()) {
             BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
             if (blockIndex != null) {
               BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
@@ -1089,6 +1365,7 @@ public class RFile {
           // set rk when everything above is successful, if exception
           // occurs rk will not be set
           rk = skippr.rk;
+          rk.setFieldCache(fieldCache);
         } else {
           // past the last key
         }
@@ -1119,6 +1396,16 @@ public class RFile {
       return index.getLastKey().getRow();
     }
 
+    @Override
+    public long getMinTimestamp() {
+      return minTimestamp;
+    }
+
+    @Override
+    public long getMaxTimestamp() {
+      return maxTimestamp;
+    }
+
     @Override
     public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
       throw new UnsupportedOperationException();
@@ -1172,8 +1459,97 @@ public class RFile {
     }
   }
 
+  /**
+   * The contents of the RFile.index meta block. When read from a cached block it is shared by all
+   * readers of the file, with the root block of each locality group's index decoded once and the
+   * second level of the index kept with it as it is read.
+   */
+  private static class RFileIndex implements Weighable {
+
+    private final int version;
+    private final ArrayList<LocalityGroupMetadata> localityGroups = new ArrayList<>();
+    private final ArrayList<LocalityGroupMetadata> sampleGroups = new ArrayList<>();
+    private final SamplerConfigurationImpl samplerConfig;
+    private final boolean shared;
+
+    /**
+     * @param rdr the file the index readers read from, or null to create an index to share
+     */
+    RFileIndex(DataInput mb, CachableBlockFile.Reader rdr) throws IOException {
+      int magic = mb.readInt();
+      int ver = mb.readInt();
+      version = ver;
+      shared = rdr == null;
+
+      if (magic != RINDEX_MAGIC) {
+        throw new IOException("Did not see expected magic number, saw " + magic);
+      }
+      if (ver != RINDEX_VER_11 && ver != RINDEX_VER_10 && ver != RINDEX_VER_9
+          && ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6
+          && ver != RINDEX_VER_4 && ver != RINDEX_VER_3) {
+        throw new IOException("Did not see expected version, saw " + ver);
+      }
+
+      int size = mb.readInt();
+      for (int i = 0; i < size; i++) {
+        localityGroups.add(readLocalityGroup(mb, rdr));
+      }
+
+      if (ver >= RINDEX_VER_8 && mb.readBoolean()) {
+        for (int i = 0; i < size; i++) {
+          sampleGroups.add(readLocalityGroup(mb, rdr));
+        }
+
+        samplerConfig = new SamplerConfigurationImpl(mb);
+      } else {
+        samplerConfig = null;
+      }
+    }
+
+    private LocalityGroupMetadata readLocalityGroup(DataInput mb, CachableBlockFile.Reader rdr)
+        throws IOException {
+      LocalityGroupMetadata lgm = new LocalityGroupMetadata(version, rdr);
+      lgm.readFields(mb);
+      if (shared) {
+        lgm.indexReader.decodeRoot();
+      }
+      return lgm;
+    }
+
+    /**
+     * @return the locality group metadata to use for a reader of the file
+     */
+    private List<LocalityGroupMetadata> getLocalityGroups(List<LocalityGroupMetadata> groups,
+        CachableBlockFile.Reader rdr, Runnable rootWeightChanged) {
+      if (!shared) {
+        return groups;
+      }
+      List<LocalityGroupMetadata> copies = new ArrayList<>(groups.size());
+      for (LocalityGroupMetadata lgm : groups) {
+        copies.add(new LocalityGroupMetadata(lgm, rdr, rootWeightChanged));
+      }
+      return copies;
+    }
+
+    @Override
+    public int weight() {
+      long weight =
+          ClassSize.OBJECT + 6 * ClassSize.REFERENCE + 2 * (ClassSize.OBJECT + ClassSize.ARRAY);
+      for (LocalityGroupMetadata lgm : localityGroups) {
+        weight += lgm.weight();
+      }
+      for (LocalityGroupMetadata lgm : sampleGroups) {
+        weight += lgm.weight();
+      }
+      return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+  }
+
   public static class Reader extends HeapIterator implements RFileSKVIterator {
 
+    // checking the summary of a block against more column families than this rarely skips it
+    private static final int MAX_FILTER_COLUMN_FAMILIES = 64;
+
     private final CachableBlockFile.Reader reader;
 
     private final ArrayList<LocalityGroupMetadata> localityGroups = new ArrayList<>();
@@ -1184,6 +1560,8 @@ public class RFile {
     private final LocalityGroupReader[] sampleReaders;
     private final LocalityGroupContext lgContext;
     private LocalityGroupSeekCache lgCache;
+    private Set<ByteSequence> filterFamilies = null;
+    private ColumnFamilySummary.Filter familyFilter = null;
 
     private List<Reader> deepCopies;
     private boolean deepCopy = false;
@@ -1194,54 +1572,67 @@ public class RFile {
 
     private int rfileVersion;
 
+    /**
+     * The most data blocks loaded by a single call to {@link #prefetch(Collection)}.
+     */
+    static final int MAX_PREFETCH_BLOCKS = 1024;
+
     public Reader(CachableBlockFile.Reader rdr) throws IOException {
       this.reader = rdr;
 
       try (CachableBlockFile.CachedBlockRead mb = reader.getMetaBlock("RFile.index")) {
-        int magic = mb.readInt();
-        int ver = mb.readInt();
-        rfileVersion = ver;
-
-        if (magic != RINDEX_MAGIC) {
-          throw new IOException("Did not see expected magic number, saw " + magic);
+        RFileIndex index = null;
+        if (mb.isIndexable()) {
+          // share one decoded copy of the index with all readers of the file through the cache
+          RFileIndex[] created = new RFileIndex[1];
+          index = mb.getIndex(() -> {
+            try {
+              created[0] = new RFileIndex(mb, null);
+              return created[0];
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+          if (created[0] != null) {
+            mb.indexWeightChanged();
+          }
         }
-        if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4
-            && ver != RINDEX_VER_3) {
-          throw new IOException("Did not see expected version, saw " + ver);
+        if (index == null) {
+          index = new RFileIndex(mb, rdr);
         }
 
-        int size = mb.readInt();
-        currentReaders = new LocalityGroupReader[size];
+        int ver = index.version;
+        rfileVersion = ver;
+        Runnable rootWeightChanged = mb.getIndexWeightChangedCallback();
 
-        deepCopies = new LinkedList<>();
+        localityGroups
+            .addAll(index.getLocalityGroups(index.localityGroups, rdr, rootWeightChanged));
+        currentReaders = new LocalityGroupReader[localityGroups.size()];
 
-        for (int i = 0; i < size; i++) {
-          LocalityGroupMetadata lgm = new LocalityGroupMetadata(ver, rdr);
-          lgm.readFields(mb);
-          localityGroups.add(lgm);
+        deepCopies = new LinkedList<>();
 
-          currentReaders[i] = new LocalityGroupReader(reader, lgm, ver);
+        for (int i = 0; i < localityGroups.size(); i++) {
+          currentReaders[i] = new LocalityGroupReader(reader, localityGroups.get(i), ver);
         }
 
         readers = currentReaders;
 
-        if (ver == RINDEX_VER_8 && mb.readBoolean()) {
-          sampleReaders = new LocalityGroupReader[size];
+        if (index.samplerConfig != null) {
+          sampleGroups
+              .addAll(index.getLocalityGroups(index.sampleGroups, rdr, rootWeightChanged));
+          sampleReaders = new LocalityGroupReader[sampleGroups.size()];
 
-          for (int i = 0; i < size; i++) {
-            LocalityGroupMetadata lgm = new LocalityGroupMetadata(ver, rdr);
-            lgm.readFields(mb);
-            sampleGroups.add(lgm);
-
-            sampleReaders[i] = new LocalityGroupReader(reader, lgm, ver);
+          for (int i = 0; i < sampleGroups.size(); i++) {
+            sampleReaders[i] = new LocalityGroupReader(reader, sampleGroups.get(i), ver);
           }
 
-          samplerConfig = new SamplerConfigurationImpl(mb);
+          samplerConfig = index.samplerConfig;
         } else {
           sampleReaders = null;
           samplerConfig = null;
         }
-
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
       }
 
       lgContext = new LocalityGroupContext(currentReaders);
@@ -1398,6 +1789,24 @@ public class RFile {
       return maxRow;
     }
 
+    @Override
+    public long getMinTimestamp() {
+      long min = Long.MAX_VALUE;
+      for (LocalityGroupReader currentReader : currentReaders) {
+        min = Math.min(min, currentReader.getMinTimestamp());
+      }
+      return min;
+    }
+
+    @Override
+    public long getMaxTimestamp() {
+      long max = Long.MIN_VALUE;
+      for (LocalityGroupReader currentReader : currentReaders) {
+        max = Math.max(max, currentReader.getMaxTimestamp());
+      }
+      return max;
+    }
+
     @Override
     public DataInputStream getMetaStore(String name) throws IOException, NoSuchMetaStoreException {
       try {
@@ -1489,10 +1898,30 @@ public class RFile {
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
         throws IOException {
+      setColumnFamilyFilter(columnFamilies, inclusive);
       lgCache =
           LocalityGroupIterator.seek(this, lgContext, range, columnFamilies, inclusive, lgCache);
     }
 
+    private void setColumnFamilyFilter(Collection<ByteSequence> columnFamilies,
+        boolean inclusive) {
+      if (!inclusive || columnFamilies.isEmpty()
+          || columnFamilies.size() > MAX_FILTER_COLUMN_FAMILIES) {
+        filterFamilies = null;
+        familyFilter = null;
+      } else if (columnFamilies != filterFamilies && (filterFamilies == null
+          || filterFamilies.size() != columnFamilies.size()
+          || !filterFamilies.containsAll(columnFamilies))) {
+        // the same column families are usually seeked again, keep the same filter for them
+        filterFamilies = new HashSet<>(columnFamilies);
+        familyFilter = new ColumnFamilySummary.Filter(filterFamilies);
+      }
+
+      for (LocalityGroupReader lgr : currentReaders) {
+        lgr.setColumnFamilyFilter(familyFilter);
+      }
+    }
+
     int getNumLocalityGroupsSeeked() {
       return (lgCache == null ? 0 : lgCache.getNumLGSeeked());
     }
@@ -1567,6 +1996,85 @@ public class RFile {
       setInterruptFlagInternal(flag);
     }
 
+    /**
+     * Enables reading up to {@code blocks} data blocks ahead of sequential scans, using a
+     * background pool of at most {@code maxThreads} threads shared by all readers. This must be
+     * called before any deep copies are made.
+     */
+    public void setReadAhead(int blocks, int maxThreads) {
+      Preconditions.checkState(deepCopies.isEmpty(),
+          "Setting read ahead after calling deep copy not supported");
+      for (LocalityGroupReader lgr : readers) {
+        lgr.setReadAhead(blocks, maxThreads);
+      }
+      if (sampleReaders != null) {
+        for (LocalityGroupReader lgr : sampleReaders) {
+          lgr.setReadAhead(blocks, maxThreads);
+        }
+      }
+    }
+
+    /**
+     * Loads the data blocks that overlap the given sorted ranges into the data cache, reading
+     * blocks that are close together in the file with a single read. Only the locality groups that
+     * a seek with the given column families would read are considered. At most
+     * {@link #MAX_PREFETCH_BLOCKS} blocks are loaded.
+     *
+     * @see CachableBlockFile.Reader#prefetchDataBlocks(Collection)
+     */
+    @Override
+    public void prefetch(Collection<Range> ranges, Collection<ByteSequence> columnFamilies,
+        boolean inclusive) throws IOException {
+      if (ranges.isEmpty()) {
+        return;
+      }
+
+      List<IndexEntry> blocks = new ArrayList<>();
+      for (LocalityGroup lg : LocalityGroupIterator.selectLocalityGroups(lgContext, columnFamilies,
+          inclusive)) {
+        ((LocalityGroupReader) lg).collectBlocks(ranges, blocks, MAX_PREFETCH_BLOCKS);
+      }
+      reader.prefetchDataBlocks(blocks);
+    }
+
+    @Override
+    public long[] getCachedBlocks(int max) throws IOException {
+      return getCachedBlocks(new Range(), max);
+    }
+
+    /**
+     * @return the sorted offsets of at most {@code max} data blocks that overlap the range and are
+     *         in the data cache
+     */
+    private long[] getCachedBlocks(Range range, int max) throws IOException {
+      List<IndexEntry> blocks = new ArrayList<>();
+      for (LocalityGroupReader lgr : currentReaders) {
+        lgr.collectBlocks(List.of(range), blocks, max,
+            indexEntry -> reader.isDataBlockCached(indexEntry.getOffset()));
+      }
+      return blocks.stream().mapToLong(IndexEntry::getOffset).sorted().distinct().toArray();
+    }
+
+    /**
+     * Loads the data blocks at the given sorted offsets into the data cache, reading blocks that
+     * are close together in the file with a single read.
+     *
+     * @see CachableBlockFile.Reader#prefetchDataBlocks(Collection)
+     */
+    @Override
+    public void prefetchBlocks(long[] offsets) throws IOException {
+      if (offsets.length == 0) {
+        return;
+      }
+
+      List<IndexEntry> blocks = new ArrayList<>();
+      for (LocalityGroupReader lgr : currentReaders) {
+        lgr.collectBlocks(List.of(new Range()), blocks, offsets.length,
+            indexEntry -> Arrays.binarySearch(offsets, indexEntry.getOffset()) >= 0);
+      }
+      reader.prefetchDataBlocks(blocks, interruptFlag);
+    }
+
     private void setInterruptFlagInternal(AtomicBoolean flag) {
       this.interruptFlag = flag;
       for (LocalityGroupReader lgr : currentReaders) {
@@ -1681,6 +2189,16 @@ public class RFile {
       }
     }
 
+    @Override
+    public long getMinTimestamp() throws IOException {
+      return reader.getMinTimestamp();
+    }
+
+    @Override
+    public long getMaxTimestamp() throws IOException {
+      return reader.getMaxTimestamp();
+    }
+
     @Override
     public boolean isRunningLowOnMemory() {
       return reader.isRunningLowOnMemory();
@@ -1805,6 +2323,29 @@ public class RFile {
       reader.seek(range, columnFamilies, inclusive);
     }
 
+    @Override
+    public void prefetch(Collection<Range> ranges, Collection<ByteSequence> columnFamilies,
+        boolean inclusive) throws IOException {
+      List<Range> clipped = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        Range clippedRange = fence.clip(range, true);
+        if (clippedRange != null) {
+          clipped.add(clippedRange);
+        }
+      }
+      reader.prefetch(clipped, columnFamilies, inclusive);
+    }
+
+    @Override
+    public long[] getCachedBlocks(int max) throws IOException {
+      return reader.getCachedBlocks(fence, max);
+    }
+
+    @Override
+    public void prefetchBlocks(long[] offsets) throws IOException {
+      reader.prefetchBlocks(offsets);
+    }
+
     @Override
     public FencedReader deepCopy(IteratorEnvironment env) {
       return new FencedReader(reader.deepCopy(env), fence);
@@ -1838,7 +2379,20 @@ public class RFile {
 
   public static RFileSKVIterator getReader(final CachableBuilder cb, final TabletFile dataFile)
       throws IOException {
+    return getReader(cb, dataFile, 0, 0);
+  }
+
+  /**
+   * @param readAheadBlocks the number of data blocks to read ahead of sequential scans, 0 disables
+   *        read ahead
+   * @param readAheadThreads the maximum number of threads used to read ahead for all readers
+   */
+  public static RFileSKVIterator getReader(final CachableBuilder cb, final TabletFile dataFile,
+      int readAheadBlocks, int readAheadThreads) throws IOException {
     final RFile.Reader reader = new RFile.Reader(Objects.requireNonNull(cb));
+    if (readAheadBlocks > 0) {
+      reader.setReadAhead(readAheadBlocks, readAheadThreads);
+    }
     return dataFile.hasRange() ? new FencedReader(reader, dataFile.getRange()) : reader;
   }
 
@@ -59,7 +59,13 @@ public class RFileOperations extends FileOperations {
         .fsPath(options.getFileSystem(), options.getFile().getPath(), options.dropCacheBehind)
         .conf(options.getConfiguration()).fileLen(options.getFileLenCache())
         .cacheProvider(options.cacheProvider).cryptoService(options.getCryptoService());
-    return RFile.getReader(cb, options.getFile());
+    AccumuloConfiguration tableConf = options.getTableConfiguration();
+    if (tableConf == null) {
+      return RFile.getReader(cb, options.getFile());
+    }
+    return RFile.getReader(cb, options.getFile(),
+        tableConf.getCount(Property.TABLE_FILE_READAHEAD_BLOCKS),
+        tableConf.getCount(Property.GENERAL_FILE_READAHEAD_MAXCONCURRENT));
   }
 
   @Override
@@ -103,6 +109,11 @@ public class RFileOperations extends FileOperations {
         "table.file.compress.blocksize.index must be greater than 0 and less than "
             + Integer.MAX_VALUE);
 
+    int restartInterval = acuconf.getCount(Property.TABLE_FILE_RESTART_INTERVAL);
+    int familySummaryMax = acuconf.getCount(Property.TABLE_FILE_INDEX_FAMILY_SUMMARY_MAX);
+    int dictionarySize = (int) Math.min(BCFile.MAX_DICTIONARY_SIZE,
+        acuconf.getAsBytes(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE));
+
     SamplerConfigurationImpl samplerConfig = SamplerConfigurationImpl.newSamplerConfig(acuconf);
     Sampler sampler = null;
 
@@ -155,8 +166,12 @@ public class RFileOperations extends FileOperations {
       }
     }
 
-    BCFile.Writer _cbw = new BCFile.Writer(outputStream, compression, conf, options.cryptoService);
+    BCFile.Writer _cbw = new BCFile.Writer(outputStream, compression, conf,
+        options.cryptoService, dictionarySize,
+        acuconf.getCount(Property.TABLE_FILE_COMPRESSION_PENDING_BLOCKS),
+        acuconf.getCount(Property.GENERAL_FILE_COMPRESSION_MAXCONCURRENT));
 
-    return new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, samplerConfig, sampler);
+    return new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, restartInterval,
+        familySummaryMax, samplerConfig, sampler);
   }
 }
@@ -21,6 +21,7 @@ package org.apache.accumulo.core.file.rfile;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
@@ -68,6 +69,14 @@ public class RelativeKey implements Writable {
   int cvCommonPrefixLen;
   long tsDiff;
 
+  // created once per instance instead of once per field per key read
+  private final Supplier<ByteSequence> prevRow = () -> prevKey.getRowData();
+  private final Supplier<ByteSequence> prevCf = () -> prevKey.getColumnFamilyData();
+  private final Supplier<ByteSequence> prevCq = () -> prevKey.getColumnQualifierData();
+  private final Supplier<ByteSequence> prevCv = () -> prevKey.getColumnVisibilityData();
+
+  private FieldCache fieldCache;
+
   /**
    * This constructor is used when one needs to read from an input stream
    */
@@ -163,6 +172,14 @@ public class RelativeKey implements Writable {
     this.prevKey = pk;
   }
 
+  /**
+   * Sets the cache used to share column family and visibility arrays between decoded keys. Allows
+   * a reader to keep using the same cache across seeks.
+   */
+  void setFieldCache(FieldCache fieldCache) {
+    this.fieldCache = fieldCache;
+  }
+
   @Override
   public void readFields(DataInput in) throws IOException {
     fieldsSame = in.readByte();
@@ -175,10 +192,10 @@ public class RelativeKey implements Writable {
     final byte[] row, cf, cq, cv;
     final long ts;
 
-    row = getData(in, ROW_SAME, ROW_COMMON_PREFIX, () -> prevKey.getRowData());
-    cf = getData(in, CF_SAME, CF_COMMON_PREFIX, () -> prevKey.getColumnFamilyData());
-    cq = getData(in, CQ_SAME, CQ_COMMON_PREFIX, () -> prevKey.getColumnQualifierData());
-    cv = getData(in, CV_SAME, CV_COMMON_PREFIX, () -> prevKey.getColumnVisibilityData());
+    row = getData(in, ROW_SAME, ROW_COMMON_PREFIX, prevRow);
+    cf = getCachedData(in, CF_SAME, CF_COMMON_PREFIX, prevCf);
+    cq = getData(in, CQ_SAME, CQ_COMMON_PREFIX, prevCq);
+    cv = getCachedData(in, CV_SAME, CV_COMMON_PREFIX, prevCv);
 
     if ((fieldsSame & TS_SAME) == TS_SAME) {
       ts = prevKey.getTimestamp();
@@ -203,6 +220,87 @@ public class RelativeKey implements Writable {
     }
   }
 
+  /**
+   * Same as {@link #getData(DataInput, byte, byte, Supplier)}, except that data which is not the
+   * same as the previous key is looked up in a {@link FieldCache}. Used for the column family and
+   * visibility, which tend to have few distinct values that do not always repeat on consecutive
+   * keys.
+   */
+  private byte[] getCachedData(DataInput in, byte fieldBit, byte commonPrefix,
+      Supplier<ByteSequence> data) throws IOException {
+    if ((fieldsSame & fieldBit) == fieldBit) {
+      return data.get().toArray();
+    }
+
+    if (fieldCache == null) {
+      fieldCache = new FieldCache();
+    }
+
+    if ((fieldsPrefixed & commonPrefix) == commonPrefix) {
+      return fieldCache.readPrefix(in, data.get());
+    } else {
+      return fieldCache.read(in);
+    }
+  }
+
+  /**
+   * A small direct mapped cache of recently decoded key fields. Consecutive keys often alternate
+   * between a few column families or visibility expressions, for example when a row has many
+   * families or when visibility labels are interleaved. In these cases the field differs from the
+   * previous key, but is equal to one decoded a few keys earlier. Returning the earlier array
+   * instead of allocating a copy for every key significantly reduces garbage when scanning, most of
+   * which is created for keys that are immediately dropped by filters. This is safe because the
+   * arrays of a {@link Key} are never modified in place, in the same way that fields identical to
+   * the previous key already share its array.
+   */
+  static class FieldCache {
+    // must be a power of two
+    private static final int SIZE = 64;
+    // longer fields are unlikely to repeat and would be expensive to compare
+    static final int MAX_FIELD_LEN = 256;
+
+    private final byte[][] entries = new byte[SIZE][];
+    private final byte[] scratch = new byte[MAX_FIELD_LEN];
+
+    byte[] read(DataInput in) throws IOException {
+      int len = WritableUtils.readVInt(in);
+      if (len > MAX_FIELD_LEN) {
+        byte[] data = new byte[len];
+        in.readFully(data);
+        return data;
+      }
+      in.readFully(scratch, 0, len);
+      return intern(len);
+    }
+
+    byte[] readPrefix(DataInput in, ByteSequence prefixSource) throws IOException {
+      int prefixLen = WritableUtils.readVInt(in);
+      int remainingLen = WritableUtils.readVInt(in);
+      int len = prefixLen + remainingLen;
+      byte[] dest = len > MAX_FIELD_LEN ? new byte[len] : scratch;
+      copyPrefix(prefixSource, dest, prefixLen);
+      in.readFully(dest, prefixLen, remainingLen);
+      return dest == scratch ? intern(len) : dest;
+    }
+
+    private byte[] intern(int len) {
+      int hash = 1;
+      for (int i = 0; i < len; i++) {
+        hash = 31 * hash + scratch[i];
+      }
+      int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+      byte[] entry = entries[slot];
+      if (entry != null && Arrays.equals(entry, 0, entry.length, scratch, 0, len)) {
+        return entry;
+      }
+
+      entry = Arrays.copyOf(scratch, len);
+      entries[slot] = entry;
+      return entry;
+    }
+  }
+
   public static class SkippR {
     final RelativeKey rk;
     final int skipped;
@@ -456,15 +554,19 @@ public class RelativeKey implements Writable {
     int prefixLen = WritableUtils.readVInt(in);
     int remainingLen = WritableUtils.readVInt(in);
     byte[] data = new byte[prefixLen + remainingLen];
+    copyPrefix(prefixSource, data, prefixLen);
+    // read remaining
+    in.readFully(data, prefixLen, remainingLen);
+    return data;
+  }
+
+  private static void copyPrefix(ByteSequence prefixSource, byte[] dest, int prefixLen) {
     if (prefixSource.isBackedByArray()) {
-      System.arraycopy(prefixSource.getBackingArray(), prefixSource.offset(), data, 0, prefixLen);
+      System.arraycopy(prefixSource.getBackingArray(), prefixSource.offset(), dest, 0, prefixLen);
     } else {
       byte[] prefixArray = prefixSource.toArray();
-      System.arraycopy(prefixArray, 0, data, 0, prefixLen);
+      System.arraycopy(prefixArray, 0, dest, 0, prefixLen);
     }
-    // read remaining
-    in.readFully(data, prefixLen, remainingLen);
-    return data;
   }
 
   private static void readPrefix(DataInput in, ArrayByteSequence dest, ByteSequence prefixSource)
@@ -476,12 +578,7 @@ public class RelativeKey implements Writable {
     if (buf.length < len) {
       buf = new byte[UnsynchronizedBuffer.nextArraySize(len)];
     }
-    if (prefixSource.isBackedByArray()) {
-      System.arraycopy(prefixSource.getBackingArray(), prefixSource.offset(), buf, 0, prefixLen);
-    } else {
-      byte[] prefixArray = prefixSource.toArray();
-      System.arraycopy(prefixArray, 0, buf, 0, prefixLen);
-    }
+    copyPrefix(prefixSource, buf, prefixLen);
     // read remaining
     in.readFully(buf, prefixLen, remainingLen);
     dest.reset(buf, 0, len);
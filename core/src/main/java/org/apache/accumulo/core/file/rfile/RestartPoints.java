@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
+
+/**
+ * Restart points stored at the end of each data block, starting with {@link RFile#RINDEX_VER_9}.
+ * Every {@code interval} entries the writer stores a key without relative encoding and records its
+ * position in the block. A reader can then binary search the restart points of a cached block to
+ * find where to start decoding, instead of decoding from the beginning of the block or relying on a
+ * {@link BlockIndex} that is lost whenever the block is evicted from the cache.
+ *
+ * <p>
+ * The trailer is written after the last entry of the block, so readers that decode a fixed number
+ * of entries never see it. Its layout is the position of each restart point as an int, followed by
+ * the interval and the number of restart points. Positions are relative to the start of the
+ * uncompressed block. The first entry of a block is never relative encoded, so it is not stored.
+ */
+class RestartPoints {
+
+  private static final int TRAILER_INTS = 2;
+
+  private RestartPoints() {}
+
+  static class Writer {
+    private final int interval;
+    private int[] positions = new int[16];
+    private int size = 0;
+
+    Writer(int interval) {
+      this.interval = interval;
+    }
+
+    /**
+     * @return true when the entry about to be appended to the block should be written as a restart
+     *         point, i.e. without relative encoding
+     */
+    boolean isRestart(int entriesInBlock) {
+      return interval > 0 && entriesInBlock > 0 && entriesInBlock % interval == 0;
+    }
+
+    void add(long position) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+      positions[size++] = (int) position;
+    }
+
+    void writeTrailer(DataOutput out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.writeInt(positions[i]);
+      }
+      out.writeInt(interval);
+      out.writeInt(size);
+      size = 0;
+    }
+  }
+
+  /**
+   * The result of seeking with restart points.
+   */
+  static class Restart {
+    final Key key;
+    final int entriesLeft;
+
+    Restart(Key key, int entriesLeft) {
+      this.key = key;
+      this.entriesLeft = entriesLeft;
+    }
+  }
+
+  /**
+   * Positions the block at the last restart point whose key is strictly less than the start key.
+   * Using a strictly smaller key ensures that when the same key is stored multiple times, decoding
+   * starts before the earliest copy.
+   *
+   * @param numEntries the number of entries in the block
+   * @return the restart point that the block was positioned at, or null if there is no restart
+   *         point before the start key. When null is returned the position of the block is
+   *         undefined and the caller must decode from the beginning of the block.
+   */
+  static Restart seek(CachedBlockRead block, int numEntries, Key startKey) throws IOException {
+    byte[] buf = block.getBuffer();
+    if (buf.length < TRAILER_INTS * Integer.BYTES) {
+      return null;
+    }
+
+    int count = readInt(buf, buf.length - Integer.BYTES);
+    int interval = readInt(buf, buf.length - 2 * Integer.BYTES);
+    if (count == 0) {
+      return null;
+    }
+    int positionsStart = buf.length - (TRAILER_INTS + count) * Integer.BYTES;
+
+    int low = 0;
+    int high = count - 1;
+    int found = -1;
+    Key foundKey = null;
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Key midKey = readKey(block, readInt(buf, positionsStart + mid * Integer.BYTES));
+      if (midKey.compareTo(startKey) < 0) {
+        found = mid;
+        foundKey = midKey;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    if (found == -1) {
+      return null;
+    }
+
+    block.seek(readInt(buf, positionsStart + found * Integer.BYTES));
+    return new Restart(foundKey, numEntries - (found + 1) * interval);
+  }
+
+  private static Key readKey(CachedBlockRead block, int position) throws IOException {
+    block.seek(position);
+    // restart points are not relative encoded, so no previous key is needed
+    RelativeKey rk = new RelativeKey();
+    rk.readFields(block);
+    return rk.getKey();
+  }
+
+  private static int readInt(byte[] buf, int offset) {
+    return ((buf[offset] & 0xff) << 24) | ((buf[offset + 1] & 0xff) << 16)
+        | ((buf[offset + 2] & 0xff) << 8) | (buf[offset + 3] & 0xff);
+  }
+}
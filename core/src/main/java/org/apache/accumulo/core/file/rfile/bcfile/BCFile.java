@@ -18,6 +18,11 @@
  */
 package org.apache.accumulo.core.file.rfile.bcfile;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.FILE_BLOCK_COMPRESSION_POOL;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
@@ -27,12 +32,22 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.accumulo.core.crypto.CryptoEnvironmentImpl;
 import org.apache.accumulo.core.crypto.CryptoUtils;
@@ -46,6 +61,8 @@ import org.apache.accumulo.core.spi.crypto.FileDecrypter;
 import org.apache.accumulo.core.spi.crypto.FileEncrypter;
 import org.apache.accumulo.core.spi.crypto.NoFileDecrypter;
 import org.apache.accumulo.core.spi.crypto.NoFileEncrypter;
+import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -63,6 +80,13 @@ import org.apache.hadoop.io.compress.Decompressor;
 public final class BCFile {
   // the current version of BCFile impl, increment them (major or minor) made
   // enough changes
+  /**
+   * Data blocks may be compressed with a preset dictionary stored in the
+   * {@link #DICTIONARY_BLOCK_NAME} meta block. Only written when a dictionary is used, so that
+   * readers that do not know about dictionaries refuse the file instead of failing to decompress
+   * it.
+   */
+  static final Version API_VERSION_4 = new Version((short) 4, (short) 0);
   /**
    * Simplified encryption interface. Allows more flexible encryption.
    *
@@ -80,6 +104,32 @@ public final class BCFile {
   static final Version API_VERSION_1 = new Version((short) 1, (short) 0);
   static final Log LOG = LogFactory.getLog(BCFile.class);
 
+  /**
+   * The meta block holding the preset dictionary used to compress data blocks, if there is one.
+   */
+  static final String DICTIONARY_BLOCK_NAME = "BCFile.dictionary";
+
+  /**
+   * Preset dictionaries are only supported for gz, and deflate can not use a larger one.
+   */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  // the amount of data sampled to build a dictionary, relative to the dictionary size
+  private static final int DICTIONARY_SAMPLE_FACTOR = 8;
+
+  private static final int DICTIONARY_BUF_SIZE = 4 * 1024;
+
+  private static ExecutorService compressionPool = null;
+
+  private static synchronized ExecutorService getCompressionPool(int maxThreads) {
+    if (compressionPool == null) {
+      compressionPool = ThreadPools.getServerThreadPools()
+          .getPoolBuilder(FILE_BLOCK_COMPRESSION_POOL).numCoreThreads(maxThreads)
+          .withTimeOut(60L, SECONDS).build();
+    }
+    return compressionPool;
+  }
+
   private static final String FS_OUTPUT_BUF_SIZE_ATTR = "tfile.fs.output.buffer.size";
   private static final String FS_INPUT_BUF_SIZE_ATTR = "tfile.fs.input.buffer.size";
 
@@ -117,6 +167,16 @@ public final class BCFile {
     // reusable buffers.
     private BytesWritable fsOutputBuffer;
     private long length = 0;
+    // samples data blocks until a dictionary is built, null when not building one
+    private DictionaryTrainer dictionaryTrainer = null;
+    // data blocks starting at or after dictionaryOffset are compressed with the dictionary
+    private byte[] dictionary = null;
+    private long dictionaryOffset = -1;
+    // compresses data blocks in the background, null when blocks are compressed as they are written
+    private final ExecutorService blockCompressor;
+    private final int maxPendingBlocks;
+    // closed data blocks that are not written to the file yet, in the order they will be written
+    private final ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
 
     public long getLength() {
       return this.length;
@@ -129,6 +189,7 @@ public final class BCFile {
       private final CompressionAlgorithm compressAlgo;
       private Compressor compressor; // !null only if using native
       // Hadoop compression
+      private Deflater deflater; // !null only if using a preset dictionary
       private final FSDataOutputStream fsOut;
       private final OutputStream cipherOut;
       private final long posStart;
@@ -138,6 +199,17 @@ public final class BCFile {
       public WBlockState(CompressionAlgorithm compressionAlgo, FSDataOutputStream fsOut,
           BytesWritable fsOutputBuffer, Configuration conf, FileEncrypter encrypter)
           throws IOException {
+        this(compressionAlgo, fsOut, fsOutputBuffer, conf, encrypter, null, null);
+      }
+
+      /**
+       * @param dictionary if not null, the block is compressed with deflate using this preset
+       *        dictionary instead of the compression algorithm's codec
+       * @param sample if not null, receives a copy of the uncompressed data written to the block
+       */
+      WBlockState(CompressionAlgorithm compressionAlgo, FSDataOutputStream fsOut,
+          BytesWritable fsOutputBuffer, Configuration conf, FileEncrypter encrypter,
+          byte[] dictionary, OutputStream sample) throws IOException {
         this.compressAlgo = compressionAlgo;
         this.fsOut = fsOut;
         this.posStart = fsOut.getPos();
@@ -146,13 +218,30 @@ public final class BCFile {
 
         this.fsBufferedOutput =
             new SimpleBufferedOutputStream(this.fsOut, fsOutputBuffer.getBytes());
-        this.compressor = compressAlgo.getCompressor();
+
+        if (dictionary != null) {
+          this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+          this.deflater.setDictionary(dictionary);
+        } else {
+          this.compressor = compressAlgo.getCompressor();
+        }
 
         try {
           this.cipherOut = encrypter.encryptStream(fsBufferedOutput);
-          this.out = compressionAlgo.createCompressionStream(cipherOut, compressor, 0);
+          if (deflater != null) {
+            this.out = new BufferedOutputStream(
+                new DictionaryCompressionStream(cipherOut, deflater), DICTIONARY_BUF_SIZE);
+          } else {
+            this.out = compressionAlgo.createCompressionStream(cipherOut, compressor, 0);
+          }
+          if (sample != null) {
+            this.out = new TeeOutputStream(out, sample);
+          }
         } catch (IOException e) {
           compressAlgo.returnCompressor(compressor);
+          if (deflater != null) {
+            deflater.end();
+          }
           throw e;
         }
       }
@@ -211,8 +300,76 @@ public final class BCFile {
         } finally {
           compressAlgo.returnCompressor(compressor);
           compressor = null;
+          if (deflater != null) {
+            deflater.end();
+            deflater = null;
+          }
+        }
+      }
+    }
+
+    /**
+     * Finishes the deflate stream when flushed, like the streams created by
+     * {@link CompressionAlgorithm#createCompressionStream(OutputStream, Compressor, int)}.
+     */
+    private static final class DictionaryCompressionStream extends DeflaterOutputStream {
+      DictionaryCompressionStream(OutputStream out, Deflater deflater) {
+        super(out, deflater, DICTIONARY_BUF_SIZE);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        finish();
+        out.flush();
+      }
+    }
+
+    /**
+     * A data block that is compressed in the background. It is written to the file once it is
+     * compressed and all the blocks before it have been written.
+     */
+    private static final class PendingBlock {
+      private final Future<ByteArrayOutputStream> compressed;
+      private long startPos = -1;
+      private long compressedSize = -1;
+
+      PendingBlock(Future<ByteArrayOutputStream> compressed) {
+        this.compressed = compressed;
+      }
+
+      boolean isWritten() {
+        return startPos >= 0;
+      }
+    }
+
+    /**
+     * Compresses a block in memory, the same way {@link WBlockState} compresses it into the file.
+     */
+    private static ByteArrayOutputStream compressBlock(CompressionAlgorithm compressAlgo,
+        byte[] dictionary, ByteArrayOutputStream raw) throws IOException {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 64);
+      if (dictionary != null) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+          deflater.setDictionary(dictionary);
+          OutputStream cos = new DictionaryCompressionStream(compressed, deflater);
+          raw.writeTo(cos);
+          cos.flush();
+        } finally {
+          deflater.end();
+        }
+      } else {
+        Compressor compressor = compressAlgo.getCompressor();
+        try {
+          OutputStream cos = compressAlgo.createCompressionStream(compressed, compressor, 0);
+          raw.writeTo(cos);
+          // finishes the compressed stream
+          cos.flush();
+        } finally {
+          compressAlgo.returnCompressor(compressor);
         }
       }
+      return compressed;
     }
 
     /**
@@ -221,7 +378,11 @@ public final class BCFile {
      */
     public class BlockAppender extends DataOutputStream {
       private final MetaBlockRegister metaBlockRegister;
+      // null for a data block that is compressed in the background
       private final WBlockState wBlkState;
+      // the uncompressed data of a block that is compressed in the background
+      private final ByteArrayOutputStream rawBlock;
+      private PendingBlock pendingBlock = null;
       private boolean closed = false;
 
       /**
@@ -234,12 +395,21 @@ public final class BCFile {
         super(wbs.getOutputStream());
         this.metaBlockRegister = metaBlockRegister;
         this.wBlkState = wbs;
+        this.rawBlock = null;
       }
 
       BlockAppender(WBlockState wbs) {
         super(wbs.getOutputStream());
         this.metaBlockRegister = null;
         this.wBlkState = wbs;
+        this.rawBlock = null;
+      }
+
+      BlockAppender(ByteArrayOutputStream rawBlock) {
+        super(rawBlock);
+        this.metaBlockRegister = null;
+        this.wBlkState = null;
+        this.rawBlock = rawBlock;
       }
 
       /**
@@ -261,16 +431,45 @@ public final class BCFile {
        *
        * @return the number of compressed bytes written to the underlying FS file. The size may be
        *         smaller than actual need to compress the all data written due to internal buffering
-       *         inside the compressor.
+       *         inside the compressor. For a block compressed in the background, this waits for the
+       *         closed block to be written.
        */
       public long getCompressedSize() throws IOException {
+        if (wBlkState == null) {
+          return waitForWrite().compressedSize;
+        }
         return wBlkState.getCompressedSize();
       }
 
-      public long getStartPos() {
+      /**
+       * @return the offset of the block in the file. For a block compressed in the background, this
+       *         waits for the closed block to be written.
+       */
+      public long getStartPos() throws IOException {
+        if (wBlkState == null) {
+          return waitForWrite().startPos;
+        }
         return wBlkState.getStartPos();
       }
 
+      /**
+       * @return true if {@link #getStartPos()} and {@link #getCompressedSize()} can be called
+       *         without waiting for the block to be compressed and written
+       */
+      public boolean isWritten() {
+        return wBlkState != null || (pendingBlock != null && pendingBlock.isWritten());
+      }
+
+      private PendingBlock waitForWrite() throws IOException {
+        if (pendingBlock == null) {
+          throw new IllegalStateException("Block compressed in the background is not closed.");
+        }
+        while (!pendingBlock.isWritten()) {
+          writeBlock(pendingBlocks.remove());
+        }
+        return pendingBlock;
+      }
+
       @Override
       public void flush() {
         // The down stream is a special kind of stream that finishes a
@@ -288,7 +487,11 @@ public final class BCFile {
         }
         try {
           ++errorCount;
-          wBlkState.finish();
+          if (wBlkState == null) {
+            pendingBlock = submitBlock(rawBlock);
+          } else {
+            wBlkState.finish();
+          }
           if (metaBlockRegister != null) {
             metaBlockRegister.register(getRawSize(), wBlkState.getStartPos(),
                 wBlkState.getCurrentPos());
@@ -311,6 +514,34 @@ public final class BCFile {
      */
     public Writer(FSDataOutputStream fout, String compressionName, Configuration conf,
         CryptoService cryptoService) throws IOException {
+      this(fout, compressionName, conf, cryptoService, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param dictionarySize if greater than 0 and the compression algorithm is gz, a preset
+     *        dictionary of at most this size, up to {@link #MAX_DICTIONARY_SIZE}, is built from a
+     *        sample of the first data blocks. It is used to compress all the data blocks that
+     *        follow the sample, which improves compression of small blocks.
+     */
+    public Writer(FSDataOutputStream fout, String compressionName, Configuration conf,
+        CryptoService cryptoService, int dictionarySize) throws IOException {
+      this(fout, compressionName, conf, cryptoService, dictionarySize, 0, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxPendingBlocks if greater than 0, data blocks are compressed on a shared pool of
+     *        threads and written to the file in order once compressed. At most this many closed
+     *        blocks are held in memory waiting to be compressed and written, closing a block waits
+     *        for the oldest one to be written when there are more.
+     * @param maxThreads the number of threads in the shared pool, used when the pool is created
+     */
+    public Writer(FSDataOutputStream fout, String compressionName, Configuration conf,
+        CryptoService cryptoService, int dictionarySize, int maxPendingBlocks, int maxThreads)
+        throws IOException {
       if (fout.getPos() != 0) {
         throw new IOException("Output file not at zero offset.");
       }
@@ -323,6 +554,74 @@ public final class BCFile {
       Magic.write(this.out);
       this.cryptoEnvironment = new CryptoEnvironmentImpl(Scope.TABLE, null, null);
       this.encrypter = cryptoService.getFileEncrypter(this.cryptoEnvironment);
+
+      if (dictionarySize > 0 && getDefaultCompressionAlgorithm().getName().equals("gz")) {
+        int size = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+        dictionaryTrainer = new DictionaryTrainer(size, size * DICTIONARY_SAMPLE_FACTOR);
+      }
+
+      this.maxPendingBlocks = maxPendingBlocks;
+      this.blockCompressor = maxPendingBlocks > 0 ? getCompressionPool(maxThreads) : null;
+    }
+
+    /**
+     * Hands a closed data block to the background compressor and writes any blocks that are ready.
+     */
+    private PendingBlock submitBlock(ByteArrayOutputStream raw) throws IOException {
+      if (dictionaryTrainer != null) {
+        raw.writeTo(dictionaryTrainer);
+      }
+
+      CompressionAlgorithm compressAlgo = getDefaultCompressionAlgorithm();
+      byte[] blockDictionary = dictionary;
+      PendingBlock block = new PendingBlock(
+          blockCompressor.submit(() -> compressBlock(compressAlgo, blockDictionary, raw)));
+      pendingBlocks.add(block);
+
+      while (!pendingBlocks.isEmpty() && (pendingBlocks.size() > maxPendingBlocks
+          || pendingBlocks.peek().compressed.isDone())) {
+        writeBlock(pendingBlocks.remove());
+      }
+      return block;
+    }
+
+    private void writePendingBlocks() throws IOException {
+      while (!pendingBlocks.isEmpty()) {
+        writeBlock(pendingBlocks.remove());
+      }
+    }
+
+    /**
+     * Waits for a block to be compressed, then encrypts it and appends it to the file. Encryption
+     * is done here because blocks must be encrypted in the order they are written.
+     */
+    private void writeBlock(PendingBlock block) throws IOException {
+      ++errorCount;
+      ByteArrayOutputStream compressed;
+      try {
+        compressed = block.compressed.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting on block compression");
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to compress block", e.getCause());
+      }
+
+      long posStart = out.getPos();
+      fsOutputBuffer.setCapacity(getFSOutputBufferSize(conf));
+      SimpleBufferedOutputStream fsBufferedOutput =
+          new SimpleBufferedOutputStream(out, fsOutputBuffer.getBytes());
+      OutputStream cipherOut = encrypter.encryptStream(fsBufferedOutput);
+      compressed.writeTo(cipherOut);
+      if (fsBufferedOutput != cipherOut) {
+        // flushes the final encrypted bytes without closing the file
+        cipherOut.close();
+      }
+      fsBufferedOutput.flush();
+
+      block.startPos = posStart;
+      block.compressedSize = out.getPos() - posStart;
+      --errorCount;
     }
 
     /**
@@ -341,6 +640,15 @@ public final class BCFile {
             throw new IllegalStateException("Close() called with active block appender.");
           }
 
+          if (dictionary != null) {
+            try (BlockAppender appender =
+                prepareMetaBlock(DICTIONARY_BLOCK_NAME, getDefaultCompressionAlgorithm())) {
+              appender.writeLong(dictionaryOffset);
+              appender.writeInt(dictionary.length);
+              appender.write(dictionary);
+            }
+          }
+
           // add metaBCFileIndex to metaIndex as the last meta block
           try (BlockAppender appender =
               prepareMetaBlock(DataIndex.BLOCK_NAME, getDefaultCompressionAlgorithm())) {
@@ -357,13 +665,17 @@ public final class BCFile {
 
           out.writeLong(offsetIndexMeta);
           out.writeLong(offsetCryptoParameter);
-          API_VERSION_3.write(out);
+          (dictionary != null ? API_VERSION_4 : API_VERSION_3).write(out);
           Magic.write(out);
           out.flush();
           length = out.getPos();
           out.close();
         }
       } finally {
+        for (PendingBlock block : pendingBlocks) {
+          block.compressed.cancel(false);
+        }
+        pendingBlocks.clear();
         closed = true;
       }
     }
@@ -382,6 +694,8 @@ public final class BCFile {
         throw new MetaBlockAlreadyExists("name=" + name);
       }
 
+      writePendingBlocks();
+
       MetaBlockRegister mbr = new MetaBlockRegister(name, compressAlgo);
       WBlockState wbs = new WBlockState(compressAlgo, out, fsOutputBuffer, conf, encrypter);
       BlockAppender ba = new BlockAppender(mbr, wbs);
@@ -420,9 +734,25 @@ public final class BCFile {
         throw new IllegalStateException("Cannot create Data Block after Meta Blocks.");
       }
 
-      WBlockState wbs =
-          new WBlockState(getDefaultCompressionAlgorithm(), out, fsOutputBuffer, conf, encrypter);
-      BlockAppender ba = new BlockAppender(wbs);
+      if (dictionaryTrainer != null && dictionaryTrainer.isSampled()) {
+        byte[] trained = dictionaryTrainer.train();
+        dictionaryTrainer = null;
+        if (trained.length > 0) {
+          // the offset of the first block that uses the dictionary must be known
+          writePendingBlocks();
+          dictionary = trained;
+          dictionaryOffset = out.getPos();
+        }
+      }
+
+      BlockAppender ba;
+      if (blockCompressor != null) {
+        ba = new BlockAppender(new ByteArrayOutputStream());
+      } else {
+        WBlockState wbs = new WBlockState(getDefaultCompressionAlgorithm(), out, fsOutputBuffer,
+            conf, encrypter, dictionary, dictionaryTrainer);
+        ba = new BlockAppender(wbs);
+      }
       blkInProgress = true;
       return ba;
     }
@@ -458,6 +788,10 @@ public final class BCFile {
     final Version version;
     private byte[] decryptionParams;
     private FileDecrypter decrypter;
+    private final boolean hasDictionary;
+    // loaded on first use, data blocks starting at or after dictionaryOffset use the dictionary
+    private volatile byte[] dictionary = null;
+    private long dictionaryOffset;
 
     /**
      * Intermediate class that maintain the state of a Readable Compression Block.
@@ -465,6 +799,7 @@ public final class BCFile {
     private static final class RBlockState {
       private final CompressionAlgorithm compressAlgo;
       private Decompressor decompressor;
+      private Inflater inflater; // !null only if using a preset dictionary
       private final BlockRegion region;
       private final InputStream in;
       private volatile boolean closed;
@@ -472,20 +807,48 @@ public final class BCFile {
       public <InputStreamType extends InputStream & Seekable> RBlockState(
           CompressionAlgorithm compressionAlgo, InputStreamType fsin, BlockRegion region,
           Configuration conf, FileDecrypter decrypter) throws IOException {
+        this(compressionAlgo, fsin, region, conf, decrypter, null);
+      }
+
+      /**
+       * @param dictionary if not null, the block was compressed with deflate using this preset
+       *        dictionary
+       */
+      <InputStreamType extends InputStream & Seekable> RBlockState(
+          CompressionAlgorithm compressionAlgo, InputStreamType fsin, BlockRegion region,
+          Configuration conf, FileDecrypter decrypter, byte[] dictionary) throws IOException {
         this.compressAlgo = compressionAlgo;
         this.region = region;
-        this.decompressor = compressionAlgo.getDecompressor();
 
         BoundedRangeFileInputStream boundedRangeFileInputStream = new BoundedRangeFileInputStream(
             fsin, this.region.getOffset(), this.region.getCompressedSize());
 
+        if (dictionary != null) {
+          this.inflater = new Inflater(true);
+          this.inflater.setDictionary(dictionary);
+        } else {
+          this.decompressor = compressionAlgo.getDecompressor();
+        }
+
         try {
           InputStream inputStreamToBeCompressed =
               decrypter.decryptStream(boundedRangeFileInputStream);
-          this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed, decompressor,
-              getFSInputBufferSize(conf));
+          if (inflater != null) {
+            // inflating raw deflate data may need an extra byte past the end of the input
+            InputStream padded = new SequenceInputStream(inputStreamToBeCompressed,
+                new ByteArrayInputStream(new byte[1]));
+            this.in = new BufferedInputStream(
+                new InflaterInputStream(padded, inflater, getFSInputBufferSize(conf)),
+                DICTIONARY_BUF_SIZE);
+          } else {
+            this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed,
+                decompressor, getFSInputBufferSize(conf));
+          }
         } catch (IOException e) {
           compressAlgo.returnDecompressor(decompressor);
+          if (inflater != null) {
+            inflater.end();
+          }
           throw e;
         }
         closed = false;
@@ -518,12 +881,47 @@ public final class BCFile {
                   decompressor = null;
                 }
               }
+              if (inflater != null) {
+                inflater.end();
+                inflater = null;
+              }
             }
           }
         }
       }
     }
 
+    /**
+     * A region of the file that was read into memory, addressed by file offsets.
+     */
+    private static final class RegionInputStream extends ByteArrayInputStream implements Seekable {
+      private final long regionOffset;
+
+      RegionInputStream(byte[] region, long regionOffset) {
+        super(region);
+        this.regionOffset = regionOffset;
+      }
+
+      @Override
+      public synchronized void seek(long position) throws IOException {
+        if (position < regionOffset || position > regionOffset + count) {
+          throw new IOException("Seek to " + position + " is outside of region starting at "
+              + regionOffset + " with length " + count);
+        }
+        pos = (int) (position - regionOffset);
+      }
+
+      @Override
+      public synchronized long getPos() {
+        return regionOffset + pos;
+      }
+
+      @Override
+      public boolean seekToNewSource(long targetPos) {
+        return false;
+      }
+    }
+
     /**
      * Access point to read a block.
      */
@@ -601,11 +999,13 @@ public final class BCFile {
       Magic.readAndVerify(this.in);
 
       // Do a version check - API_VERSION_2 used experimental crypto parameters, no longer supported
-      if (!version.compatibleWith(BCFile.API_VERSION_3)
+      if (!version.compatibleWith(BCFile.API_VERSION_4)
+          && !version.compatibleWith(BCFile.API_VERSION_3)
           && !version.compatibleWith(BCFile.API_VERSION_1)) {
         throw new IOException("Unsupported BCFile Version found: " + version + ". "
-            + "Only support " + API_VERSION_1 + " or " + API_VERSION_3);
+            + "Only support " + API_VERSION_1 + ", " + API_VERSION_3 + " or " + API_VERSION_4);
       }
+      hasDictionary = version.compatibleWith(BCFile.API_VERSION_4);
 
       // Read the right number offsets based on version
       long offsetIndexMeta = 0;
@@ -657,6 +1057,7 @@ public final class BCFile {
 
       metaIndex = new MetaIndex(dis);
       dataIndex = new DataIndex(dis);
+      hasDictionary = metaIndex.getMetaByName(DICTIONARY_BLOCK_NAME) != null;
 
       decryptionParams = CryptoUtils.readParams(dis);
       CryptoEnvironmentImpl env = new CryptoEnvironmentImpl(Scope.TABLE, null, decryptionParams);
@@ -719,13 +1120,43 @@ public final class BCFile {
       }
 
       BlockRegion region = dataIndex.getBlockRegionList().get(blockIndex);
-      return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
+      return createDataReader(region);
     }
 
     public BlockReader getDataBlock(long offset, long compressedSize, long rawSize)
         throws IOException {
       BlockRegion region = new BlockRegion(offset, compressedSize, rawSize);
-      return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
+      return createDataReader(region);
+    }
+
+    /**
+     * Reads a contiguous region of the file, such as a run of adjacent data blocks, with a single
+     * read.
+     */
+    public byte[] readRegion(long offset, int length) throws IOException {
+      byte[] region = new byte[length];
+      // synchronize on the stream to ensure thread safety with the BoundedRangeFileInputStream
+      synchronized (in) {
+        in.seek(offset);
+        in.readFully(region);
+      }
+      return region;
+    }
+
+    /**
+     * Stream access to a data block contained in a region returned by
+     * {@link #readRegion(long, int)}.
+     *
+     * @param region the bytes of the file starting at {@code regionOffset}
+     * @param regionOffset the offset in the file where {@code region} starts
+     */
+    public BlockReader getDataBlock(long offset, long compressedSize, long rawSize, byte[] region,
+        long regionOffset) throws IOException {
+      BlockRegion blockRegion = new BlockRegion(offset, compressedSize, rawSize);
+      RBlockState rbs = new RBlockState(dataIndex.getDefaultCompressionAlgorithm(),
+          new RegionInputStream(region, regionOffset), blockRegion, conf, decrypter,
+          getDictionary(blockRegion));
+      return new BlockReader(rbs);
     }
 
     public long getDataBlockRawSize(int blockIndex) {
@@ -742,6 +1173,44 @@ public final class BCFile {
       RBlockState rbs = new RBlockState(compressAlgo, in, region, conf, decrypter);
       return new BlockReader(rbs);
     }
+
+    private BlockReader createDataReader(BlockRegion region) throws IOException {
+      RBlockState rbs = new RBlockState(dataIndex.getDefaultCompressionAlgorithm(), in, region,
+          conf, decrypter, getDictionary(region));
+      return new BlockReader(rbs);
+    }
+
+    /**
+     * @return the preset dictionary the data block was compressed with, or null if it was not
+     *         compressed with one
+     */
+    private byte[] getDictionary(BlockRegion region) throws IOException {
+      if (!hasDictionary) {
+        return null;
+      }
+      MetaIndexEntry entry = metaIndex.getMetaByName(DICTIONARY_BLOCK_NAME);
+      if (entry == null) {
+        // readers built from serialized metadata do not know the version of the file
+        throw new IOException((version == null ? "BCFile" : "BCFile version " + version)
+            + " has no " + DICTIONARY_BLOCK_NAME + " meta block");
+      }
+
+      if (dictionary == null) {
+        synchronized (this) {
+          if (dictionary == null) {
+            try (BlockReader reader = createReader(entry.getCompressionAlgorithm(),
+                entry.getRegion())) {
+              dictionaryOffset = reader.readLong();
+              byte[] dict = new byte[reader.readInt()];
+              reader.readFully(dict);
+              dictionary = dict;
+            }
+          }
+        }
+      }
+
+      return region.getOffset() >= dictionaryOffset ? dictionary : null;
+    }
   }
 
   /**
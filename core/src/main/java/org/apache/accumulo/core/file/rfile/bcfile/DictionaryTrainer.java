@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile.bcfile;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds a preset compression dictionary from a sample of the data written to a file.
+ *
+ * <p>
+ * The sample is split into overlapping segments and each segment is scored by how often the short
+ * byte sequences it contains occur in the whole sample. Segments are chosen greedily by score, and
+ * once a segment is chosen the sequences it contains no longer count towards the score of other
+ * segments, so the dictionary does not fill up with copies of the same content. This is a
+ * simplified form of the COVER algorithm used to train zstd dictionaries.
+ */
+class DictionaryTrainer extends OutputStream {
+
+  // the length of the byte sequences that are counted
+  private static final int SEQUENCE_LENGTH = 8;
+  private static final int SEGMENT_LENGTH = 128;
+  private static final int SEGMENT_STEP = SEGMENT_LENGTH / 4;
+  private static final int COUNT_BITS = 20;
+
+  private final int dictionarySize;
+  private final byte[] sample;
+  private int sampleLength = 0;
+
+  /**
+   * @param dictionarySize the size of dictionary to build
+   * @param sampleSize the number of bytes to sample before building the dictionary
+   */
+  DictionaryTrainer(int dictionarySize, int sampleSize) {
+    this.dictionarySize = dictionarySize;
+    this.sample = new byte[sampleSize];
+  }
+
+  @Override
+  public void write(int b) {
+    if (sampleLength < sample.length) {
+      sample[sampleLength++] = (byte) b;
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    int n = Math.min(len, sample.length - sampleLength);
+    System.arraycopy(b, off, sample, sampleLength, n);
+    sampleLength += n;
+  }
+
+  /**
+   * @return true once enough data has been sampled to build the dictionary
+   */
+  boolean isSampled() {
+    return sampleLength == sample.length;
+  }
+
+  private static int sequenceHash(byte[] data, int pos) {
+    long v = 0;
+    for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+      v = (v << 8) | (data[pos + i] & 0xff);
+    }
+    return (int) ((v * 0x9e3779b97f4a7c15L) >>> (64 - COUNT_BITS));
+  }
+
+  private static final class Segment {
+    private final int start;
+    private long score;
+
+    Segment(int start, long score) {
+      this.start = start;
+      this.score = score;
+    }
+  }
+
+  private long score(int start, int[] counts, int[] seen, int mark) {
+    long score = 0;
+    int end = start + SEGMENT_LENGTH - SEQUENCE_LENGTH;
+    for (int pos = start; pos <= end; pos++) {
+      int h = sequenceHash(sample, pos);
+      // count each sequence once per segment
+      if (seen[h] != mark) {
+        seen[h] = mark;
+        score += counts[h];
+      }
+    }
+    return score;
+  }
+
+  /**
+   * @return the dictionary built from the sampled data, with the most useful content last where
+   *         matches are cheapest to encode
+   */
+  byte[] train() {
+    if (sampleLength <= dictionarySize || sampleLength < SEGMENT_LENGTH) {
+      return Arrays.copyOfRange(sample, Math.max(0, sampleLength - dictionarySize), sampleLength);
+    }
+
+    int[] counts = new int[1 << COUNT_BITS];
+    for (int pos = 0; pos + SEQUENCE_LENGTH <= sampleLength; pos++) {
+      counts[sequenceHash(sample, pos)]++;
+    }
+
+    int[] seen = new int[1 << COUNT_BITS];
+    int mark = 0;
+    PriorityQueue<Segment> candidates =
+        new PriorityQueue<>(Comparator.comparingLong((Segment s) -> s.score).reversed());
+    for (int start = 0; start + SEGMENT_LENGTH <= sampleLength; start += SEGMENT_STEP) {
+      candidates.add(new Segment(start, score(start, counts, seen, ++mark)));
+    }
+
+    List<Segment> chosen = new ArrayList<>();
+    int size = 0;
+    while (size + SEGMENT_LENGTH <= dictionarySize && !candidates.isEmpty()) {
+      Segment best = candidates.poll();
+      // scores only go down as segments are chosen, so rescore and put it back if another
+      // candidate may now be better
+      long score = score(best.start, counts, seen, ++mark);
+      if (score <= 0) {
+        break;
+      }
+      if (score < best.score && !candidates.isEmpty() && score < candidates.peek().score) {
+        best.score = score;
+        candidates.add(best);
+        continue;
+      }
+
+      chosen.add(best);
+      size += SEGMENT_LENGTH;
+      int end = best.start + SEGMENT_LENGTH - SEQUENCE_LENGTH;
+      for (int pos = best.start; pos <= end; pos++) {
+        counts[sequenceHash(sample, pos)] = 0;
+      }
+    }
+
+    byte[] dictionary = new byte[size];
+    int pos = size;
+    for (Segment segment : chosen) {
+      pos -= SEGMENT_LENGTH;
+      System.arraycopy(sample, segment.start, dictionary, pos, SEGMENT_LENGTH);
+    }
+    return dictionary;
+  }
+}
@@ -21,6 +21,8 @@ package org.apache.accumulo.core.iteratorsImpl;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -29,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.classloader.ClassLoaderUtil;
@@ -42,7 +45,15 @@ import org.apache.accumulo.core.dataImpl.thrift.IterInfo;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.user.AgeOffFilter;
+import org.apache.accumulo.core.iterators.user.CfCqSliceFilter;
+import org.apache.accumulo.core.iterators.user.ColumnAgeOffFilter;
+import org.apache.accumulo.core.iterators.user.ColumnSliceFilter;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.iterators.user.ReqVisFilter;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.accumulo.core.iterators.user.VersioningIterator;
+import org.apache.accumulo.core.iterators.user.VisibilityFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +67,14 @@ public class IteratorConfigUtil {
   public static final Comparator<IterInfo> ITER_INFO_COMPARATOR =
       Comparator.comparingInt(IterInfo::getPriority);
 
+  // Iterators that decide on each entry by itself, or keep the newest versions of a column. Leaving
+  // older entries out of their source does not change what they return for newer entries.
+  private static final Set<String> ENTRY_ITERATORS = Set.of(VersioningIterator.class.getName(),
+      TimestampFilter.class.getName(), AgeOffFilter.class.getName(),
+      ColumnAgeOffFilter.class.getName(), ColumnSliceFilter.class.getName(),
+      CfCqSliceFilter.class.getName(), RegExFilter.class.getName(), ReqVisFilter.class.getName(),
+      VisibilityFilter.class.getName());
+
   /**
    * Fetch the correct configuration key prefix for the given scope. Throws an
    * IllegalArgumentException if no property exists for the given scope.
@@ -169,6 +188,90 @@ public class IteratorConfigUtil {
     return IteratorBuilder.builder(iterators).opts(allOptions);
   }
 
+  /**
+   * Finds a timestamp that every entry returned by an iterator stack is at or after, using the
+   * {@link TimestampFilter} and {@link AgeOffFilter} iterators in the stack. Entries older than the
+   * returned timestamp can be left out of the source of the stack, for example by not reading files
+   * that only contain older entries, without changing what the stack returns. Only filters that
+   * have no other kind of iterator beneath them are used, because an iterator that combines entries
+   * could turn older entries into newer ones.
+   *
+   * @param iters the iterators of the stack, sorted by priority
+   * @param iterOpts the options of the iterators
+   * @param currentTime the time to age off entries from, which must not be later than the time the
+   *        stack is created
+   * @return the timestamp, or {@link Long#MIN_VALUE} when entries of any age may be returned
+   */
+  public static long getMinTimestamp(List<IterInfo> iters,
+      Map<String,Map<String,String>> iterOpts, long currentTime) {
+    long minTimestamp = Long.MIN_VALUE;
+    for (IterInfo iterInfo : iters) {
+      if (!ENTRY_ITERATORS.contains(iterInfo.getClassName())) {
+        break;
+      }
+
+      Map<String,String> options = iterOpts.get(iterInfo.getIterName());
+      if (options == null || Boolean.parseBoolean(options.get("negate"))) {
+        continue;
+      }
+
+      try {
+        if (iterInfo.getClassName().equals(TimestampFilter.class.getName())) {
+          String start = options.get(TimestampFilter.START);
+          if (start != null) {
+            minTimestamp = Math.max(minTimestamp, parseTimestamp(start));
+          }
+        } else if (iterInfo.getClassName().equals(AgeOffFilter.class.getName())) {
+          String ttl = options.get("ttl");
+          String time = options.get("currentTime");
+          if (ttl != null) {
+            long ageOffTime = time == null ? currentTime : Long.parseLong(time);
+            minTimestamp =
+                Math.max(minTimestamp, Math.subtractExact(ageOffTime, Long.parseLong(ttl)));
+          }
+        }
+      } catch (ParseException | ArithmeticException | NumberFormatException e) {
+        // the filter validates its own options, so just do not use them
+        log.trace("Ignoring options of {} for timestamp bound", iterInfo.getIterName(), e);
+      }
+    }
+    return minTimestamp;
+  }
+
+  /**
+   * Finds the timestamp that every entry returned by the iterators of a scope is at or after. The
+   * iterators are merged with the table configuration in the same way as
+   * {@link #convertItersAndLoad(IteratorScope, SortedKeyValueIterator, AccumuloConfiguration, List,
+   * IteratorEnvironment)}.
+   *
+   * @see #getMinTimestamp(List, Map, long)
+   */
+  public static long getMinTimestamp(IteratorScope scope, AccumuloConfiguration conf,
+      List<IteratorSetting> iterators, long currentTime) {
+    List<IterInfo> ssiList = new ArrayList<>();
+    Map<String,Map<String,String>> ssio = new HashMap<>();
+
+    for (IteratorSetting is : iterators) {
+      ssiList.add(new IterInfo(is.getPriority(), is.getIteratorClass(), is.getName()));
+      ssio.put(is.getName(), is.getOptions());
+    }
+
+    Map<String,Map<String,String>> allOptions = new HashMap<>();
+    List<IterInfo> iters = parseIterConf(scope, ssiList, allOptions, conf);
+    mergeOptions(ssio, allOptions);
+    return getMinTimestamp(iters, allOptions, currentTime);
+  }
+
+  // parses timestamps the same way as TimestampFilter
+  private static long parseTimestamp(String s) throws ParseException {
+    if (s.startsWith("LONG")) {
+      return Long.parseLong(s.substring("LONG".length()));
+    }
+    SimpleDateFormat dateParser = new SimpleDateFormat("yyyyMMddHHmmssz");
+    dateParser.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return dateParser.parse(s).getTime();
+  }
+
   /**
    * Convert the list of iterators to IterInfo objects and then load the stack.
    */
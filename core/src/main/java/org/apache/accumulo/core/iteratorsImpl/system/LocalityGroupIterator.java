@@ -171,6 +171,15 @@ public class LocalityGroupIterator extends HeapIterator implements Interruptible
     return groups;
   }
 
+  /**
+   * Returns the locality groups that a seek with the given column families would read, without
+   * seeking them.
+   */
+  public static Collection<LocalityGroup> selectLocalityGroups(LocalityGroupContext lgContext,
+      Collection<ByteSequence> columnFamilies, boolean inclusive) {
+    return getLocalityGroups(lgContext, inclusive, getCfSet(columnFamilies));
+  }
+
   private static Collection<LocalityGroup> getLocalityGroups(LocalityGroupContext lgContext,
       boolean inclusive, Set<ByteSequence> cfSet) {
 
@@ -68,6 +68,11 @@ public class LoggingBlockCache implements BlockCache {
 
   }
 
+  @Override
+  public boolean containsBlock(String blockName) {
+    return blockCache.containsBlock(blockName);
+  }
+
   private final class LoggingLoader implements Loader {
     private final Loader loader;
 
@@ -46,6 +46,18 @@ public interface BlockCache {
    */
   CacheEntry getBlock(String blockName);
 
+  /**
+   * Checks if a block is in the cache. Implementations should not count the check in their
+   * statistics or treat it as a use of the block, as {@link #getBlock(String)} does.
+   *
+   * @param blockName Block name to check.
+   * @return true if the block is in the cache
+   * @since 4.0.0
+   */
+  default boolean containsBlock(String blockName) {
+    return getBlock(blockName) != null;
+  }
+
   interface Loader {
     /**
      * The cache blocks that this loader depends on. If a loader has no dependencies, then it should
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.bloomfilter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class XorFilterTest {
+
+  private static long hash(String key) {
+    return XorFilter.hash(key.getBytes(UTF_8));
+  }
+
+  private static XorFilter build(int numKeys) {
+    long[] hashes = new long[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      hashes[i] = hash("row" + i);
+    }
+    return XorFilter.build(hashes, numKeys);
+  }
+
+  @Test
+  public void testMembership() {
+    int numKeys = 100_000;
+    XorFilter filter = build(numKeys);
+    for (int i = 0; i < numKeys; i++) {
+      assertTrue(filter.mayContain(hash("row" + i)));
+    }
+
+    int falsePositives = 0;
+    int probes = 1_000_000;
+    for (int i = 0; i < probes; i++) {
+      if (filter.mayContain(hash("missing" + i))) {
+        falsePositives++;
+      }
+    }
+    // expected rate is 1/256
+    assertTrue(falsePositives < probes / 150, "false positives " + falsePositives);
+
+    // about 9.9 bits per key
+    assertTrue(filter.getSizeInBytes() * 8.0 / numKeys < 10.0);
+  }
+
+  @Test
+  public void testDuplicatesAndEmpty() {
+    long[] hashes = {hash("a"), hash("b"), hash("a"), hash("a")};
+    XorFilter filter = XorFilter.build(hashes, hashes.length);
+    assertTrue(filter.mayContain(hash("a")));
+    assertTrue(filter.mayContain(hash("b")));
+
+    XorFilter empty = XorFilter.build(new long[0], 0);
+    int falsePositives = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (empty.mayContain(hash("key" + i))) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 20);
+  }
+
+  @Test
+  public void testSerialization() throws IOException {
+    XorFilter filter = build(1000);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    out.writeUTF("header");
+    filter.write(out);
+    out.close();
+    byte[] data = baos.toByteArray();
+    assertEquals(2 + "header".length() + filter.getSerializedSize(), data.length);
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    assertEquals("header", in.readUTF());
+    XorFilter read = XorFilter.read(in);
+    assertEquals(filter.getSizeInBytes(), read.getSizeInBytes());
+
+    XorFilter wrapped = XorFilter.wrap(data, 2 + "header".length());
+    assertEquals(filter.getSizeInBytes(), wrapped.getSizeInBytes());
+
+    for (int i = 0; i < 2000; i++) {
+      long h = hash("row" + i);
+      assertEquals(filter.mayContain(h), read.mayContain(h));
+      assertEquals(filter.mayContain(h), wrapped.mayContain(h));
+    }
+
+    data[2 + "header".length()] = 42;
+    assertThrows(IOException.class, () -> XorFilter.wrap(data, 2 + "header".length()));
+  }
+}
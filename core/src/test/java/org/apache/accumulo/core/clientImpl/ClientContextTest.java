@@ -189,6 +189,10 @@ public class ClientContextTest {
         Integer.parseInt(ClientProperty.CONDITIONAL_WRITER_THREADS_MAX.getDefaultValue());
     assertEquals(expectedThreads, conditionalWriterConfig.getMaxWriteThreads());
 
+    int expectedRequests =
+        Integer.parseInt(ClientProperty.CONDITIONAL_WRITER_REQUESTS_MAX.getDefaultValue());
+    assertEquals(expectedRequests, conditionalWriterConfig.getMaxRequestsPerServer());
+
     Durability expectedDurability = Durability
         .valueOf(ClientProperty.CONDITIONAL_WRITER_DURABILITY.getDefaultValue().toUpperCase());
     assertEquals(expectedDurability, conditionalWriterConfig.getDurability());
@@ -201,6 +205,7 @@ public class ClientContextTest {
     // set properties to non-default values
     props.setProperty(ClientProperty.CONDITIONAL_WRITER_TIMEOUT_MAX.getKey(), "17");
     props.setProperty(ClientProperty.CONDITIONAL_WRITER_THREADS_MAX.getKey(), "14");
+    props.setProperty(ClientProperty.CONDITIONAL_WRITER_REQUESTS_MAX.getKey(), "4");
     props.setProperty(ClientProperty.CONDITIONAL_WRITER_DURABILITY.getKey(),
         Durability.SYNC.name());
 
@@ -214,6 +219,8 @@ public class ClientContextTest {
     long expectedThreads = ClientProperty.CONDITIONAL_WRITER_THREADS_MAX.getInteger(props);
     assertEquals(expectedThreads, conditionalWriterConfig.getMaxWriteThreads());
 
+    assertEquals(4, conditionalWriterConfig.getMaxRequestsPerServer());
+
     Durability expectedDurability = Durability
         .valueOf(ClientProperty.CONDITIONAL_WRITER_DURABILITY.getValue(props).toUpperCase());
     assertEquals(expectedDurability, conditionalWriterConfig.getDurability());
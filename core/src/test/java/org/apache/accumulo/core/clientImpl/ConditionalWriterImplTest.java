@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.clientImpl.ClientTabletCache.TabletServerMutations;
+import org.apache.accumulo.core.clientImpl.thrift.TInfo;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.dataImpl.thrift.TCMResult;
+import org.apache.accumulo.core.dataImpl.thrift.TCMStatus;
+import org.apache.accumulo.core.dataImpl.thrift.TConditionalMutation;
+import org.apache.accumulo.core.dataImpl.thrift.TConditionalSession;
+import org.apache.accumulo.core.dataImpl.thrift.TKeyExtent;
+import org.apache.accumulo.core.securityImpl.thrift.TCredentials;
+import org.apache.accumulo.core.tabletingest.thrift.TDurability;
+import org.apache.accumulo.core.tabletingest.thrift.TabletIngestClientService;
+import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.apache.hadoop.io.Text;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.net.HostAndPort;
+
+public class ConditionalWriterImplTest {
+
+  private static final TableId TABLE_ID = TableId.of("1");
+  private static final String LOCATION = "localhost:9997";
+  private static final KeyExtent EXTENT1 = new KeyExtent(TABLE_ID, new Text("row010"), null);
+  private static final KeyExtent EXTENT2 = new KeyExtent(TABLE_ID, null, new Text("row010"));
+
+  private interface Handler {
+    List<TCMResult> update(Map<TKeyExtent,List<TConditionalMutation>> mutations)
+        throws InterruptedException;
+  }
+
+  private ClientContext context;
+  private ClientTabletCache locator;
+
+  private volatile Handler handler;
+  private final AtomicInteger sessionsStarted = new AtomicInteger();
+  private final AtomicInteger nextSession = new AtomicInteger();
+  private final Set<Long> inFlight = new HashSet<>();
+  private int maxInFlight = 0;
+  private final Semaphore arrivals = new Semaphore(0);
+
+  /**
+   * A client that answers conditional updates in memory, checking that no session is used by more
+   * than one request at a time.
+   */
+  private class FakeClient extends TabletIngestClientService.Client {
+
+    FakeClient() throws TTransportException {
+      super(new TBinaryProtocol(new TMemoryBuffer(0)));
+    }
+
+    @Override
+    public TConditionalSession startConditionalUpdate(TInfo tinfo, TCredentials credentials,
+        List<ByteBuffer> authorizations, String tableID, TDurability durability,
+        String classLoaderContext) {
+      sessionsStarted.incrementAndGet();
+      return new TConditionalSession(nextSession.incrementAndGet(), "lock", 60_000);
+    }
+
+    @Override
+    public List<TCMResult> conditionalUpdate(TInfo tinfo, long sessID,
+        Map<TKeyExtent,List<TConditionalMutation>> mutations, List<String> symbols) {
+      synchronized (inFlight) {
+        if (!inFlight.add(sessID)) {
+          throw new IllegalStateException("session " + sessID + " used concurrently");
+        }
+        maxInFlight = Math.max(maxInFlight, inFlight.size());
+      }
+      arrivals.release();
+      try {
+        return handler.update(mutations);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } finally {
+        synchronized (inFlight) {
+          inFlight.remove(sessID);
+        }
+      }
+    }
+  }
+
+  private class TestConditionalWriter extends ConditionalWriterImpl {
+    TestConditionalWriter(ConditionalWriterConfig config) {
+      super(context, TABLE_ID, "test", config, locator);
+    }
+
+    @Override
+    TabletIngestClientService.Iface getClient(HostAndPort location) throws TTransportException {
+      return new FakeClient();
+    }
+  }
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    context = createMock(ClientContext.class);
+    expect(context.threadPools()).andReturn(ThreadPools.getServerThreadPools()).anyTimes();
+    expect(context.rpcCreds()).andReturn(new TCredentials()).anyTimes();
+    expect(context.getTransportPool()).andReturn(createNiceMock(ThriftTransportPool.class))
+        .anyTimes();
+    context.executeCleanupTask(anyObject());
+    expectLastCall().anyTimes();
+
+    // every tablet of the table is hosted by the same server
+    locator = createMock(ClientTabletCache.class);
+    locator.binMutations(eq(context), anyObject(), anyObject(), anyObject());
+    expectLastCall().andAnswer(() -> {
+      List<Mutation> mutations = getCurrentArgument(1);
+      Map<String,TabletServerMutations<Mutation>> binned = getCurrentArgument(2);
+      TabletServerMutations<Mutation> tsm =
+          binned.computeIfAbsent(LOCATION, l -> new TabletServerMutations<>("session"));
+      for (Mutation m : mutations) {
+        tsm.addMutation(EXTENT1.contains(new Text(m.getRow())) ? EXTENT1 : EXTENT2, m);
+      }
+      return null;
+    }).anyTimes();
+
+    replay(context, locator);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    verify(context, locator);
+  }
+
+  private static String row(int i) {
+    return String.format("row%03d", i);
+  }
+
+  private static ConditionalMutation mutation(int i) {
+    ConditionalMutation cm = new ConditionalMutation(row(i), new Condition("cf", "cq"));
+    cm.put("cf", "cq", "v" + i);
+    return cm;
+  }
+
+  private static int rowIndex(byte[] row) {
+    return Integer.parseInt(new String(row, UTF_8).substring(3));
+  }
+
+  private static TCMStatus expectedStatus(int i) {
+    switch (i % 3) {
+      case 0:
+        return TCMStatus.ACCEPTED;
+      case 1:
+        return TCMStatus.REJECTED;
+      default:
+        return TCMStatus.VIOLATED;
+    }
+  }
+
+  private static List<TCMResult> results(Map<TKeyExtent,List<TConditionalMutation>> mutations) {
+    List<TCMResult> results = new ArrayList<>();
+    Set<Long> ids = new HashSet<>();
+    mutations.values().forEach(tcms -> tcms.forEach(tcm -> {
+      if (!ids.add(tcm.getId())) {
+        throw new IllegalStateException("duplicate id " + tcm.getId());
+      }
+      int i = rowIndex(new Mutation(tcm.getMutation()).getRow());
+      results.add(new TCMResult(tcm.getId(), expectedStatus(i)));
+    }));
+    return results;
+  }
+
+  @Test
+  public void testPipelinedRequests() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    handler = mutations -> {
+      release.await();
+      return results(mutations);
+    };
+
+    var config = new ConditionalWriterConfig().setMaxWriteThreads(4).setMaxRequestsPerServer(3);
+    ConditionalWriterImpl writer = new TestConditionalWriter(config);
+    try {
+      List<Iterator<Result>> pending = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        pending.add(writer.write(List.of(mutation(i)).iterator()));
+        // wait for the request to reach the server, so the next write is not batched with it
+        assertTrue(arrivals.tryAcquire(1, MINUTES));
+      }
+
+      // all three requests are in flight to the server at once, each in its own session
+      synchronized (inFlight) {
+        assertEquals(3, inFlight.size());
+      }
+      assertEquals(3, sessionsStarted.get());
+
+      // a fourth request waits for one of the others to finish
+      pending.add(writer.write(List.of(mutation(3), mutation(4)).iterator()));
+      assertFalse(arrivals.tryAcquire(100, MILLISECONDS));
+
+      release.countDown();
+      Set<Integer> seen = new HashSet<>();
+      for (Iterator<Result> results : pending) {
+        while (results.hasNext()) {
+          Result result = results.next();
+          int i = rowIndex(result.getMutation().getRow());
+          assertTrue(seen.add(i));
+          assertEquals(Status.valueOf(expectedStatus(i).name()), result.getStatus());
+        }
+      }
+      assertEquals(5, seen.size());
+      assertTrue(arrivals.tryAcquire());
+
+      // the fourth request reused one of the sessions
+      assertEquals(3, sessionsStarted.get());
+      synchronized (inFlight) {
+        assertEquals(3, maxInFlight);
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void testResultsMappedToMutations() throws Exception {
+    // the server answers in a different order than it received the mutations
+    Random random = new Random(42);
+    handler = mutations -> {
+      List<TCMResult> results = results(mutations);
+      Collections.shuffle(results, random);
+      return results;
+    };
+
+    final int count = 40;
+    ConditionalWriterImpl writer = new TestConditionalWriter(new ConditionalWriterConfig());
+    try {
+      List<ConditionalMutation> mutations = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        mutations.add(mutation(i));
+      }
+
+      Map<Integer,Status> statuses = new HashMap<>();
+      Iterator<Result> results = writer.write(mutations.iterator());
+      while (results.hasNext()) {
+        Result result = results.next();
+        int i = rowIndex(result.getMutation().getRow());
+        // the result holds a copy of the mutation that was written
+        assertEquals(mutations.get(i), new ConditionalMutation(result.getMutation()));
+        assertNull(statuses.put(i, result.getStatus()));
+        assertEquals(LOCATION, result.getTabletServer());
+      }
+
+      assertEquals(count, statuses.size());
+      statuses.forEach(
+          (i, status) -> assertEquals(Status.valueOf(expectedStatus(i).name()), status));
+    } finally {
+      writer.close();
+    }
+  }
+}
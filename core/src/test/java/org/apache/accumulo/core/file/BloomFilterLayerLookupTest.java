@@ -43,8 +43,9 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
-import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,8 +59,9 @@ public class BloomFilterLayerLookupTest extends WithTestNames {
   @TempDir
   private static File tempDir;
 
-  @Test
-  public void test() throws IOException {
+  @ParameterizedTest
+  @ValueSource(strings = {"bloom", "xor"})
+  public void test(String filterType) throws IOException {
     HashSet<Integer> valsSet = new HashSet<>();
     for (int i = 0; i < 100000; i++) {
       valsSet.add(RANDOM.get().nextInt(Integer.MAX_VALUE));
@@ -70,6 +72,7 @@ public class BloomFilterLayerLookupTest extends WithTestNames {
 
     ConfigurationCopy acuconf = new ConfigurationCopy(DefaultConfiguration.getInstance());
     acuconf.set(Property.TABLE_BLOOM_ENABLED, "true");
+    acuconf.set(Property.TABLE_BLOOM_TYPE, filterType);
     acuconf.set(Property.TABLE_BLOOM_KEY_FUNCTOR, ColumnFamilyFunctor.class.getName());
     acuconf.set(Property.TABLE_FILE_TYPE, RFile.EXTENSION);
     acuconf.set(Property.TABLE_BLOOM_LOAD_THRESHOLD, "1");
@@ -80,7 +83,8 @@ public class BloomFilterLayerLookupTest extends WithTestNames {
 
     // get output file name
     String suffix = FileOperations.getNewFileExtension(acuconf);
-    String fname = new File(tempDir, testName() + "." + suffix).getAbsolutePath();
+    String fname =
+        new File(tempDir, testName() + "_" + filterType + "." + suffix).getAbsolutePath();
     FileSKVWriter bmfw = FileOperations.getInstance().newWriterBuilder()
         .forFile(UnreferencedTabletFile.of(fs, new Path(fname)), fs, conf,
             NoCryptoServiceFactory.NONE)
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.accumulo.core.WithTestNames;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.metadata.UnreferencedTabletFile;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class BloomFilterLayerTest extends WithTestNames {
+
+  private static final int ROWS = 5000;
+  private static final int COLUMNS = 20;
+
+  @TempDir
+  private static File tempDir;
+
+  private static ConfigurationCopy xorConf(int maxKeys) {
+    ConfigurationCopy acuconf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    acuconf.set(Property.TABLE_BLOOM_ENABLED, "true");
+    acuconf.set(Property.TABLE_BLOOM_TYPE, "xor");
+    acuconf.set(Property.TABLE_BLOOM_XOR_MAX_KEYS, Integer.toString(maxKeys));
+    acuconf.set(Property.TABLE_FILE_TYPE, RFile.EXTENSION);
+    acuconf.set(Property.TABLE_BLOOM_LOAD_THRESHOLD, "1");
+    acuconf.set(Property.TSERV_BLOOM_LOAD_MAXCONCURRENT, "0");
+    return acuconf;
+  }
+
+  private static String row(int r) {
+    return String.format("r%06d", r);
+  }
+
+  private static void append(FileSKVWriter writer, int rows) throws IOException {
+    writer.startDefaultLocalityGroup();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < COLUMNS; c++) {
+        writer.append(new Key(row(r), "cf", "cq" + c), new Value("v" + c));
+      }
+    }
+  }
+
+  @Test
+  public void testXorHashesOfSameRow() throws Exception {
+    FileSKVWriter file = createNiceMock(FileSKVWriter.class);
+    replay(file);
+
+    // the default key functor adds rows to the filter, many keys of a row are buffered once
+    var writer = new BloomFilterLayer.Writer(file, xorConf(ROWS * COLUMNS), false);
+    append(writer, ROWS);
+    assertEquals(ROWS, writer.getXorHashCount());
+  }
+
+  @Test
+  public void testXorMaxKeys() throws Exception {
+    FileSKVWriter file = createNiceMock(FileSKVWriter.class);
+    replay(file);
+
+    var writer = new BloomFilterLayer.Writer(file, xorConf(ROWS / 5), false);
+    append(writer, ROWS);
+    assertEquals(ROWS / 5, writer.getXorHashCount());
+  }
+
+  @Test
+  public void testXorOverflowLookup() throws Exception {
+    ConfigurationCopy acuconf = xorConf(ROWS / 5);
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.get(conf);
+    String fname = new File(tempDir, testName() + "." + RFile.EXTENSION).getAbsolutePath();
+
+    FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(UnreferencedTabletFile.of(fs, new Path(fname)), fs, conf,
+            NoCryptoServiceFactory.NONE)
+        .withTableConfiguration(acuconf).build();
+    // only the even rows are written
+    writer.startDefaultLocalityGroup();
+    for (int r = 0; r < ROWS * 2; r += 2) {
+      writer.append(new Key(row(r), "cf", "cq"), new Value("v"));
+    }
+    writer.close();
+
+    // read the file without the bloom filter layer, to probe the filters directly
+    ConfigurationCopy readConf = new ConfigurationCopy(acuconf);
+    readConf.set(Property.TABLE_BLOOM_ENABLED, "false");
+    try (FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(UnreferencedTabletFile.of(fs, new Path(fname)), fs, conf,
+            NoCryptoServiceFactory.NONE)
+        .withTableConfiguration(readConf).build()) {
+      var loader = new BloomFilterLayer.BloomFilterLoader(reader, acuconf);
+      // the rows past the xor filter keys are found through the bloom filter written after it
+      for (int r = 0; r < ROWS * 2; r += 2) {
+        assertTrue(loader.probablyHasKey(Range.exact(row(r))), row(r));
+      }
+      // the filters are loaded in the background when an earlier test created the load pool
+      int falsePositives = countFalsePositives(loader);
+      for (int i = 0; i < 100 && falsePositives >= ROWS / 20; i++) {
+        Thread.sleep(100);
+        falsePositives = countFalsePositives(loader);
+      }
+      assertTrue(falsePositives < ROWS / 20, "false positives " + falsePositives);
+      loader.close();
+    }
+  }
+
+  private static int countFalsePositives(BloomFilterLayer.BloomFilterLoader loader) {
+    int falsePositives = 0;
+    for (int r = 1; r < ROWS * 2; r += 2) {
+      if (loader.probablyHasKey(Range.exact(row(r)))) {
+        falsePositives++;
+      }
+    }
+    return falsePositives;
+  }
+}
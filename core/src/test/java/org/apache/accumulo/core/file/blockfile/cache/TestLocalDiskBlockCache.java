@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.disk.LocalDiskBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.disk.TieredBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache.Loader;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestLocalDiskBlockCache {
+
+  @TempDir
+  private static File tempDir;
+
+  private static byte[] block(int len, int fill) {
+    byte[] data = new byte[len];
+    Arrays.fill(data, (byte) fill);
+    return data;
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    try (LocalDiskBlockCache cache =
+        new LocalDiskBlockCache(tempDir.toPath(), "testPutAndGet", 100_000)) {
+      assertNull(cache.get("b1"));
+      cache.put("b1", block(1000, 1));
+      cache.put("b2", block(2000, 2));
+      assertArrayEquals(block(1000, 1), cache.get("b1"));
+      assertArrayEquals(block(2000, 2), cache.get("b2"));
+      assertEquals(2, cache.getStats().hitCount());
+      assertEquals(3, cache.getStats().requestCount());
+
+      // larger than a quarter of the cache
+      cache.put("big", block(30_000, 3));
+      assertNull(cache.get("big"));
+    }
+  }
+
+  @Test
+  public void testWrapAround() throws Exception {
+    try (LocalDiskBlockCache cache =
+        new LocalDiskBlockCache(tempDir.toPath(), "testWrapAround", 10_000)) {
+      for (int i = 0; i < 3; i++) {
+        cache.put("b" + i, block(2500, i));
+      }
+      cache.put("b3", block(2000, 3));
+      for (int i = 0; i < 4; i++) {
+        assertArrayEquals(block(i < 3 ? 2500 : 2000, i), cache.get("b" + i));
+      }
+      assertEquals(0, cache.getStats().evictionCount());
+
+      // does not fit in the space left before the end of the file, so it is written at the start
+      // and overwrites the oldest block
+      cache.put("b4", block(2500, 4));
+      assertNull(cache.get("b0"));
+      assertEquals(1, cache.getStats().evictionCount());
+
+      cache.put("b5", block(2500, 5));
+      assertNull(cache.get("b1"));
+      assertEquals(2, cache.getStats().evictionCount());
+
+      assertArrayEquals(block(2500, 2), cache.get("b2"));
+      assertArrayEquals(block(2000, 3), cache.get("b3"));
+      assertArrayEquals(block(2500, 4), cache.get("b4"));
+      assertArrayEquals(block(2500, 5), cache.get("b5"));
+    }
+  }
+
+  @Test
+  public void testConcurrentPuts() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try (LocalDiskBlockCache cache =
+        new LocalDiskBlockCache(tempDir.toPath(), "testConcurrentPuts", 50_000)) {
+      // many more blocks than fit, so writes wrap around while others are in progress
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            int id = thread * 1000 + i;
+            byte[] data = block(1000 + (id % 7) * 100, id);
+            cache.put("b" + id, data);
+            byte[] read = cache.get("b" + id);
+            // the block may already be evicted, but is never read with other contents
+            assertTrue(read == null || Arrays.equals(data, read), "corrupt block b" + id);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      int cached = 0;
+      for (int id = 0; id < 8000; id++) {
+        byte[] read = cache.get("b" + id);
+        if (read != null) {
+          assertArrayEquals(block(1000 + (id % 7) * 100, id), read);
+          cached++;
+        }
+      }
+      assertTrue(cached > 0);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(tempDir.toPath(), "testClose", 10_000);
+    cache.put("b1", block(1000, 1));
+    cache.close();
+    assertNull(cache.get("b1"));
+    // puts after close are ignored
+    cache.put("b2", block(1000, 2));
+    assertNull(cache.get("b2"));
+  }
+
+  @Test
+  public void testTieredCache() throws Exception {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.GENERAL_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+    cc.set(Property.TSERV_DATACACHE_SIZE, "10000");
+    cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, "4000");
+    // evict synchronously so the test does not depend on the eviction thread
+    cc.set(BlockCacheConfiguration.getCachePropertyBase(Property.TSERV_PREFIX)
+        + LruBlockCacheConfiguration.PROPERTY_PREFIX + ".default."
+        + LruBlockCacheConfiguration.EVICTION_THREAD_PROPERTY, "false");
+    cc.set(Property.TSERV_DISKCACHE_DIR, tempDir.getAbsolutePath());
+    cc.set(Property.TSERV_DISKCACHE_SIZE, "1M");
+    BlockCacheConfiguration conf = BlockCacheConfiguration.forTabletServer(cc);
+    BlockCacheManager manager = BlockCacheManagerFactory.getInstance(cc);
+    manager.start(conf);
+    BlockCache cache =
+        TieredBlockCache.wrap(manager.getBlockCache(CacheType.DATA), conf, CacheType.DATA);
+
+    AtomicInteger loads = new AtomicInteger();
+    Loader loader = new Loader() {
+      @Override
+      public Map<String,Loader> getDependencies() {
+        return Collections.emptyMap();
+      }
+
+      @Override
+      public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+        loads.incrementAndGet();
+        return block(4000, 7);
+      }
+    };
+
+    assertArrayEquals(block(4000, 7), cache.getBlock("b1", loader).getBuffer());
+    assertEquals(1, loads.get());
+
+    // push the block out of the small in memory cache
+    for (int i = 0; i < 10; i++) {
+      cache.cacheBlock("filler" + i, block(4000, i));
+    }
+
+    assertArrayEquals(block(4000, 7), cache.getBlock("b1", loader).getBuffer());
+    assertEquals(1, loads.get());
+    assertEquals(1, ((TieredBlockCache) cache).getDiskStats().hitCount());
+  }
+}
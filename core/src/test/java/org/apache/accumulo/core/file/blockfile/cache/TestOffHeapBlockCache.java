@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheManager;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.jupiter.api.Test;
+
+public class TestOffHeapBlockCache {
+
+  private static OffHeapBlockCache createCache(long maxSize, String slabSize) throws Exception {
+    return createCache(maxSize, slabSize, null);
+  }
+
+  private static OffHeapBlockCache createCache(long maxSize, String slabSize,
+      String indexHeapSize) throws Exception {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.GENERAL_CACHE_MANAGER_IMPL, OffHeapBlockCacheManager.class.getName());
+    cc.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(maxSize));
+    String prefix = BlockCacheConfiguration.getCachePropertyBase(Property.TSERV_PREFIX)
+        + OffHeapBlockCacheConfiguration.PROPERTY_PREFIX + ".default.";
+    cc.set(prefix + OffHeapBlockCacheConfiguration.SLAB_SIZE_PROPERTY, slabSize);
+    cc.set(prefix + OffHeapBlockCacheConfiguration.MIN_SLOT_SIZE_PROPERTY, "1K");
+    cc.set(prefix + OffHeapBlockCacheConfiguration.GROWTH_FACTOR_PROPERTY, "2");
+    if (indexHeapSize != null) {
+      cc.set(prefix + OffHeapBlockCacheConfiguration.INDEX_HEAP_SIZE_PROPERTY, indexHeapSize);
+    }
+    BlockCacheManager manager = BlockCacheManagerFactory.getInstance(cc);
+    manager.start(BlockCacheConfiguration.forTabletServer(cc));
+    return (OffHeapBlockCache) manager.getBlockCache(CacheType.INDEX);
+  }
+
+  private static byte[] block(int len, int fill) {
+    byte[] data = new byte[len];
+    Arrays.fill(data, (byte) fill);
+    return data;
+  }
+
+  @Test
+  public void testConfiguration() {
+    ConfigurationCopy cc = new ConfigurationCopy();
+    cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, Long.toString(1019));
+    cc.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(1000023));
+    cc.set(Property.TSERV_DATACACHE_SIZE, Long.toString(1000027));
+    cc.set(Property.TSERV_SUMMARYCACHE_SIZE, Long.toString(1000029));
+
+    String base = BlockCacheConfiguration.getCachePropertyBase(Property.TSERV_PREFIX)
+        + OffHeapBlockCacheConfiguration.PROPERTY_PREFIX;
+    cc.set(base + ".default." + OffHeapBlockCacheConfiguration.SLAB_SIZE_PROPERTY, "64K");
+    cc.set(base + ".index." + OffHeapBlockCacheConfiguration.SLAB_SIZE_PROPERTY, "128K");
+    cc.set(base + ".default." + OffHeapBlockCacheConfiguration.GROWTH_FACTOR_PROPERTY, "1.5");
+
+    BlockCacheConfiguration bcc = BlockCacheConfiguration.forTabletServer(cc);
+    OffHeapBlockCacheConfiguration index =
+        new OffHeapBlockCacheConfiguration(bcc, CacheType.INDEX);
+    OffHeapBlockCacheConfiguration data = new OffHeapBlockCacheConfiguration(bcc, CacheType.DATA);
+
+    assertEquals(128 * 1024, index.getSlabSize());
+    assertEquals(64 * 1024, data.getSlabSize());
+    assertEquals(1.5f, index.getGrowthFactor(), 0.0000001);
+    assertEquals(OffHeapBlockCacheConfiguration.DEFAULT_MIN_SLOT_SIZE, data.getMinSlotSize());
+    assertEquals(1000023, index.getMaxSize());
+    assertEquals(1019, index.getBlockSize());
+    assertEquals((long) (1000023 * OffHeapBlockCacheConfiguration.DEFAULT_INDEX_HEAP_FRACTION),
+        index.getIndexHeapSize());
+  }
+
+  @Test
+  public void testCacheAndGet() throws Exception {
+    OffHeapBlockCache cache = createCache(1024 * 1024, "64K");
+
+    assertNull(cache.getBlock("b1"));
+    byte[] b1 = block(3000, 1);
+    byte[] b2 = block(10000, 2);
+    cache.cacheBlock("b1", b1);
+    cache.cacheBlock("b2", b2);
+
+    CacheEntry ce = cache.getBlock("b1");
+    assertNotNull(ce);
+    assertArrayEquals(b1, ce.getBuffer());
+    assertArrayEquals(b2, cache.getBlock("b2").getBuffer());
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.getStats().hitCount());
+    assertEquals(3, cache.getStats().requestCount());
+
+    // the index built for a block is kept across lookups
+    CacheEntry.Weighable index = ce.getIndex(() -> () -> 10);
+    assertSame(index, cache.getBlock("b1").getIndex(() -> () -> 20));
+  }
+
+  @Test
+  public void testClockEviction() throws Exception {
+    // a single 16K slab, which the 4K size class will take, leaving room for four blocks
+    OffHeapBlockCache cache = createCache(16 * 1024, "16K");
+
+    for (int i = 0; i < 4; i++) {
+      cache.cacheBlock("b" + i, block(4000, i));
+    }
+    assertEquals(4, cache.size());
+
+    // give the first two blocks a second chance
+    assertNotNull(cache.getBlock("b0"));
+    assertNotNull(cache.getBlock("b1"));
+
+    cache.cacheBlock("b4", block(4000, 4));
+    assertEquals(1, cache.getStats().evictionCount());
+    assertNull(cache.getBlock("b2"));
+    for (int i : new int[] {0, 1, 3, 4}) {
+      assertArrayEquals(block(4000, i), cache.getBlock("b" + i).getBuffer());
+    }
+
+    // the only slab is not taken from the 4K size class, so this block is not cached
+    byte[] small = block(500, 5);
+    assertArrayEquals(small, cache.cacheBlock("small", small).getBuffer());
+    assertNull(cache.getBlock("small"));
+
+    // too large for any size class
+    byte[] large = block(20000, 6);
+    assertArrayEquals(large, cache.cacheBlock("large", large).getBuffer());
+    assertNull(cache.getBlock("large"));
+  }
+
+  @Test
+  public void testSlabRebalancing() throws Exception {
+    // four 16K slabs, which the 4K size class takes for sixteen blocks
+    OffHeapBlockCache cache = createCache(64 * 1024, "16K");
+    for (int i = 0; i < 16; i++) {
+      cache.cacheBlock("b" + i, block(4000, i));
+    }
+    assertEquals(16, cache.size());
+
+    // reading the first block makes the second slab the one read least recently
+    assertNotNull(cache.getBlock("b0"));
+
+    // the 1K size class has no slab and none are left, so it takes the second slab of the 4K class
+    for (int i = 0; i < 16; i++) {
+      byte[] small = block(1000, i);
+      cache.cacheBlock("s" + i, small);
+      assertArrayEquals(small, cache.getBlock("s" + i).getBuffer());
+    }
+    assertEquals(4, cache.getStats().evictionCount());
+    for (int i = 0; i < 16; i++) {
+      CacheEntry ce = cache.getBlock("b" + i);
+      if (i >= 4 && i < 8) {
+        assertNull(ce);
+      } else {
+        assertArrayEquals(block(4000, i), ce.getBuffer());
+      }
+    }
+
+    // the 1K size class evicts its own blocks once its slab is full, the 4K class keeps the rest
+    cache.cacheBlock("s16", block(1000, 16));
+    assertEquals(5, cache.getStats().evictionCount());
+    assertEquals(12 + 16, cache.size());
+  }
+
+  @Test
+  public void testIndexHeapSize() throws Exception {
+    OffHeapBlockCache cache = createCache(1024 * 1024, "64K", "25");
+    assertEquals(cache.getMaxHeapSize() - 25,
+        createCache(1024 * 1024, "64K", "0").getMaxHeapSize());
+
+    List<CacheEntry.Weighable> indexes = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      cache.cacheBlock("b" + i, block(3000, i));
+      indexes.add(cache.getBlock("b" + i).getIndex(() -> () -> 10));
+    }
+
+    // the third index does not fit, so the first one is dropped and built again when needed
+    CacheEntry.Weighable rebuilt = cache.getBlock("b0").getIndex(() -> () -> 10);
+    assertNotSame(indexes.get(0), rebuilt);
+    // building it again dropped the second index
+    assertSame(indexes.get(2), cache.getBlock("b2").getIndex(() -> () -> 10));
+    assertNotSame(indexes.get(1), cache.getBlock("b1").getIndex(() -> () -> 10));
+
+    // an index that grows past the budget drops the indexes built before it
+    cache = createCache(1024 * 1024, "64K", "25");
+    cache.cacheBlock("b0", block(3000, 0));
+    cache.cacheBlock("b1", block(3000, 1));
+    CacheEntry.Weighable first = cache.getBlock("b0").getIndex(() -> () -> 10);
+    int[] weight = {10};
+    CacheEntry entry = cache.getBlock("b1");
+    CacheEntry.Weighable growing = entry.getIndex(() -> () -> weight[0]);
+    assertSame(first, cache.getBlock("b0").getIndex(() -> () -> 10));
+    weight[0] = 20;
+    entry.indexWeightChanged();
+    assertSame(growing, cache.getBlock("b1").getIndex(() -> () -> 10));
+    assertNotSame(first, cache.getBlock("b0").getIndex(() -> () -> 10));
+  }
+}
@@ -102,12 +102,22 @@ public abstract class AbstractRFileTest {
     }
 
     public void openWriter(boolean startDLG, int blockSize, int indexBlockSize) throws IOException {
+      openWriter(startDLG, blockSize, indexBlockSize,
+          accumuloConfiguration.getCount(Property.TABLE_FILE_RESTART_INTERVAL));
+    }
+
+    public void openWriter(boolean startDLG, int blockSize, int indexBlockSize,
+        int restartInterval) throws IOException {
       baos = new ByteArrayOutputStream();
       dos = new FSDataOutputStream(baos, new FileSystem.Statistics("a"));
       CryptoService cs = CryptoFactoryLoader.getServiceForClient(CryptoEnvironment.Scope.TABLE,
           accumuloConfiguration.getAllCryptoProperties());
 
-      BCFile.Writer _cbw = new BCFile.Writer(dos, "gz", conf, cs);
+      int dictionarySize = (int) accumuloConfiguration
+          .getAsBytes(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE);
+      BCFile.Writer _cbw = new BCFile.Writer(dos, "gz", conf, cs, dictionarySize,
+          accumuloConfiguration.getCount(Property.TABLE_FILE_COMPRESSION_PENDING_BLOCKS),
+          accumuloConfiguration.getCount(Property.GENERAL_FILE_COMPRESSION_MAXCONCURRENT));
 
       SamplerConfigurationImpl samplerConfig =
           SamplerConfigurationImpl.newSamplerConfig(accumuloConfiguration);
@@ -117,7 +127,9 @@ public abstract class AbstractRFileTest {
         sampler = SamplerFactory.newSampler(samplerConfig, accumuloConfiguration);
       }
 
-      writer = new RFile.Writer(_cbw, blockSize, indexBlockSize, samplerConfig, sampler);
+      writer = new RFile.Writer(_cbw, blockSize, indexBlockSize, restartInterval,
+          accumuloConfiguration.getCount(Property.TABLE_FILE_INDEX_FAMILY_SUMMARY_MAX),
+          samplerConfig, sampler);
 
       if (startDLG) {
         writer.startDefaultLocalityGroup();
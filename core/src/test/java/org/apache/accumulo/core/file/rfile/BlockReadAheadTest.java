@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
+import org.junit.jupiter.api.Test;
+
+public class BlockReadAheadTest extends AbstractRFileTest {
+
+  private static final int ROWS = 5000;
+
+  private TestRFile writeFile() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(false, 1000);
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf", "cq", "", 1), new Value("v" + r));
+    }
+    trf.closeWriter();
+    return trf;
+  }
+
+  private void scan(TestRFile trf, int start, int count) throws IOException {
+    trf.iter.seek(new Range(newKey(formatString("r_", start), "cf", "cq", "", 1), null),
+        EMPTY_COL_FAMS, false);
+    for (int r = start; r < Math.min(ROWS, start + count); r++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(formatString("r_", r), trf.iter.getTopKey().getRow().toString());
+      assertEquals(new Value("v" + r), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    if (start + count >= ROWS) {
+      assertFalse(trf.iter.hasTop());
+    }
+  }
+
+  private void runScans(TestRFile trf) throws IOException {
+    // full scan
+    scan(trf, 0, ROWS);
+
+    // short scans that seek forward, which cancel read ahead before it is consumed
+    for (int r = 0; r < ROWS; r += 397) {
+      scan(trf, r, 150);
+    }
+
+    // seek backwards and scan to the end
+    scan(trf, ROWS / 2, ROWS);
+    scan(trf, 10, ROWS);
+  }
+
+  @Test
+  public void testReadAheadWithCache() throws IOException {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setReadAhead(3, 2);
+    runScans(trf);
+    trf.closeReader();
+  }
+
+  @Test
+  public void testReadAheadWithoutCache() throws IOException {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setCacheProvider(CacheProvider.NULL_PROVIDER);
+    trf.reader.setReadAhead(4, 2);
+    runScans(trf);
+    trf.closeReader();
+  }
+
+  @Test
+  public void testReadAheadDeepCopy() throws IOException {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setReadAhead(2, 2);
+    var copy = trf.reader.deepCopy(null);
+    copy.seek(new Range(), EMPTY_COL_FAMS, false);
+    List<Key> keys = new ArrayList<>();
+    while (copy.hasTop()) {
+      keys.add(copy.getTopKey());
+      copy.next();
+    }
+    assertEquals(ROWS, keys.size());
+    trf.reader.closeDeepCopies();
+    trf.closeReader();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.jupiter.api.Test;
+
+public class ColumnFamilySummaryTest {
+
+  private static ColumnFamilySummary.Filter filter(String... families) {
+    return new ColumnFamilySummary.Filter(RFileTest.newColFamByteSequence(families));
+  }
+
+  @Test
+  public void testContainsAdded() {
+    ColumnFamilySummary.Builder builder = new ColumnFamilySummary.Builder(64);
+    int falsePositives = 0;
+    for (int block = 0; block < 100; block++) {
+      int families = 1 + block % 64;
+      for (int i = 0; i < families; i++) {
+        // the same family is usually in consecutive keys
+        builder.add(new Key("r" + i, "cf" + block + "_" + i));
+        builder.add(new Key("r" + i + "a", "cf" + block + "_" + i));
+      }
+      long[] summary = builder.build();
+      assertTrue(summary.length > 0);
+      for (int i = 0; i < families; i++) {
+        assertTrue(filter("cf" + block + "_" + i).mayContain(summary));
+      }
+      for (int i = 0; i < 100; i++) {
+        if (filter("other" + block + "_" + i).mayContain(summary)) {
+          falsePositives++;
+        }
+      }
+    }
+    assertTrue(falsePositives < 2000, "false positives " + falsePositives);
+  }
+
+  @Test
+  public void testTooMany() {
+    ColumnFamilySummary.Builder builder = new ColumnFamilySummary.Builder(8);
+    for (int i = 0; i < 9; i++) {
+      builder.add(new Key("r", "cf" + i));
+    }
+    assertEquals(0, builder.build().length);
+
+    // the builder starts over after each block
+    builder.add(new Key("r", "cf"));
+    long[] summary = builder.build();
+    assertEquals(1, summary.length);
+    assertTrue(filter("cf").mayContain(summary));
+
+    assertEquals(0, new ColumnFamilySummary.Builder(0).build().length);
+  }
+
+  @Test
+  public void testEmptyMatchesAll() {
+    assertTrue(filter("cf").mayContain(ColumnFamilySummary.NONE));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.junit.jupiter.api.Test;
+
+public class CompressionDictionaryTest extends AbstractRFileTest {
+
+  private static final int ROWS = 20_000;
+
+  private static Value value(int r) {
+    return new Value("{\"name\":\"user" + r + "\",\"status\":\"" + (r % 3 == 0 ? "active" : "idle")
+        + "\",\"country\":\"" + (r % 7 == 0 ? "CA" : "US") + "\"}");
+  }
+
+  private static TestRFile writeFile(String dictionarySize) throws IOException {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE, dictionarySize);
+    TestRFile trf = new TestRFile(cc);
+    // small blocks compress poorly on their own
+    trf.openWriter(true, 1000);
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf", "email", "", 1), value(r));
+    }
+    trf.closeWriter();
+    return trf;
+  }
+
+  /**
+   * @return the major BCFile version, written before the 16 byte magic at the end of the file
+   */
+  private static int bcFileVersion(TestRFile trf) {
+    byte[] data = trf.baos.toByteArray();
+    return ByteBuffer.wrap(data).getShort(data.length - 16 - 4);
+  }
+
+  private static void verify(TestRFile trf) throws IOException {
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int r = 0; r < ROWS; r++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(newKey(formatString("r_", r), "cf", "email", "", 1), trf.iter.getTopKey());
+      assertEquals(value(r), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+
+    // seek to blocks before and after the dictionary was built
+    for (int r : new int[] {ROWS - 1, 5, ROWS / 2}) {
+      Key key = newKey(formatString("r_", r), "cf", "email", "", 1);
+      trf.iter.seek(new Range(key, null), EMPTY_COL_FAMS, false);
+      assertTrue(trf.iter.hasTop());
+      assertEquals(key, trf.iter.getTopKey());
+      assertEquals(value(r), trf.iter.getTopValue());
+    }
+    trf.closeReader();
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    TestRFile plain = writeFile("0");
+    TestRFile dict = writeFile("16K");
+
+    verify(plain);
+    verify(dict);
+
+    // files with a dictionary get a new version that older readers refuse
+    assertEquals(3, bcFileVersion(plain));
+    assertEquals(4, bcFileVersion(dict));
+
+    int plainSize = plain.baos.size();
+    int dictSize = dict.baos.size();
+    assertTrue(dictSize < plainSize * 0.9, dictSize + " " + plainSize);
+  }
+
+  @Test
+  public void testSmallFile() throws IOException {
+    // the file ends before enough data is sampled to build a dictionary
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE, "32K");
+    TestRFile trf = new TestRFile(cc);
+    trf.openWriter(true, 1000);
+    for (int r = 0; r < 100; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf", "email", "", 1), value(r));
+    }
+    trf.closeWriter();
+    assertEquals(3, bcFileVersion(trf));
+
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.iter.hasTop()) {
+      assertEquals(value(count), trf.iter.getTopValue());
+      count++;
+      trf.iter.next();
+    }
+    assertEquals(100, count);
+    trf.closeReader();
+  }
+}
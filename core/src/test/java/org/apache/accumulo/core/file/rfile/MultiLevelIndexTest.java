@@ -21,15 +21,24 @@ package org.apache.accumulo.core.file.rfile;
 import static org.apache.accumulo.core.util.LazySingletons.RANDOM;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
 import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.crypto.CryptoFactoryLoader;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.impl.BasicCacheProvider;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachableBuilder;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.BufferedWriter;
@@ -39,6 +48,8 @@ import org.apache.accumulo.core.file.rfile.MultiLevelIndex.Reader.IndexIterator;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.Writer;
 import org.apache.accumulo.core.file.rfile.RFileTest.SeekableByteArrayInputStream;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheType;
 import org.apache.accumulo.core.spi.crypto.CryptoService;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -61,7 +72,49 @@ public class MultiLevelIndexTest {
     runTest(1, 100);
   }
 
-  private void runTest(int maxBlockSize, int num) throws IOException {
+  @Test
+  public void testShared() throws Exception {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.GENERAL_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+    BlockCacheManager manager = BlockCacheManagerFactory.getInstance(cc);
+    manager.start(BlockCacheConfiguration.forTabletServer(cc));
+    try {
+      for (int num : new int[] {1, 100, 10000}) {
+        CachableBlockFile.Reader cbr = writeIndex(500, num,
+            new BasicCacheProvider(manager.getBlockCache(CacheType.INDEX), null));
+        Reader reader = readIndex(cbr);
+        reader.decodeRoot();
+        int rootWeight = reader.rootWeight();
+
+        AtomicInteger weightChanges = new AtomicInteger();
+        Reader reader1 = new Reader(reader, cbr, weightChanges::incrementAndGet);
+        Reader reader2 = new Reader(reader, cbr, weightChanges::incrementAndGet);
+        verify(reader1, num);
+        verify(reader2, num);
+
+        // the readers share decoded index entries
+        Key key = new Key(String.format("%05d000", num / 2));
+        assertSame(reader1.lookup(key).next(), reader2.lookup(key).next());
+        if (num == 10000) {
+          // the second level of the index was pinned to the root
+          assertTrue(weightChanges.get() > 0);
+          assertTrue(reader.rootWeight() > rootWeight);
+
+          // reading the pinned blocks again does not change the weight
+          int changes = weightChanges.get();
+          int weight = reader.rootWeight();
+          verify(reader1, num);
+          assertEquals(changes, weightChanges.get());
+          assertEquals(weight, reader.rootWeight());
+        }
+      }
+    } finally {
+      manager.stop();
+    }
+  }
+
+  private CachableBlockFile.Reader writeIndex(int maxBlockSize, int num,
+      BasicCacheProvider cacheProvider) throws IOException {
     AccumuloConfiguration aconf = DefaultConfiguration.getInstance();
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     FSDataOutputStream dos = new FSDataOutputStream(baos, new FileSystem.Statistics("a"));
@@ -89,12 +142,25 @@ public class MultiLevelIndexTest {
     FSDataInputStream in = new FSDataInputStream(bais);
     CachableBuilder cb = new CachableBuilder().input(in, "source-1").length(data.length)
         .conf(hadoopConf).cryptoService(cs);
-    CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(cb);
+    if (cacheProvider != null) {
+      cb.cacheProvider(cacheProvider);
+    }
+    return new CachableBlockFile.Reader(cb);
+  }
+
+  private static Reader readIndex(CachableBlockFile.Reader cbr) throws IOException {
+    Reader reader = new Reader(cbr, RFile.RINDEX_VER_8);
+    try (CachableBlockFile.CachedBlockRead rootIn = cbr.getMetaBlock("root")) {
+      reader.readFields(rootIn);
+    }
+    return reader;
+  }
+
+  private void runTest(int maxBlockSize, int num) throws IOException {
+    verify(readIndex(writeIndex(maxBlockSize, num, null)), num);
+  }
 
-    Reader reader = new Reader(_cbr, RFile.RINDEX_VER_8);
-    CachableBlockFile.CachedBlockRead rootIn = _cbr.getMetaBlock("root");
-    reader.readFields(rootIn);
-    rootIn.close();
+  private static void verify(Reader reader, int num) throws IOException {
     IndexIterator liter = reader.lookup(new Key("000000"));
     int count = 0;
     while (liter.hasNext()) {
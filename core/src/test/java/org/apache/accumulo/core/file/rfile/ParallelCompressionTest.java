@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.crypto.CryptoTest;
+import org.apache.accumulo.core.crypto.CryptoTest.ConfigMode;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ParallelCompressionTest extends AbstractRFileTest {
+
+  private static final int ROWS = 10_000;
+
+  @BeforeAll
+  public static void setupCryptoKeyFile() throws Exception {
+    CryptoTest.setupKeyFiles(ParallelCompressionTest.class);
+  }
+
+  private static ConfigurationCopy getConfig(ConfigMode mode, int pendingBlocks) {
+    ConfigurationCopy cc = CryptoTest.getAccumuloConfig(mode, ParallelCompressionTest.class);
+    cc.set(Property.TABLE_FILE_COMPRESSION_PENDING_BLOCKS, Integer.toString(pendingBlocks));
+    cc.set(Property.GENERAL_FILE_COMPRESSION_MAXCONCURRENT, "4");
+    return cc;
+  }
+
+  private static Value value(int r) {
+    return new Value("value" + (r * 31 % 1000) + "_" + r);
+  }
+
+  private static TestRFile writeFile(ConfigurationCopy cc) throws IOException {
+    TestRFile trf = new TestRFile(cc);
+    // small data and index blocks so that there are many of each
+    trf.openWriter(false, 1000, 1000);
+    trf.writer.startNewLocalityGroup("lg1", Set.of(new ArrayByteSequence("cf1")));
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf1", "cq", "", 1), value(r));
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf2", "cq", "", 1), value(r));
+    }
+    trf.closeWriter();
+    return trf;
+  }
+
+  private static void verify(TestRFile trf) throws IOException {
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int r = 0; r < ROWS; r++) {
+      for (String cf : new String[] {"cf1", "cf2"}) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(newKey(formatString("r_", r), cf, "cq", "", 1), trf.iter.getTopKey());
+        assertEquals(value(r), trf.iter.getTopValue());
+        trf.iter.next();
+      }
+    }
+    assertFalse(trf.iter.hasTop());
+
+    trf.iter.seek(Range.exact(formatString("r_", ROWS / 3)), EMPTY_COL_FAMS, false);
+    assertTrue(trf.iter.hasTop());
+    assertEquals(value(ROWS / 3), trf.iter.getTopValue());
+    trf.closeReader();
+  }
+
+  @Test
+  public void testSameAsSerial() throws IOException {
+    for (int pendingBlocks : new int[] {1, 4, 64}) {
+      TestRFile serial = writeFile(getConfig(ConfigMode.CRYPTO_OFF, 0));
+      TestRFile parallel = writeFile(getConfig(ConfigMode.CRYPTO_OFF, pendingBlocks));
+      // blocks are written in the same order and compressed the same way
+      assertArrayEquals(serial.baos.toByteArray(), parallel.baos.toByteArray());
+      verify(parallel);
+    }
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    ConfigurationCopy serialConf = getConfig(ConfigMode.CRYPTO_OFF, 0);
+    serialConf.set(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE, "4K");
+    ConfigurationCopy parallelConf = getConfig(ConfigMode.CRYPTO_OFF, 8);
+    parallelConf.set(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE, "4K");
+
+    TestRFile serial = writeFile(serialConf);
+    TestRFile parallel = writeFile(parallelConf);
+    assertArrayEquals(serial.baos.toByteArray(), parallel.baos.toByteArray());
+    verify(parallel);
+  }
+
+  @Test
+  public void testCrypto() throws IOException {
+    verify(writeFile(getConfig(ConfigMode.CRYPTO_TABLE_ON, 8)));
+  }
+}
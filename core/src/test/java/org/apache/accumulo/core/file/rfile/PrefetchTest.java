@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.apache.accumulo.core.file.rfile.RFileTest.newColFamByteSequence;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.impl.BasicCacheProvider;
+import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
+import org.apache.accumulo.core.file.rfile.RFile.FencedReader;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class PrefetchTest extends AbstractRFileTest {
+
+  private static final int ROWS = 5000;
+
+  private BlockCacheManager manager = null;
+
+  @AfterEach
+  public void stopCache() {
+    if (manager != null) {
+      manager.stop();
+    }
+  }
+
+  private TestRFile writeFile() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(false, 1000);
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf", "cq", "", 1), new Value("v" + r));
+    }
+    trf.closeWriter();
+    return trf;
+  }
+
+  private TestRFile writeLocalityGroupFile() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(false, 1000);
+    trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf1", "cq", "", 1), new Value("v" + r));
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int r = 0; r < ROWS; r++) {
+      trf.writer.append(newKey(formatString("r_", r), "cf2", "cq", "", 1), new Value("v" + r));
+    }
+    trf.closeWriter();
+    return trf;
+  }
+
+  private BlockCache createDataCache() throws Exception {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.GENERAL_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+    cc.set(Property.TSERV_DATACACHE_SIZE, "10M");
+    manager = BlockCacheManagerFactory.getInstance(cc);
+    manager.start(BlockCacheConfiguration.forTabletServer(cc));
+    return manager.getBlockCache(CacheType.DATA);
+  }
+
+  private static List<Range> pointRanges() {
+    List<Range> ranges = new ArrayList<>();
+    for (int r = 3; r < ROWS; r += 97) {
+      ranges.add(Range.exact(formatString("r_", r)));
+    }
+    return ranges;
+  }
+
+  private static void lookup(TestRFile trf, List<Range> ranges) throws IOException {
+    for (Range range : ranges) {
+      trf.iter.seek(range, EMPTY_COL_FAMS, false);
+      assertTrue(trf.iter.hasTop());
+      String row = trf.iter.getTopKey().getRow().toString();
+      assertEquals(range.getStartKey().getRow().toString(), row);
+      assertEquals(new Value("v" + Integer.parseInt(row.substring(2))), trf.iter.getTopValue());
+      trf.iter.next();
+      assertFalse(trf.iter.hasTop());
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    BlockCache dataCache = createDataCache();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, dataCache));
+
+    List<Range> ranges = pointRanges();
+    trf.reader.prefetch(ranges, EMPTY_COL_FAMS, false);
+
+    long requests = dataCache.getStats().requestCount();
+    long hits = dataCache.getStats().hitCount();
+    // every range needs a block and nothing was cached before the prefetch
+    assertTrue(requests - hits >= ranges.size() / 2);
+
+    // every block the lookups need should already be cached
+    lookup(trf, ranges);
+    long lookupRequests = dataCache.getStats().requestCount() - requests;
+    long lookupHits = dataCache.getStats().hitCount() - hits;
+    assertTrue(lookupRequests >= ranges.size());
+    assertEquals(lookupRequests, lookupHits);
+
+    // prefetching again does not read anything
+    requests = dataCache.getStats().requestCount();
+    hits = dataCache.getStats().hitCount();
+    trf.reader.prefetch(ranges, EMPTY_COL_FAMS, false);
+    assertEquals(dataCache.getStats().requestCount() - requests,
+        dataCache.getStats().hitCount() - hits);
+
+    trf.closeReader();
+  }
+
+  private static void lookup(TestRFile trf, List<Range> ranges, String family)
+      throws IOException {
+    Set<ByteSequence> families = newColFamByteSequence(family);
+    for (Range range : ranges) {
+      trf.iter.seek(range, families, true);
+      assertTrue(trf.iter.hasTop());
+      assertEquals(range.getStartKey().getRow(), trf.iter.getTopKey().getRow());
+      assertEquals(family, trf.iter.getTopKey().getColumnFamily().toString());
+      trf.iter.next();
+      assertFalse(trf.iter.hasTop());
+    }
+  }
+
+  @Test
+  public void testPrefetchLocalityGroups() throws Exception {
+    TestRFile trf = writeLocalityGroupFile();
+    trf.openReader();
+    BlockCache dataCache = createDataCache();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, dataCache));
+
+    // only the blocks of the locality group holding the fetched family should be loaded
+    List<Range> ranges = pointRanges();
+    trf.reader.prefetch(ranges, newColFamByteSequence("cf1"), true);
+
+    long requests = dataCache.getStats().requestCount();
+    long hits = dataCache.getStats().hitCount();
+    lookup(trf, ranges, "cf1");
+    assertEquals(dataCache.getStats().requestCount() - requests,
+        dataCache.getStats().hitCount() - hits);
+
+    requests = dataCache.getStats().requestCount();
+    hits = dataCache.getStats().hitCount();
+    lookup(trf, ranges, "cf2");
+    long lookupRequests = dataCache.getStats().requestCount() - requests;
+    long lookupHits = dataCache.getStats().hitCount() - hits;
+    assertTrue(lookupRequests - lookupHits >= ranges.size() / 2);
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testPrefetchFenced() throws Exception {
+    TestRFile trf = writeFile();
+    Range fence = new Range(formatString("r_", 1000), true, formatString("r_", 2000), false);
+    trf.openReader(fence);
+    BlockCache dataCache = createDataCache();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, dataCache));
+
+    List<Range> ranges = pointRanges();
+    ((FencedReader) trf.iter).prefetch(ranges, EMPTY_COL_FAMS, false);
+
+    List<Range> inFence = new ArrayList<>();
+    for (Range range : ranges) {
+      if (fence.clip(range, true) != null) {
+        inFence.add(range);
+      }
+    }
+
+    long requests = dataCache.getStats().requestCount();
+    long hits = dataCache.getStats().hitCount();
+    lookup(trf, inFence);
+    assertEquals(dataCache.getStats().requestCount() - requests,
+        dataCache.getStats().hitCount() - hits);
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testCachedBlocks() throws Exception {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, createDataCache()));
+    assertEquals(0, trf.reader.getCachedBlocks(100).length);
+
+    List<Range> ranges = pointRanges();
+    lookup(trf, ranges);
+    long[] offsets = trf.reader.getCachedBlocks(1000);
+    assertTrue(offsets.length >= ranges.size() / 2);
+    for (int i = 1; i < offsets.length; i++) {
+      assertTrue(offsets[i - 1] < offsets[i]);
+    }
+    assertEquals(2, trf.reader.getCachedBlocks(2).length);
+
+    // load the same blocks into an empty cache, as the next server to host a tablet does
+    manager.stop();
+    BlockCache dataCache = createDataCache();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, dataCache));
+    trf.reader.prefetchBlocks(offsets);
+    assertArrayEquals(offsets, trf.reader.getCachedBlocks(1000));
+
+    long requests = dataCache.getStats().requestCount();
+    long hits = dataCache.getStats().hitCount();
+    lookup(trf, ranges);
+    assertEquals(dataCache.getStats().requestCount() - requests,
+        dataCache.getStats().hitCount() - hits);
+
+    trf.closeReader();
+  }
+
+  /**
+   * A flag that counts how often it was checked, and is set after the given number of checks.
+   */
+  private static class CountingFlag extends AtomicBoolean {
+    private static final long serialVersionUID = 1L;
+    private final int limit;
+    private int checks = 0;
+
+    CountingFlag(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public boolean get() {
+      return checks++ >= limit || super.get();
+    }
+  }
+
+  @Test
+  public void testInterruptCachedBlocks() throws Exception {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, createDataCache()));
+    List<Range> ranges = pointRanges();
+    lookup(trf, ranges);
+    long[] offsets = trf.reader.getCachedBlocks(1000);
+    assertTrue(offsets.length > 10);
+
+    // the flag is checked while walking the index of the file, not only between files
+    trf.reader.setInterruptFlag(new CountingFlag(10));
+    assertThrows(IterationInterruptedException.class, () -> trf.reader.getCachedBlocks(1000));
+
+    // the flag is checked once for each index entry that is walked, then once for each block
+    CountingFlag counter = new CountingFlag(Integer.MAX_VALUE);
+    trf.reader.setInterruptFlag(counter);
+    trf.reader.prefetchBlocks(offsets);
+    int indexChecks = counter.checks - offsets.length;
+
+    // loading the blocks into an empty cache stops part way through the file
+    manager.stop();
+    BlockCache dataCache = createDataCache();
+    trf.reader.setCacheProvider(new BasicCacheProvider(null, dataCache));
+    trf.reader.setInterruptFlag(new CountingFlag(indexChecks + 3));
+    assertThrows(IterationInterruptedException.class, () -> trf.reader.prefetchBlocks(offsets));
+    trf.reader.setInterruptFlag(null);
+    assertEquals(3, trf.reader.getCachedBlocks(1000).length);
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testPrefetchWithoutCache() throws Exception {
+    TestRFile trf = writeFile();
+    trf.openReader();
+    trf.reader.setCacheProvider(CacheProvider.NULL_PROVIDER);
+
+    List<Range> ranges = pointRanges();
+    trf.reader.prefetch(ranges, EMPTY_COL_FAMS, false);
+    lookup(trf, ranges);
+
+    trf.closeReader();
+  }
+}
@@ -1546,6 +1546,92 @@ public class RFileTest extends AbstractRFileTest {
     trf.closeReader();
   }
 
+  @Test
+  public void testTimestampRange() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(false);
+    trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+    for (int row = 0; row < 100; row++) {
+      trf.writer.append(newKey(formatString("r_", row), "cf1", "cq", "", 1000 + row),
+          newValue("" + row));
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int row = 0; row < 100; row++) {
+      trf.writer.append(newKey(formatString("r_", row), "cf2", "cq", "", 500 - row),
+          newValue("" + row));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+    assertEquals(401, trf.reader.getMinTimestamp());
+    assertEquals(1099, trf.reader.getMaxTimestamp());
+    trf.closeReader();
+
+    // the range is empty when nothing was written
+    trf = new TestRFile(conf);
+    trf.openWriter();
+    trf.closeWriter();
+    trf.openReader();
+    assertTrue(trf.reader.getMinTimestamp() > trf.reader.getMaxTimestamp());
+    trf.closeReader();
+  }
+
+  private static TestRFile writeSparseFamilies(String familySummaryMax) throws IOException {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.TABLE_FILE_INDEX_FAMILY_SUMMARY_MAX, familySummaryMax);
+    TestRFile trf = new TestRFile(cc);
+    trf.openWriter(true, 1000);
+    for (int row = 0; row < 2000; row++) {
+      trf.writer.append(newKey(formatString("r_", row), "common", "cq", "", 1),
+          newValue("" + row));
+      if (row % 400 == 0) {
+        trf.writer.append(newKey(formatString("r_", row), "rare", "cq", "", 1),
+            newValue("" + row));
+      }
+    }
+    trf.closeWriter();
+    trf.openReader();
+    return trf;
+  }
+
+  private static List<Key> scan(TestRFile trf, Range range, Set<ByteSequence> families)
+      throws IOException {
+    List<Key> keys = new ArrayList<>();
+    trf.iter.seek(range, families, true);
+    while (trf.iter.hasTop()) {
+      keys.add(new Key(trf.iter.getTopKey()));
+      trf.iter.next();
+    }
+    return keys;
+  }
+
+  @Test
+  public void testColumnFamilySummary() throws IOException {
+    TestRFile summarized = writeSparseFamilies("64");
+    TestRFile plain = writeSparseFamilies("0");
+
+    Range all = new Range();
+    Range part = new Range(formatString("r_", 399), true, formatString("r_", 1201), false);
+    for (Range range : List.of(all, part)) {
+      for (Set<ByteSequence> families : List.of(newColFamByteSequence("rare"),
+          newColFamByteSequence("rare", "missing"), newColFamByteSequence("common"),
+          newColFamByteSequence("missing"), newColFamByteSequence("rare"))) {
+        assertEquals(scan(plain, range, families), scan(summarized, range, families));
+      }
+    }
+
+    List<Key> rare = scan(summarized, all, newColFamByteSequence("rare"));
+    assertEquals(5, rare.size());
+    for (int i = 0; i < rare.size(); i++) {
+      assertEquals(newKey(formatString("r_", i * 400), "rare", "cq", "", 1), rare.get(i));
+    }
+    assertEquals(2000, scan(summarized, all, newColFamByteSequence("common")).size());
+    assertEquals(3, scan(summarized, part, newColFamByteSequence("rare")).size());
+
+    summarized.closeReader();
+    plain.closeReader();
+  }
+
   @Test
   public void testMissingUnreleasedVersions() {
     assertThrows(NullPointerException.class,
@@ -1597,6 +1683,10 @@ public class RFileTest extends AbstractRFileTest {
     Reader reader = new RFile.Reader(cb);
     checkIndex(reader);
 
+    // older versions did not record timestamps
+    assertEquals(Long.MIN_VALUE, reader.getMinTimestamp());
+    assertEquals(Long.MAX_VALUE, reader.getMaxTimestamp());
+
     ColumnFamilySkippingIterator iter = new ColumnFamilySkippingIterator(reader);
 
     for (int start : new int[] {0, 10, 100, 998}) {
@@ -19,6 +19,7 @@
 package org.apache.accumulo.core.file.rfile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.ByteArrayInputStream;
@@ -90,6 +91,39 @@ public class RelativeKeyTest {
     assertEquals(expected.getKey(), actual.getKey());
   }
 
+  @Test
+  public void testReadSharesRepeatedFields() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+
+    // alternate column families and visibilities so they differ from the previous key
+    ArrayList<Key> keys = new ArrayList<>();
+    Key prev = null;
+    for (int i = 0; i < 20; i++) {
+      Key k = new Key("row" + i, "family" + (i % 2), "qual", i % 2 == 0 ? "A&B" : "C", i);
+      new RelativeKey(prev, k).write(out);
+      keys.add(k);
+      prev = k;
+    }
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(new Key());
+    ArrayList<Key> actual = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      rk.readFields(in);
+      actual.add(rk.getKey());
+    }
+
+    assertEquals(keys, actual);
+    for (int i = 2; i < actual.size(); i++) {
+      assertSame(actual.get(i - 2).getColumnFamilyData().getBackingArray(),
+          actual.get(i).getColumnFamilyData().getBackingArray());
+      assertSame(actual.get(i - 2).getColumnVisibilityData().getBackingArray(),
+          actual.get(i).getColumnVisibilityData().getBackingArray());
+    }
+  }
+
   private static ArrayList<Key> expectedKeys;
   private static ArrayList<Value> expectedValues;
   private static ArrayList<Integer> expectedPositions;
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
+import org.junit.jupiter.api.Test;
+
+public class RestartPointsTest extends AbstractRFileTest {
+
+  private static List<Key> createKeys(int rows) {
+    List<Key> keys = new ArrayList<>();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < 4; c++) {
+        keys.add(newKey(formatString("r_", r), "cf" + c, "cq", "", 5));
+      }
+    }
+    return keys;
+  }
+
+  @Test
+  public void testSeekBlock() throws IOException {
+    List<Key> keys = createKeys(25);
+    int interval = 8;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    RestartPoints.Writer restarts = new RestartPoints.Writer(interval);
+    Key prev = null;
+    for (int i = 0; i < keys.size(); i++) {
+      if (restarts.isRestart(i)) {
+        restarts.add(out.size());
+        prev = null;
+      }
+      new RelativeKey(prev, keys.get(i)).write(out);
+      new Value("v" + i).write(out);
+      prev = keys.get(i);
+    }
+    restarts.writeTrailer(out);
+
+    CachedBlockRead block = new CachedBlockRead(null, baos.toByteArray());
+
+    // nothing before the first restart point, so must decode from the beginning of the block
+    assertNull(RestartPoints.seek(block, keys.size(), keys.get(0)));
+    assertNull(RestartPoints.seek(block, keys.size(), keys.get(interval)));
+
+    for (int i = interval + 1; i < keys.size(); i++) {
+      RestartPoints.Restart restart = RestartPoints.seek(block, keys.size(), keys.get(i));
+      assertNotNull(restart);
+      int restartEntry = keys.size() - restart.entriesLeft;
+      assertEquals(((i - 1) / interval) * interval, restartEntry);
+      assertEquals(keys.get(restartEntry), restart.key);
+
+      // the block should be positioned at the restart point
+      RelativeKey rk = new RelativeKey();
+      rk.readFields(block);
+      assertEquals(keys.get(restartEntry), rk.getKey());
+    }
+  }
+
+  @Test
+  public void testNoRestarts() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    RestartPoints.Writer restarts = new RestartPoints.Writer(0);
+    assertFalse(restarts.isRestart(64));
+    new RelativeKey(null, new Key("r1")).write(out);
+    restarts.writeTrailer(out);
+
+    CachedBlockRead block = new CachedBlockRead(null, baos.toByteArray());
+    assertNull(RestartPoints.seek(block, 1, new Key("r2")));
+  }
+
+  @Test
+  public void testSeekFile() throws IOException {
+    List<Key> keys = createKeys(2000);
+
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(true, 16 * 1024, 1000, 4);
+    for (int i = 0; i < keys.size(); i++) {
+      // add each key twice, restart points must still position before the first copy
+      trf.writer.append(keys.get(i), new Value("a" + i));
+      trf.writer.append(keys.get(i), new Value("b" + i));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+    // seek twice so blocks are read from the cache, where restart points are used
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < keys.size(); i += 7) {
+        trf.iter.seek(new Range(keys.get(i), null), EMPTY_COL_FAMS, false);
+        for (int j = i; j < Math.min(i + 3, keys.size()); j++) {
+          assertTrue(trf.iter.hasTop());
+          assertEquals(keys.get(j), trf.iter.getTopKey());
+          assertEquals(new Value("a" + j), trf.iter.getTopValue());
+          trf.iter.next();
+          assertEquals(keys.get(j), trf.iter.getTopKey());
+          assertEquals(new Value("b" + j), trf.iter.getTopValue());
+          trf.iter.next();
+        }
+      }
+
+      // seek to keys that do not exist in the file, but fall between keys that do
+      for (int i = 0; i < keys.size() - 1; i += 11) {
+        Key between = keys.get(i).followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME);
+        trf.iter.seek(new Range(between, null), EMPTY_COL_FAMS, false);
+        assertTrue(trf.iter.hasTop());
+        assertEquals(keys.get(i + 1), trf.iter.getTopKey());
+      }
+    }
+    trf.closeReader();
+  }
+}
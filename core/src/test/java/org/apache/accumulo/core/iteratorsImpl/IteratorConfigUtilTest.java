@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.ConfigurationCopy;
 import org.apache.accumulo.core.conf.Property;
@@ -46,6 +47,8 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.MultiIteratorTest;
 import org.apache.accumulo.core.iterators.user.AgeOffFilter;
 import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
 import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -335,6 +338,47 @@ public class IteratorConfigUtilTest {
     assertEquals(new IterInfo(50, SummingCombiner.class.getName(), "foo"), ii);
   }
 
+  @Test
+  public void testMinTimestamp() {
+    Map<String,String> data = new HashMap<>();
+    data.put(Property.TABLE_ITERATOR_SCAN_PREFIX + "vers",
+        "20," + VersioningIterator.class.getName());
+    AccumuloConfiguration conf = new ConfigurationCopy(data);
+
+    assertEquals(Long.MIN_VALUE,
+        IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf, List.of(), 5000));
+
+    IteratorSetting tsFilter = new IteratorSetting(30, "ts", TimestampFilter.class);
+    TimestampFilter.setStart(tsFilter, 1000, false);
+    assertEquals(1000,
+        IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf, List.of(tsFilter), 5000));
+
+    IteratorSetting ageOff = new IteratorSetting(40, "ageoff", AgeOffFilter.class);
+    AgeOffFilter.setTTL(ageOff, 100L);
+    assertEquals(4900, IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf,
+        List.of(tsFilter, ageOff), 5000));
+    AgeOffFilter.setCurrentTime(ageOff, 900L);
+    assertEquals(1000, IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf,
+        List.of(tsFilter, ageOff), 5000));
+
+    // a combiner above the filters does not matter
+    IteratorSetting sum = new IteratorSetting(50, "sum", SummingCombiner.class);
+    assertEquals(1000, IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf,
+        List.of(tsFilter, ageOff, sum), 5000));
+
+    // a combiner beneath the filters could combine older entries into newer ones
+    sum = new IteratorSetting(25, "sum", SummingCombiner.class);
+    assertEquals(Long.MIN_VALUE, IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf,
+        List.of(tsFilter, ageOff, sum), 5000));
+
+    // a negated filter returns the older entries
+    IteratorSetting negated = new IteratorSetting(30, "ts", TimestampFilter.class);
+    TimestampFilter.setStart(negated, 1000, false);
+    TimestampFilter.setNegate(negated, true);
+    assertEquals(Long.MIN_VALUE,
+        IteratorConfigUtil.getMinTimestamp(IteratorScope.scan, conf, List.of(negated), 5000));
+  }
+
   /**
    * Iterators should not contain dots in the name. Also, if the split size on "." is greater than
    * one, it should be 3, i.e., itername.opt.optname
@@ -34,10 +34,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -72,6 +77,7 @@ import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.accumulo.core.util.LocalityGroupUtil.LocalityGroupConfigurationError;
 import org.apache.accumulo.core.util.Timer;
 import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.fs.FileManager;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.iterators.SystemIteratorEnvironment;
 import org.apache.accumulo.server.mem.LowMemoryDetector.DetectionScope;
@@ -263,6 +269,22 @@ public class FileCompactor implements Callable<CompactionStats> {
     return outputFile.insert();
   }
 
+  /**
+   * @return an executor used to read the locality groups of the output file concurrently, or null
+   *         to read them one after another on the thread running the compaction
+   */
+  protected ExecutorService getLocalityGroupExecutor() {
+    return null;
+  }
+
+  /**
+   * @return the maximum amount of data buffered for each locality group when they are read
+   *         concurrently
+   */
+  protected long getLocalityGroupBufferSize() {
+    return 0;
+  }
+
   protected Map<String,Set<ByteSequence>> getLocalityGroups(AccumuloConfiguration acuTableConf)
       throws IOException {
     try {
@@ -316,19 +338,23 @@ public class FileCompactor implements Callable<CompactionStats> {
 
       long t1 = System.currentTimeMillis();
 
-      HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
-
-      if (mfw.supportsLocalityGroups()) {
-        for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
-          setLocalityGroup(entry.getKey());
-          compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats);
-          allColumnFamilies.addAll(entry.getValue());
-        }
+      ExecutorService localityGroupExecutor = getLocalityGroupExecutor();
+      if (mfw.supportsLocalityGroups() && !lGroups.isEmpty() && localityGroupExecutor != null) {
+        compactLocalityGroupsConcurrently(lGroups, mfw, majCStats, localityGroupExecutor,
+            getLocalityGroupBufferSize(), this::setLocalityGroup, () -> {
+              // each locality group needs its own copy of the in-memory map iterator
+              SortedKeyValueIterator<Key,Value> mincIter = getMinCIterator();
+              SortedKeyValueIterator<Key,Value> mincIterCopy =
+                  mincIter == null ? null : mincIter.deepCopy(null);
+              return (lgName, columnFamilies, inclusive, output, stats) -> compactLocalityGroup(
+                  lgName, columnFamilies, inclusive, mincIterCopy, output, stats);
+            });
+      } else {
+        compactLocalityGroups(lGroups, mfw, majCStats, this::setLocalityGroup,
+            (lgName, columnFamilies, inclusive, output, stats) -> compactLocalityGroup(lgName,
+                columnFamilies, inclusive, getMinCIterator(), output, stats));
       }
 
-      setLocalityGroup("");
-      compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats);
-
       long t2 = System.currentTimeMillis();
 
       FileSKVWriter mfwTmp = mfw;
@@ -413,8 +439,8 @@ public class FileCompactor implements Callable<CompactionStats> {
     }
   }
 
-  private List<SortedKeyValueIterator<Key,Value>>
-      openMapDataFiles(ArrayList<FileSKVIterator> readers) throws IOException {
+  private List<SortedKeyValueIterator<Key,Value>> openMapDataFiles(
+      ArrayList<FileSKVIterator> readers, long minTimestamp) throws IOException {
 
     List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(filesToCompact.size());
 
@@ -430,6 +456,13 @@ public class FileCompactor implements Callable<CompactionStats> {
 
         readers.add(reader);
 
+        if (FileManager.isOlderThan(reader, filesToCompact.get(dataFile), minTimestamp)) {
+          // the compaction iterators would drop every entry in the file
+          log.trace("Not reading {} for {}, all entries are older than {}", dataFile, extent,
+              minTimestamp);
+          continue;
+        }
+
         InterruptibleIterator iter = new ProblemReportingIterator(extent.tableId(),
             dataFile.getNormalizedPathStr(), false, reader);
         iter.setInterruptFlag(interruptFlag);
@@ -461,17 +494,138 @@ public class FileCompactor implements Callable<CompactionStats> {
     return iters;
   }
 
-  private void compactLocalityGroup(String lgName, Set<ByteSequence> columnFamilies,
-      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats)
+  private SortedKeyValueIterator<Key,Value> getMinCIterator() {
+    return env.getIteratorScope() == IteratorScope.minc ? env.getMinCIterator() : null;
+  }
+
+  /**
+   * Reads, filters and writes the entries of one locality group of a compaction.
+   */
+  @FunctionalInterface
+  interface LocalityGroupCompaction {
+    /**
+     * @param lgName the name of the locality group, null for the default locality group
+     * @param inclusive true to compact the given column families, false to compact all others
+     */
+    void compact(String lgName, Set<ByteSequence> columnFamilies, boolean inclusive,
+        FileSKVWriter output, CompactionStats stats)
+        throws IOException, CompactionCanceledException;
+  }
+
+  /**
+   * Compacts each locality group, then the default locality group, one after another on the
+   * calling thread.
+   */
+  static void compactLocalityGroups(Map<String,Set<ByteSequence>> lGroups, FileSKVWriter mfw,
+      CompactionStats majCStats, Consumer<String> setLocalityGroup,
+      LocalityGroupCompaction compaction) throws IOException, CompactionCanceledException {
+    HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
+
+    if (mfw.supportsLocalityGroups()) {
+      for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
+        setLocalityGroup.accept(entry.getKey());
+        compaction.compact(entry.getKey(), entry.getValue(), true, mfw, majCStats);
+        allColumnFamilies.addAll(entry.getValue());
+      }
+    }
+
+    setLocalityGroup.accept("");
+    compaction.compact(null, allColumnFamilies, false, mfw, majCStats);
+  }
+
+  /**
+   * Reads and filters each locality group on its own thread, while the calling thread writes the
+   * locality groups to the output file in order as their entries become available.
+   *
+   * @param compactions called on the calling thread once for each locality group, for the
+   *        compaction that reads it on another thread
+   */
+  static void compactLocalityGroupsConcurrently(Map<String,Set<ByteSequence>> lGroups,
+      FileSKVWriter mfw, CompactionStats majCStats, ExecutorService executor, long bufferSize,
+      Consumer<String> setLocalityGroup, Supplier<LocalityGroupCompaction> compactions)
       throws IOException, CompactionCanceledException {
+    List<String> names = new ArrayList<>();
+    List<LocalityGroupBuffer> buffers = new ArrayList<>();
+    List<Future<CompactionStats>> futures = new ArrayList<>();
+    HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
+
+    try {
+      for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
+        names.add(entry.getKey());
+        futures.add(submitLocalityGroup(entry.getKey(), entry.getValue(), true, bufferSize,
+            compactions.get(), buffers, executor));
+        allColumnFamilies.addAll(entry.getValue());
+      }
+      names.add("");
+      futures.add(submitLocalityGroup(null, allColumnFamilies, false, bufferSize,
+          compactions.get(), buffers, executor));
+
+      for (int i = 0; i < buffers.size(); i++) {
+        setLocalityGroup.accept(names.get(i));
+        buffers.get(i).writeTo(mfw);
+        // if the buffer was abandoned, this throws the reason
+        majCStats.add(getLocalityGroupStats(futures.get(i)));
+      }
+    } finally {
+      // unblocks any threads still reading when the compaction fails
+      buffers.forEach(LocalityGroupBuffer::abandon);
+    }
+  }
+
+  private static Future<CompactionStats> submitLocalityGroup(String lgName,
+      Set<ByteSequence> columnFamilies, boolean inclusive, long bufferSize,
+      LocalityGroupCompaction compaction, List<LocalityGroupBuffer> buffers,
+      ExecutorService executor) {
+    LocalityGroupBuffer buffer = new LocalityGroupBuffer(bufferSize);
+    buffers.add(buffer);
+    return executor.submit(() -> {
+      CompactionStats lgStats = new CompactionStats();
+      try {
+        compaction.compact(lgName, columnFamilies, inclusive, buffer, lgStats);
+        buffer.close();
+      } catch (Exception | Error e) {
+        buffer.abandon();
+        throw e;
+      }
+      return lgStats;
+    });
+  }
+
+  private static CompactionStats getLocalityGroupStats(Future<CompactionStats> future)
+      throws IOException, CompactionCanceledException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compacting locality group", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof CompactionCanceledException) {
+        throw (CompactionCanceledException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Failed to compact locality group", cause);
+    }
+  }
+
+  private void compactLocalityGroup(String lgName, Set<ByteSequence> columnFamilies,
+      boolean inclusive, SortedKeyValueIterator<Key,Value> mincIter, FileSKVWriter mfw,
+      CompactionStats majCStats) throws IOException, CompactionCanceledException {
     ArrayList<FileSKVIterator> readers = new ArrayList<>(filesToCompact.size());
     Span compactSpan = TraceUtil.startSpan(this.getClass(), "compact");
     try (Scope span = compactSpan.makeCurrent()) {
       long entriesCompacted = 0;
-      List<SortedKeyValueIterator<Key,Value>> iters = openMapDataFiles(readers);
+      long minTimestamp = IteratorConfigUtil.getMinTimestamp(env.getIteratorScope(), acuTableConf,
+          iterators, System.currentTimeMillis());
+      List<SortedKeyValueIterator<Key,Value>> iters = openMapDataFiles(readers, minTimestamp);
 
-      if (env.getIteratorScope() == IteratorScope.minc) {
-        iters.add(env.getMinCIterator());
+      if (mincIter != null) {
+        iters.add(mincIter);
       }
 
       CountingIterator citr =
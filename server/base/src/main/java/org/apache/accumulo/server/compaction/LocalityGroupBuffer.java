@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.compaction;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+
+/**
+ * Passes the entries of one locality group of a compaction from the thread that reads and filters
+ * them to the thread that writes the output file. This allows the locality groups of a file to be
+ * read concurrently, even though they are written one after another. At most a fixed amount of data
+ * is held, the reading thread blocks when the buffer is full.
+ */
+class LocalityGroupBuffer implements FileSKVWriter {
+
+  private static class Batch {
+    final List<Key> keys = new ArrayList<>();
+    final List<Value> values = new ArrayList<>();
+    long size = 0;
+  }
+
+  private final long maxSize;
+  private final long batchSize;
+
+  private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+  private long bufferedSize = 0;
+  private Batch batch = new Batch();
+
+  private boolean started = false;
+  private String name;
+  private Set<ByteSequence> columnFamilies;
+  private boolean finished = false;
+  private boolean abandoned = false;
+
+  LocalityGroupBuffer(long maxSize) {
+    this.maxSize = Math.max(1, maxSize);
+    this.batchSize = Math.max(1, this.maxSize / 8);
+  }
+
+  @Override
+  public boolean supportsLocalityGroups() {
+    return true;
+  }
+
+  @Override
+  public synchronized void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) {
+    this.name = name;
+    this.columnFamilies = columnFamilies;
+    started = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized void startDefaultLocalityGroup() {
+    started = true;
+    notifyAll();
+  }
+
+  @Override
+  public void append(Key key, Value value) throws IOException {
+    // iterators may reuse the objects they return, so copy them
+    batch.keys.add(new Key(key));
+    batch.values.add(new Value(value));
+    batch.size += key.getSize() + value.getSize();
+    if (batch.size >= batchSize) {
+      flush();
+    }
+  }
+
+  private synchronized void flush() throws IOException {
+    while (bufferedSize >= maxSize && !abandoned) {
+      waitForChange();
+    }
+    if (abandoned) {
+      throw new IOException("Locality group output was abandoned");
+    }
+    if (!batch.keys.isEmpty()) {
+      batches.add(batch);
+      bufferedSize += batch.size;
+      batch = new Batch();
+      notifyAll();
+    }
+  }
+
+  /**
+   * Marks the end of the entries of the locality group.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    synchronized (this) {
+      finished = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Stops buffering entries, unblocking the reading thread. Any later attempt to add entries fails.
+   */
+  synchronized void abandon() {
+    abandoned = true;
+    batches.clear();
+    bufferedSize = 0;
+    notifyAll();
+  }
+
+  /**
+   * Writes the locality group to the given file, waiting for its entries to arrive.
+   *
+   * @return true if all entries of the locality group were written, false if the buffer was
+   *         abandoned before the end of the locality group was reached
+   */
+  boolean writeTo(FileSKVWriter writer) throws IOException {
+    synchronized (this) {
+      while (!started && !abandoned) {
+        waitForChange();
+      }
+      if (abandoned) {
+        return false;
+      }
+    }
+
+    if (columnFamilies != null) {
+      writer.startNewLocalityGroup(name, columnFamilies);
+    } else {
+      writer.startDefaultLocalityGroup();
+    }
+
+    while (true) {
+      Batch next;
+      synchronized (this) {
+        while (batches.isEmpty() && !finished && !abandoned) {
+          waitForChange();
+        }
+        if (abandoned) {
+          return false;
+        }
+        if (batches.isEmpty()) {
+          return true;
+        }
+        next = batches.remove();
+        bufferedSize -= next.size;
+        notifyAll();
+      }
+
+      for (int i = 0; i < next.keys.size(); i++) {
+        writer.append(next.keys.get(i), next.values.get(i));
+      }
+    }
+  }
+
+  private void waitForChange() {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for locality group entries", e);
+    }
+  }
+
+  @Override
+  public DataOutputStream createMetaStore(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getLength() {
+    return 0;
+  }
+}
@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -35,7 +36,9 @@ import java.util.stream.Collectors;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
@@ -44,6 +47,7 @@ import org.apache.accumulo.core.file.blockfile.impl.CacheProvider;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iteratorsImpl.system.InterruptibleIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
 import org.apache.accumulo.core.iteratorsImpl.system.SourceSwitchingIterator;
 import org.apache.accumulo.core.iteratorsImpl.system.SourceSwitchingIterator.DataSource;
 import org.apache.accumulo.core.logging.TabletLogger;
@@ -491,6 +495,21 @@ public class FileManager {
     public synchronized List<InterruptibleIterator> openFiles(
         Map<StoredTabletFile,DataFileValue> files, boolean detachable,
         SamplerConfigurationImpl samplerConfig) throws IOException {
+      return openFiles(files, detachable, samplerConfig, null, Set.of(), Long.MIN_VALUE);
+    }
+
+    /**
+     * @param prefetchRanges sorted ranges that are about to be read from the files, passed to
+     *        {@link FileSKVIterator#prefetch(Collection, Collection, boolean)}. May be null.
+     * @param prefetchFamilies the column families the scan fetches, so that only the locality
+     *        groups holding them are prefetched. Empty when the scan fetches all column families.
+     * @param minTimestamp entries older than this will not be returned by the scan, so files that
+     *        only hold older entries are left out of the returned iterators
+     */
+    public synchronized List<InterruptibleIterator> openFiles(
+        Map<StoredTabletFile,DataFileValue> files, boolean detachable,
+        SamplerConfigurationImpl samplerConfig, List<Range> prefetchRanges,
+        Set<ByteSequence> prefetchFamilies, long minTimestamp) throws IOException {
 
       Map<FileSKVIterator,StoredTabletFile> newlyReservedReaders =
           openFiles(new ArrayList<>(files.keySet()));
@@ -505,6 +524,12 @@ public class FileManager {
         StoredTabletFile file = entry.getValue();
         InterruptibleIterator iter;
 
+        if (isOlderThan(source, files.get(file), minTimestamp)) {
+          log.trace("Not reading {} for {}, all entries are older than {}", file, tablet,
+              minTimestamp);
+          continue;
+        }
+
         if (samplerConfig != null) {
           source = source.getSample(samplerConfig);
           if (source == null) {
@@ -512,6 +537,15 @@ public class FileManager {
           }
         }
 
+        if (prefetchRanges != null) {
+          try {
+            source.prefetch(prefetchRanges, prefetchFamilies, !prefetchFamilies.isEmpty());
+          } catch (IOException e) {
+            // the ranges will be read again by the scan, which reports any error
+            log.debug("Failed to prefetch {} for {}", file, tablet, e);
+          }
+        }
+
         iter = new ProblemReportingIterator(tablet.tableId(), file.toString(), continueOnFailure,
             detachable ? getSsi(file, source) : source);
 
@@ -576,6 +610,87 @@ public class FileManager {
     public synchronized int getNumOpenFiles() {
       return tabletReservedReaders.size();
     }
+
+    /**
+     * @param interruptFlag checked while walking the index of each file, may be null
+     * @return the offsets of the data blocks of each file that are in the data cache, see
+     *         {@link FileSKVIterator#getCachedBlocks(int)}. Files without cached blocks are left
+     *         out.
+     * @throws IterationInterruptedException if the interrupt flag is set
+     */
+    public synchronized Map<StoredTabletFile,long[]> getCachedBlocks(
+        Collection<StoredTabletFile> files, int maxPerFile, AtomicBoolean interruptFlag)
+        throws IOException {
+      Map<StoredTabletFile,long[]> cached = new HashMap<>();
+      // open one file at a time, so that a tablet with many files does not hit maxOpen
+      for (StoredTabletFile file : files) {
+        boolean sawIOException = false;
+        try {
+          for (Entry<FileSKVIterator,StoredTabletFile> entry : openFiles(List.of(file))
+              .entrySet()) {
+            FileSKVIterator reader = entry.getKey();
+            reader.setInterruptFlag(interruptFlag);
+            try {
+              long[] offsets = reader.getCachedBlocks(maxPerFile);
+              if (offsets.length > 0) {
+                cached.put(entry.getValue(), offsets);
+              }
+            } finally {
+              // the reader goes back to the pool
+              reader.setInterruptFlag(null);
+            }
+          }
+        } catch (IOException e) {
+          sawIOException = true;
+          throw e;
+        } finally {
+          releaseOpenFiles(sawIOException);
+        }
+      }
+      return cached;
+    }
+
+    /**
+     * Reads the data blocks at the given offsets of the file into the data cache, see
+     * {@link FileSKVIterator#prefetchBlocks(long[])}.
+     *
+     * @param interruptFlag checked before each block is read, may be null
+     * @throws IterationInterruptedException if the interrupt flag is set
+     */
+    public synchronized void prefetchBlocks(StoredTabletFile file, long[] offsets,
+        AtomicBoolean interruptFlag) throws IOException {
+      boolean sawIOException = false;
+      try {
+        for (FileSKVIterator reader : openFiles(List.of(file)).keySet()) {
+          reader.setInterruptFlag(interruptFlag);
+          try {
+            reader.prefetchBlocks(offsets);
+          } finally {
+            // the reader goes back to the pool
+            reader.setInterruptFlag(null);
+          }
+        }
+      } catch (IOException e) {
+        sawIOException = true;
+        throw e;
+      } finally {
+        releaseOpenFiles(sawIOException);
+      }
+    }
+  }
+
+  /**
+   * @return true if every entry read from the file is older than the given timestamp, so that the
+   *         file can be left out of a scan or compaction that does not return older entries
+   */
+  public static boolean isOlderThan(FileSKVIterator reader, DataFileValue value, long timestamp)
+      throws IOException {
+    if (timestamp == Long.MIN_VALUE) {
+      return false;
+    }
+    // the timestamps of entries in a bulk imported file may be replaced by the import time
+    long maxTimestamp = value.isTimeSet() ? value.getTime() : reader.getMaxTimestamp();
+    return maxTimestamp < timestamp;
   }
 
   public ScanFileManager newScanFileManager(KeyExtent tablet, CacheProvider cacheProvider) {
@@ -109,8 +109,15 @@ public class ConditionCheckerContext {
     return IteratorConfigUtil.loadIterators(systemIter, iteratorBuilder);
   }
 
+  /**
+   * @param iterators the iterator stacks already built over systemIter, keyed by the iterators of
+   *        the condition. Reusing a stack lets the seeks for conditions in sorted order move
+   *        forward through the same readers, instead of building and positioning a new stack for
+   *        each condition.
+   */
   boolean checkConditions(SortedKeyValueIterator<Key,Value> systemIter,
-      ServerConditionalMutation scm) throws IOException {
+      ServerConditionalMutation scm, Map<ByteSequence,SortedKeyValueIterator<Key,Value>> iterators)
+      throws IOException {
     boolean add = true;
 
     for (TCondition tc : scm.getConditions()) {
@@ -124,7 +131,12 @@ public class ConditionCheckerContext {
             new Text(tc.getCv()));
       }
 
-      SortedKeyValueIterator<Key,Value> iter = buildIterator(systemIter, tc);
+      ArrayByteSequence iterKey = new ArrayByteSequence(tc.iterators);
+      SortedKeyValueIterator<Key,Value> iter = iterators.get(iterKey);
+      if (iter == null) {
+        iter = buildIterator(systemIter, tc);
+        iterators.put(iterKey, iter);
+      }
 
       ByteSequence cf = new ArrayByteSequence(tc.getCf());
       iter.seek(range, Collections.singleton(cf), true);
@@ -160,8 +172,11 @@ public class ConditionCheckerContext {
       checkArgument(!checked, "check() method should only be called once");
       checked = true;
 
+      // the mutations are sorted by row and their conditions by column, so all conditions are
+      // checked in one pass over the iterator stacks
+      Map<ByteSequence,SortedKeyValueIterator<Key,Value>> iterators = new HashMap<>();
       for (ServerConditionalMutation scm : conditionsToCheck) {
-        if (checkConditions(systemIter, scm)) {
+        if (checkConditions(systemIter, scm, iterators)) {
           okMutations.add(scm);
         } else {
           results.add(new TCMResult(scm.getID(), TCMStatus.REJECTED));
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.compaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.server.compaction.FileCompactor.LocalityGroupCompaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FileCompactorTest {
+
+  private static class RecordingWriter implements FileSKVWriter {
+    final List<String> groups = new ArrayList<>();
+    final List<Key> keys = new ArrayList<>();
+    final List<Value> values = new ArrayList<>();
+
+    @Override
+    public boolean supportsLocalityGroups() {
+      return true;
+    }
+
+    @Override
+    public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) {
+      groups.add(name);
+    }
+
+    @Override
+    public void startDefaultLocalityGroup() {
+      groups.add("");
+    }
+
+    @Override
+    public void append(Key key, Value value) {
+      keys.add(key);
+      values.add(value);
+    }
+
+    @Override
+    public DataOutputStream createMetaStore(String name) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public long getLength() {
+      return 0;
+    }
+  }
+
+  private static final int ROWS = 2000;
+  private static final int FAMILIES = 6;
+
+  private final TreeMap<Key,Value> source = new TreeMap<>();
+  private final Map<String,Set<ByteSequence>> lGroups = new LinkedHashMap<>();
+  private ExecutorService executor;
+
+  private static ByteSequence family(int f) {
+    return new ArrayByteSequence("cf" + f);
+  }
+
+  @BeforeEach
+  public void setup() {
+    for (int r = 0; r < ROWS; r++) {
+      for (int f = 0; f < FAMILIES; f++) {
+        source.put(new Key(String.format("r%05d", r), "cf" + f, "cq"),
+            new Value(("v" + r + "_" + f).getBytes(UTF_8)));
+      }
+    }
+    // cf4 and cf5 are left to the default locality group
+    lGroups.put("lg1", Set.of(family(0), family(1)));
+    lGroups.put("lg2", Set.of(family(2)));
+    lGroups.put("lg3", Set.of(family(3)));
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  public void teardown() throws InterruptedException {
+    executor.shutdownNow();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+  }
+
+  /**
+   * Reads the entries of the source map in the locality group, the way a compaction seeks its
+   * iterator stack, optionally failing part way through one locality group.
+   */
+  private LocalityGroupCompaction compaction(String failingGroup) {
+    return (lgName, columnFamilies, inclusive, output, stats) -> {
+      if (inclusive) {
+        output.startNewLocalityGroup(lgName, columnFamilies);
+      } else {
+        output.startDefaultLocalityGroup();
+      }
+      long count = 0;
+      for (Entry<Key,Value> entry : source.entrySet()) {
+        if (columnFamilies.contains(entry.getKey().getColumnFamilyData()) == inclusive) {
+          if (lgName != null && lgName.equals(failingGroup) && count == ROWS / 2) {
+            throw new IOException("failed to read " + lgName);
+          }
+          output.append(entry.getKey(), entry.getValue());
+          count++;
+        }
+      }
+      stats.add(new CompactionStats(count, count, 0));
+    };
+  }
+
+  @Test
+  public void testConcurrentMatchesSerial() throws Exception {
+    RecordingWriter serial = new RecordingWriter();
+    CompactionStats serialStats = new CompactionStats();
+    List<String> serialProgress = new ArrayList<>();
+    FileCompactor.compactLocalityGroups(lGroups, serial, serialStats, serialProgress::add,
+        compaction(null));
+
+    // a small buffer makes the readers of the later locality groups wait for the writer
+    RecordingWriter concurrent = new RecordingWriter();
+    CompactionStats concurrentStats = new CompactionStats();
+    List<String> concurrentProgress = new ArrayList<>();
+    FileCompactor.compactLocalityGroupsConcurrently(lGroups, concurrent, concurrentStats,
+        executor, 1000, concurrentProgress::add, () -> compaction(null));
+
+    assertEquals(List.of("lg1", "lg2", "lg3", ""), serial.groups);
+    assertEquals(serial.groups, concurrent.groups);
+    assertEquals(serialProgress, concurrentProgress);
+    assertEquals(source.size(), serial.keys.size());
+    assertEquals(serial.keys, concurrent.keys);
+    assertEquals(serial.values, concurrent.values);
+    assertEquals(serialStats.getEntriesRead(), concurrentStats.getEntriesRead());
+    assertEquals(serialStats.getEntriesWritten(), concurrentStats.getEntriesWritten());
+  }
+
+  @Test
+  public void testFailedLocalityGroup() throws Exception {
+    List<String> order = List.of("lg1", "lg2", "lg3", "");
+    for (String failing : List.of("lg1", "lg2", "lg3")) {
+      RecordingWriter output = new RecordingWriter();
+      var e = assertThrows(IOException.class,
+          () -> FileCompactor.compactLocalityGroupsConcurrently(lGroups, output,
+              new CompactionStats(), executor, 1000, name -> {}, () -> compaction(failing)));
+      assertEquals("failed to read " + failing, e.getMessage());
+      // the groups after the failed one are never started in the output
+      assertTrue(order.subList(0, order.indexOf(failing) + 1).containsAll(output.groups),
+          output.groups::toString);
+    }
+
+    // no reader was left blocked on a full buffer, so the executor is idle again
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+  }
+}
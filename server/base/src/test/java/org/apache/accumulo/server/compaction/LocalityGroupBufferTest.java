@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.compaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LocalityGroupBufferTest {
+
+  private static class RecordingWriter implements FileSKVWriter {
+    final List<String> groups = new ArrayList<>();
+    final List<Key> keys = new ArrayList<>();
+
+    @Override
+    public boolean supportsLocalityGroups() {
+      return true;
+    }
+
+    @Override
+    public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) {
+      groups.add(name);
+    }
+
+    @Override
+    public void startDefaultLocalityGroup() {
+      groups.add("");
+    }
+
+    @Override
+    public void append(Key key, Value value) {
+      keys.add(key);
+    }
+
+    @Override
+    public DataOutputStream createMetaStore(String name) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public long getLength() {
+      return 0;
+    }
+  }
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setup() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    // small enough that the reading thread has to wait for the entries to be written
+    LocalityGroupBuffer buffer = new LocalityGroupBuffer(100);
+    Set<ByteSequence> families = Set.of(new ArrayByteSequence("cf".getBytes(UTF_8)));
+    Future<?> future = executor.submit(() -> {
+      buffer.startNewLocalityGroup("lg1", families);
+      Key key = new Key();
+      for (int i = 0; i < 1000; i++) {
+        // the buffer must copy keys, as iterators may reuse them
+        key.set(new Key(String.format("r%04d", i), "cf"));
+        buffer.append(key, new Value("v" + i));
+      }
+      buffer.close();
+      return null;
+    });
+
+    RecordingWriter writer = new RecordingWriter();
+    assertTrue(buffer.writeTo(writer));
+    future.get();
+
+    assertEquals(List.of("lg1"), writer.groups);
+    assertEquals(1000, writer.keys.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(new Key(String.format("r%04d", i), "cf"), writer.keys.get(i));
+    }
+  }
+
+  @Test
+  public void testEmptyDefaultGroup() throws Exception {
+    LocalityGroupBuffer buffer = new LocalityGroupBuffer(100);
+    buffer.startDefaultLocalityGroup();
+    buffer.close();
+
+    RecordingWriter writer = new RecordingWriter();
+    assertTrue(buffer.writeTo(writer));
+    assertEquals(List.of(""), writer.groups);
+    assertTrue(writer.keys.isEmpty());
+  }
+
+  @Test
+  public void testAbandon() throws Exception {
+    LocalityGroupBuffer buffer = new LocalityGroupBuffer(10);
+    Future<?> future = executor.submit(() -> {
+      buffer.startDefaultLocalityGroup();
+      // blocks once the buffer is full, until the buffer is abandoned
+      for (int i = 0; i < 1000; i++) {
+        buffer.append(new Key("r" + i), new Value("v"));
+      }
+      return null;
+    });
+
+    Thread.sleep(100);
+    assertFalse(future.isDone());
+    buffer.abandon();
+
+    Exception e = assertThrows(Exception.class, future::get);
+    assertTrue(e.getCause() instanceof IOException, e::toString);
+    assertFalse(buffer.writeTo(new RecordingWriter()));
+  }
+}
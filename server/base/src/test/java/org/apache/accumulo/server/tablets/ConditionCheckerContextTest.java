@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.tablets;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.clientImpl.CompressedIterators;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.thrift.TCMResult;
+import org.apache.accumulo.core.dataImpl.thrift.TCMStatus;
+import org.apache.accumulo.core.dataImpl.thrift.TCondition;
+import org.apache.accumulo.core.dataImpl.thrift.TConditionalMutation;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.ColumnFamilySkippingIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.accumulo.core.util.cache.Caches;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.conf.TableConfiguration;
+import org.apache.accumulo.server.conf.TableConfiguration.ParsedIteratorConfig;
+import org.apache.accumulo.server.data.ServerConditionalMutation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConditionCheckerContextTest {
+
+  private static final int ROWS = 10;
+
+  private ServerContext context;
+  private TableConfiguration tableConf;
+  private ParsedIteratorConfig iterConfig;
+  private CompressedIterators compressedIters;
+  private ConditionCheckerContext checkerContext;
+  private ByteBuffer noIterators;
+  private ByteBuffer sumIterators;
+
+  @BeforeEach
+  public void setUp() {
+    context = createMock(ServerContext.class);
+    tableConf = createMock(TableConfiguration.class);
+    iterConfig = createMock(ParsedIteratorConfig.class);
+    expect(context.getCaches()).andReturn(Caches.getInstance()).anyTimes();
+    expect(tableConf.getParsedIteratorConfig(IteratorScope.scan)).andReturn(iterConfig);
+    expect(tableConf.getTableId()).andReturn(TableId.of("1")).anyTimes();
+    expect(iterConfig.getIterInfo()).andReturn(List.of());
+    expect(iterConfig.getOpts()).andReturn(Map.of());
+    expect(iterConfig.getServiceEnv()).andReturn(null);
+    replay(context, tableConf, iterConfig);
+
+    compressedIters = new CompressedIterators();
+    checkerContext = new ConditionCheckerContext(context, compressedIters, tableConf);
+
+    IteratorSetting sum = new IteratorSetting(10, "sum", SummingCombiner.class);
+    Combiner.setCombineAllColumns(sum, true);
+    LongCombiner.setEncodingType(sum, LongCombiner.Type.STRING);
+    noIterators = compressedIters.compress(new IteratorSetting[0]);
+    sumIterators = compressedIters.compress(new IteratorSetting[] {sum});
+  }
+
+  @AfterEach
+  public void tearDown() {
+    verify(context, tableConf, iterConfig);
+  }
+
+  private static String row(int r) {
+    return String.format("r%03d", r);
+  }
+
+  /**
+   * Each row has three versions of one column, so the latest value is 3 and their sum is 6.
+   */
+  private static SortedKeyValueIterator<Key,Value> systemIter() {
+    TreeMap<Key,Value> data = new TreeMap<>();
+    for (int r = 0; r < ROWS; r++) {
+      for (int ts = 1; ts <= 3; ts++) {
+        data.put(new Key(row(r), "cf", "cq", ts), new Value(Integer.toString(ts)));
+      }
+    }
+    return new ColumnFamilySkippingIterator(new SortedMapIterator(data));
+  }
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes(UTF_8));
+  }
+
+  private static TCondition condition(String value, ByteBuffer iterators) {
+    return new TCondition(bytes("cf"), bytes("cq"), bytes(""), 0, false,
+        value == null ? null : bytes(value), iterators);
+  }
+
+  private static ServerConditionalMutation mutation(int r, TCondition... conditions) {
+    Mutation m = new Mutation(row(r));
+    m.put("cf", "cq", "4");
+    return new ServerConditionalMutation(
+        new TConditionalMutation(List.of(conditions), m.toThrift(), r));
+  }
+
+  @Test
+  public void testReuseIteratorStacks() throws Exception {
+    SortedKeyValueIterator<Key,Value> systemIter = systemIter();
+    Map<ByteSequence,SortedKeyValueIterator<Key,Value>> iterators = new HashMap<>();
+    Map<ByteSequence,SortedKeyValueIterator<Key,Value>> firstStacks = null;
+
+    // the rows are checked in order, alternating between conditions with and without iterators
+    for (int r = 0; r < ROWS; r++) {
+      List<ServerConditionalMutation> mutations = List.of(
+          mutation(r, condition("3", noIterators)), mutation(r, condition("6", sumIterators)),
+          mutation(r, condition("3", noIterators), condition("6", sumIterators)));
+      for (ServerConditionalMutation scm : mutations) {
+        assertTrue(checkerContext.checkConditions(systemIter, scm, iterators));
+      }
+      assertFalse(checkerContext.checkConditions(systemIter,
+          mutation(r, condition("6", noIterators)), iterators));
+      assertFalse(checkerContext.checkConditions(systemIter,
+          mutation(r, condition("3", sumIterators)), iterators));
+      assertFalse(checkerContext.checkConditions(systemIter,
+          mutation(r, condition(null, sumIterators)), iterators));
+
+      // one stack was built for each distinct iterator config, and reused for the later rows
+      assertEquals(2, iterators.size());
+      if (firstStacks == null) {
+        firstStacks = new HashMap<>(iterators);
+      }
+      for (var entry : firstStacks.entrySet()) {
+        assertSame(entry.getValue(), iterators.get(entry.getKey()));
+      }
+    }
+
+    // a row past the data has no value, whatever the iterators
+    assertTrue(checkerContext.checkConditions(systemIter,
+        mutation(ROWS, condition(null, noIterators), condition(null, sumIterators)), iterators));
+    assertEquals(2, iterators.size());
+  }
+
+  @Test
+  public void testChecker() throws Exception {
+    List<ServerConditionalMutation> toCheck = new ArrayList<>();
+    for (int r = 0; r < ROWS; r++) {
+      // the sum condition of the odd rows is not met
+      toCheck.add(mutation(r, condition("3", noIterators),
+          condition(r % 2 == 0 ? "6" : "5", sumIterators)));
+    }
+
+    List<ServerConditionalMutation> okMutations = new ArrayList<>();
+    List<TCMResult> results = new ArrayList<>();
+    checkerContext.newChecker(toCheck, okMutations, results).check(systemIter());
+
+    assertEquals(ROWS / 2, okMutations.size());
+    assertEquals(ROWS / 2, results.size());
+    for (ServerConditionalMutation scm : okMutations) {
+      assertEquals(0, scm.getID() % 2);
+    }
+    for (TCMResult result : results) {
+      assertEquals(1, result.getCmid() % 2);
+      assertEquals(TCMStatus.REJECTED, result.getStatus());
+    }
+  }
+}
@@ -165,6 +165,9 @@ class AssignmentHandler implements Runnable {
         }
       }
 
+      server.resourceManager.warmCache(extent, tablet.getMetadata().getDirName(),
+          tablet.getDatafiles().keySet());
+
       tablet = null; // release this reference
       successful = true;
     } catch (Exception e) {
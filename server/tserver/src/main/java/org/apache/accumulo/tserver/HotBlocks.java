@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.tablets.TabletNameGenerator;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The offsets of the data blocks of a tablet's files that were in the data cache of the server
+ * hosting the tablet, keyed by the normalized path of the file. The list is stored in a file in the
+ * tablet directory, so that it is removed along with the directory, and read by the next server to
+ * host the tablet to load the blocks into its cache.
+ */
+class HotBlocks {
+
+  static final String FILE_NAME = "hot-blocks";
+
+  // limits the size of the list for files with very many cached blocks
+  static final int MAX_BLOCKS_PER_FILE = 4096;
+
+  private static final int VERSION = 1;
+
+  private final Map<String,long[]> blocks;
+
+  HotBlocks(Map<String,long[]> blocks) {
+    this.blocks = blocks;
+  }
+
+  /**
+   * @return the sorted offsets of the data blocks, keyed by the normalized path of the file
+   */
+  Map<String,long[]> getBlocks() {
+    return Collections.unmodifiableMap(blocks);
+  }
+
+  /**
+   * @return a hash of the offsets of every file, used to tell whether the list changed since it was
+   *         last stored
+   */
+  long fingerprint() {
+    long fingerprint = 0;
+    for (Entry<String,long[]> entry : blocks.entrySet()) {
+      long hash = entry.getKey().hashCode();
+      for (long offset : entry.getValue()) {
+        hash = 31 * hash + offset;
+      }
+      // summed so that the order of the files does not matter
+      fingerprint += hash * 0x9E3779B97F4A7C15L;
+    }
+    return fingerprint;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(VERSION);
+    WritableUtils.writeVInt(out, blocks.size());
+    for (Entry<String,long[]> entry : blocks.entrySet()) {
+      out.writeUTF(entry.getKey());
+      long[] offsets = entry.getValue();
+      WritableUtils.writeVInt(out, offsets.length);
+      long prev = 0;
+      for (long offset : offsets) {
+        WritableUtils.writeVLong(out, offset - prev);
+        prev = offset;
+      }
+    }
+  }
+
+  static HotBlocks read(DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unknown hot blocks version " + version);
+    }
+    int files = WritableUtils.readVInt(in);
+    Map<String,long[]> blocks = new HashMap<>();
+    for (int i = 0; i < files; i++) {
+      String file = in.readUTF();
+      long[] offsets = new long[WritableUtils.readVInt(in)];
+      long prev = 0;
+      for (int j = 0; j < offsets.length; j++) {
+        prev += WritableUtils.readVLong(in);
+        offsets[j] = prev;
+      }
+      blocks.put(file, offsets);
+    }
+    return new HotBlocks(blocks);
+  }
+
+  /**
+   * Writes the list to the tablet directory, replacing any previous list.
+   */
+  void store(ServerContext context, KeyExtent extent, String dirName) throws IOException {
+    VolumeManager fs = context.getVolumeManager();
+    String dir = TabletNameGenerator.chooseTabletDir(context, extent, dirName, d -> {});
+    Path path = new Path(dir, FILE_NAME);
+    fs.mkdirs(path.getParent());
+    try (FSDataOutputStream out = fs.overwrite(path)) {
+      write(out);
+    }
+    // the list may have been written to a different volume before
+    for (Path other : getPaths(context, extent, dirName)) {
+      if (!other.equals(path) && fs.exists(other)) {
+        fs.delete(other);
+      }
+    }
+  }
+
+  /**
+   * @return the list stored in the tablet directory, or null if there is none
+   */
+  static HotBlocks load(ServerContext context, KeyExtent extent, String dirName)
+      throws IOException {
+    VolumeManager fs = context.getVolumeManager();
+    FileStatus newest = null;
+    for (Path path : getPaths(context, extent, dirName)) {
+      try {
+        FileStatus status = fs.getFileStatus(path);
+        if (newest == null || status.getModificationTime() > newest.getModificationTime()) {
+          newest = status;
+        }
+      } catch (FileNotFoundException e) {
+        // not on this volume
+      }
+    }
+
+    if (newest == null) {
+      return null;
+    }
+
+    try (FSDataInputStream in = fs.open(newest.getPath())) {
+      return read(in);
+    }
+  }
+
+  private static Iterable<Path> getPaths(ServerContext context, KeyExtent extent, String dirName) {
+    return () -> context.getTablesDirs().stream()
+        .map(tablesDir -> new Path(tablesDir + Path.SEPARATOR + extent.tableId() + Path.SEPARATOR
+            + dirName + Path.SEPARATOR + FILE_NAME))
+        .iterator();
+  }
+}
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
@@ -92,6 +93,8 @@ public class InMemoryMap {
 
   private final Map<String,Set<ByteSequence>> lggroups;
 
+  private final boolean concurrentWrites;
+
   private static Pair<SamplerConfigurationImpl,Sampler> getSampler(AccumuloConfiguration config) {
     try {
       SamplerConfigurationImpl sampleConfig = SamplerConfigurationImpl.newSamplerConfig(config);
@@ -109,6 +112,8 @@ public class InMemoryMap {
   public static final String TYPE_DEFAULT_MAP = "DefaultMap";
   public static final String TYPE_LOCALITY_GROUP_MAP = "LocalityGroupMap";
   public static final String TYPE_LOCALITY_GROUP_MAP_NATIVE = "LocalityGroupMap with native";
+  public static final String TYPE_OFF_HEAP_MAP_WRAPPER = "OffHeapMapWrapper";
+  public static final String TYPE_LOCALITY_GROUP_MAP_OFF_HEAP = "LocalityGroupMap with off-heap";
 
   private final AtomicReference<Pair<SamplerConfigurationImpl,Sampler>> samplerRef =
       new AtomicReference<>(null);
@@ -133,6 +138,8 @@ public class InMemoryMap {
   public InMemoryMap(AccumuloConfiguration config, ServerContext context, TableId tableId) {
 
     boolean useNativeMap = config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    boolean useOffHeapMap = config.getBoolean(Property.TSERV_OFF_HEAP_MAP_ENABLED);
+    this.concurrentWrites = config.getBoolean(Property.TSERV_MEMORY_MAP_CONCURRENT_WRITES);
 
     this.memDumpDir = config.get(Property.TSERV_MEMDUMP_DIR);
     this.lggroups = LocalityGroupUtil.getLocalityGroupsIgnoringErrors(config, tableId);
@@ -145,19 +152,21 @@ public class InMemoryMap {
     SimpleMap sampleMap;
 
     if (lggroups.isEmpty()) {
-      allMap = newMap(useNativeMap);
-      sampleMap = newMap(useNativeMap);
-      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      allMap = newMap(useNativeMap, useOffHeapMap);
+      sampleMap = newMap(useNativeMap, useOffHeapMap);
+      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER
+          : useOffHeapMap ? TYPE_OFF_HEAP_MAP_WRAPPER : TYPE_DEFAULT_MAP;
     } else {
-      allMap = new LocalityGroupMap(lggroups, useNativeMap);
-      sampleMap = new LocalityGroupMap(lggroups, useNativeMap);
-      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      allMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap, concurrentWrites);
+      sampleMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap, concurrentWrites);
+      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE
+          : useOffHeapMap ? TYPE_LOCALITY_GROUP_MAP_OFF_HEAP : TYPE_LOCALITY_GROUP_MAP;
     }
 
     map = new SampleMap(allMap, sampleMap);
   }
 
-  private static SimpleMap newMap(boolean useNativeMap) {
+  private static SimpleMap newMap(boolean useNativeMap, boolean useOffHeapMap) {
     if (useNativeMap) {
       try {
         return new NativeMapWrapper();
@@ -166,16 +175,22 @@ public class InMemoryMap {
       }
     }
 
+    if (useOffHeapMap) {
+      return new OffHeapMapWrapper();
+    }
+
     return new DefaultMap();
   }
 
   /**
    * Description of the type of SimpleMap that is created.
    * <p>
-   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP or
-   * TYPE_NATIVE_MAP_WRAPPER. If there is one more locality groups, then the InMemoryMap has an
-   * array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains
-   * DefaultMaps or TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers.
+   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP,
+   * TYPE_NATIVE_MAP_WRAPPER or TYPE_OFF_HEAP_MAP_WRAPPER. If there is one more locality groups,
+   * then the InMemoryMap has an array for simple maps that either contain either
+   * TYPE_LOCALITY_GROUP_MAP which contains DefaultMaps, TYPE_LOCALITY_GROUP_MAP_NATIVE which
+   * contains NativeMapWrappers or TYPE_LOCALITY_GROUP_MAP_OFF_HEAP which contains
+   * OffHeapMapWrappers.
    *
    * @return String that describes the Map type
    */
@@ -286,14 +301,17 @@ public class InMemoryMap {
     private final SimpleMap[] maps;
     private final Partitioner partitioner;
     private final PreAllocatedArray<List<Mutation>> partitioned;
+    private final boolean concurrentWrites;
 
-    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap) {
+    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap,
+        boolean useOffHeapMap, boolean concurrentWrites) {
       this.groupFams = new PreAllocatedArray<>(groups.size());
       this.maps = new SimpleMap[groups.size() + 1];
-      this.partitioned = new PreAllocatedArray<>(groups.size() + 1);
+      this.partitioned = newPartitions(groups.size() + 1);
+      this.concurrentWrites = concurrentWrites;
 
       for (int i = 0; i < maps.length; i++) {
-        maps[i] = newMap(useNativeMap);
+        maps[i] = newMap(useNativeMap, useOffHeapMap);
       }
 
       int count = 0;
@@ -306,10 +324,14 @@ public class InMemoryMap {
       }
 
       partitioner = new LocalityGroupUtil.Partitioner(this.groupFams);
+    }
 
-      for (int i = 0; i < partitioned.length; i++) {
-        partitioned.set(i, new ArrayList<>());
+    private static PreAllocatedArray<List<Mutation>> newPartitions(int size) {
+      PreAllocatedArray<List<Mutation>> partitions = new PreAllocatedArray<>(size);
+      for (int i = 0; i < partitions.length; i++) {
+        partitions.set(i, new ArrayList<>());
       }
+      return partitions;
     }
 
     @Override
@@ -356,11 +378,21 @@ public class InMemoryMap {
     }
 
     @Override
-    public synchronized void mutate(List<Mutation> mutations, int kvCount) {
-      // this method is synchronized because it reuses objects to avoid allocation,
-      // currently, the method that calls this is synchronized so there is no
-      // loss in parallelism.... synchronization was added here for future proofing
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      if (concurrentWrites) {
+        // concurrent writers can not share the lists the mutations are partitioned into
+        mutate(mutations, kvCount, newPartitions(maps.length));
+      } else {
+        // synchronized because it reuses objects to avoid allocation, the method that calls this
+        // is synchronized so there is no loss in parallelism
+        synchronized (this) {
+          mutate(mutations, kvCount, partitioned);
+        }
+      }
+    }
 
+    private void mutate(List<Mutation> mutations, int kvCount,
+        PreAllocatedArray<List<Mutation>> partitioned) {
       try {
         partitioner.partition(mutations, partitioned);
 
@@ -483,16 +515,61 @@ public class InMemoryMap {
     }
   }
 
+  private static class OffHeapMapWrapper implements SimpleMap {
+    private final OffHeapMap offHeapMap;
+
+    OffHeapMapWrapper() {
+      offHeapMap = new OffHeapMap();
+    }
+
+    @Override
+    public int size() {
+      return offHeapMap.size();
+    }
+
+    @Override
+    public InterruptibleIterator skvIterator(SamplerConfigurationImpl samplerConfig) {
+      if (samplerConfig != null) {
+        throw new SampleNotPresentException();
+      }
+      return offHeapMap.skvIterator();
+    }
+
+    @Override
+    public void delete() {
+      offHeapMap.delete();
+    }
+
+    @Override
+    public long getMemoryUsed() {
+      return offHeapMap.getMemoryUsed();
+    }
+
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      offHeapMap.mutate(mutations, kvCount);
+    }
+  }
+
   private final AtomicInteger nextKVCount = new AtomicInteger(1);
   private final AtomicInteger kvCount = new AtomicInteger(0);
 
   private final Object writeSerializer = new Object();
 
+  // ranges of mutation counts written concurrently that finished before all lower counts did, the
+  // key is the first count of the range and the value the last
+  private final TreeMap<Integer,Integer> finishedWrites = new TreeMap<>();
+
   /**
    * Applies changes to a row in the InMemoryMap
    *
    */
   public void mutate(List<Mutation> mutations, int numKVs) {
+    if (concurrentWrites) {
+      mutateConcurrently(mutations, numKVs);
+      return;
+    }
+
     // Can not update mutationCount while writes that started before
     // are in progress, this would cause partial mutations to be seen.
     // Also, can not continue until mutation count is updated, because
@@ -510,6 +587,57 @@ public class InMemoryMap {
     }
   }
 
+  /**
+   * Reserves a range of mutation counts and writes to the map in parallel with other writers. The
+   * same rules as for serialized writes apply: the counts of a write are not made visible to reads
+   * while writes that reserved lower counts are in progress, and a write does not return before it
+   * is visible.
+   */
+  private void mutateConcurrently(List<Mutation> mutations, int numKVs) {
+    int kv = nextKVCount.getAndAdd(numKVs);
+    try {
+      if (numKVs > 0) {
+        map.mutate(mutations, kv);
+      }
+    } finally {
+      finishWrite(kv, kv + numKVs - 1);
+    }
+  }
+
+  private void finishWrite(int first, int last) {
+    synchronized (finishedWrites) {
+      if (last >= first) {
+        if (kvCount.get() == first - 1) {
+          // make this write and any later ones that already finished visible
+          int visible = last;
+          Entry<Integer,Integer> next = finishedWrites.firstEntry();
+          while (next != null && next.getKey() == visible + 1) {
+            visible = next.getValue();
+            finishedWrites.pollFirstEntry();
+            next = finishedWrites.firstEntry();
+          }
+          kvCount.set(visible);
+          finishedWrites.notifyAll();
+        } else {
+          finishedWrites.put(first, last);
+        }
+      }
+
+      boolean interrupted = false;
+      while (kvCount.get() < last) {
+        try {
+          finishedWrites.wait();
+        } catch (InterruptedException e) {
+          // the write is in the map, so it has to wait to become visible regardless
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   /**
    * Returns a long representing the size of the InMemoryMap
    *
@@ -0,0 +1,508 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.InterruptibleIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A sorted map of {@link MemKey}s to values stored in direct byte buffers outside of the Java heap,
+ * an alternative to {@link NativeMap} that does not need a native library. Each entry is appended
+ * to a chunk of memory along with its links in a skip list, so the map creates a few Java objects
+ * per chunk rather than several per entry.
+ * <p>
+ * Writes are serialized by a lock, reads do not lock. The links to a new entry are set with
+ * release writes after the entry is complete and are read with acquire reads, so a reader that
+ * finds an entry sees all of it. Entries are never removed, the map is freed as a whole by
+ * {@link #delete()}. Iterators hold a read lock while they read entries, which delete waits for.
+ */
+class OffHeapMap {
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  // with a one in four chance of adding a level, enough for billions of entries
+  private static final int MAX_LEVEL = 16;
+
+  private static final int FIRST_CHUNK_SIZE = 1 << 16;
+  private static final int MAX_CHUNK_SIZE = 1 << 24;
+
+  // an entry is: level, kvCount, next links, timestamp, deleted, lengths of the row, family,
+  // qualifier, visibility and value, then their bytes
+  private static final int LEVEL_OFFSET = 0;
+  private static final int KV_COUNT_OFFSET = 4;
+  private static final int LINKS_OFFSET = 8;
+  private static final int FIXED_FIELDS_SIZE = 8 + 1 + 5 * 4;
+
+  private final Object writeLock = new Object();
+
+  // held for reading by iterators and for writing by delete, so the map is not freed under a reader
+  private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+  private final Lock rlock = rwLock.readLock();
+  private final Lock wlock = rwLock.writeLock();
+
+  // the first entry at each level
+  private final AtomicLongArray head = new AtomicLongArray(MAX_LEVEL);
+
+  // chunks are only added, a new array is published after each addition
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+  private ByteBuffer writeChunk;
+  private int writeChunkIndex = -1;
+  private long closedChunkBytes = 0;
+
+  private volatile int size = 0;
+  private volatile long memoryUsed = 0;
+  private volatile boolean deleted = false;
+
+  // an address is the chunk index plus one in the high int and the offset in the low int, so 0 is
+  // never a valid address and is used for the end of a list
+  private static long address(int chunk, int offset) {
+    return ((long) (chunk + 1) << 32) | offset;
+  }
+
+  private ByteBuffer chunk(long address) {
+    return chunks[(int) (address >>> 32) - 1];
+  }
+
+  private static int offset(long address) {
+    return (int) address;
+  }
+
+  private long getNext(long node, int level) {
+    if (node == 0) {
+      return head.get(level);
+    }
+    return (long) LONGS.getAcquire(chunk(node), offset(node) + LINKS_OFFSET + level * 8);
+  }
+
+  private void setNext(long node, int level, long next) {
+    if (node == 0) {
+      head.set(level, next);
+    } else {
+      LONGS.setRelease(chunk(node), offset(node) + LINKS_OFFSET + level * 8, next);
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the bytes of off heap memory used by entries, including the unused ends of full chunks
+   */
+  long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  void delete() {
+    synchronized (writeLock) {
+      wlock.lock();
+      try {
+        if (deleted) {
+          throw new IllegalStateException("Off heap map already deleted");
+        }
+        deleted = true;
+        // the memory is released when the buffers are garbage collected
+        chunks = new ByteBuffer[0];
+        writeChunk = null;
+      } finally {
+        wlock.unlock();
+      }
+    }
+  }
+
+  private void checkDeleted() {
+    if (deleted) {
+      throw new IllegalStateException("Off heap map deleted");
+    }
+  }
+
+  void mutate(List<Mutation> mutations, int kvCount) {
+    synchronized (writeLock) {
+      checkDeleted();
+      for (Mutation m : mutations) {
+        byte[] row = m.getRow();
+        for (ColumnUpdate cvp : m.getUpdates()) {
+          put(row, cvp.getColumnFamily(), cvp.getColumnQualifier(), cvp.getColumnVisibility(),
+              cvp.getTimestamp(), cvp.isDeleted(), cvp.getValue(), kvCount++);
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void put(Key key, Value value, int kvCount) {
+    synchronized (writeLock) {
+      checkDeleted();
+      put(key.getRowData().toArray(), key.getColumnFamilyData().toArray(),
+          key.getColumnQualifierData().toArray(), key.getColumnVisibilityData().toArray(),
+          key.getTimestamp(), key.isDeleted(), value.get(), kvCount);
+    }
+  }
+
+  private static int randomLevel() {
+    int level = 1;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (level < MAX_LEVEL && (random.nextInt() & 3) == 0) {
+      level++;
+    }
+    return level;
+  }
+
+  private void put(byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del,
+      byte[] value, int kvCount) {
+    int level = randomLevel();
+    long entrySize = LINKS_OFFSET + level * 8L + FIXED_FIELDS_SIZE + row.length + cf.length
+        + cq.length + cv.length + value.length;
+    if (entrySize > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Entry of " + entrySize + " bytes is too large");
+    }
+
+    long node = allocate((int) entrySize);
+    ByteBuffer buf = chunk(node).duplicate().order(chunk(node).order());
+    int off = offset(node);
+
+    buf.putInt(off + LEVEL_OFFSET, level);
+    buf.putInt(off + KV_COUNT_OFFSET, kvCount);
+    buf.position(off + LINKS_OFFSET + level * 8);
+    buf.putLong(ts);
+    buf.put(del ? (byte) 1 : (byte) 0);
+    buf.putInt(row.length);
+    buf.putInt(cf.length);
+    buf.putInt(cq.length);
+    buf.putInt(cv.length);
+    buf.putInt(value.length);
+    buf.put(row);
+    buf.put(cf);
+    buf.put(cq);
+    buf.put(cv);
+    buf.put(value);
+
+    // MemKeys have a unique kvCount so the new entry is never equal to an existing one
+    MemKey key = new MemKey(row, cf, cq, cv, ts, del, false, kvCount);
+    long[] preds = findPredecessors(key);
+    for (int i = 0; i < level; i++) {
+      LONGS.set(chunk(node), off + LINKS_OFFSET + i * 8, getNext(preds[i], i));
+    }
+    // link from the bottom up, so an entry found at a level is also in all the lower ones
+    for (int i = 0; i < level; i++) {
+      setNext(preds[i], i, node);
+    }
+
+    size++;
+  }
+
+  private long allocate(int entrySize) {
+    // keep entries 8 byte aligned, as needed for the atomic access to their links
+    int size = (entrySize + 7) & ~7;
+
+    if (writeChunk == null || writeChunk.remaining() < size) {
+      int capacity;
+      if (writeChunk == null) {
+        capacity = FIRST_CHUNK_SIZE;
+      } else {
+        closedChunkBytes += writeChunk.capacity();
+        capacity = Math.min(MAX_CHUNK_SIZE, writeChunk.capacity() * 2);
+      }
+      capacity = Math.max(capacity, size);
+
+      ByteBuffer chunk = ByteBuffer.allocateDirect(capacity + 7).alignedSlice(8);
+      ByteBuffer[] newChunks = Arrays.copyOf(chunks, chunks.length + 1);
+      newChunks[newChunks.length - 1] = chunk;
+      chunks = newChunks;
+      writeChunk = chunk;
+      writeChunkIndex = newChunks.length - 1;
+    }
+
+    int offset = writeChunk.position();
+    writeChunk.position(offset + size);
+    memoryUsed = closedChunkBytes + writeChunk.position();
+    return address(writeChunkIndex, offset);
+  }
+
+  /**
+   * @return for each level, the last entry before the key at that level, or 0 for the head
+   */
+  private long[] findPredecessors(Key key) {
+    long[] preds = new long[MAX_LEVEL];
+    long node = 0;
+    for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+      long next = getNext(node, level);
+      while (next != 0 && compare(key, next) > 0) {
+        node = next;
+        next = getNext(node, level);
+      }
+      preds[level] = node;
+    }
+    return preds;
+  }
+
+  /**
+   * @return the first entry that is not less than the key, or 0 if there is none
+   */
+  private long ceiling(Key key) {
+    long node = 0;
+    for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+      long next = getNext(node, level);
+      while (next != 0 && compare(key, next) > 0) {
+        node = next;
+        next = getNext(node, level);
+      }
+    }
+    return getNext(node, 0);
+  }
+
+  private static int compareBytes(ByteSequence bs, ByteBuffer buf, int off, int len) {
+    byte[] data = bs.getBackingArray();
+    int start = bs.offset();
+    int min = Math.min(bs.length(), len);
+    for (int i = 0; i < min; i++) {
+      int cmp = (data[start + i] & 0xff) - (buf.get(off + i) & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return bs.length() - len;
+  }
+
+  /**
+   * Compares a key to an entry the same way {@link MemKeyComparator} compares keys.
+   */
+  private int compare(Key key, long node) {
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    int fields = off + LINKS_OFFSET + buf.getInt(off + LEVEL_OFFSET) * 8;
+    int rowLen = buf.getInt(fields + 9);
+    int cfLen = buf.getInt(fields + 13);
+    int cqLen = buf.getInt(fields + 17);
+    int cvLen = buf.getInt(fields + 21);
+    int data = fields + FIXED_FIELDS_SIZE;
+
+    int cmp = compareBytes(key.getRowData(), buf, data, rowLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += rowLen;
+    cmp = compareBytes(key.getColumnFamilyData(), buf, data, cfLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += cfLen;
+    cmp = compareBytes(key.getColumnQualifierData(), buf, data, cqLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += cqLen;
+    cmp = compareBytes(key.getColumnVisibilityData(), buf, data, cvLen);
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    // newer timestamps sort first
+    cmp = Long.compare(buf.getLong(fields), key.getTimestamp());
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    // deletes sort first
+    boolean nodeDeleted = buf.get(fields + 8) != 0;
+    if (key.isDeleted() != nodeDeleted) {
+      return key.isDeleted() ? -1 : 1;
+    }
+
+    if (key instanceof MemKey) {
+      return buf.getInt(off + KV_COUNT_OFFSET) - ((MemKey) key).getKVCount();
+    }
+    // a key without a kvCount sorts before all the entries with the same key
+    return -1;
+  }
+
+  private MemKey readKey(long node) {
+    ByteBuffer buf = chunk(node).duplicate().order(chunk(node).order());
+    int off = offset(node);
+    int kvCount = buf.getInt(off + KV_COUNT_OFFSET);
+    buf.position(off + LINKS_OFFSET + buf.getInt(off + LEVEL_OFFSET) * 8);
+    long ts = buf.getLong();
+    boolean del = buf.get() != 0;
+    byte[] row = new byte[buf.getInt()];
+    byte[] cf = new byte[buf.getInt()];
+    byte[] cq = new byte[buf.getInt()];
+    byte[] cv = new byte[buf.getInt()];
+    buf.getInt();
+    buf.get(row);
+    buf.get(cf);
+    buf.get(cq);
+    buf.get(cv);
+    return new MemKey(row, cf, cq, cv, ts, del, false, kvCount);
+  }
+
+  private Value readValue(long node) {
+    ByteBuffer buf = chunk(node).duplicate().order(chunk(node).order());
+    int off = offset(node);
+    int fields = off + LINKS_OFFSET + buf.getInt(off + LEVEL_OFFSET) * 8;
+    int keyLen = buf.getInt(fields + 9) + buf.getInt(fields + 13) + buf.getInt(fields + 17)
+        + buf.getInt(fields + 21);
+    byte[] value = new byte[buf.getInt(fields + 25)];
+    buf.position(fields + FIXED_FIELDS_SIZE + keyLen);
+    buf.get(value);
+    return new Value(value, false);
+  }
+
+  InterruptibleIterator skvIterator() {
+    checkDeleted();
+    return new OffHeapMapIterator(null);
+  }
+
+  private class OffHeapMapIterator implements InterruptibleIterator {
+
+    private long node = 0;
+    private Key topKey;
+    private Value topValue;
+    private Range range = new Range();
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+
+    OffHeapMapIterator(AtomicBoolean interruptFlag) {
+      this.interruptFlag = interruptFlag;
+    }
+
+    private void load() {
+      if (node == 0) {
+        topKey = null;
+        topValue = null;
+        return;
+      }
+
+      topKey = readKey(node);
+      if (range.afterEndKey(topKey)) {
+        node = 0;
+        topKey = null;
+        topValue = null;
+      } else {
+        topValue = readValue(node);
+      }
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+        throws IOException {
+      if (interruptFlag != null && interruptFlag.get()) {
+        throw new IterationInterruptedException();
+      }
+
+      rlock.lock();
+      try {
+        checkDeleted();
+
+        this.range = range;
+        Key start = range.getStartKey();
+        node = start == null ? getNext(0, 0) : ceiling(start);
+        load();
+
+        while (hasTop() && range.beforeStartKey(topKey)) {
+          node = getNext(node, 0);
+          load();
+        }
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    @Override
+    public boolean hasTop() {
+      return topKey != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+      if (topKey == null) {
+        throw new IllegalStateException();
+      }
+
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get()) {
+        throw new IterationInterruptedException();
+      }
+
+      rlock.lock();
+      try {
+        checkDeleted();
+        node = getNext(node, 0);
+        load();
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    @Override
+    public Key getTopKey() {
+      return topKey;
+    }
+
+    @Override
+    public Value getTopValue() {
+      return topValue;
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      if (env != null && env.isSamplingEnabled()) {
+        throw new SampleNotPresentException();
+      }
+      return new OffHeapMapIterator(interruptFlag);
+    }
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+}
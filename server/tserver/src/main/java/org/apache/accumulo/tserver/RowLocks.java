@@ -18,146 +18,118 @@
  */
 package org.apache.accumulo.tserver;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.accumulo.core.data.ArrayByteSequence;
-import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.server.data.ServerConditionalMutation;
-import org.apache.accumulo.tserver.ConditionalMutationSet.DeferFilter;
 
 import com.google.common.base.Preconditions;
 
+/**
+ * Locks the rows of conditional mutations. Rows are locked with a fixed set of lock stripes, chosen
+ * by the hash of the row, so locking a row does not allocate anything. Rows with the same stripe
+ * share a lock, which only means an update may wait for another update of a different row. Each
+ * batch locks its stripes in ascending order.
+ */
 class RowLocks {
 
-  // The compute function in Concurrent Hash Map supports atomic execution of the remapping function
-  // and will only execute it once. Properly computing the reference counts relies on this specific
-  // behavior. Not all concurrent map implementations have the desired behavior. For example
-  // ConcurrentSkipListMap.compute is not atomic and may execute the function multiple times.
-  private final Map<ByteSequence,RowLock> rowLocks = new ConcurrentHashMap<>();
-
-  static class RowLock {
-    final ReentrantLock rlock;
-    int count;
-    final ByteSequence rowSeq;
-
-    RowLock(ReentrantLock rlock, ByteSequence rowSeq) {
-      this.rlock = rlock;
-      this.count = 1;
-      this.rowSeq = rowSeq;
-    }
+  // a power of two, so a stripe can be chosen by masking the hash of a row
+  private static final int NUM_STRIPES = 1024;
 
-    public boolean tryLock() {
-      return rlock.tryLock();
-    }
+  private final ReentrantLock[] stripes;
 
-    public void lock() {
-      rlock.lock();
-    }
-
-    public void unlock() {
-      rlock.unlock();
-    }
+  RowLocks() {
+    this(NUM_STRIPES);
   }
 
-  private RowLock getRowLock(ArrayByteSequence rowSeq) {
-    return rowLocks.compute(rowSeq, (key, value) -> {
-      if (value == null) {
-        return new RowLock(new ReentrantLock(), rowSeq);
-      }
-      value.count++;
-      return value;
-    });
+  RowLocks(int numStripes) {
+    Preconditions.checkArgument(numStripes > 0 && Integer.bitCount(numStripes) == 1,
+        "number of stripes %s is not a power of two", numStripes);
+    stripes = new ReentrantLock[numStripes];
+    Arrays.setAll(stripes, i -> new ReentrantLock());
   }
 
-  private void returnRowLock(RowLock lock) {
-    Objects.requireNonNull(lock);
-    rowLocks.compute(lock.rowSeq, (key, value) -> {
-      Preconditions.checkState(value == lock);
-      Preconditions.checkState(value.count > 0);
-      return (--value.count > 0) ? value : null;
-    });
+  int getStripe(byte[] row) {
+    int hash = Arrays.hashCode(row);
+    // mix the high bits into the low bits that are used
+    hash ^= (hash >>> 16);
+    return hash & (stripes.length - 1);
   }
 
-  List<RowLock> acquireRowlocks(Map<KeyExtent,List<ServerConditionalMutation>> updates,
+  /**
+   * Locks the rows of the updates, without blocking on rows that are already locked when there is
+   * more than one stripe to lock. The updates of rows that could not be locked are moved to
+   * deferred.
+   *
+   * @return the stripes that were locked, to be passed to {@link #releaseRowLocks(int[])}
+   */
+  int[] acquireRowlocks(Map<KeyExtent,List<ServerConditionalMutation>> updates,
       Map<KeyExtent,List<ServerConditionalMutation>> deferred) {
-    ArrayList<RowLock> locks = new ArrayList<>();
+    int numRows = 0;
+    for (List<ServerConditionalMutation> scml : updates.values()) {
+      numRows += scml.size();
+    }
 
+    // the distinct stripes of all rows in ascending order
+    int[] locked = new int[numRows];
+    int numStripes = 0;
     for (List<ServerConditionalMutation> scml : updates.values()) {
       for (ServerConditionalMutation scm : scml) {
-        locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
+        locked[numStripes++] = getStripe(scm.getRow());
+      }
+    }
+    Arrays.sort(locked);
+    int distinct = 0;
+    for (int i = 0; i < numStripes; i++) {
+      if (distinct == 0 || locked[distinct - 1] != locked[i]) {
+        locked[distinct++] = locked[i];
       }
     }
 
-    HashSet<ByteSequence> rowsNotLocked = null;
+    if (distinct == 1) {
+      // if there is only one lock, then wait for it
+      stripes[locked[0]].lock();
+      return Arrays.copyOf(locked, 1);
+    }
 
-    if (locks.size() > 1) {
-      // Assuming mutations are in sorted order which avoids deadlock. Acquire as many locks as
-      // possible, not blocking on rows that are already locked.
-      for (RowLock rowLock : locks) {
-        if (!rowLock.tryLock()) {
-          if (rowsNotLocked == null) {
-            rowsNotLocked = new HashSet<>();
-          }
-          rowsNotLocked.add(rowLock.rowSeq);
+    // Acquire as many locks as possible, not blocking on stripes that are already locked
+    BitSet notLocked = null;
+    int numLocked = 0;
+    for (int i = 0; i < distinct; i++) {
+      int stripe = locked[i];
+      if (stripes[stripe].tryLock()) {
+        locked[numLocked++] = stripe;
+      } else {
+        if (notLocked == null) {
+          notLocked = new BitSet(stripes.length);
         }
+        notLocked.set(stripe);
       }
-    } else {
-      // if there is only one lock, then wait for it
-      locks.get(0).lock();
     }
 
-    if (rowsNotLocked != null) {
-
-      final HashSet<ByteSequence> rnlf = rowsNotLocked;
+    if (notLocked != null) {
+      final BitSet stripesNotLocked = notLocked;
       // assume will get locks needed, do something expensive otherwise
-      ConditionalMutationSet.defer(updates, deferred, new DeferFilter() {
-        @Override
-        public void defer(List<ServerConditionalMutation> scml,
-            List<ServerConditionalMutation> okMutations, List<ServerConditionalMutation> deferred) {
-          for (ServerConditionalMutation scm : scml) {
-            if (rnlf.contains(new ArrayByteSequence(scm.getRow()))) {
-              deferred.add(scm);
-            } else {
-              okMutations.add(scm);
-            }
-
+      ConditionalMutationSet.defer(updates, deferred, (scml, okMutations, deferredMutations) -> {
+        for (ServerConditionalMutation scm : scml) {
+          if (stripesNotLocked.get(getStripe(scm.getRow()))) {
+            deferredMutations.add(scm);
+          } else {
+            okMutations.add(scm);
           }
         }
       });
-
-      ArrayList<RowLock> filteredLocks = new ArrayList<>();
-      ArrayList<RowLock> locksToReturn = new ArrayList<>();
-      for (RowLock rowLock : locks) {
-        if (rowsNotLocked.contains(rowLock.rowSeq)) {
-          locksToReturn.add(rowLock);
-        } else {
-          filteredLocks.add(rowLock);
-        }
-      }
-
-      for (RowLock rowLock : locksToReturn) {
-        returnRowLock(rowLock);
-      }
-
-      locks = filteredLocks;
     }
-    return locks;
+    return Arrays.copyOf(locked, numLocked);
   }
 
-  void releaseRowLocks(List<RowLock> locks) {
-    for (RowLock rowLock : locks) {
-      rowLock.unlock();
-    }
-
-    for (RowLock rowLock : locks) {
-      returnRowLock(rowLock);
+  void releaseRowLocks(int[] locked) {
+    for (int stripe : locked) {
+      stripes[stripe].unlock();
     }
   }
 
@@ -138,6 +138,9 @@ public class ScanServer extends AbstractServer
 
   private static final Logger LOG = LoggerFactory.getLogger(ScanServer.class);
 
+  // bounds the memory used to remember which tablets had their data cache warmed
+  private static final int MAX_WARMED_TABLETS = 100_000;
+
   private static class TabletMetadataLoader implements CacheLoader<KeyExtent,TabletMetadata> {
 
     private final Ample ample;
@@ -196,6 +199,8 @@ public class ScanServer extends AbstractServer
   private final ServerContext context;
   private final SessionManager sessionManager;
   private final TabletServerResourceManager resourceManager;
+  // tablets whose hot blocks were loaded into the data cache when they were first scanned
+  private final Set<KeyExtent> warmedTablets = ConcurrentHashMap.newKeySet();
   HostAndPort clientAddress;
 
   private ServiceLock scanServerLock;
@@ -430,6 +435,8 @@ public class ScanServer extends AbstractServer
       LOG.debug("Stopping Thrift Servers");
       address.server.stop();
 
+      resourceManager.close();
+
       try {
         LOG.info("Removing server scan references");
         this.getContext().getAmple().scanServerRefs().delete(clientAddress.toString(),
@@ -529,6 +536,13 @@ public class ScanServer extends AbstractServer
       TabletResourceManager trm =
           resourceManager.createTabletResourceManager(tabletMetadata.getExtent(),
               context.getTableConfiguration(tabletMetadata.getExtent().tableId()));
+      if (warmedTablets.size() > MAX_WARMED_TABLETS) {
+        warmedTablets.clear();
+      }
+      if (warmedTablets.add(tabletMetadata.getExtent())) {
+        resourceManager.warmCache(tabletMetadata.getExtent(), tabletMetadata.getDirName(),
+            tabletMetadata.getFiles());
+      }
       return new SnapshotTablet(server, tabletMetadata, trm);
     }
 
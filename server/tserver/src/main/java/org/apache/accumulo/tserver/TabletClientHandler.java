@@ -106,7 +106,6 @@ import org.apache.accumulo.server.rpc.TServerUtils;
 import org.apache.accumulo.server.security.SecurityOperation;
 import org.apache.accumulo.server.tablets.ConditionCheckerContext;
 import org.apache.accumulo.server.tablets.ConditionCheckerContext.ConditionChecker;
-import org.apache.accumulo.tserver.RowLocks.RowLock;
 import org.apache.accumulo.tserver.session.ConditionalSession;
 import org.apache.accumulo.tserver.session.SummarySession;
 import org.apache.accumulo.tserver.session.UpdateSession;
@@ -741,7 +740,7 @@ public class TabletClientHandler implements TabletServerClientService.Iface,
 
     // get as many locks as possible w/o blocking... defer any rows that are locked
     long lt1 = System.nanoTime();
-    List<RowLock> locks = rowLocks.acquireRowlocks(updates, deferred);
+    int[] locks = rowLocks.acquireRowlocks(updates, deferred);
     long lt2 = System.nanoTime();
     updateAverageLockTime(lt2 - lt1, TimeUnit.NANOSECONDS, numMutations);
     try {
@@ -1266,9 +1265,9 @@ public class TabletClientHandler implements TabletServerClientService.Iface,
 
   @Override
   public List<String> getActiveLogs(TInfo tinfo, TCredentials credentials) {
-    // Might be null if there is no active logger
-    LogEntry le = server.logger.getLogEntry();
-    return le == null ? Collections.emptyList() : Collections.singletonList(le.getPath());
+    // Might be empty if there is no active logger
+    return server.logger.getLogEntries().stream().map(LogEntry::getPath)
+        .collect(Collectors.toList());
   }
 
   @Override
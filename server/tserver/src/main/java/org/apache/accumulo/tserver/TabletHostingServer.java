@@ -20,8 +20,8 @@ package org.apache.accumulo.tserver;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
 import org.apache.accumulo.core.lock.ServiceLock;
-import org.apache.accumulo.core.spi.cache.BlockCacheManager;
 import org.apache.accumulo.core.spi.scan.ScanServerInfo;
 import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.compaction.PausedCompactionMetrics;
@@ -57,5 +57,5 @@ public interface TabletHostingServer {
 
   ServiceLock getLock();
 
-  BlockCacheManager.Configuration getBlockCacheConfiguration(AccumuloConfiguration acuConf);
+  BlockCacheConfiguration getBlockCacheConfiguration(AccumuloConfiguration acuConf);
 }
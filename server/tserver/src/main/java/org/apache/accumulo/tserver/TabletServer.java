@@ -325,9 +325,27 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
             .logInterval(Duration.ofMinutes(3)).createFactory();
 
     logger = new TabletServerLogger(this, walMaxSize, syncCounter, flushCounter,
-        walCreationRetryFactory, walWritingRetryFactory, walMaxAge);
+        walCreationRetryFactory, walWritingRetryFactory, walMaxAge,
+        aconf.getCount(Property.TSERV_WAL_STRIPES));
     this.resourceManager = new TabletServerResourceManager(context, this);
 
+    final long hotBlocksInterval =
+        aconf.getTimeInMillis(Property.TSERV_CACHE_WARMUP_RECORD_INTERVAL);
+    if (hotBlocksInterval > 0) {
+      watchNonCriticalScheduledTask(context.getScheduledExecutor()
+          .scheduleWithFixedDelay(Threads.createNamedRunnable("HotBlocksRecorder", () -> {
+            var onlineTablets = getOnlineTablets();
+            resourceManager.retainHotBlocks(onlineTablets.keySet());
+            for (Tablet tablet : onlineTablets.values()) {
+              if (!tablet.isClosing() && !tablet.isClosed()) {
+                resourceManager.recordHotBlocks(tablet.getExtent(),
+                    tablet.getMetadata().getDirName(), tablet.getDatafiles().keySet(),
+                    Duration.ofMillis(hotBlocksInterval));
+              }
+            }
+          }), hotBlocksInterval, hotBlocksInterval, TimeUnit.MILLISECONDS));
+    }
+
     watchCriticalScheduledTask(context.getScheduledExecutor().scheduleWithFixedDelay(
         ClientTabletCache::clearInstances, jitter(), jitter(), TimeUnit.MILLISECONDS));
     walMarker = new WalStateManager(context);
@@ -752,6 +770,8 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
       server.stop();
     }
 
+    resourceManager.close();
+
     try {
       log.debug("Closing filesystems");
       getVolumeManager().close();
@@ -1019,8 +1039,9 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
 
   // This is a set of WALs that are closed but may still be referenced by tablets. A LinkedHashSet
   // is used because its very import to know the order in which WALs were closed when deciding if a
-  // WAL is eligible for removal. Maintaining the order that logs were used in is currently a simple
-  // task because there is only one active log at a time.
+  // WAL is eligible for removal. When there are multiple WAL stripes, the logs of all stripes are
+  // ordered by the time they were closed, so a WAL only becomes eligible once the older WALs of
+  // every stripe are unreferenced.
   final LinkedHashSet<DfsLogger> closedLogs = new LinkedHashSet<>();
 
   /**
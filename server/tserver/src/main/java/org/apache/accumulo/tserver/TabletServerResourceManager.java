@@ -24,12 +24,14 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toUnmodifiableMap;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.ACCUMULO_POOL_PREFIX;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.CACHE_WARMUP_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.METADATA_TABLET_ASSIGNMENT_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.METADATA_TABLET_MIGRATION_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TABLET_ASSIGNMENT_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_CONDITIONAL_UPDATE_META_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_CONDITIONAL_UPDATE_ROOT_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_CONDITIONAL_UPDATE_USER_POOL;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_MINOR_COMPACTOR_LOCALITY_GROUP_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_MINOR_COMPACTOR_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_SUMMARY_FILE_RETRIEVER_POOL;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_SUMMARY_PARTITION_POOL;
@@ -37,7 +39,9 @@ import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_SUMM
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_TABLET_MIGRATION_POOL;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -48,6 +52,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -55,8 +60,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -69,8 +76,13 @@ import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.blockfile.cache.disk.TieredBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.impl.BasicCacheProvider;
 import org.apache.accumulo.core.file.blockfile.impl.ScanCacheProvider;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
+import org.apache.accumulo.core.metadata.StoredTabletFile;
 import org.apache.accumulo.core.metadata.schema.Ample;
 import org.apache.accumulo.core.spi.cache.BlockCache;
 import org.apache.accumulo.core.spi.cache.BlockCacheManager;
@@ -94,6 +106,7 @@ import org.apache.accumulo.server.fs.FileManager;
 import org.apache.accumulo.server.fs.FileManager.ScanFileManager;
 import org.apache.accumulo.tserver.memory.LargestFirstMemoryManager;
 import org.apache.accumulo.tserver.memory.NativeMapLoader;
+import org.apache.accumulo.tserver.memory.PredictiveMemoryManager;
 import org.apache.accumulo.tserver.memory.TabletMemoryReport;
 import org.apache.accumulo.tserver.session.ScanSession;
 import org.apache.accumulo.tserver.tablet.Tablet;
@@ -103,6 +116,7 @@ import org.slf4j.LoggerFactory;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.RateLimiter;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -113,7 +127,11 @@ public class TabletServerResourceManager {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerResourceManager.class);
 
+  // blocks read together by the cache warm up, so that adjacent blocks are read in one request
+  private static final int CACHE_WARMUP_BATCH = 16;
+
   private final ThreadPoolExecutor minorCompactionThreadPool;
+  private final ThreadPoolExecutor minorCompactionLocalityGroupPool;
   private final ThreadPoolExecutor defaultMigrationPool;
   private final ThreadPoolExecutor migrationPool;
   private final ThreadPoolExecutor assignmentPool;
@@ -121,6 +139,10 @@ public class TabletServerResourceManager {
   private final ThreadPoolExecutor summaryRetrievalPool;
   private final ThreadPoolExecutor summaryPartitionPool;
   private final ThreadPoolExecutor summaryRemotePool;
+  private final ThreadPoolExecutor cacheWarmupPool;
+  private final RateLimiter cacheWarmupLimiter;
+  // the fingerprint of the hot blocks last stored for each tablet, to skip storing unchanged lists
+  private final Map<KeyExtent,Long> storedHotBlocks = new ConcurrentHashMap<>();
 
   private final Map<String,ThreadPoolExecutor> scanExecutors;
   private final Map<String,ScanExecutor> scanExecutorChoices;
@@ -277,6 +299,9 @@ public class TabletServerResourceManager {
     if (usingNativeMap) {
       NativeMapLoader.load();
     }
+    // when the maps are not on the java heap, only the caches and queues need to fit in it
+    boolean usingOffHeapMap =
+        usingNativeMap || acuConf.getBoolean(Property.TSERV_OFF_HEAP_MAP_ENABLED);
 
     long totalQueueSize = acuConf.getAsBytes(Property.TSERV_TOTAL_MUTATION_QUEUE_MAX);
 
@@ -286,10 +311,12 @@ public class TabletServerResourceManager {
       throw new IllegalStateException("Error creating BlockCacheManager", e);
     }
 
-    cacheManager.start(tserver.getBlockCacheConfiguration(acuConf));
+    BlockCacheConfiguration cacheConf = tserver.getBlockCacheConfiguration(acuConf);
+    cacheManager.start(cacheConf);
 
     _iCache = cacheManager.getBlockCache(CacheType.INDEX);
-    _dCache = cacheManager.getBlockCache(CacheType.DATA);
+    _dCache = TieredBlockCache.wrap(cacheManager.getBlockCache(CacheType.DATA), cacheConf,
+        CacheType.DATA);
     _sCache = cacheManager.getBlockCache(CacheType.SUMMARY);
 
     long dCacheSize = _dCache.getMaxHeapSize();
@@ -297,8 +324,8 @@ public class TabletServerResourceManager {
     long sCacheSize = _sCache.getMaxHeapSize();
 
     Runtime runtime = Runtime.getRuntime();
-    if (usingNativeMap) {
-      // Still check block cache sizes when using native maps.
+    if (usingOffHeapMap) {
+      // Still check block cache sizes when using native or off heap maps.
       if (dCacheSize + iCacheSize + sCacheSize + totalQueueSize > runtime.maxMemory()) {
         throw new IllegalArgumentException(String.format(
             "Block cache sizes %,d and mutation queue size %,d is too large for this JVM"
@@ -317,7 +344,7 @@ public class TabletServerResourceManager {
 
     // totalMemory - freeMemory = memory in use
     // maxMemory - memory in use = max available memory
-    if (!usingNativeMap
+    if (!usingOffHeapMap
         && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
       log.warn("In-memory map may not fit into local memory space.");
     }
@@ -328,6 +355,15 @@ public class TabletServerResourceManager {
         () -> context.getConfiguration().getCount(Property.TSERV_MINC_MAXCONCURRENT),
         TSERVER_MINOR_COMPACTOR_POOL.poolName, minorCompactionThreadPool);
 
+    IntSupplier mincLocalityGroupThreads = () -> Math.max(1,
+        context.getConfiguration().getCount(Property.TSERV_MINC_LOCALITY_GROUP_THREADS));
+    minorCompactionLocalityGroupPool = ThreadPools.getServerThreadPools()
+        .getPoolBuilder(TSERVER_MINOR_COMPACTOR_LOCALITY_GROUP_POOL)
+        .numCoreThreads(mincLocalityGroupThreads.getAsInt()).withTimeOut(0L, MILLISECONDS)
+        .enableThreadPoolMetrics(enableMetrics).build();
+    modifyThreadPoolSizesAtRuntime(mincLocalityGroupThreads,
+        TSERVER_MINOR_COMPACTOR_LOCALITY_GROUP_POOL.poolName, minorCompactionLocalityGroupPool);
+
     defaultMigrationPool =
         ThreadPools.getServerThreadPools().getPoolBuilder(METADATA_TABLET_MIGRATION_POOL)
             .numCoreThreads(0).numMaxThreads(1).withTimeOut(60L, SECONDS).build();
@@ -355,6 +391,10 @@ public class TabletServerResourceManager {
 
     activeAssignments = new ConcurrentHashMap<>();
 
+    cacheWarmupPool = ThreadPools.getServerThreadPools().getPoolBuilder(CACHE_WARMUP_POOL)
+        .numCoreThreads(0).numMaxThreads(1).withTimeOut(60, SECONDS).build();
+    cacheWarmupLimiter = RateLimiter.create(getCacheWarmupRate(acuConf));
+
     summaryRetrievalPool = ThreadPools.getServerThreadPools().createExecutorService(acuConf,
         Property.TSERV_SUMMARY_RETRIEVAL_THREADS, enableMetrics);
     modifyThreadPoolSizesAtRuntime(
@@ -389,7 +429,11 @@ public class TabletServerResourceManager {
 
     fileManager = new FileManager(context, maxOpenFiles, fileLenCache);
 
-    memoryManager = new LargestFirstMemoryManager();
+    if (acuConf.getBoolean(Property.TSERV_MEMORY_MANAGER_PREDICTIVE)) {
+      memoryManager = new PredictiveMemoryManager();
+    } else {
+      memoryManager = new LargestFirstMemoryManager();
+    }
     memoryManager.init(context);
     memMgmt = new MemoryManagementFramework();
     memMgmt.startThreads();
@@ -425,6 +469,119 @@ public class TabletServerResourceManager {
     return fileManager.getOpenFiles();
   }
 
+  private static int getCacheWarmupRate(AccumuloConfiguration conf) {
+    return Math.max(1, conf.getCount(Property.GENERAL_CACHE_WARMUP_RATE));
+  }
+
+  private boolean isCacheWarmupEnabled(KeyExtent extent) {
+    return !extent.isMeta() && context.getTableConfiguration(extent.tableId())
+        .getBoolean(Property.TABLE_CACHE_WARMUP_ENABLED);
+  }
+
+  /**
+   * Stores the offsets of the data blocks of the tablet's files that are in the data cache in the
+   * tablet directory, if {@link Property#TABLE_CACHE_WARMUP_ENABLED} is set for the table. The next
+   * server to host the tablet loads them into its cache with {@link #warmCache}. Nothing is stored
+   * if the offsets did not change since they were last stored.
+   *
+   * @param timeLimit the offsets are not stored if collecting them takes longer than this
+   */
+  public void recordHotBlocks(KeyExtent extent, String dirName,
+      Collection<StoredTabletFile> files, Duration timeLimit) {
+    if (files.isEmpty() || !isCacheWarmupEnabled(extent)) {
+      return;
+    }
+
+    // checked for each block, so that the index of one large file can not overrun the time limit
+    AtomicBoolean expired = new AtomicBoolean(false);
+    ScheduledFuture<?> deadline = context.getScheduledExecutor()
+        .schedule(() -> expired.set(true), timeLimit.toMillis(), MILLISECONDS);
+    try {
+      ScanFileManager fm =
+          fileManager.newScanFileManager(extent, new BasicCacheProvider(_iCache, _dCache));
+      Map<String,long[]> blocks = new HashMap<>();
+      for (StoredTabletFile file : files) {
+        fm.getCachedBlocks(List.of(file), HotBlocks.MAX_BLOCKS_PER_FILE, expired)
+            .forEach((f, offsets) -> blocks.put(f.getNormalizedPathStr(), offsets));
+      }
+      if (blocks.isEmpty()) {
+        return;
+      }
+
+      HotBlocks hotBlocks = new HotBlocks(blocks);
+      long fingerprint = hotBlocks.fingerprint();
+      Long stored = storedHotBlocks.get(extent);
+      if (stored == null || stored != fingerprint) {
+        hotBlocks.store(context, extent, dirName);
+        storedHotBlocks.put(extent, fingerprint);
+        log.trace("Recorded hot blocks of {} files of {}", blocks.size(), extent);
+      }
+    } catch (IterationInterruptedException e) {
+      log.debug("Did not record the hot blocks of {}, took longer than {}", extent, timeLimit);
+    } catch (IOException | RuntimeException e) {
+      log.debug("Failed to record the hot blocks of {}", extent, e);
+    } finally {
+      deadline.cancel(false);
+    }
+  }
+
+  /**
+   * Forgets which hot blocks were stored for tablets that are no longer hosted.
+   */
+  public void retainHotBlocks(Set<KeyExtent> onlineTablets) {
+    storedHotBlocks.keySet().retainAll(onlineTablets);
+  }
+
+  /**
+   * Loads the data blocks recorded by {@link #recordHotBlocks} for the tablet into the data cache
+   * in the background, at the rate set by {@link Property#GENERAL_CACHE_WARMUP_RATE}. Only the
+   * blocks of the given files, the files the tablet has now, are loaded.
+   */
+  public void warmCache(KeyExtent extent, String dirName, Collection<StoredTabletFile> files) {
+    // the tablet may have been hosted here before, the blocks stored when it was unloaded are
+    // not the blocks stored in its directory anymore once another server hosted it
+    storedHotBlocks.remove(extent);
+
+    if (files.isEmpty() || !isCacheWarmupEnabled(extent)) {
+      return;
+    }
+
+    cacheWarmupPool.execute(() -> {
+      try {
+        HotBlocks hotBlocks = HotBlocks.load(context, extent, dirName);
+        if (hotBlocks == null) {
+          return;
+        }
+
+        int rate = getCacheWarmupRate(context.getConfiguration());
+        if (cacheWarmupLimiter.getRate() != rate) {
+          cacheWarmupLimiter.setRate(rate);
+        }
+
+        ScanFileManager fm = fileManager.newScanFileManager(extent,
+            new ScanCacheProvider(context.getTableConfiguration(extent.tableId()),
+                ScanDispatch.builder().build(), _iCache, _dCache));
+        int loaded = 0;
+        for (StoredTabletFile file : files) {
+          long[] offsets = hotBlocks.getBlocks().get(file.getNormalizedPathStr());
+          if (offsets == null) {
+            continue;
+          }
+          for (int i = 0; i < offsets.length; i += CACHE_WARMUP_BATCH) {
+            long[] batch =
+                Arrays.copyOfRange(offsets, i, Math.min(offsets.length, i + CACHE_WARMUP_BATCH));
+            cacheWarmupLimiter.acquire(batch.length);
+            fm.prefetchBlocks(file, batch, null);
+            loaded += batch.length;
+          }
+        }
+        log.debug("Loaded {} hot blocks of {} into the data cache", loaded, extent);
+      } catch (IOException | RuntimeException e) {
+        log.debug("Failed to warm the data cache for {}", extent, e);
+      }
+    });
+  }
+
   /**
    * Accepts some map which is tracking active assignment task(s) (running) and monitors them to
    * ensure that the time the assignment(s) have been running don't exceed a threshold. If the time
@@ -769,6 +926,17 @@ public class TabletServerResourceManager {
       minorCompactionThreadPool.execute(r);
     }
 
+    /**
+     * @return the executor minor compactions use to read locality groups concurrently, or null if
+     *         they should read them one after another
+     */
+    public ExecutorService getMinorCompactionLocalityGroupExecutor() {
+      if (context.getConfiguration().getCount(Property.TSERV_MINC_LOCALITY_GROUP_THREADS) == 0) {
+        return null;
+      }
+      return minorCompactionLocalityGroupPool;
+    }
+
     public void close() throws IOException {
       // always obtain locks in same order to avoid deadlock
       synchronized (TabletServerResourceManager.this) {
@@ -875,6 +1043,19 @@ public class TabletServerResourceManager {
     return _dCache;
   }
 
+  /**
+   * Releases the local storage used by the data cache, called when the server shuts down.
+   */
+  public void close() {
+    if (_dCache instanceof TieredBlockCache) {
+      try {
+        ((TieredBlockCache) _dCache).close();
+      } catch (IOException e) {
+        log.warn("Failed to close local data block cache", e);
+      }
+    }
+  }
+
   public BlockCache getSummaryCache() {
     return _sCache;
   }
@@ -32,6 +32,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
@@ -97,6 +98,8 @@ public class ThriftScanClientHandler implements TabletScanClientService.Iface {
   protected final SecurityOperation security;
   private final WriteTracker writeTracker;
   private final long MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS;
+  // the memory reserved for batches read before clients request them
+  private final AtomicLong readAheadMemory = new AtomicLong();
 
   public ThriftScanClientHandler(TabletHostingServer server, WriteTracker writeTracker) {
     this.server = server;
@@ -265,6 +268,9 @@ public class ThriftScanClientHandler implements TabletScanClientService.Iface {
       bresult = scanSession.getScanTask().get(busyTimeout, MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS,
           TimeUnit.MILLISECONDS);
       scanSession.clearScanTask();
+      // the batch read ahead is no longer waiting for the client, removed sessions release their
+      // memory when cleaned up
+      scanSession.releaseReadAheadMemory();
     } catch (ExecutionException e) {
       server.getSessionManager().removeSession(scanID);
       if (e.getCause() instanceof NotServingTabletException) {
@@ -279,6 +285,7 @@ public class ThriftScanClientHandler implements TabletScanClientService.Iface {
         List<KVEntry> empty = Collections.emptyList();
         bresult = new ScanBatch(empty, true);
         scanSession.clearScanTask();
+        scanSession.releaseReadAheadMemory();
       } else {
         throw new RuntimeException(e);
       }
@@ -310,7 +317,8 @@ public class ThriftScanClientHandler implements TabletScanClientService.Iface {
 
     scanSession.batchCount++;
 
-    if (scanResult.more && scanSession.batchCount > scanSession.readaheadThreshold) {
+    if (scanResult.more && (scanSession.batchCount > scanSession.readaheadThreshold
+        || reserveReadAheadMemory(scanSession, bresult))) {
       // start reading next batch while current batch is transmitted
       // to client
       scanSession.setScanTask(new NextBatchTask(server, scanID, scanSession.interruptFlag));
@@ -325,6 +333,28 @@ public class ThriftScanClientHandler implements TabletScanClientService.Iface {
     return scanResult;
   }
 
+  /**
+   * Reserves memory for reading the next batch of a scan before its client requests it.
+   *
+   * @param batch the batch just read, its estimated memory is used as the estimate of the next one
+   * @return true if the memory was reserved and the next batch can be read ahead
+   */
+  private boolean reserveReadAheadMemory(SingleScanSession scanSession, ScanBatch batch) {
+    long maxMemory =
+        server.getConfiguration().getAsBytes(Property.TSERV_SCAN_READ_AHEAD_MAX_MEMORY);
+    if (maxMemory <= 0) {
+      return false;
+    }
+    // only estimate the batch when read-ahead memory is enabled, the estimate visits every entry
+    long batchMemory = batch.estimateMemoryUsed();
+    if (readAheadMemory.addAndGet(batchMemory) > maxMemory) {
+      readAheadMemory.addAndGet(-batchMemory);
+      return false;
+    }
+    scanSession.reserveReadAheadMemory(readAheadMemory, batchMemory);
+    return true;
+  }
+
   @Override
   public void closeScan(TInfo tinfo, long scanID) {
 
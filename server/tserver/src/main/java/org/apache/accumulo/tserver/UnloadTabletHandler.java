@@ -18,6 +18,8 @@
  */
 package org.apache.accumulo.tserver;
 
+import java.time.Duration;
+
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.manager.thrift.TabletLoadState;
@@ -34,6 +36,8 @@ import org.slf4j.LoggerFactory;
 
 class UnloadTabletHandler implements Runnable {
   private static final Logger log = LoggerFactory.getLogger(UnloadTabletHandler.class);
+  // recording the hot blocks of the tablet should not hold up the unload for long
+  private static final Duration HOT_BLOCKS_TIME_LIMIT = Duration.ofSeconds(5);
   private final KeyExtent extent;
   private final TUnloadTabletGoal goalState;
   private final SteadyTime requestTime;
@@ -105,6 +109,13 @@ class UnloadTabletHandler implements Runnable {
     server.recentlyUnloadedCache.put(extent, System.currentTimeMillis());
     server.onlineTablets.remove(extent);
 
+    if (!goalState.equals(TUnloadTabletGoal.DELETED)) {
+      // before the manager is told, so that the next host finds the list
+      TabletMetadata closed = t.getMetadata();
+      server.resourceManager.recordHotBlocks(extent, closed.getDirName(),
+          closed.getFilesMap().keySet(), HOT_BLOCKS_TIME_LIMIT);
+    }
+
     try {
       TabletMetadata tm = t.getMetadata();
       if (!goalState.equals(TUnloadTabletGoal.SUSPENDED) || extent.isRootTablet()
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.accumulo.core.file.rfile.bcfile.CompressionAlgorithm;
+import org.apache.hadoop.io.compress.Decompressor;
+
+/**
+ * Reads a write-ahead log written by {@link CompressedLogOutputStream}, decompressing one block at
+ * a time. A block that was only partially written, because the tablet server died while writing
+ * it, is treated as the end of the log.
+ */
+class CompressedLogInputStream extends InputStream {
+
+  private final DataInputStream in;
+  private final CompressionAlgorithm algorithm;
+
+  private byte[] block = new byte[0];
+  private byte[] compressed = new byte[0];
+  private int position = 0;
+  private int limit = 0;
+
+  CompressedLogInputStream(InputStream in, CompressionAlgorithm algorithm) {
+    this.in = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * Reads the next block into memory.
+   *
+   * @return false if the end of the log was reached
+   */
+  private boolean readBlock() throws IOException {
+    int length;
+    int storedLength;
+    try {
+      length = in.readInt();
+      storedLength = in.readInt();
+    } catch (EOFException e) {
+      return false;
+    }
+    if (length < 0 || storedLength < 0 || storedLength > length) {
+      throw new IOException("Corrupt block in write-ahead log, length " + length
+          + " stored length " + storedLength);
+    }
+
+    if (block.length < length) {
+      block = new byte[length];
+    }
+    if (storedLength == length) {
+      in.readFully(block, 0, length);
+    } else {
+      if (compressed.length < storedLength) {
+        compressed = new byte[storedLength];
+      }
+      in.readFully(compressed, 0, storedLength);
+      Decompressor decompressor = algorithm.getDecompressor();
+      try {
+        InputStream decompressing = algorithm.createDecompressionStream(
+            new ByteArrayInputStream(compressed, 0, storedLength), decompressor, 0);
+        new DataInputStream(decompressing).readFully(block, 0, length);
+      } finally {
+        algorithm.returnDecompressor(decompressor);
+      }
+    }
+    position = 0;
+    limit = length;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (position == limit) {
+      if (!readBlock()) {
+        return -1;
+      }
+    }
+    return block[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (position == limit) {
+      if (!readBlock()) {
+        return -1;
+      }
+    }
+    int count = Math.min(len, limit - position);
+    System.arraycopy(block, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return limit - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
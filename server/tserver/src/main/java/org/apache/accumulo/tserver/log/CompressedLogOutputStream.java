@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.accumulo.core.file.rfile.bcfile.CompressionAlgorithm;
+import org.apache.hadoop.io.compress.Compressor;
+
+/**
+ * Compresses a write-ahead log in blocks. Everything written between two calls to {@link #flush()}
+ * is compressed together and written as one block, preceded by its length before and after
+ * compression. When compression does not make a block smaller, the block is stored as is, with
+ * both lengths equal. Blocks are read by {@link CompressedLogInputStream}.
+ */
+class CompressedLogOutputStream extends OutputStream {
+
+  // blocks smaller than this do not compress well enough to be worth the effort
+  static final int MIN_COMPRESSION_SIZE = 256;
+
+  private final DataOutputStream out;
+  private final CompressionAlgorithm algorithm;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+  CompressedLogOutputStream(OutputStream out, CompressionAlgorithm algorithm) {
+    this.out = out instanceof DataOutputStream ? (DataOutputStream) out : new DataOutputStream(out);
+    this.algorithm = algorithm;
+  }
+
+  @Override
+  public void write(int b) {
+    buffer.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    buffer.write(b, off, len);
+  }
+
+  /**
+   * Writes the data written since the last flush as one block, and flushes the underlying stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    int length = buffer.size();
+    if (length > 0) {
+      compressed.reset();
+      if (length >= MIN_COMPRESSION_SIZE) {
+        Compressor compressor = algorithm.getCompressor();
+        try {
+          OutputStream compressing = algorithm.createCompressionStream(compressed, compressor, 0);
+          buffer.writeTo(compressing);
+          // finishes the compressed data, closing the stream would finish it a second time
+          compressing.flush();
+        } finally {
+          algorithm.returnCompressor(compressor);
+        }
+      }
+
+      out.writeInt(length);
+      if (compressed.size() > 0 && compressed.size() < length) {
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+      } else {
+        out.writeInt(length);
+        buffer.writeTo(out);
+      }
+      buffer.reset();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    out.close();
+  }
+}
@@ -53,6 +53,8 @@ import org.apache.accumulo.core.crypto.CryptoEnvironmentImpl;
 import org.apache.accumulo.core.crypto.CryptoUtils;
 import org.apache.accumulo.core.crypto.streams.NoFlushOutputStream;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.file.rfile.bcfile.Compression;
+import org.apache.accumulo.core.file.rfile.bcfile.CompressionAlgorithm;
 import org.apache.accumulo.core.spi.crypto.CryptoEnvironment;
 import org.apache.accumulo.core.spi.crypto.CryptoEnvironment.Scope;
 import org.apache.accumulo.core.spi.crypto.CryptoService;
@@ -94,6 +96,14 @@ public final class DfsLogger implements Comparable<DfsLogger> {
    */
   public static final String LOG_FILE_HEADER_V4 = "--- Log File Header (v4) ---";
 
+  /**
+   * Same as V4, followed by the name of the compression algorithm used to compress the log in
+   * blocks. See {@link CompressedLogOutputStream}.
+   *
+   * @since 4.0.0
+   */
+  public static final String LOG_FILE_HEADER_V5 = "--- Log File Header (v5) ---";
+
   private static final Logger log = LoggerFactory.getLogger(DfsLogger.class);
   private static final DatanodeInfo[] EMPTY_PIPELINE = new DatanodeInfo[0];
 
@@ -353,13 +363,23 @@ public final class DfsLogger implements Comparable<DfsLogger> {
       CryptoService cryptoService) throws LogHeaderIncompleteException, IOException {
     DataInputStream decryptingInput;
 
+    byte[] magic5 = DfsLogger.LOG_FILE_HEADER_V5.getBytes(UTF_8);
     byte[] magic4 = DfsLogger.LOG_FILE_HEADER_V4.getBytes(UTF_8);
     byte[] magic3 = DfsLogger.LOG_FILE_HEADER_V3.getBytes(UTF_8);
 
     byte[] magicBuffer = new byte[magic4.length];
     try {
       input.readFully(magicBuffer);
-      if (Arrays.equals(magicBuffer, magic4)) {
+      if (Arrays.equals(magicBuffer, magic5)) {
+        FileDecrypter decrypter =
+            CryptoUtils.getFileDecrypter(cryptoService, Scope.WAL, null, input);
+        CompressionAlgorithm compression =
+            Compression.getCompressionAlgorithmByName(input.readUTF());
+        log.debug("Using {} for decrypting WAL compressed with {}",
+            cryptoService.getClass().getSimpleName(), compression.getName());
+        decryptingInput = new DataInputStream(
+            new CompressedLogInputStream(decrypter.decryptStream(input), compression));
+      } else if (Arrays.equals(magicBuffer, magic4)) {
         FileDecrypter decrypter =
             CryptoUtils.getFileDecrypter(cryptoService, Scope.WAL, null, input);
         log.debug("Using {} for decrypting WAL", cryptoService.getClass().getSimpleName());
@@ -439,21 +459,32 @@ public final class DfsLogger implements Comparable<DfsLogger> {
       CryptoEnvironment env = new CryptoEnvironmentImpl(Scope.WAL);
       CryptoService cryptoService =
           context.getCryptoFactory().getService(env, serverConf.getAllCryptoProperties());
-      logFile.write(LOG_FILE_HEADER_V4.getBytes(UTF_8));
+      String compressionType = serverConf.get(Property.TSERV_WAL_COMPRESSION_TYPE);
+      CompressionAlgorithm compression = compressionType.equals("none") ? null
+          : Compression.getCompressionAlgorithmByName(compressionType);
+      String header = compression == null ? LOG_FILE_HEADER_V4 : LOG_FILE_HEADER_V5;
+      logFile.write(header.getBytes(UTF_8));
 
       log.debug("Using {} for encrypting WAL {}", cryptoService.getClass().getSimpleName(),
           filename);
       FileEncrypter encrypter = cryptoService.getFileEncrypter(env);
       byte[] cryptoParams = encrypter.getDecryptionParameters();
       CryptoUtils.writeParams(cryptoParams, logFile);
+      if (compression != null) {
+        log.debug("Using {} for compressing WAL {}", compression.getName(), filename);
+        logFile.writeUTF(compression.getName());
+      }
 
       /*
        * Always wrap the WAL in a NoFlushOutputStream to prevent extra flushing to HDFS. The method
-       * write(LogFileKey, LogFileValue) will flush crypto data or do nothing when crypto is not
-       * enabled.
+       * write(List) will flush crypto data or do nothing when crypto is not enabled. When the WAL
+       * is compressed, that flush also writes the entries as one compressed block.
        */
       OutputStream encryptedStream = encrypter.encryptStream(new NoFlushOutputStream(logFile));
-      if (encryptedStream instanceof NoFlushOutputStream) {
+      if (compression != null) {
+        encryptingLogFile =
+            new DataOutputStream(new CompressedLogOutputStream(encryptedStream, compression));
+      } else if (encryptedStream instanceof NoFlushOutputStream) {
         encryptingLogFile = (NoFlushOutputStream) encryptedStream;
       } else {
         encryptingLogFile = new DataOutputStream(encryptedStream);
@@ -556,11 +587,13 @@ public final class DfsLogger implements Comparable<DfsLogger> {
     return logKeyData(key, Durability.LOG);
   }
 
-  private synchronized void write(LogFileKey key, LogFileValue value) throws IOException {
-    key.write(encryptingLogFile);
-    value.write(encryptingLogFile);
+  private synchronized void write(List<Pair<LogFileKey,LogFileValue>> keys) throws IOException {
+    for (Pair<LogFileKey,LogFileValue> pair : keys) {
+      pair.getFirst().write(encryptingLogFile);
+      pair.getSecond().write(encryptingLogFile);
+    }
     encryptingLogFile.flush();
-    writes++;
+    writes += keys.size();
   }
 
   private LoggerOperation logKeyData(LogFileKey key, Durability d) throws IOException {
@@ -571,9 +604,7 @@ public final class DfsLogger implements Comparable<DfsLogger> {
       Durability durability) throws IOException {
     LogWork work = new LogWork(new CountDownLatch(1), durability);
     try {
-      for (Pair<LogFileKey,LogFileValue> pair : keys) {
-        write(pair.getFirst(), pair.getSecond());
-      }
+      write(keys);
     } catch (ClosedChannelException ex) {
       throw new LogClosedException();
     } catch (Exception e) {
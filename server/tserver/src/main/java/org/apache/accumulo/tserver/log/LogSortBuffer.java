@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * Holds entries of a write-ahead log that are sorted together during recovery. The entries are kept
+ * serialized in large byte arrays, and what is needed to sort them in arrays of primitives, so a
+ * buffer holding millions of entries is made of a few hundred objects. The entries are sorted in
+ * parallel ranges, which are merged while they are written.
+ */
+class LogSortBuffer {
+
+  private static final int CHUNK_SIZE = 1 << 20;
+  // ranges smaller than this are not worth sorting in another thread
+  private static final int MIN_RANGE_SIZE = 1 << 14;
+  private static final int INSERTION_SORT_SIZE = 16;
+  // the bytes used by the arrays for each entry
+  private static final int ENTRY_OVERHEAD = 2 * Long.BYTES + 4 * Integer.BYTES;
+
+  private final List<byte[]> chunks = new ArrayList<>();
+  private int chunkOffset = 0;
+  private long chunkBytes = 0;
+
+  // the event type and tablet id of each entry, sorting the same as the rows of their keys
+  private long[] rows = new long[1024];
+  private long[] seqs = new long[1024];
+  private int[] chunkIds = new int[1024];
+  private int[] offsets = new int[1024];
+  private int[] keyLengths = new int[1024];
+  private int[] lengths = new int[1024];
+  private int size = 0;
+
+  private final DataOutputBuffer serialized = new DataOutputBuffer();
+
+  void add(LogFileKey key, LogFileValue value) throws IOException {
+    serialized.reset();
+    key.write(serialized);
+    int keyLength = serialized.getLength();
+    value.write(serialized);
+    int length = serialized.getLength();
+
+    byte[] chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+    if (chunk == null || chunk.length - chunkOffset < length) {
+      chunk = new byte[Math.max(CHUNK_SIZE, length)];
+      chunks.add(chunk);
+      chunkOffset = 0;
+      chunkBytes += chunk.length;
+    }
+    System.arraycopy(serialized.getData(), 0, chunk, chunkOffset, length);
+
+    if (size == rows.length) {
+      int capacity = size * 2;
+      rows = Arrays.copyOf(rows, capacity);
+      seqs = Arrays.copyOf(seqs, capacity);
+      chunkIds = Arrays.copyOf(chunkIds, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      keyLengths = Arrays.copyOf(keyLengths, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+    }
+    // the same fields as the row of LogFileKey.toKey(), which uses 0 for both in OPEN entries
+    int tabletId = key.event == OPEN ? 0 : key.tabletId;
+    rows[size] =
+        ((long) LogFileKey.eventType(key.event) << 32) | ((tabletId ^ 0x80000000) & 0xffffffffL);
+    seqs[size] = key.event == OPEN ? 0 : key.seq;
+    chunkIds[size] = chunks.size() - 1;
+    offsets[size] = chunkOffset;
+    keyLengths[size] = keyLength;
+    lengths[size] = length;
+    chunkOffset += length;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return an estimate of the memory used by the buffer
+   */
+  long getMemoryUsed() {
+    return chunkBytes + (long) rows.length * ENTRY_OVERHEAD;
+  }
+
+  private LogFileKey readKey(int entry) {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(chunks.get(chunkIds[entry]), offsets[entry], keyLengths[entry]);
+    LogFileKey key = new LogFileKey();
+    try {
+      key.readFields(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return key;
+  }
+
+  private LogFileValue readValue(int entry) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(chunks.get(chunkIds[entry]), offsets[entry] + keyLengths[entry],
+        lengths[entry] - keyLengths[entry]);
+    LogFileValue value = new LogFileValue();
+    value.readFields(in);
+    return value;
+  }
+
+  /**
+   * Compares entries in the order of the keys created by {@link LogFileKey#toKey()}, and entries
+   * with equal keys in the order they were added.
+   */
+  private int compare(int entry1, int entry2) {
+    int cmp = Long.compare(rows[entry1], rows[entry2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Long.compare(seqs[entry1], seqs[entry2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    // rarely needed, the rows are equal so the rest of the keys have to be compared
+    try {
+      cmp = readKey(entry1).toKey().compareTo(readKey(entry2).toKey());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return cmp != 0 ? cmp : Integer.compare(entry1, entry2);
+  }
+
+  private int[] sortRange(int from, int to) {
+    int[] order = new int[to - from];
+    Arrays.setAll(order, i -> from + i);
+    mergeSort(order, order.clone(), 0, order.length);
+    return order;
+  }
+
+  /**
+   * Sorts entries[from,to) using tmp, which must hold the same entries in that range.
+   */
+  private void mergeSort(int[] entries, int[] tmp, int from, int to) {
+    if (to - from <= INSERTION_SORT_SIZE) {
+      for (int i = from + 1; i < to; i++) {
+        int entry = entries[i];
+        int j = i - 1;
+        while (j >= from && compare(entries[j], entry) > 0) {
+          entries[j + 1] = entries[j];
+          j--;
+        }
+        entries[j + 1] = entry;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    // sort the halves of tmp, then merge them into entries
+    mergeSort(tmp, entries, from, mid);
+    mergeSort(tmp, entries, mid, to);
+    for (int i = from, left = from, right = mid; i < to; i++) {
+      if (right >= to || (left < mid && compare(tmp[left], tmp[right]) <= 0)) {
+        entries[i] = tmp[left++];
+      } else {
+        entries[i] = tmp[right++];
+      }
+    }
+  }
+
+  /**
+   * Sorts the entries and appends them to the writer. The mutations of entries with equal keys are
+   * combined into one entry.
+   *
+   * @param executor sorts ranges of the entries concurrently
+   * @param numThreads the number of ranges to sort concurrently
+   * @return the sorted ids of the tablets with entries in the buffer
+   */
+  int[] writeTo(FileSKVWriter writer, ExecutorService executor, int numThreads)
+      throws IOException {
+    int numRanges = Math.max(1, Math.min(numThreads, size / MIN_RANGE_SIZE));
+    int[][] ranges = new int[numRanges][];
+    try {
+      List<Future<int[]>> futures = new ArrayList<>();
+      for (int r = 1; r < numRanges; r++) {
+        int from = (int) ((long) size * r / numRanges);
+        int to = (int) ((long) size * (r + 1) / numRanges);
+        futures.add(executor.submit(() -> sortRange(from, to)));
+      }
+      ranges[0] = sortRange(0, (int) ((long) size / numRanges));
+      for (int r = 1; r < numRanges; r++) {
+        ranges[r] = futures.get(r - 1).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while sorting", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to sort", e.getCause());
+    }
+
+    TreeSet<Integer> tabletIds = new TreeSet<>();
+    int[] positions = new int[numRanges];
+    Key previousKey = null;
+    int previousEntry = -1;
+    List<Mutation> combined = null;
+    while (true) {
+      // the ranges are few, so finding the smallest of their heads is cheap
+      int next = -1;
+      for (int r = 0; r < numRanges; r++) {
+        if (positions[r] < ranges[r].length && (next == -1
+            || compare(ranges[r][positions[r]], ranges[next][positions[next]]) < 0)) {
+          next = r;
+        }
+      }
+      if (next == -1) {
+        break;
+      }
+      int entry = ranges[next][positions[next]++];
+
+      LogFileKey logFileKey = readKey(entry);
+      if (logFileKey.event != OPEN) {
+        tabletIds.add(logFileKey.tabletId);
+      }
+      Key key = logFileKey.toKey();
+      if (key.equals(previousKey)) {
+        if (combined == null) {
+          combined = new ArrayList<>(readValue(previousEntry).mutations);
+        }
+        combined.addAll(readValue(entry).mutations);
+      } else {
+        if (previousKey != null) {
+          append(writer, previousKey, previousEntry, combined);
+        }
+        previousKey = key;
+        previousEntry = entry;
+        combined = null;
+      }
+    }
+    if (previousKey != null) {
+      append(writer, previousKey, previousEntry, combined);
+    }
+    return tabletIds.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private void append(FileSKVWriter writer, Key key, int entry, List<Mutation> combined)
+      throws IOException {
+    if (combined == null) {
+      // the serialized LogFileValue is the value of the key
+      int offset = offsets[entry] + keyLengths[entry];
+      writer.append(key, new Value(chunks.get(chunkIds[entry]), offset,
+          lengths[entry] - keyLengths[entry]));
+    } else {
+      LogFileValue value = new LogFileValue();
+      value.mutations = combined;
+      writer.append(key, value.toValue());
+    }
+  }
+}
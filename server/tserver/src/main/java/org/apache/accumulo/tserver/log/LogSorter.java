@@ -19,7 +19,9 @@
 package org.apache.accumulo.tserver.log;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.stream;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_WAL_SORT_CONCURRENT_POOL;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_WAL_SORT_WRITER_POOL;
 
 import java.io.DataInputStream;
 import java.io.EOFException;
@@ -31,6 +33,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -40,12 +45,14 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.crypto.CryptoEnvironmentImpl;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.manager.thrift.RecoveryStatus;
 import org.apache.accumulo.core.metadata.UnreferencedTabletFile;
 import org.apache.accumulo.core.spi.crypto.CryptoEnvironment;
 import org.apache.accumulo.core.spi.crypto.CryptoService;
-import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.core.util.threads.ThreadPools;
 import org.apache.accumulo.server.AbstractServer;
 import org.apache.accumulo.server.ServerContext;
@@ -63,13 +70,15 @@ import org.apache.zookeeper.KeeperException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.MoreExecutors;
 
 public class LogSorter {
 
   private static final Logger log = LoggerFactory.getLogger(LogSorter.class);
 
+  // logs sorted into more parts than this have their parts merged
+  static final int MAX_PARTS = 4;
+
   private final Map<String,LogProcessor> currentWork = Collections.synchronizedMap(new HashMap<>());
 
   class LogProcessor implements Processor {
@@ -165,34 +174,64 @@ public class LogSorter {
         // Creating a 'finished' marker will cause recovery to proceed normally and the
         // empty file will be correctly ignored downstream.
         fs.mkdirs(new Path(destPath));
-        writeBuffer(destPath, Collections.emptyList(), part++);
+        try (FileSKVWriter writer = newPartWriter(destPath, part++)) {
+          writer.startDefaultLocalityGroup();
+        }
         fs.create(SortedLogState.getFinishedMarkerPath(destPath)).close();
         return;
       }
 
-      final long bufferSize = sortedLogConf.getAsBytes(Property.TSERV_WAL_SORT_BUFFER_SIZE);
+      // one buffer is sorted and written while the next is read, so each gets half of the memory
+      final long bufferSize = sortedLogConf.getAsBytes(Property.TSERV_WAL_SORT_BUFFER_SIZE) / 2;
+      final int sortThreads = Math.max(1, sortedLogConf.getCount(Property.TSERV_WAL_SORT_THREADS));
       Thread.currentThread().setName("Sorting " + name + " for recovery");
-      while (true) {
-        final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
-        try {
-          long start = input.getPos();
-          while (input.getPos() - start < bufferSize) {
-            LogFileKey key = new LogFileKey();
-            LogFileValue value = new LogFileValue();
-            key.readFields(decryptingInput);
-            value.readFields(decryptingInput);
-            buffer.add(new Pair<>(key, value));
+      // the sorted ids of the tablets in each part, by part name
+      Map<String,int[]> tabletIndex = new TreeMap<>();
+      // one thread writes a buffer, the others help sorting it
+      ThreadPoolExecutor executor = ThreadPools.getServerThreadPools()
+          .getPoolBuilder(TSERVER_WAL_SORT_WRITER_POOL).numCoreThreads(1 + sortThreads).build();
+      try {
+        Future<int[]> pendingWrite = null;
+        String pendingPart = null;
+        boolean done = false;
+        LogFileKey key = new LogFileKey();
+        LogFileValue value = new LogFileValue();
+        while (!done) {
+          final LogSortBuffer buffer = new LogSortBuffer();
+          try {
+            while (buffer.getMemoryUsed() < bufferSize) {
+              key.readFields(decryptingInput);
+              value.readFields(decryptingInput);
+              buffer.add(key, value);
+            }
+          } catch (EOFException ex) {
+            done = true;
           }
-          writeBuffer(destPath, buffer, part++);
-          buffer.clear();
-        } catch (EOFException ex) {
-          writeBuffer(destPath, buffer, part++);
-          break;
+          if (pendingWrite != null) {
+            tabletIndex.put(pendingPart, pendingWrite.get());
+          }
+          final int bufferPart = part++;
+          pendingPart = getPartName(bufferPart);
+          pendingWrite =
+              executor.submit(() -> writePart(destPath, buffer, bufferPart, executor, sortThreads));
+        }
+        tabletIndex.put(pendingPart, pendingWrite.get());
+
+        if (tabletIndex.size() > MAX_PARTS) {
+          tabletIndex = mergeParts(destPath, tabletIndex, part, executor);
         }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while sorting " + srcPath, e);
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to write sorted part of " + srcPath, e.getCause());
+      } finally {
+        executor.shutdownNow();
       }
+      ResolvedSortedLog.writeTabletIndex(fs, new Path(destPath), tabletIndex);
       fs.create(new Path(destPath, "finished")).close();
-      log.info("Finished log sort {} {} bytes {} parts in {}ms", name, getBytesCopied(), part,
-          getSortTime());
+      log.info("Finished log sort {} {} bytes {} parts in {}ms", name, getBytesCopied(),
+          tabletIndex.size(), getSortTime());
     }
 
     synchronized void close() throws IOException {
@@ -261,40 +300,139 @@ public class LogSorter {
     return copy;
   }
 
-  @VisibleForTesting
-  void writeBuffer(String destPath, List<Pair<LogFileKey,LogFileValue>> buffer, int part)
-      throws IOException {
-    String filename = String.format("part-r-%05d.rf", part);
-    Path path = new Path(destPath, filename);
+  private static String getPartName(int part) {
+    return String.format("part-r-%05d.rf", part);
+  }
+
+  private FileSKVWriter newPartWriter(String destPath, int part) throws IOException {
+    Path path = new Path(destPath, getPartName(part));
     FileSystem fs = context.getVolumeManager().getFileSystemByPath(path);
     Path fullPath = fs.makeQualified(path);
+    return FileOperations.getInstance().newWriterBuilder()
+        .forFile(UnreferencedTabletFile.of(fs, fullPath), fs, fs.getConf(), cryptoService)
+        .withTableConfiguration(sortedLogConf).build();
+  }
 
-    // convert the LogFileKeys to Keys, sort and collect the mutations
-    Map<Key,List<Mutation>> keyListMap = new TreeMap<>();
-    for (Pair<LogFileKey,LogFileValue> pair : buffer) {
-      var logFileKey = pair.getFirst();
-      var logFileValue = pair.getSecond();
-      Key k = logFileKey.toKey();
-      var list = keyListMap.putIfAbsent(k, logFileValue.mutations);
-      if (list != null) {
-        var muts = new ArrayList<>(list);
-        muts.addAll(logFileValue.mutations);
-        keyListMap.put(logFileKey.toKey(), muts);
-      }
+  /**
+   * Merges the sorted parts of a log into {@link #MAX_PARTS} parts, so recovering tablets have
+   * fewer files to read. Groups of consecutive parts are merged concurrently, and the first group
+   * holds the OPEN entry, so the first of the new parts still starts with it.
+   *
+   * @param tabletIndex the sorted ids of the tablets in each part, by part name
+   * @param firstPart the number of the first new part
+   * @return the sorted ids of the tablets in each new part, by part name
+   */
+  Map<String,int[]> mergeParts(String destPath, Map<String,int[]> tabletIndex, int firstPart,
+      ExecutorService executor) throws IOException, InterruptedException, ExecutionException {
+    List<String> parts = new ArrayList<>(tabletIndex.keySet());
+    List<Future<?>> futures = new ArrayList<>();
+    Map<String,int[]> mergedIndex = new TreeMap<>();
+    for (int i = 0; i < MAX_PARTS; i++) {
+      List<String> group =
+          parts.subList(parts.size() * i / MAX_PARTS, parts.size() * (i + 1) / MAX_PARTS);
+      int part = firstPart + i;
+      mergedIndex.put(getPartName(part), group.stream()
+          .flatMapToInt(name -> stream(tabletIndex.get(name))).distinct().sorted().toArray());
+      futures.add(executor.submit(() -> {
+        mergePartGroup(destPath, group, part);
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    VolumeManager fs = context.getVolumeManager();
+    for (String part : parts) {
+      fs.delete(new Path(destPath, part));
     }
+    return mergedIndex;
+  }
 
-    try (var writer = FileOperations.getInstance().newWriterBuilder()
-        .forFile(UnreferencedTabletFile.of(fs, fullPath), fs, fs.getConf(), cryptoService)
-        .withTableConfiguration(sortedLogConf).build()) {
+  private void mergePartGroup(String destPath, List<String> group, int part) throws IOException {
+    List<FileSKVIterator> readers = new ArrayList<>();
+    try (FileSKVWriter writer = newPartWriter(destPath, part)) {
+      for (String name : group) {
+        Path path = new Path(destPath, name);
+        FileSystem fs = context.getVolumeManager().getFileSystemByPath(path);
+        readers.add(FileOperations.getInstance().newReaderBuilder()
+            .forFile(UnreferencedTabletFile.of(fs, fs.makeQualified(path)), fs, fs.getConf(),
+                cryptoService)
+            .withTableConfiguration(sortedLogConf).seekToBeginning().build());
+      }
       writer.startDefaultLocalityGroup();
-      for (var entry : keyListMap.entrySet()) {
-        LogFileValue val = new LogFileValue();
-        val.mutations = entry.getValue();
-        writer.append(entry.getKey(), val.toValue());
+
+      Key previousKey = null;
+      Value previousValue = null;
+      // the mutations of the entries with the previous key, when there was more than one
+      List<Mutation> combined = null;
+      while (true) {
+        // the parts are few, so finding the smallest of their top keys is cheap. For equal keys,
+        // the earlier part wins so the mutations stay in the order they were logged.
+        FileSKVIterator next = null;
+        for (FileSKVIterator reader : readers) {
+          if (reader.hasTop()
+              && (next == null || reader.getTopKey().compareTo(next.getTopKey()) < 0)) {
+            next = reader;
+          }
+        }
+        if (next == null) {
+          break;
+        }
+        Key key = new Key(next.getTopKey());
+        Value value = new Value(next.getTopValue());
+        next.next();
+
+        if (key.equals(previousKey)) {
+          if (combined == null) {
+            combined = new ArrayList<>(LogFileValue.fromValue(previousValue).mutations);
+          }
+          combined.addAll(LogFileValue.fromValue(value).mutations);
+        } else {
+          if (previousKey != null) {
+            append(writer, previousKey, previousValue, combined);
+          }
+          previousKey = key;
+          previousValue = value;
+          combined = null;
+        }
+      }
+      if (previousKey != null) {
+        append(writer, previousKey, previousValue, combined);
+      }
+    } finally {
+      for (FileSKVIterator reader : readers) {
+        reader.close();
       }
     }
   }
 
+  private static void append(FileSKVWriter writer, Key key, Value value, List<Mutation> combined)
+      throws IOException {
+    if (combined == null) {
+      writer.append(key, value);
+    } else {
+      // the combined mutations are encoded once, however many entries had the key
+      LogFileValue combinedValue = new LogFileValue();
+      combinedValue.mutations = combined;
+      writer.append(key, combinedValue.toValue());
+    }
+  }
+
+  /**
+   * Sorts the buffer and writes it to a sorted part.
+   *
+   * @param executor sorts ranges of the buffer concurrently
+   * @param sortThreads the number of ranges of the buffer to sort concurrently
+   * @return the sorted ids of the tablets that have entries in the part
+   */
+  int[] writePart(String destPath, LogSortBuffer buffer, int part, ExecutorService executor,
+      int sortThreads) throws IOException {
+    try (FileSKVWriter writer = newPartWriter(destPath, part)) {
+      writer.startDefaultLocalityGroup();
+      return buffer.writeTo(writer, executor, sortThreads);
+    }
+  }
+
   /**
    * Sort any logs that need sorting in the current thread.
    *
@@ -84,10 +84,14 @@ public class RecoveryLogsIterator
     for (ResolvedSortedLog logDir : recoveryLogDirs) {
       LOG.debug("Opening recovery log dir {}", logDir);
       SortedSet<UnreferencedTabletFile> logFiles = logDir.getChildren();
+      if (start != null && start.tabletId == end.tabletId) {
+        // only open the files that have entries for the tablet
+        logFiles = logDir.getChildren(start.tabletId);
+      }
       var fs = vm.getFileSystemByPath(logDir.getDir());
 
       // only check the first key once to prevent extra iterator creation and seeking
-      if (checkFirstKey && !logFiles.isEmpty()) {
+      if (checkFirstKey && !logDir.getChildren().isEmpty()) {
         validateFirstKey(context, cryptoService, fs, logDir, fileLenCache, cacheProvider);
       }
 
@@ -19,8 +19,11 @@
 package org.apache.accumulo.tserver.log;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -29,9 +32,12 @@ import org.apache.accumulo.core.tabletserver.log.LogEntry;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.log.SortedLogState;
 import org.apache.accumulo.server.manager.recovery.RecoveryPath;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
 
 /**
  * Write ahead logs have two paths in DFS. There is the path of the original unsorted walog and the
@@ -40,15 +46,25 @@ import org.apache.hadoop.fs.Path;
  */
 public class ResolvedSortedLog {
 
+  /**
+   * The name of the file in the sorted log dir that lists the ids of the tablets that have entries
+   * in each sorted file. Files whose names start with an underscore are ignored when resolving the
+   * sorted files, so versions that do not know about this file ignore it.
+   */
+  static final String TABLET_INDEX = "_tablets";
+
   private final SortedSet<UnreferencedTabletFile> children;
   private final LogEntry origin;
   private final Path sortedLogDir;
+  // the sorted tablet ids in each file by file name, null if the sort did not write an index
+  private final Map<String,int[]> tabletIndex;
 
   private ResolvedSortedLog(LogEntry origin, Path sortedLogDir,
-      SortedSet<UnreferencedTabletFile> children) {
+      SortedSet<UnreferencedTabletFile> children, Map<String,int[]> tabletIndex) {
     this.origin = origin;
     this.sortedLogDir = sortedLogDir;
     this.children = Collections.unmodifiableSortedSet(children);
+    this.tabletIndex = tabletIndex;
   }
 
   /**
@@ -73,6 +89,25 @@ public class ResolvedSortedLog {
     return children;
   }
 
+  /**
+   * @return the sorted rfiles that may contain entries for the given tablet id. When the sort
+   *         wrote an index of the tablets in each file, files without entries for the tablet are
+   *         left out, otherwise all files are returned.
+   */
+  public SortedSet<UnreferencedTabletFile> getChildren(int tabletId) {
+    if (tabletIndex == null) {
+      return children;
+    }
+    SortedSet<UnreferencedTabletFile> tabletChildren = new TreeSet<>(children.comparator());
+    for (UnreferencedTabletFile child : children) {
+      int[] tabletIds = tabletIndex.get(child.getPath().getName());
+      if (tabletIds == null || Arrays.binarySearch(tabletIds, tabletId) >= 0) {
+        tabletChildren.add(child);
+      }
+    }
+    return Collections.unmodifiableSortedSet(tabletChildren);
+  }
+
   @Override
   public String toString() {
     return sortedLogDir.toString();
@@ -90,12 +125,17 @@ public class ResolvedSortedLog {
     Path sortedLogPath = RecoveryPath.getRecoveryPath(new Path(logEntry.getPath()));
 
     boolean foundFinish = false;
+    Map<String,int[]> tabletIndex = null;
     // Path::getName compares the last component of each Path value. In this case, the last
     // component should
     // always have the format 'part-r-XXXXX.rf', where XXXXX are one-up values.
     SortedSet<UnreferencedTabletFile> logFiles =
         new TreeSet<>(Comparator.comparing(tf -> tf.getPath().getName()));
     for (FileStatus child : fs.listStatus(sortedLogPath)) {
+      if (child.getPath().getName().equals(TABLET_INDEX)) {
+        tabletIndex = readTabletIndex(fs, child.getPath());
+        continue;
+      }
       if (child.getPath().getName().startsWith("_")) {
         continue;
       }
@@ -116,6 +156,48 @@ public class ResolvedSortedLog {
           + sortedLogPath + " for walog " + logEntry.getPath());
     }
 
-    return new ResolvedSortedLog(logEntry, sortedLogPath, logFiles);
+    return new ResolvedSortedLog(logEntry, sortedLogPath, logFiles, tabletIndex);
+  }
+
+  /**
+   * Writes the index of the tablets with entries in each sorted file of a sorted log dir.
+   *
+   * @param tabletIndex the sorted ids of the tablets in each file, by file name
+   */
+  static void writeTabletIndex(VolumeManager fs, Path sortedLogDir, Map<String,int[]> tabletIndex)
+      throws IOException {
+    try (FSDataOutputStream out = fs.create(new Path(sortedLogDir, TABLET_INDEX))) {
+      out.writeInt(tabletIndex.size());
+      for (Map.Entry<String,int[]> entry : tabletIndex.entrySet()) {
+        out.writeUTF(entry.getKey());
+        int[] tabletIds = entry.getValue();
+        WritableUtils.writeVInt(out, tabletIds.length);
+        // the ids are sorted, so store the differences between them to keep them small
+        int previous = 0;
+        for (int tabletId : tabletIds) {
+          WritableUtils.writeVLong(out, (long) tabletId - previous);
+          previous = tabletId;
+        }
+      }
+    }
+  }
+
+  private static Map<String,int[]> readTabletIndex(VolumeManager fs, Path path)
+      throws IOException {
+    try (FSDataInputStream in = fs.open(path)) {
+      int numFiles = in.readInt();
+      Map<String,int[]> tabletIndex = new HashMap<>();
+      for (int i = 0; i < numFiles; i++) {
+        String name = in.readUTF();
+        int[] tabletIds = new int[WritableUtils.readVInt(in)];
+        long previous = 0;
+        for (int j = 0; j < tabletIds.length; j++) {
+          previous += WritableUtils.readVLong(in);
+          tabletIds[j] = (int) previous;
+        }
+        tabletIndex.put(name, tabletIds);
+      }
+      return tabletIndex;
+    }
   }
 }
@@ -20,15 +20,20 @@ package org.apache.accumulo.tserver.log;
 
 import static java.util.Collections.singletonList;
 import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_WAL_CREATOR_POOL;
+import static org.apache.accumulo.core.util.threads.ThreadPoolNames.TSERVER_WAL_STRIPE_POOL;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -78,35 +83,21 @@ public class TabletServerLogger {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerLogger.class);
 
-  private final AtomicLong logSizeEstimate = new AtomicLong();
   private final long maxSize;
   private final long maxAge;
 
   private final TabletServer tserver;
 
-  // The current logger
-  private DfsLogger currentLog = null;
+  // The logs that are written concurrently, each tablet writes to one of them
+  private final LogStripe[] stripes;
+  private final ThreadPoolExecutor stripeWriter;
+
   private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
   private ThreadPoolExecutor nextLogMaker;
 
-  // The current generation of logs.
-  // Because multiple threads can be using a log at one time, a log
-  // failure is likely to affect multiple threads, who will all attempt to
-  // create a new log. This will cause many unnecessary updates to the
-  // metadata table.
-  // We'll use this generational counter to determine if another thread has
-  // already fetched a new log.
-  private final AtomicInteger logId = new AtomicInteger();
-
-  // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
-  // change them
-  private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
-
   private final AtomicLong syncCounter;
   private final AtomicLong flushCounter;
 
-  private long createTime = 0;
-
   private final RetryFactory createRetryFactory;
   private Retry createRetry = null;
 
@@ -158,7 +149,7 @@ public class TabletServerLogger {
 
   public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter,
       AtomicLong flushCounter, RetryFactory createRetryFactory, RetryFactory writeRetryFactory,
-      long maxAge) {
+      long maxAge, int numStripes) {
     this.tserver = tserver;
     this.maxSize = maxSize;
     this.syncCounter = syncCounter;
@@ -168,104 +159,57 @@ public class TabletServerLogger {
     this.writeRetryFactory = writeRetryFactory;
     this.maxAge = maxAge;
     this.sortedLogCache = Caffeine.newBuilder().expireAfterWrite(3, TimeUnit.SECONDS).build();
-  }
-
-  private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
-    final AtomicReference<DfsLogger> result = new AtomicReference<>();
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        result.set(currentLog);
-        if (currentLog != null) {
-          logIdOut.set(logId.get());
-        }
-        return currentLog == null;
-      }
-
-      @Override
-      void withWriteLock() {
-        createLogger();
-        result.set(currentLog);
-        if (currentLog != null) {
-          logIdOut.set(logId.get());
-        } else {
-          logIdOut.set(-1);
-        }
-      }
-    });
-    return result.get();
+    this.stripes = new LogStripe[Math.max(1, numStripes)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new LogStripe();
+    }
+    if (stripes.length > 1) {
+      // the thread calling logManyTablets writes to one of the logs itself
+      stripeWriter = ThreadPools.getServerThreadPools().getPoolBuilder(TSERVER_WAL_STRIPE_POOL)
+          .numCoreThreads(stripes.length - 1).enableThreadPoolMetrics().build();
+    } else {
+      stripeWriter = null;
+    }
   }
 
   /**
-   * Get the current log entry
+   * Get the current log entries
    *
-   * @return the current log entry, or null if there is no current log
+   * @return the entries of the current logs, empty if there are no current logs
    */
-  @Nullable
-  public LogEntry getLogEntry() {
-    logIdLock.readLock().lock();
-    try {
-      return currentLog == null ? null : currentLog.getLogEntry();
-    } finally {
-      logIdLock.readLock().unlock();
+  public List<LogEntry> getLogEntries() {
+    List<LogEntry> entries = new ArrayList<>(stripes.length);
+    for (LogStripe stripe : stripes) {
+      LogEntry entry = stripe.getLogEntry();
+      if (entry != null) {
+        entries.add(entry);
+      }
     }
+    return entries;
   }
 
-  private synchronized void createLogger() {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("createLoggers should be called with write lock held!");
+  private LogStripe getStripe(CommitSession commitSession) {
+    if (stripes.length == 1) {
+      return stripes[0];
     }
+    // A tablet always writes to the same log, so all of the entries for a tablet in a log are in
+    // order and recovery does not need to know about the stripes.
+    return stripes[Math.floorMod(commitSession.getExtent().hashCode(), stripes.length)];
+  }
 
-    if (currentLog != null) {
-      throw new IllegalStateException("createLoggers should not be called when current log is set");
+  private DfsLogger takeNextLog() throws Exception {
+    if (!Thread.holdsLock(this)) {
+      throw new IllegalStateException("takeNextLog should be called with the logger lock held!");
     }
-
-    try {
-      startLogMaker();
-      Object next = nextLog.take();
-      if (next instanceof Exception) {
-        throw (Exception) next;
-      }
-      if (next instanceof DfsLogger) {
-        currentLog = (DfsLogger) next;
-        logId.incrementAndGet();
-        log.info("Using next log {}", currentLog.getLogEntry());
-
-        // When we successfully create a WAL, make sure to reset the Retry.
-        if (createRetry != null) {
-          createRetry = null;
-        }
-
-        this.createTime = System.currentTimeMillis();
-      } else {
-        throw new RuntimeException("Error: unexpected type seen: " + next);
-      }
-    } catch (Exception t) {
-      if (createRetry == null) {
-        createRetry = createRetryFactory.createRetry();
-      }
-
-      // We have more retries or we exceeded the maximum number of accepted failures
-      if (createRetry.canRetry()) {
-        // Use the createRetry and record the time in which we did so
-        createRetry.useRetry();
-
-        try {
-          // Backoff
-          createRetry.waitForNextAttempt(log, "create new WAL ");
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
-        }
-      } else {
-        log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
-        // We didn't have retries or we failed too many times.
-        Halt.halt("Experienced too many errors creating WALs, giving up", 1);
-      }
-
-      // The exception will trigger the log creation to be re-attempted.
-      throw new RuntimeException(t);
+    startLogMaker();
+    Object next = nextLog.take();
+    if (next instanceof Exception) {
+      throw (Exception) next;
     }
+    if (next instanceof DfsLogger) {
+      return (DfsLogger) next;
+    }
+    throw new RuntimeException("Error: unexpected type seen: " + next);
   }
 
   private synchronized void startLogMaker() {
@@ -364,130 +308,266 @@ public class TabletServerLogger {
     });
   }
 
-  private synchronized void close() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("close should be called with write lock held!");
-    }
-    try {
-      if (currentLog != null) {
-        try {
-          currentLog.close();
-        } catch (DfsLogger.LogClosedException ex) {
-          // ignore
-        } catch (Exception ex) {
-          log.error("Unable to cleanly close log " + currentLog.getLogEntry() + ": " + ex, ex);
-        } finally {
-          this.tserver.walogClosed(currentLog);
-          currentLog = null;
-          logSizeEstimate.set(0);
-        }
-      }
-    } catch (Exception t) {
-      throw new IOException(t);
-    }
-  }
-
   interface Writer {
     LoggerOperation write(DfsLogger logger) throws Exception;
   }
 
-  private void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer,
-      Retry writeRetry) throws IOException {
-    // Work very hard not to lock this during calls to the outside world
-    int currentLogId = logId.get();
+  /**
+   * One of the logs a tablet server writes to concurrently, along with the log that replaces it
+   * when it fails or gets too big or too old.
+   */
+  private class LogStripe {
+
+    private final AtomicLong logSizeEstimate = new AtomicLong();
+
+    // The current logger
+    private DfsLogger currentLog = null;
+
+    // The current generation of logs.
+    // Because multiple threads can be using a log at one time, a log
+    // failure is likely to affect multiple threads, who will all attempt to
+    // create a new log. This will cause many unnecessary updates to the
+    // metadata table.
+    // We'll use this generational counter to determine if another thread has
+    // already fetched a new log.
+    private final AtomicInteger logId = new AtomicInteger();
+
+    // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
+    // change them
+    private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+
+    private long createTime = 0;
+
+    private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
+      final AtomicReference<DfsLogger> result = new AtomicReference<>();
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          result.set(currentLog);
+          if (currentLog != null) {
+            logIdOut.set(logId.get());
+          }
+          return currentLog == null;
+        }
 
-    boolean success = false;
-    while (!success) {
-      boolean sawWriteFailure = false;
-      try {
-        // get a reference to the loggers that no other thread can touch
-        AtomicInteger currentId = new AtomicInteger(-1);
-        DfsLogger copy = initializeLoggers(currentId);
-        currentLogId = currentId.get();
-
-        // add the logger to the log set for the memory in the tablet,
-        // update the metadata table if we've never used this tablet
-
-        if (currentLogId == logId.get()) {
-          for (CommitSession commitSession : sessions) {
-            if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
-              try {
-                // Scribble out a tablet definition and then write to the metadata table
-                write(singletonList(commitSession), false,
-                    logger -> logger.defineTablet(commitSession), writeRetry);
-              } finally {
-                commitSession.finishUpdatingLogsUsed();
-              }
-            }
+        @Override
+        void withWriteLock() {
+          createLogger();
+          result.set(currentLog);
+          if (currentLog != null) {
+            logIdOut.set(logId.get());
+          } else {
+            logIdOut.set(-1);
           }
         }
+      });
+      return result.get();
+    }
 
-        // Make sure that the logs haven't changed out from underneath our copy
-        if (currentLogId == logId.get()) {
+    @Nullable
+    private LogEntry getLogEntry() {
+      logIdLock.readLock().lock();
+      try {
+        return currentLog == null ? null : currentLog.getLogEntry();
+      } finally {
+        logIdLock.readLock().unlock();
+      }
+    }
 
-          // write the mutation to the logs
-          LoggerOperation lop = writer.write(copy);
-          lop.await();
+    private void createLogger() {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("createLoggers should be called with write lock held!");
+      }
 
-          // double-check: did the log set change?
-          success = (currentLogId == logId.get());
-        }
-      } catch (DfsLogger.LogClosedException | ClosedChannelException ex) {
-        writeRetry.logRetry(log, "Logs closed while writing", ex);
-      } catch (Exception t) {
-        writeRetry.logRetry(log, "Failed to write to WAL", t);
-        sawWriteFailure = true;
+      if (currentLog != null) {
+        throw new IllegalStateException(
+            "createLoggers should not be called when current log is set");
+      }
+
+      final Exception failure;
+      final Retry retry;
+      // the logs of all stripes come from the same log maker and share the retry
+      synchronized (TabletServerLogger.this) {
         try {
-          // Backoff
-          writeRetry.waitForNextAttempt(log, "write to WAL");
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
+          currentLog = takeNextLog();
+          logId.incrementAndGet();
+          log.info("Using next log {}", currentLog.getLogEntry());
+
+          // When we successfully create a WAL, make sure to reset the Retry.
+          if (createRetry != null) {
+            createRetry = null;
+          }
+
+          this.createTime = System.currentTimeMillis();
+          return;
+        } catch (Exception t) {
+          if (createRetry == null) {
+            createRetry = createRetryFactory.createRetry();
+          }
+
+          // We have more retries or we exceeded the maximum number of accepted failures
+          if (!createRetry.canRetry()) {
+            log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
+            // We didn't have retries or we failed too many times.
+            Halt.halt("Experienced too many errors creating WALs, giving up", 1);
+          }
+
+          // Use the createRetry and record the time in which we did so
+          createRetry.useRetry();
+          retry = createRetry;
+          failure = t;
         }
-      } finally {
-        writeRetry.useRetry();
       }
-      // Some sort of write failure occurred. Grab the write lock and reset the logs.
-      // But since multiple threads will attempt it, only attempt the reset when
-      // the logs haven't changed.
-      final int finalCurrent = currentLogId;
-      if (!success) {
-        final ServiceLock tabletServerLock = tserver.getLock();
-        if (sawWriteFailure) {
-          log.info("WAL write failure, validating server lock in ZooKeeper");
-          if (tabletServerLock == null || !tabletServerLock.verifyLockAtSource()) {
-            Halt.halt("Writing to WAL has failed and TabletServer lock does not exist", -1);
+
+      // Backoff without the logger lock, so the other stripes can still take new logs. The retry
+      // is not thread safe, so stripes that failed at the same time back off one after another.
+      try {
+        synchronized (retry) {
+          retry.waitForNextAttempt(log, "create new WAL ");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+
+      // The exception will trigger the log creation to be re-attempted.
+      throw new RuntimeException(failure);
+    }
+
+    private synchronized void close() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("close should be called with write lock held!");
+      }
+      try {
+        if (currentLog != null) {
+          try {
+            currentLog.close();
+          } catch (DfsLogger.LogClosedException ex) {
+            // ignore
+          } catch (Exception ex) {
+            log.error("Unable to cleanly close log " + currentLog.getLogEntry() + ": " + ex, ex);
+          } finally {
+            tserver.walogClosed(currentLog);
+            currentLog = null;
+            logSizeEstimate.set(0);
           }
         }
+      } catch (Exception t) {
+        throw new IOException(t);
+      }
+    }
 
-        testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+    private void write(final Collection<CommitSession> sessions, boolean mincFinish,
+        Writer writer, Retry writeRetry) throws IOException {
+      // Work very hard not to lock this during calls to the outside world
+      int currentLogId = logId.get();
 
-          @Override
-          boolean test() {
-            return finalCurrent == logId.get();
+      boolean success = false;
+      while (!success) {
+        boolean sawWriteFailure = false;
+        try {
+          // get a reference to the loggers that no other thread can touch
+          AtomicInteger currentId = new AtomicInteger(-1);
+          DfsLogger copy = initializeLoggers(currentId);
+          currentLogId = currentId.get();
+
+          // add the logger to the log set for the memory in the tablet,
+          // update the metadata table if we've never used this tablet
+
+          if (currentLogId == logId.get()) {
+            for (CommitSession commitSession : sessions) {
+              if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
+                try {
+                  // Scribble out a tablet definition and then write to the metadata table
+                  write(singletonList(commitSession), false,
+                      logger -> logger.defineTablet(commitSession), writeRetry);
+                } finally {
+                  commitSession.finishUpdatingLogsUsed();
+                }
+              }
+            }
           }
 
-          @Override
-          void withWriteLock() throws IOException {
-            close();
+          // Make sure that the logs haven't changed out from underneath our copy
+          if (currentLogId == logId.get()) {
+
+            // write the mutation to the logs
+            LoggerOperation lop = writer.write(copy);
+            lop.await();
+
+            // double-check: did the log set change?
+            success = (currentLogId == logId.get());
+          }
+        } catch (DfsLogger.LogClosedException | ClosedChannelException ex) {
+          writeRetry.logRetry(log, "Logs closed while writing", ex);
+        } catch (Exception t) {
+          writeRetry.logRetry(log, "Failed to write to WAL", t);
+          sawWriteFailure = true;
+          try {
+            // Backoff
+            writeRetry.waitForNextAttempt(log, "write to WAL");
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } finally {
+          writeRetry.useRetry();
+        }
+        // Some sort of write failure occurred. Grab the write lock and reset the logs.
+        // But since multiple threads will attempt it, only attempt the reset when
+        // the logs haven't changed.
+        final int finalCurrent = currentLogId;
+        if (!success) {
+          final ServiceLock tabletServerLock = tserver.getLock();
+          if (sawWriteFailure) {
+            log.info("WAL write failure, validating server lock in ZooKeeper");
+            if (tabletServerLock == null || !tabletServerLock.verifyLockAtSource()) {
+              Halt.halt("Writing to WAL has failed and TabletServer lock does not exist", -1);
+            }
           }
-        });
+
+          testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+
+            @Override
+            boolean test() {
+              return finalCurrent == logId.get();
+            }
+
+            @Override
+            void withWriteLock() throws IOException {
+              close();
+            }
+          });
+        }
       }
+      // if the log gets too big or too old, reset it .. grab the write lock first
+      logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          return (logSizeEstimate.get() > maxSize)
+              || ((System.currentTimeMillis() - createTime) > maxAge);
+        }
+
+        @Override
+        void withWriteLock() throws IOException {
+          close();
+        }
+      });
     }
-    // if the log gets too big or too old, reset it .. grab the write lock first
-    logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        return (logSizeEstimate.get() > maxSize)
-            || ((System.currentTimeMillis() - createTime) > maxAge);
-      }
 
-      @Override
-      void withWriteLock() throws IOException {
-        close();
+    private void logManyTablets(Map<CommitSession,TabletMutations> loggables) throws IOException {
+      write(loggables.keySet(), false, logger -> logger.logManyTablets(loggables.values()),
+          writeRetryFactory.createRetry());
+      for (TabletMutations entry : loggables.values()) {
+        if (entry.getMutations().size() < 1) {
+          throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+        }
+        for (Mutation m : entry.getMutations()) {
+          logSizeEstimate.addAndGet(m.numBytes());
+        }
       }
-    });
+    }
   }
 
   /**
@@ -498,41 +578,95 @@ public class TabletServerLogger {
     if (durability == Durability.DEFAULT || durability == Durability.NONE) {
       throw new IllegalArgumentException("Unexpected durability " + durability);
     }
-    write(singletonList(commitSession), false, logger -> logger.log(commitSession, m, durability),
-        writeRetryFactory.createRetry());
-    logSizeEstimate.addAndGet(m.numBytes());
+    LogStripe stripe = getStripe(commitSession);
+    stripe.write(singletonList(commitSession), false,
+        logger -> logger.log(commitSession, m, durability), writeRetryFactory.createRetry());
+    stripe.logSizeEstimate.addAndGet(m.numBytes());
   }
 
   /**
-   * Log mutations. This method expects mutations that have a durability other than NONE.
+   * Log mutations. This method expects mutations that have a durability other than NONE. When the
+   * tablets write to different logs, the logs are written concurrently.
    */
   public void logManyTablets(Map<CommitSession,TabletMutations> loggables) throws IOException {
     if (loggables.isEmpty()) {
       return;
     }
 
-    write(loggables.keySet(), false, logger -> logger.logManyTablets(loggables.values()),
-        writeRetryFactory.createRetry());
-    for (TabletMutations entry : loggables.values()) {
-      if (entry.getMutations().size() < 1) {
-        throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+    if (stripes.length == 1) {
+      stripes[0].logManyTablets(loggables);
+      return;
+    }
+
+    Map<LogStripe,Map<CommitSession,TabletMutations>> byStripe = new HashMap<>();
+    loggables.forEach((commitSession, mutations) -> byStripe
+        .computeIfAbsent(getStripe(commitSession), k -> new HashMap<>())
+        .put(commitSession, mutations));
+
+    List<Future<?>> futures = new ArrayList<>(byStripe.size() - 1);
+    Entry<LogStripe,Map<CommitSession,TabletMutations>> local = null;
+    for (Entry<LogStripe,Map<CommitSession,TabletMutations>> entry : byStripe.entrySet()) {
+      if (local == null) {
+        local = entry;
+      } else {
+        futures.add(stripeWriter.submit(() -> {
+          entry.getKey().logManyTablets(entry.getValue());
+          return null;
+        }));
       }
-      for (Mutation m : entry.getMutations()) {
-        logSizeEstimate.addAndGet(m.numBytes());
+    }
+
+    Throwable failure = null;
+    try {
+      local.getKey().logManyTablets(local.getValue());
+    } catch (IOException | RuntimeException | Error e) {
+      failure = e;
+    }
+
+    // Always wait for the other stripes, even when this one failed, so no write to a log is still
+    // running once the caller sees the failure.
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futures.forEach(f -> f.cancel(false));
+        if (failure == null) {
+          failure = new RuntimeException(e);
+        } else {
+          failure.addSuppressed(e);
+        }
+        break;
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
       }
     }
+
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IOException(failure);
+    }
   }
 
   public void minorCompactionFinished(final CommitSession commitSession, final long walogSeq,
       final Durability durability) throws IOException {
-    write(singletonList(commitSession), true,
+    getStripe(commitSession).write(singletonList(commitSession), true,
         logger -> logger.minorCompactionFinished(walogSeq, commitSession.getLogId(), durability),
         writeRetryFactory.createRetry());
   }
 
   public long minorCompactionStarted(final CommitSession commitSession, final long seq,
       final String fullyQualifiedFileName, final Durability durability) throws IOException {
-    write(
+    getStripe(commitSession).write(
         singletonList(commitSession), false, logger -> logger.minorCompactionStarted(seq,
             commitSession.getLogId(), fullyQualifiedFileName, durability),
         writeRetryFactory.createRetry());
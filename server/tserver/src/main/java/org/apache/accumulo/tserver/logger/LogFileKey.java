@@ -136,7 +136,11 @@ public class LogFileKey implements WritableComparable<LogFileKey> {
     }
   }
 
-  static int eventType(LogEvents event) {
+  /**
+   * @return the number that orders the event in sorted logs, which is the first byte of the row of
+   *         {@link #toKey()}
+   */
+  public static int eventType(LogEvents event) {
     // Order logs by START, TABLET_DEFINITIONS, COMPACTIONS and then MUTATIONS
     if (event == MUTATION || event == MANY_MUTATIONS) {
       return 3;
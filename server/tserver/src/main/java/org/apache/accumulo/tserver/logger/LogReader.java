@@ -190,6 +190,7 @@ public class LogReader implements KeywordExecutable {
   }
 
   private void printCryptoParams(FSDataInputStream input, Path path) {
+    byte[] magic5 = DfsLogger.LOG_FILE_HEADER_V5.getBytes(UTF_8);
     byte[] magic4 = DfsLogger.LOG_FILE_HEADER_V4.getBytes(UTF_8);
     byte[] magic3 = DfsLogger.LOG_FILE_HEADER_V3.getBytes(UTF_8);
     byte[] noCryptoBytes = new NoFileEncrypter().getDecryptionParameters();
@@ -197,7 +198,7 @@ public class LogReader implements KeywordExecutable {
     byte[] magicBuffer = new byte[magic4.length];
     try {
       input.readFully(magicBuffer);
-      if (Arrays.equals(magicBuffer, magic4)) {
+      if (Arrays.equals(magicBuffer, magic4) || Arrays.equals(magicBuffer, magic5)) {
         byte[] cryptoParams = CryptoUtils.readParams(input);
         if (Arrays.equals(noCryptoBytes, cryptoParams)) {
           System.out.println("No on disk encryption detected.");
@@ -205,6 +206,9 @@ public class LogReader implements KeywordExecutable {
           System.out.println("Encrypted with Params: "
               + Key.toPrintableString(cryptoParams, 0, cryptoParams.length, cryptoParams.length));
         }
+        if (Arrays.equals(magicBuffer, magic5)) {
+          System.out.println("Compressed with " + input.readUTF());
+        }
       } else if (Arrays.equals(magicBuffer, magic3)) {
         // Read logs files from Accumulo 1.9 and throw an error if they are encrypted
         String cryptoModuleClassname = input.readUTF();
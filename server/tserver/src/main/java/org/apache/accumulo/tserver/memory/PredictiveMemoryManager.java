@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.memory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.server.ServerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link LargestFirstMemoryManager} that also predicts when memory will run out. It measures the
+ * rate at which each tablet is written and the rate at which minor compactions free memory. When
+ * the memory written while the largest tablet would be minor compacted would fill memory past the
+ * point where commits are held, it starts minor compactions early, so that they finish before
+ * memory is full. The tablets that will be largest by then, given their own write rates, are
+ * compacted first.
+ */
+public class PredictiveMemoryManager extends LargestFirstMemoryManager {
+
+  private static final Logger log = LoggerFactory.getLogger(PredictiveMemoryManager.class);
+
+  // the fraction of memory to stay under, commits are held at 95%
+  private static final double TARGET_MEMORY_FRACTION = 0.85;
+  // how much longer than expected a minor compaction may take
+  private static final double SAFETY_FACTOR = 2.0;
+  // the weight of the newest measurement in the moving averages
+  private static final double ALPHA = 0.3;
+
+  private static class TabletHistory {
+    long memTableSize;
+    long mincStartNanos = -1;
+    long mincSize;
+    // bytes per nanosecond
+    double ingestRate = 0;
+    double predictionRate = 0;
+  }
+
+  private final Map<KeyExtent,TabletHistory> history = new HashMap<>();
+
+  private long maxMemory;
+  private int maxMinCs;
+
+  private long lastNanos = -1;
+  // bytes per nanosecond, the ingest rate is the sum of the rates of the tablets
+  private double ingestRate = 0;
+  private double flushRate = 0;
+
+  @Override
+  public void init(ServerContext context) {
+    super.init(context);
+    maxMemory = context.getConfiguration().getAsBytes(Property.TSERV_MAXMEM);
+    maxMinCs = context.getConfiguration().getCount(Property.TSERV_MINC_MAXCONCURRENT) * 2;
+  }
+
+  protected long nanoTime() {
+    return System.nanoTime();
+  }
+
+  /**
+   * @return the rate at which the tablets are written, in bytes per second
+   */
+  double getIngestRate() {
+    return ingestRate * 1e9;
+  }
+
+  /**
+   * @return the rate at which minor compactions free memory, in bytes per second
+   */
+  double getFlushRate() {
+    return flushRate * 1e9;
+  }
+
+  @Override
+  public List<KeyExtent> tabletsToMinorCompact(List<TabletMemoryReport> tablets) {
+    List<KeyExtent> tabletsToMinorCompact = new ArrayList<>(super.tabletsToMinorCompact(tablets));
+
+    long now = nanoTime();
+    long elapsed = lastNanos < 0 ? 0 : now - lastNanos;
+    lastNanos = now;
+
+    long usedMemory = 0;
+    int numWaitingMincs = 0;
+    double totalIngestRate = 0;
+    double predictionRate = 0;
+    List<TabletMemoryReport> candidates = new ArrayList<>();
+    Set<KeyExtent> reported = new HashSet<>();
+
+    for (TabletMemoryReport report : tablets) {
+      KeyExtent extent = report.getExtent();
+      long memTableSize = report.getMemTableSize();
+      long mincSize = report.getMinorCompactingMemTableSize();
+      reported.add(extent);
+      usedMemory += memTableSize + mincSize;
+
+      TabletHistory tabletHistory = history.get(extent);
+      if (tabletHistory == null) {
+        tabletHistory = new TabletHistory();
+        history.put(extent, tabletHistory);
+      } else if (elapsed > 0) {
+        long written;
+        if (memTableSize >= tabletHistory.memTableSize) {
+          written = memTableSize - tabletHistory.memTableSize;
+        } else {
+          // a minor compaction started, everything in the new memory table was written since
+          written = memTableSize;
+        }
+        double currentRate = (double) written / elapsed;
+        tabletHistory.ingestRate = average(tabletHistory.ingestRate, currentRate);
+        // react to bursts immediately, but do not forget a high rate right away when writes pause
+        tabletHistory.predictionRate = Math.max(tabletHistory.ingestRate, currentRate);
+      }
+      tabletHistory.memTableSize = memTableSize;
+      totalIngestRate += tabletHistory.ingestRate;
+      predictionRate += tabletHistory.predictionRate;
+
+      if (mincSize > 0 && tabletHistory.mincStartNanos < 0) {
+        tabletHistory.mincStartNanos = now;
+        tabletHistory.mincSize = mincSize;
+      } else if (mincSize == 0 && tabletHistory.mincStartNanos >= 0) {
+        long duration = now - tabletHistory.mincStartNanos;
+        if (duration > 0) {
+          flushRate = average(flushRate, (double) tabletHistory.mincSize / duration);
+        }
+        tabletHistory.mincStartNanos = -1;
+      }
+
+      if (mincSize > 0) {
+        numWaitingMincs++;
+      } else if (memTableSize > 0 && !tabletsToMinorCompact.contains(extent)
+          && tableExists(extent.tableId()) && !tableBeingDeleted(extent.tableId())) {
+        candidates.add(report);
+      }
+    }
+
+    history.keySet().retainAll(reported);
+
+    if (elapsed <= 0) {
+      return tabletsToMinorCompact;
+    }
+    ingestRate = totalIngestRate;
+
+    numWaitingMincs += tabletsToMinorCompact.size();
+    if (flushRate <= 0 || candidates.isEmpty() || numWaitingMincs >= maxMinCs) {
+      return tabletsToMinorCompact;
+    }
+
+    // the size each tablet would reach by the time a minor compaction of it would finish
+    Map<KeyExtent,Double> predictedSizes = new HashMap<>();
+    for (TabletMemoryReport candidate : candidates) {
+      double size = candidate.getMemTableSize();
+      double rate = history.get(candidate.getExtent()).predictionRate;
+      predictedSizes.put(candidate.getExtent(),
+          size + rate * (SAFETY_FACTOR * size / flushRate + elapsed));
+    }
+    candidates.sort(Comparator
+        .comparingDouble((TabletMemoryReport report) -> predictedSizes.get(report.getExtent()))
+        .reversed());
+
+    // the hottest tablet is not always the largest, estimate how long a flush takes from the
+    // largest memory table so that flushes are not started too late
+    long largestMemTable = 0;
+    for (TabletMemoryReport candidate : candidates) {
+      largestMemTable = Math.max(largestMemTable, candidate.getMemTableSize());
+    }
+    double flushNanos = largestMemTable / flushRate;
+    double predictedMemory =
+        usedMemory + predictionRate * (SAFETY_FACTOR * flushNanos + elapsed);
+    double targetMemory = TARGET_MEMORY_FRACTION * maxMemory;
+
+    if (predictedMemory > targetMemory) {
+      long toBeCompacted = 0;
+      for (TabletMemoryReport candidate : candidates) {
+        if (numWaitingMincs >= maxMinCs || predictedMemory - toBeCompacted <= targetMemory) {
+          break;
+        }
+        tabletsToMinorCompact.add(candidate.getExtent());
+        toBeCompacted += candidate.getMemTableSize();
+        numWaitingMincs++;
+        log.debug(String.format(
+            "COMPACTING %s early, used = %,d predicted = %,.0f ingest rate = %,.0f bytes/sec"
+                + " flush rate = %,.0f bytes/sec",
+            candidate.getExtent(), usedMemory, predictedMemory, getIngestRate(),
+            getFlushRate()));
+      }
+    }
+
+    return tabletsToMinorCompact;
+  }
+
+  private static double average(double average, double measurement) {
+    return average == 0 ? measurement : ALPHA * measurement + (1 - ALPHA) * average;
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.accumulo.tserver.session;
 
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
@@ -37,6 +38,10 @@ public class SingleScanSession extends ScanSession<ScanBatch> {
   public Scanner scanner;
   public final long readaheadThreshold;
 
+  // memory reserved from a server wide total for the batch being read ahead of the client
+  private AtomicLong readAheadMemory = null;
+  private long readAheadReserved = 0;
+
   public SingleScanSession(TCredentials credentials, KeyExtent extent, ScanParameters scanParams,
       long readaheadThreshold, Map<String,String> executionHints, TabletResolver tabletResolver) {
     super(credentials, scanParams, executionHints, tabletResolver);
@@ -54,6 +59,20 @@ public class SingleScanSession extends ScanSession<ScanBatch> {
     return extent.tableId();
   }
 
+  public synchronized void reserveReadAheadMemory(AtomicLong memory, long reserved) {
+    releaseReadAheadMemory();
+    this.readAheadMemory = memory;
+    this.readAheadReserved = reserved;
+  }
+
+  public synchronized void releaseReadAheadMemory() {
+    if (readAheadMemory != null) {
+      readAheadMemory.addAndGet(-readAheadReserved);
+      readAheadMemory = null;
+      readAheadReserved = 0;
+    }
+  }
+
   @Override
   public boolean cleanup() {
     final boolean ret;
@@ -63,6 +82,7 @@ public class SingleScanSession extends ScanSession<ScanBatch> {
       if (localScanTask != null) {
         localScanTask.cancel(true);
       }
+      releaseReadAheadMemory();
     } finally {
       if (scanner != null) {
         ret = scanner.close();
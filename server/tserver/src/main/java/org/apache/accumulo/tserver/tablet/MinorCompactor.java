@@ -25,9 +25,11 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.lock.ServiceLock;
 import org.apache.accumulo.core.manager.state.tables.TableState;
@@ -49,6 +51,7 @@ public class MinorCompactor extends FileCompactor {
   private static final Logger log = LoggerFactory.getLogger(MinorCompactor.class);
 
   private final TabletServer tabletServer;
+  private final Tablet tablet;
   private final MinorCompactionReason mincReason;
 
   public MinorCompactor(TabletServer tabletServer, Tablet tablet, InMemoryMap imm,
@@ -58,6 +61,7 @@ public class MinorCompactor extends FileCompactor {
         new MinCEnv(mincReason, imm.compactionIterator()), Collections.emptyList(), tableConfig,
         tableConfig.getCryptoService(), tabletServer.getPausedCompactionMetrics());
     this.tabletServer = tabletServer;
+    this.tablet = tablet;
     this.mincReason = mincReason;
   }
 
@@ -70,6 +74,16 @@ public class MinorCompactor extends FileCompactor {
     }
   }
 
+  @Override
+  protected ExecutorService getLocalityGroupExecutor() {
+    return tablet.getTabletResources().getMinorCompactionLocalityGroupExecutor();
+  }
+
+  @Override
+  protected long getLocalityGroupBufferSize() {
+    return tabletServer.getConfiguration().getAsBytes(Property.TSERV_MINC_LOCALITY_GROUP_BUFFER);
+  }
+
   @Override
   protected Map<String,Set<ByteSequence>> getLocalityGroups(AccumuloConfiguration acuTableConf)
       throws IOException {
@@ -36,4 +36,12 @@ public final class ScanBatch {
   public List<KVEntry> getResults() {
     return results;
   }
+
+  public long estimateMemoryUsed() {
+    long memory = 0;
+    for (KVEntry entry : results) {
+      memory += entry.estimateMemoryUsed();
+    }
+    return memory;
+  }
 }
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.dataImpl.thrift.IterInfo;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -44,6 +45,7 @@ import org.apache.accumulo.core.iteratorsImpl.system.SystemIteratorUtil;
 import org.apache.accumulo.core.metadata.StoredTabletFile;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.conf.TableConfiguration.ParsedIteratorConfig;
 import org.apache.accumulo.server.fs.FileManager.ScanFileManager;
@@ -74,6 +76,7 @@ class ScanDataSource implements DataSource {
   private final boolean loadIters;
   private final byte[] defaultLabels;
   private final long scanDataSourceId;
+  private List<Range> prefetchRanges = null;
 
   ScanDataSource(TabletBase tablet, ScanParameters scanParams, boolean loadIters,
       AtomicBoolean interruptFlag) {
@@ -88,6 +91,14 @@ class ScanDataSource implements DataSource {
         this.scanDataSourceId, this.tablet, this.scanParams, this.loadIters);
   }
 
+  /**
+   * Sets the sorted ranges that will be read from this data source, so that the data they cover in
+   * each file can be read up front when the files are opened.
+   */
+  void setPrefetchRanges(List<Range> ranges) {
+    this.prefetchRanges = ranges;
+  }
+
   @Override
   public DataSource getNewDataSource() {
     if (!isCurrent()) {
@@ -171,8 +182,35 @@ class ScanDataSource implements DataSource {
       files = reservation.getSecond();
     }
 
-    Collection<InterruptibleIterator> datafiles =
-        fileManager.openFiles(files, scanParams.isIsolated(), samplerConfig);
+    List<IterInfo> iterInfos = null;
+    Map<String,Map<String,String>> iterOpts = null;
+    ParsedIteratorConfig pic = null;
+    long minTimestamp = Long.MIN_VALUE;
+
+    if (loadIters) {
+      pic = tablet.getTableConfiguration().getParsedIteratorConfig(IteratorScope.scan);
+      if (scanParams.getSsiList().isEmpty() && scanParams.getSsio().isEmpty()) {
+        // No scan time iterator options were set, so can just use the pre-parsed table iterator
+        // options.
+        iterInfos = pic.getIterInfo();
+        iterOpts = pic.getOpts();
+      } else {
+        // Scan time iterator options were set, so need to merge those with pre-parsed table
+        // iterator options.
+        iterOpts = new HashMap<>(pic.getOpts().size() + scanParams.getSsio().size());
+        iterInfos = new ArrayList<>(pic.getIterInfo().size() + scanParams.getSsiList().size());
+        IteratorConfigUtil.mergeIteratorConfig(iterInfos, iterOpts, pic.getIterInfo(),
+            pic.getOpts(), scanParams.getSsiList(), scanParams.getSsio());
+      }
+
+      // files that only hold entries older than the iterators return do not need to be read
+      minTimestamp =
+          IteratorConfigUtil.getMinTimestamp(iterInfos, iterOpts, System.currentTimeMillis());
+    }
+
+    Collection<InterruptibleIterator> datafiles = fileManager.openFiles(files,
+        scanParams.isIsolated(), samplerConfig, prefetchRanges,
+        LocalityGroupUtil.families(scanParams.getColumnSet()), minTimestamp);
 
     List.of(datafiles, memIters).forEach(c -> c.forEach(ii -> ii.setInterruptFlag(interruptFlag)));
 
@@ -196,25 +234,6 @@ class ScanDataSource implements DataSource {
             scanParams.getAuthorizations(), defaultLabels, tablet.getTableConfiguration());
 
     if (loadIters) {
-      List<IterInfo> iterInfos;
-      Map<String,Map<String,String>> iterOpts;
-
-      ParsedIteratorConfig pic =
-          tablet.getTableConfiguration().getParsedIteratorConfig(IteratorScope.scan);
-      if (scanParams.getSsiList().isEmpty() && scanParams.getSsio().isEmpty()) {
-        // No scan time iterator options were set, so can just use the pre-parsed table iterator
-        // options.
-        iterInfos = pic.getIterInfo();
-        iterOpts = pic.getOpts();
-      } else {
-        // Scan time iterator options were set, so need to merge those with pre-parsed table
-        // iterator options.
-        iterOpts = new HashMap<>(pic.getOpts().size() + scanParams.getSsio().size());
-        iterInfos = new ArrayList<>(pic.getIterInfo().size() + scanParams.getSsiList().size());
-        IteratorConfigUtil.mergeIteratorConfig(iterInfos, iterOpts, pic.getIterInfo(),
-            pic.getOpts(), scanParams.getSsiList(), scanParams.getSsio());
-      }
-
       String context;
       if (scanParams.getClassLoaderContext() != null) {
         log.trace("Loading iterators for scan with scan context: {}",
@@ -208,8 +208,11 @@ public abstract class TabletBase {
       tabletRange.clip(range);
     }
 
-    SourceSwitchingIterator.DataSource dataSource =
-        createDataSource(scanParams, true, interruptFlag);
+    ScanDataSource dataSource = createDataSource(scanParams, true, interruptFlag);
+    if (ranges.size() > 1) {
+      // read the blocks needed by all of the ranges together, instead of one seek at a time
+      dataSource.setPrefetchRanges(ranges);
+    }
 
     Tablet.LookupResult result = null;
 
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+public class HotBlocksTest {
+
+  private static HotBlocks roundTrip(HotBlocks hotBlocks) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    hotBlocks.write(new DataOutputStream(baos));
+    return HotBlocks.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    String file1 = "hdfs://nn:8020/accumulo/tables/1/t-0001/F0000001.rf";
+    String file2 = "hdfs://nn:8020/accumulo/tables/1/t-0001/A0000002.rf";
+    String file3 = "hdfs://nn:8020/accumulo/tables/1/t-0001/F0000003.rf";
+    long[] offsets1 = {0, 1024, 4096, 1L << 40};
+    long[] offsets2 = {17};
+
+    HotBlocks read = roundTrip(
+        new HotBlocks(Map.of(file1, offsets1, file2, offsets2, file3, new long[0])));
+    assertEquals(3, read.getBlocks().size());
+    assertArrayEquals(offsets1, read.getBlocks().get(file1));
+    assertArrayEquals(offsets2, read.getBlocks().get(file2));
+    assertEquals(0, read.getBlocks().get(file3).length);
+
+    assertEquals(0, roundTrip(new HotBlocks(Map.of())).getBlocks().size());
+  }
+
+  @Test
+  public void testFingerprint() throws IOException {
+    String file1 = "hdfs://nn:8020/accumulo/tables/1/t-0001/F0000001.rf";
+    String file2 = "hdfs://nn:8020/accumulo/tables/1/t-0001/A0000002.rf";
+    HotBlocks hotBlocks = new HotBlocks(Map.of(file1, new long[] {0, 1024}, file2, new long[] {7}));
+
+    assertEquals(hotBlocks.fingerprint(), roundTrip(hotBlocks).fingerprint());
+    assertEquals(hotBlocks.fingerprint(), new HotBlocks(
+        new TreeMap<>(Map.of(file2, new long[] {7}, file1, new long[] {0, 1024}))).fingerprint());
+
+    assertNotEquals(hotBlocks.fingerprint(),
+        new HotBlocks(Map.of(file1, new long[] {0, 2048}, file2, new long[] {7})).fingerprint());
+    assertNotEquals(hotBlocks.fingerprint(),
+        new HotBlocks(Map.of(file1, new long[] {0, 1024})).fingerprint());
+    assertNotEquals(hotBlocks.fingerprint(),
+        new HotBlocks(Map.of(file2, new long[] {0, 1024}, file1, new long[] {7})).fingerprint());
+  }
+
+  @Test
+  public void testUnknownVersion() {
+    byte[] data = {0, 0, 0, 9, 0};
+    assertThrows(IOException.class,
+        () -> HotBlocks.read(new DataInputStream(new ByteArrayInputStream(data))));
+  }
+}
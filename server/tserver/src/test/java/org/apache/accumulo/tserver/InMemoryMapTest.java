@@ -28,11 +28,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
@@ -487,6 +492,87 @@ public class InMemoryMapTest extends WithTestNames {
     testAndCallNext(skvi1, "r1", "foo:cq", 3, "v1");
   }
 
+  @Test
+  public void testOffHeapMap() throws Exception {
+    ConfigurationCopy config = newConfig(uniqueDirPaths(1)[0]);
+    config.set(Property.TSERV_OFF_HEAP_MAP_ENABLED, "true");
+    InMemoryMap imm = new InMemoryMap(config, getServerContext(), TableId.of("--TEST--"));
+    assertEquals(InMemoryMap.TYPE_OFF_HEAP_MAP_WRAPPER, imm.getMapType());
+
+    MemoryIterator ski1 = imm.skvIterator(null);
+    mutate(imm, "r1", "foo:cq1", 3, "bar1");
+    mutate(imm, "r1", "foo:cq1", 3, "bar2");
+    MemoryIterator ski2 = imm.skvIterator(null);
+
+    ski1.seek(new Range(), Set.of(), false);
+    assertFalse(ski1.hasTop());
+
+    ski2.seek(new Range(), Set.of(), false);
+    testAndCallNext(ski2, "r1", "foo:cq1", 3, "bar2");
+    testAndCallNext(ski2, "r1", "foo:cq1", 3, "bar1");
+    assertFalse(ski2.hasTop());
+    assertTrue(imm.estimatedSizeInBytes() > 0);
+
+    imm.delete(0);
+    ski2.seek(new Range(), Set.of(), false);
+    testAndCallNext(ski2, "r1", "foo:cq1", 3, "bar2");
+  }
+
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    ConfigurationCopy config = newConfig(uniqueDirPaths(1)[0]);
+    config.set(Property.TSERV_MEMORY_MAP_CONCURRENT_WRITES, "true");
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1",
+        LocalityGroupUtil.encodeColumnFamilies(toTextSet("cf1")));
+    config.set(Property.TABLE_LOCALITY_GROUPS.getKey(), "lg1");
+
+    InMemoryMap imm = new InMemoryMap(config, getServerContext(), TableId.of("--TEST--"));
+
+    final int writers = 8;
+    final int rows = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    try {
+      // reads should never see part of a mutation
+      Future<?> reader = executor.submit(() -> {
+        while (writing.get()) {
+          Map<Text,Integer> counts = new HashMap<>();
+          MemoryIterator iter = imm.skvIterator(null);
+          readAll(iter).keySet().forEach(k -> counts.merge(k.getRow(), 1, Integer::sum));
+          iter.close();
+          counts.forEach((row, count) -> assertEquals(2, count, row.toString()));
+        }
+        return null;
+      });
+
+      List<Future<?>> futures = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        final int writer = w;
+        futures.add(executor.submit(() -> {
+          for (int r = 0; r < rows; r++) {
+            Mutation m = new Mutation("r" + writer + "_" + r);
+            m.put("cf1", "x", 1, "v1");
+            m.put("cf2", "y", 1, "v2");
+            imm.mutate(List.of(m), 2);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      writing.set(false);
+      reader.get();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(writers * rows * 2, imm.getNumEntries());
+    MemoryIterator iter = imm.skvIterator(null);
+    assertEquals(writers * rows * 2, readAll(iter).size());
+    // checks that every reserved count was made visible
+    imm.delete(0);
+  }
+
   @Test
   public void testLocalityGroups() throws Exception {
     ConfigurationCopy config = newConfig(uniqueDirPaths(1)[0]);
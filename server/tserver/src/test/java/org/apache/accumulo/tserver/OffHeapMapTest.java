@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iteratorsImpl.system.InterruptibleIterator;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapMapTest {
+
+  private static final Random random = new Random(42);
+
+  private static Key newKey(int row, int cf, long ts, boolean del) {
+    Key key = new Key("r" + row, "cf" + cf, "cq", "", ts);
+    key.setDeleted(del);
+    return key;
+  }
+
+  private static void verify(TreeMap<Key,Value> expected, InterruptibleIterator iter, Range range)
+      throws IOException {
+    iter.seek(range, Set.of(), false);
+    for (Entry<Key,Value> entry : expected.entrySet()) {
+      if (range.contains(entry.getKey())) {
+        assertTrue(iter.hasTop());
+        assertEquals(entry.getKey(), iter.getTopKey());
+        assertEquals(((MemKey) entry.getKey()).getKVCount(),
+            ((MemKey) iter.getTopKey()).getKVCount());
+        assertEquals(entry.getValue(), iter.getTopValue());
+        iter.next();
+      }
+    }
+    assertFalse(iter.hasTop());
+  }
+
+  @Test
+  public void testSorted() throws IOException {
+    OffHeapMap map = new OffHeapMap();
+    TreeMap<Key,Value> expected = new TreeMap<>(new MemKeyComparator());
+
+    for (int kvCount = 1; kvCount <= 20_000; kvCount++) {
+      Key key = newKey(random.nextInt(1000), random.nextInt(3), random.nextInt(5),
+          random.nextInt(10) == 0);
+      byte[] bytes = new byte[random.nextInt(100)];
+      random.nextBytes(bytes);
+      Value value = new Value(bytes);
+      map.put(key, value, kvCount);
+      expected.put(new MemKey(key, kvCount), value);
+    }
+
+    assertEquals(expected.size(), map.size());
+    assertTrue(map.getMemoryUsed() > 0);
+
+    InterruptibleIterator iter = map.skvIterator();
+    verify(expected, iter, new Range());
+    for (int i = 0; i < 100; i++) {
+      int row = random.nextInt(1000);
+      verify(expected, iter, new Range("r" + row, "r" + (row + 10)));
+      Range range = new Range(newKey(row, 1, 3, false), false, null, true);
+      verify(expected, (InterruptibleIterator) iter.deepCopy(null), range);
+    }
+  }
+
+  @Test
+  public void testMutate() throws IOException {
+    OffHeapMap map = new OffHeapMap();
+
+    Mutation m1 = new Mutation("r1");
+    m1.put("cf", "cq", 5, "v1");
+    m1.put("cf", "cq", 5, "v2");
+    Mutation m2 = new Mutation("r2");
+    // larger than a chunk of the map
+    m2.put("cf", "cq", 5, new Value(new byte[20_000_000]));
+    map.mutate(List.of(m1, m2), 10);
+
+    InterruptibleIterator iter = map.skvIterator();
+    iter.seek(new Range(), Set.of(), false);
+    // the same key written later in a mutation sorts first
+    assertEquals(new MemKey(new Key("r1", "cf", "cq", 5), 11), iter.getTopKey());
+    assertEquals(11, ((MemKey) iter.getTopKey()).getKVCount());
+    assertEquals(new Value("v2"), iter.getTopValue());
+    iter.next();
+    assertEquals(new Value("v1"), iter.getTopValue());
+    iter.next();
+    assertEquals(20_000_000, iter.getTopValue().getSize());
+    iter.next();
+    assertFalse(iter.hasTop());
+
+    // the seek key does not have a kvCount, so it sorts before all entries with the same key
+    iter.seek(Range.exact("r1", "cf", "cq", "", 5), Set.of(), false);
+    assertEquals(11, ((MemKey) iter.getTopKey()).getKVCount());
+    assertTrue(map.getMemoryUsed() > 20_000_000);
+  }
+
+  @Test
+  public void testDelete() throws IOException {
+    OffHeapMap map = new OffHeapMap();
+    InterruptibleIterator iter = map.skvIterator();
+    iter.seek(new Range(), Set.of(), false);
+    assertFalse(iter.hasTop());
+    assertNull(iter.getTopKey());
+
+    map.delete();
+    assertThrows(IllegalStateException.class, map::skvIterator);
+    assertThrows(IllegalStateException.class, () -> iter.seek(new Range(), Set.of(), false));
+    assertThrows(IllegalStateException.class, map::delete);
+  }
+
+  @Test
+  public void testDeleteWhileIterating() throws Exception {
+    OffHeapMap map = new OffHeapMap();
+    for (int kvCount = 1; kvCount <= 10_000; kvCount++) {
+      map.put(newKey(kvCount, 0, 1, false), new Value("v" + kvCount), kvCount);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CountDownLatch started = new CountDownLatch(4);
+      List<Future<?>> readers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        InterruptibleIterator iter = map.skvIterator();
+        readers.add(executor.submit(() -> {
+          started.countDown();
+          // the only failure a reader may see is the map being deleted
+          try {
+            while (true) {
+              iter.seek(new Range(), Set.of(), false);
+              while (iter.hasTop()) {
+                assertTrue(iter.getTopValue().toString().startsWith("v"));
+                iter.next();
+              }
+            }
+          } catch (IllegalStateException e) {
+            assertEquals("Off heap map deleted", e.getMessage());
+          }
+          return null;
+        }));
+      }
+
+      started.await();
+      map.delete();
+      for (Future<?> reader : readers) {
+        reader.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
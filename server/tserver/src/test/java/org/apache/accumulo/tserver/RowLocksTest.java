@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.dataImpl.thrift.TConditionalMutation;
+import org.apache.accumulo.server.data.ServerConditionalMutation;
+import org.junit.jupiter.api.Test;
+
+public class RowLocksTest {
+
+  private static final KeyExtent EXTENT = new KeyExtent(TableId.of("1"), null, null);
+
+  private static Map<KeyExtent,List<ServerConditionalMutation>> updates(String... rows) {
+    List<ServerConditionalMutation> scml = new ArrayList<>();
+    long id = 0;
+    for (String row : rows) {
+      Mutation m = new Mutation(row);
+      m.put("cf", "cq", "v");
+      scml.add(new ServerConditionalMutation(
+          new TConditionalMutation(new ArrayList<>(), m.toThrift(), id++)));
+    }
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = new HashMap<>();
+    updates.put(EXTENT, scml);
+    return updates;
+  }
+
+  @Test
+  public void testSameRowSameStripe() {
+    RowLocks rowLocks = new RowLocks();
+    assertEquals(rowLocks.getStripe("row1".getBytes(UTF_8)),
+        rowLocks.getStripe("row1".getBytes(UTF_8)));
+    for (int i = 0; i < 10_000; i++) {
+      int stripe = rowLocks.getStripe(("row" + i).getBytes(UTF_8));
+      assertTrue(stripe >= 0 && stripe < 1024);
+    }
+  }
+
+  @Test
+  public void testDeferLockedRows() throws Exception {
+    RowLocks rowLocks = new RowLocks(16);
+    String row1 = "row1";
+    int stripe1 = rowLocks.getStripe(row1.getBytes(UTF_8));
+    String row2 = "row2";
+    for (int i = 3; rowLocks.getStripe(row2.getBytes(UTF_8)) == stripe1; i++) {
+      row2 = "row" + i;
+    }
+    int stripe2 = rowLocks.getStripe(row2.getBytes(UTF_8));
+    assertNotEquals(stripe1, stripe2);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // another thread holds the lock of row1
+      int[] held = executor.submit(() -> rowLocks.acquireRowlocks(updates(row1), new HashMap<>()))
+          .get();
+      assertArrayEquals(new int[] {stripe1}, held);
+
+      Map<KeyExtent,List<ServerConditionalMutation>> updates = updates(row1, row2, row2);
+      Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<>();
+      int[] locked = rowLocks.acquireRowlocks(updates, deferred);
+      assertArrayEquals(new int[] {stripe2}, locked);
+      assertEquals(2, updates.get(EXTENT).size());
+      assertEquals(1, deferred.get(EXTENT).size());
+      assertArrayEquals(row1.getBytes(UTF_8), deferred.get(EXTENT).get(0).getRow());
+      rowLocks.releaseRowLocks(locked);
+
+      executor.submit(() -> rowLocks.releaseRowLocks(held)).get();
+
+      deferred.clear();
+      locked = rowLocks.acquireRowlocks(updates(row1, row2), deferred);
+      assertEquals(2, locked.length);
+      assertTrue(locked[0] < locked[1]);
+      assertTrue(deferred.isEmpty());
+      rowLocks.releaseRowLocks(locked);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCollidingRows() {
+    // every row shares the one stripe, so a batch only needs that lock
+    RowLocks rowLocks = new RowLocks(1);
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<>();
+    int[] locked = rowLocks.acquireRowlocks(updates("a", "b", "c"), deferred);
+    assertArrayEquals(new int[] {0}, locked);
+    assertTrue(deferred.isEmpty());
+    rowLocks.releaseRowLocks(locked);
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.clientImpl.thrift.TInfo;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.dataImpl.thrift.ScanResult;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.securityImpl.thrift.TCredentials;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.conf.TableConfiguration;
+import org.apache.accumulo.server.security.AuditedSecurityOperation;
+import org.apache.accumulo.tserver.metrics.TabletServerScanMetrics;
+import org.apache.accumulo.tserver.scan.ScanParameters;
+import org.apache.accumulo.tserver.scan.ScanTask;
+import org.apache.accumulo.tserver.session.ScanSession.TabletResolver;
+import org.apache.accumulo.tserver.session.SingleScanSession;
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+import org.apache.accumulo.tserver.tablet.Scanner;
+import org.apache.accumulo.tserver.tablet.TabletBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ThriftScanClientHandlerTest {
+
+  private static final KeyExtent EXTENT = new KeyExtent(TableId.of("1"), null, null);
+  private static final int BATCH_SIZE = 10;
+
+  private final Map<Long,SingleScanSession> sessions = new HashMap<>();
+  private final List<Object> mocks = new ArrayList<>();
+  // the tasks given to the resource manager, in order
+  private final List<ScanTask<?>> submitted = new ArrayList<>();
+  // the number of submitted tasks run right away, the later ones wait to be run by the test
+  private int tasksToRun = Integer.MAX_VALUE;
+  private ThriftScanClientHandler handler;
+
+  private static ScanBatch batch() {
+    List<KVEntry> entries = new ArrayList<>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      entries.add(new KVEntry(new Key("row" + i, "cf", "cq"), new Value("value" + i)));
+    }
+    return new ScanBatch(entries, true);
+  }
+
+  private static final long BATCH_MEMORY = batch().estimateMemoryUsed();
+
+  private void createHandler(long readAheadMemory) {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_SCAN_READ_AHEAD_MAX_MEMORY, Long.toString(readAheadMemory));
+
+    ServerContext context = createMock(ServerContext.class);
+    TableConfiguration tableConf = createNiceMock(TableConfiguration.class);
+    TabletServerResourceManager resourceManager = createMock(TabletServerResourceManager.class);
+    TabletHostingServer server = createMock(TabletHostingServer.class);
+    expect(server.getContext()).andReturn(context).anyTimes();
+    expect(server.getConfiguration()).andReturn(conf).anyTimes();
+    expect(server.getScanMetrics()).andReturn(createNiceMock(TabletServerScanMetrics.class))
+        .anyTimes();
+    expect(server.getResourceManager()).andReturn(resourceManager).anyTimes();
+    expect(server.getSession(anyLong()))
+        .andAnswer(() -> sessions.get((Long) getCurrentArgument(0))).anyTimes();
+    expect(context.getSecurityOperation())
+        .andReturn(createNiceMock(AuditedSecurityOperation.class));
+    expect(context.getConfiguration()).andReturn(conf).anyTimes();
+    expect(context.getTableConfiguration(EXTENT.tableId())).andReturn(tableConf).anyTimes();
+
+    resourceManager.executeReadAhead(eq(EXTENT), anyObject(), anyObject(), anyObject());
+    expectLastCall().andAnswer(() -> {
+      ScanTask<?> task = getCurrentArgument(3);
+      submitted.add(task);
+      if (tasksToRun > 0) {
+        tasksToRun--;
+        task.run();
+      }
+      return null;
+    }).anyTimes();
+
+    mocks.addAll(List.of(context, tableConf, resourceManager, server));
+    replay(context, tableConf, resourceManager, server);
+
+    handler = new ThriftScanClientHandler(server, null);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    verify(mocks.toArray());
+  }
+
+  /**
+   * Creates a scan session whose scanner counts the batches it read.
+   */
+  private SingleScanSession createSession(long scanID, AtomicInteger reads) throws Exception {
+    Scanner scanner = createMock(Scanner.class);
+    expect(scanner.read()).andAnswer(() -> {
+      reads.incrementAndGet();
+      return batch();
+    }).anyTimes();
+    expect(scanner.close()).andReturn(true).anyTimes();
+    TabletResolver resolver = createNiceMock(TabletResolver.class);
+    expect(resolver.getTablet(EXTENT)).andReturn(createNiceMock(TabletBase.class)).anyTimes();
+    mocks.addAll(List.of(scanner, resolver));
+    replay(scanner, resolver);
+
+    TCredentials credentials = new TCredentials();
+    credentials.setPrincipal("user");
+    ScanParameters params = new ScanParameters(BATCH_SIZE, Authorizations.EMPTY, Set.of(),
+        List.of(), Map.of(), false, null, Long.MAX_VALUE, null);
+    // the default read-ahead threshold of scanners
+    SingleScanSession session =
+        new SingleScanSession(credentials, EXTENT, params, 3, Map.of(), resolver);
+    session.scanner = scanner;
+    sessions.put(scanID, session);
+    return session;
+  }
+
+  private void continueScan(long scanID) throws Exception {
+    ScanResult result = handler.continueScan(new TInfo(), scanID, sessions.get(scanID), 0);
+    assertEquals(BATCH_SIZE, result.getResultsSize());
+    assertTrue(result.isMore());
+  }
+
+  @Test
+  public void testReadAheadHit() throws Exception {
+    createHandler(10 * BATCH_MEMORY);
+    AtomicInteger reads = new AtomicInteger();
+    SingleScanSession session = createSession(1, reads);
+
+    continueScan(1);
+    // the next batch was read before the client requested it
+    assertEquals(2, submitted.size());
+    assertEquals(2, reads.get());
+    ScanTask<?> readAhead = session.getScanTask();
+    assertSame(submitted.get(1), readAhead);
+
+    // the client gets the batch read ahead, and the server reads ahead again
+    continueScan(1);
+    assertEquals(3, submitted.size());
+    assertEquals(3, reads.get());
+    assertNotNull(session.getScanTask());
+    assertNotSame(readAhead, session.getScanTask());
+  }
+
+  @Test
+  public void testNoReadAheadMemory() throws Exception {
+    createHandler(0);
+    AtomicInteger reads = new AtomicInteger();
+    SingleScanSession session = createSession(1, reads);
+
+    // batches are only read when requested until the scan passes its read-ahead threshold
+    for (int i = 1; i <= 3; i++) {
+      continueScan(1);
+      assertEquals(i, reads.get());
+      assertNull(session.getScanTask());
+    }
+    continueScan(1);
+    assertEquals(5, reads.get());
+    assertNotNull(session.getScanTask());
+  }
+
+  @Test
+  public void testMemoryCap() throws Exception {
+    // only one batch fits in the read-ahead memory
+    createHandler(BATCH_MEMORY * 3 / 2);
+    AtomicInteger reads1 = new AtomicInteger();
+    AtomicInteger reads2 = new AtomicInteger();
+    SingleScanSession session1 = createSession(1, reads1);
+    SingleScanSession session2 = createSession(2, reads2);
+
+    continueScan(1);
+    assertEquals(2, reads1.get());
+    assertNotNull(session1.getScanTask());
+
+    // the batch of the first session holds the memory, so the second does not read ahead
+    continueScan(2);
+    assertEquals(1, reads2.get());
+    assertNull(session2.getScanTask());
+
+    // taking the batch read ahead releases its memory, which the next read-ahead reserves again
+    continueScan(1);
+    assertEquals(3, reads1.get());
+    assertNotNull(session1.getScanTask());
+    continueScan(2);
+    assertEquals(2, reads2.get());
+    assertNull(session2.getScanTask());
+  }
+
+  @Test
+  public void testCloseWithPendingReadAhead() throws Exception {
+    createHandler(BATCH_MEMORY * 3 / 2);
+    AtomicInteger reads1 = new AtomicInteger();
+    AtomicInteger reads2 = new AtomicInteger();
+    SingleScanSession session1 = createSession(1, reads1);
+    SingleScanSession session2 = createSession(2, reads2);
+
+    // the read-ahead of the first session is queued, but does not run yet
+    tasksToRun = 1;
+    continueScan(1);
+    assertEquals(1, reads1.get());
+    ScanTask<?> pending = session1.getScanTask();
+    assertNotNull(pending);
+    assertSame(submitted.get(1), pending);
+
+    tasksToRun = Integer.MAX_VALUE;
+    continueScan(2);
+    assertNull(session2.getScanTask());
+
+    // closing or expiring the session cancels the read-ahead and releases its memory
+    assertTrue(session1.cleanup());
+    assertTrue(pending.isCancelled());
+    sessions.remove(1L);
+    pending.run();
+    assertEquals(1, reads1.get());
+
+    continueScan(2);
+    assertEquals(3, reads2.get());
+    assertNotNull(session2.getScanTask());
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.file.rfile.bcfile.Compression;
+import org.apache.accumulo.core.file.rfile.bcfile.CompressionAlgorithm;
+import org.junit.jupiter.api.Test;
+
+public class CompressedLogStreamTest {
+
+  private final CompressionAlgorithm gz = Compression.getCompressionAlgorithmByName("gz");
+
+  private static void writeBatch(DataOutputStream out, int start, int count) throws IOException {
+    for (int i = start; i < start + count; i++) {
+      out.writeInt(i);
+      out.writeUTF("mutation for row " + i);
+    }
+    out.flush();
+  }
+
+  private static void readBatch(DataInputStream in, int start, int count) throws IOException {
+    for (int i = start; i < start + count; i++) {
+      assertEquals(i, in.readInt());
+      assertEquals("mutation for row " + i, in.readUTF());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(new CompressedLogOutputStream(file, gz));
+    writeBatch(out, 0, 1000);
+    int compressedSize = file.size();
+    // too small to be compressed
+    writeBatch(out, 1000, 1);
+    writeBatch(out, 1001, 500);
+    out.flush();
+
+    assertTrue(compressedSize < 1000 * 20, "expected compression, size was " + compressedSize);
+
+    DataInputStream in = new DataInputStream(
+        new CompressedLogInputStream(new ByteArrayInputStream(file.toByteArray()), gz));
+    readBatch(in, 0, 1501);
+    assertThrows(EOFException.class, in::readInt);
+  }
+
+  @Test
+  public void testTruncatedBlock() throws IOException {
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(new CompressedLogOutputStream(file, gz));
+    writeBatch(out, 0, 100);
+    int firstBlock = file.size();
+    writeBatch(out, 100, 100);
+
+    // the tablet server died while writing the second block
+    for (int length : new int[] {firstBlock + 2, firstBlock + 6, file.size() - 1}) {
+      byte[] truncated = Arrays.copyOf(file.toByteArray(), length);
+      DataInputStream in = new DataInputStream(
+          new CompressedLogInputStream(new ByteArrayInputStream(truncated), gz));
+      readBatch(in, 0, 100);
+      assertThrows(EOFException.class, in::readInt);
+    }
+  }
+}
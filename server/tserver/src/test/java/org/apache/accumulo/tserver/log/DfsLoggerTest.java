@@ -73,8 +73,10 @@ public class DfsLoggerTest {
   public void headerLengthTest() {
     byte[] magic4 = DfsLogger.LOG_FILE_HEADER_V4.getBytes(UTF_8);
     byte[] magic3 = DfsLogger.LOG_FILE_HEADER_V3.getBytes(UTF_8);
+    byte[] magic5 = DfsLogger.LOG_FILE_HEADER_V5.getBytes(UTF_8);
 
     assertEquals(magic3.length, magic4.length, "Always expect log file headers to be same length");
+    assertEquals(magic5.length, magic4.length, "Always expect log file headers to be same length");
   }
 
   static Durability chooseDurabilityForGroupCommit(Collection<TabletMutations> mutations) {
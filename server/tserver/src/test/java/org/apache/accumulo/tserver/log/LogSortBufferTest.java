@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.apache.accumulo.tserver.logger.LogEvents.COMPACTION_FINISH;
+import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.tserver.logger.LogEvents.MANY_MUTATIONS;
+import static org.apache.accumulo.tserver.logger.LogEvents.MUTATION;
+import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.server.data.ServerMutation;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LogSortBufferTest {
+
+  private static final Random random = new Random(42);
+
+  private static class RecordingWriter implements FileSKVWriter {
+    final List<Key> keys = new ArrayList<>();
+    final List<Value> values = new ArrayList<>();
+
+    @Override
+    public boolean supportsLocalityGroups() {
+      return false;
+    }
+
+    @Override
+    public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void startDefaultLocalityGroup() {}
+
+    @Override
+    public void append(Key key, Value value) {
+      keys.add(key);
+      values.add(value);
+    }
+
+    @Override
+    public DataOutputStream createMetaStore(String name) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public long getLength() {
+      return 0;
+    }
+  }
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setup() {
+    executor = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterEach
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  private static LogFileValue mutations(int count) {
+    LogFileValue value = new LogFileValue();
+    value.mutations = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ServerMutation m = new ServerMutation(new Text("row" + random.nextInt(1000)));
+      m.put("cf", "cq", "value" + random.nextInt());
+      value.mutations.add(m);
+    }
+    return value;
+  }
+
+  private static LogFileKey key(int tabletId, long seq, boolean many) {
+    LogFileKey key = new LogFileKey();
+    key.event = many ? MANY_MUTATIONS : MUTATION;
+    key.tabletId = tabletId;
+    key.seq = seq;
+    return key;
+  }
+
+  @Test
+  public void testSort() throws IOException {
+    LogSortBuffer buffer = new LogSortBuffer();
+    // the sorted keys and combined mutations, as a TreeMap of the keys sorts them
+    Map<Key,List<Mutation>> expected = new TreeMap<>();
+    List<Integer> tabletIds = new ArrayList<>();
+
+    LogFileKey open = new LogFileKey();
+    open.event = OPEN;
+    open.tserverSession = "session";
+    expected.put(open.toKey(), List.of());
+    buffer.add(open, new LogFileValue());
+
+    for (int tabletId = 0; tabletId < 50; tabletId++) {
+      LogFileKey define = new LogFileKey();
+      define.event = DEFINE_TABLET;
+      define.tabletId = tabletId;
+      define.seq = tabletId;
+      define.tablet = new KeyExtent(TableId.of("t"), new Text("e" + tabletId), null);
+      expected.put(define.toKey(), List.of());
+      buffer.add(define, new LogFileValue());
+      tabletIds.add(tabletId);
+    }
+
+    for (int i = 0; i < 50_000; i++) {
+      // few enough sequence numbers that some keys are equal
+      LogFileKey key = key(random.nextInt(50), random.nextInt(500), random.nextBoolean());
+      LogFileValue value = mutations(1 + random.nextInt(2));
+      expected.computeIfAbsent(key.toKey(), k -> new ArrayList<>()).addAll(value.mutations);
+      buffer.add(key, value);
+    }
+
+    LogFileKey finish = new LogFileKey();
+    finish.event = COMPACTION_FINISH;
+    finish.tabletId = 60;
+    finish.seq = 7;
+    expected.put(finish.toKey(), List.of());
+    buffer.add(finish, new LogFileValue());
+    tabletIds.add(60);
+
+    assertEquals(50_052, buffer.size());
+
+    RecordingWriter writer = new RecordingWriter();
+    int[] ids = buffer.writeTo(writer, executor, 3);
+
+    assertArrayEquals(tabletIds.stream().mapToInt(Integer::intValue).toArray(), ids);
+    assertEquals(new ArrayList<>(expected.keySet()), writer.keys);
+    int i = 0;
+    for (List<Mutation> mutations : expected.values()) {
+      assertEquals(mutations, LogFileValue.fromValue(writer.values.get(i++)).mutations);
+    }
+  }
+}
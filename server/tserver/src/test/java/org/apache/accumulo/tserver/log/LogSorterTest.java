@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.tserver.logger.LogEvents.MUTATION;
+import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.metadata.UnreferencedTabletFile;
+import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.data.ServerMutation;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.WithTestNames;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class LogSorterTest extends WithTestNames {
+
+  private static final Random random = new Random(42);
+
+  private static final int TABLETS = 5;
+
+  @TempDir
+  private static File tempDir;
+
+  private VolumeManager fs;
+  private File workDir;
+  private ServerContext context;
+  private TabletServer server;
+  private LogSorter logSorter;
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    context = createMock(ServerContext.class);
+    server = createMock(TabletServer.class);
+    workDir = new File(tempDir, testName());
+    fs = VolumeManagerImpl.getLocalForTesting(workDir.getAbsolutePath());
+    expect(server.getContext()).andReturn(context).anyTimes();
+    expect(context.getCryptoFactory()).andReturn(new GenericCryptoServiceFactory()).anyTimes();
+    expect(context.getVolumeManager()).andReturn(fs).anyTimes();
+    expect(context.getConfiguration()).andReturn(DefaultConfiguration.getInstance()).anyTimes();
+    replay(server, context);
+
+    logSorter = new LogSorter(server);
+    executor = Executors.newFixedThreadPool(LogSorter.MAX_PARTS);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    fs.close();
+    verify(server, context);
+  }
+
+  /**
+   * Creates the entries of a log in the order they were written. The sequence numbers repeat often
+   * enough that entries with equal keys are in different parts.
+   */
+  private static List<LogFileKey> createKeys(int count) {
+    List<LogFileKey> keys = new ArrayList<>();
+    LogFileKey open = new LogFileKey();
+    open.event = OPEN;
+    open.tserverSession = "session";
+    keys.add(open);
+    for (int tabletId = 1; tabletId <= TABLETS; tabletId++) {
+      LogFileKey define = new LogFileKey();
+      define.event = DEFINE_TABLET;
+      define.tabletId = tabletId;
+      define.seq = 0;
+      define.tablet = new KeyExtent(TableId.of("t"), new Text("e" + tabletId), null);
+      keys.add(define);
+    }
+    while (keys.size() < count) {
+      LogFileKey key = new LogFileKey();
+      key.event = MUTATION;
+      // tablet 5 is only written at the start of the log, so only some merged parts have it
+      key.tabletId = 1 + random.nextInt(keys.size() < count / 10 ? TABLETS : TABLETS - 1);
+      key.seq = 1 + random.nextInt(20);
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  private static LogFileValue value(LogFileKey key) {
+    LogFileValue value = new LogFileValue();
+    value.mutations = new ArrayList<>();
+    if (key.event == MUTATION) {
+      ServerMutation m = new ServerMutation(new Text("row" + random.nextInt(1000)));
+      m.put("cf", "cq", "value" + random.nextInt());
+      value.mutations.add(m);
+    }
+    return value;
+  }
+
+  private static String getPartName(int part) {
+    return String.format("part-r-%05d.rf", part);
+  }
+
+  private int[] writePart(String destPath, List<LogFileKey> keys, List<LogFileValue> values,
+      int part) throws IOException {
+    LogSortBuffer buffer = new LogSortBuffer();
+    for (int i = 0; i < keys.size(); i++) {
+      buffer.add(keys.get(i), values.get(i));
+    }
+    return logSorter.writePart(destPath, buffer, part, executor, 2);
+  }
+
+  private static class Entry {
+    final Key key;
+    final List<Mutation> mutations;
+
+    Entry(Key key, List<Mutation> mutations) {
+      this.key = key;
+      this.mutations = mutations;
+    }
+  }
+
+  private List<Entry> readPart(String destPath, String name) throws IOException {
+    Path path = new Path(destPath, name);
+    FileSystem ns = fs.getFileSystemByPath(path);
+    List<Entry> entries = new ArrayList<>();
+    try (FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(UnreferencedTabletFile.of(ns, ns.makeQualified(path)), ns, ns.getConf(),
+            NoCryptoServiceFactory.NONE)
+        .withTableConfiguration(DefaultConfiguration.getInstance()).seekToBeginning().build()) {
+      while (reader.hasTop()) {
+        entries.add(new Entry(new Key(reader.getTopKey()),
+            LogFileValue.fromValue(reader.getTopValue()).mutations));
+        reader.next();
+      }
+    }
+    return entries;
+  }
+
+  private void testMergeParts(int numParts) throws Exception {
+    String destPath = "file://" + workDir + "/recovery/" + UUID.randomUUID();
+    String expectedPath = "file://" + workDir + "/expected/" + UUID.randomUUID();
+    List<LogFileKey> keys = createKeys(numParts * 100);
+    List<LogFileValue> values = new ArrayList<>();
+    keys.forEach(key -> values.add(value(key)));
+
+    // sort the log into parts, as if each part had filled the sort buffer
+    Map<String,int[]> tabletIndex = new TreeMap<>();
+    List<Integer> bounds = new ArrayList<>();
+    for (int part = 0; part < numParts; part++) {
+      int from = keys.size() * part / numParts;
+      int to = keys.size() * (part + 1) / numParts;
+      bounds.add(from);
+      tabletIndex.put(getPartName(part),
+          writePart(destPath, keys.subList(from, to), values.subList(from, to), part));
+    }
+    bounds.add(keys.size());
+
+    Map<String,int[]> merged = logSorter.mergeParts(destPath, tabletIndex, numParts, executor);
+
+    List<String> mergedNames = new ArrayList<>();
+    for (int i = 0; i < LogSorter.MAX_PARTS; i++) {
+      mergedNames.add(getPartName(numParts + i));
+    }
+    assertEquals(mergedNames, new ArrayList<>(merged.keySet()));
+
+    // the merged parts replaced the parts
+    List<String> files = new ArrayList<>();
+    for (FileStatus status : fs.listStatus(new Path(destPath))) {
+      if (status.getPath().getName().endsWith(".rf")) {
+        files.add(status.getPath().getName());
+      }
+    }
+    files.sort(null);
+    assertEquals(mergedNames, files);
+
+    boolean combined = false;
+    for (int i = 0; i < LogSorter.MAX_PARTS; i++) {
+      // a merged part holds the same entries as sorting its group of consecutive parts at once
+      int from = bounds.get(numParts * i / LogSorter.MAX_PARTS);
+      int to = bounds.get(numParts * (i + 1) / LogSorter.MAX_PARTS);
+      writePart(expectedPath, keys.subList(from, to), values.subList(from, to), i);
+      List<Entry> expected = readPart(expectedPath, getPartName(i));
+      List<Entry> actual = readPart(destPath, mergedNames.get(i));
+      assertEquals(expected.size(), actual.size());
+      TreeSet<Integer> tabletIds = new TreeSet<>();
+      for (int e = 0; e < expected.size(); e++) {
+        assertEquals(expected.get(e).key, actual.get(e).key);
+        // the mutations of equal keys are combined in the order they were logged
+        assertEquals(expected.get(e).mutations, actual.get(e).mutations);
+        combined |= actual.get(e).mutations.size() > 1;
+        LogFileKey key = LogFileKey.fromKey(actual.get(e).key);
+        if (key.event != OPEN) {
+          tabletIds.add(key.tabletId);
+        }
+      }
+      assertArrayEquals(tabletIds.stream().mapToInt(Integer::intValue).toArray(),
+          merged.get(mergedNames.get(i)));
+
+      // recovery expects the log to start with its OPEN entry
+      assertEquals(i == 0, LogFileKey.fromKey(actual.get(0).key).event == OPEN);
+    }
+    assertTrue(combined);
+  }
+
+  @Test
+  public void testMergeParts() throws Exception {
+    testMergeParts(10);
+  }
+
+  @Test
+  public void testMergeOneMorePart() throws Exception {
+    // only the last group has more than one part
+    testMergeParts(LogSorter.MAX_PARTS + 1);
+  }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.accumulo.tserver.log;
 
+import static org.apache.accumulo.tserver.logger.LogEvents.COMPACTION_FINISH;
+import static org.apache.accumulo.tserver.logger.LogEvents.COMPACTION_START;
 import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
 import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
 import static org.easymock.EasyMock.createMock;
@@ -32,6 +34,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,9 +45,9 @@ import java.util.UUID;
 import org.apache.accumulo.core.conf.DefaultConfiguration;
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.metadata.UnreferencedTabletFile;
 import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
 import org.apache.accumulo.core.tabletserver.log.LogEntry;
-import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.fs.VolumeManagerImpl;
@@ -60,6 +63,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
@@ -221,6 +226,70 @@ public class RecoveryLogsIteratorTest extends WithTestNames {
     }
   }
 
+  private static KeyValue compactionFinish(int tabletId, long seq) {
+    KeyValue keyValue = new KeyValue();
+    keyValue.key.event = COMPACTION_FINISH;
+    keyValue.key.seq = seq;
+    keyValue.key.tabletId = tabletId;
+    return keyValue;
+  }
+
+  @Test
+  public void testTabletIndex() throws IOException {
+    var uuid = UUID.randomUUID();
+    String origPath = "file://" + workDir + "/" + VolumeManager.FileType.WAL.getDirectory()
+        + "/localhost+9997/" + uuid;
+    String destPath =
+        "file://" + workDir + "/" + VolumeManager.FileType.RECOVERY.getDirectory() + "/" + uuid;
+
+    Map<String,int[]> tabletIndex = new HashMap<>();
+    LogSortBuffer buffer = new LogSortBuffer();
+    for (KeyValue keyValue : List.of(compactionFinish(1, 3), compactionFinish(2, 4))) {
+      buffer.add(keyValue.key, keyValue.value);
+    }
+    tabletIndex.put("part-r-00000.rf", writePart(destPath, buffer, 0));
+    buffer = new LogSortBuffer();
+    KeyValue keyValue = compactionFinish(2, 6);
+    buffer.add(keyValue.key, keyValue.value);
+    tabletIndex.put("part-r-00001.rf", writePart(destPath, buffer, 1));
+
+    ResolvedSortedLog.writeTabletIndex(fs, new Path(destPath), tabletIndex);
+    fs.getFileSystemByPath(new Path(destPath))
+        .create(SortedLogState.getFinishedMarkerPath(destPath)).close();
+
+    var rsl = ResolvedSortedLog.resolve(LogEntry.fromPath(origPath), fs);
+    assertEquals(2, rsl.getChildren().size());
+    assertEquals(List.of("part-r-00000.rf"), names(rsl.getChildren(1)));
+    assertEquals(List.of("part-r-00000.rf", "part-r-00001.rf"), names(rsl.getChildren(2)));
+    assertEquals(List.of(), names(rsl.getChildren(3)));
+
+    for (int tabletId : new int[] {1, 2, 3}) {
+      List<Long> seqs = new ArrayList<>();
+      try (RecoveryLogsIterator rli = new RecoveryLogsIterator(context, List.of(rsl),
+          SortedLogRecovery.minKey(COMPACTION_START, tabletId),
+          SortedLogRecovery.maxKey(COMPACTION_START, tabletId), false)) {
+        while (rli.hasNext()) {
+          Entry<LogFileKey,LogFileValue> entry = rli.next();
+          assertEquals(tabletId, entry.getKey().tabletId);
+          seqs.add(entry.getKey().seq);
+        }
+      }
+      assertEquals(tabletId == 1 ? List.of(3L) : tabletId == 2 ? List.of(4L, 6L) : List.of(),
+          seqs);
+    }
+  }
+
+  private static int[] writePart(String destPath, LogSortBuffer buffer, int part)
+      throws IOException {
+    return logSorter.writePart(destPath, buffer, part, MoreExecutors.newDirectExecutorService(), 1);
+  }
+
+  private static List<String> names(Iterable<UnreferencedTabletFile> files) {
+    List<String> names = new ArrayList<>();
+    files.forEach(file -> names.add(file.getPath().getName()));
+    return names;
+  }
+
   private void createRecoveryDir(Map<String,KeyValue[]> logs, ArrayList<ResolvedSortedLog> dirs,
       boolean FinishMarker) throws IOException {
 
@@ -233,12 +302,12 @@ public class RecoveryLogsIteratorTest extends WithTestNames {
 
       FileSystem ns = fs.getFileSystemByPath(new Path(destPath));
 
-      // convert test object to Pairs for LogSorter.
-      List<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+      // add the test objects to a buffer for LogSorter.
+      LogSortBuffer buffer = new LogSortBuffer();
       for (KeyValue pair : entry.getValue()) {
-        buffer.add(new Pair<>(pair.key, pair.value));
+        buffer.add(pair.key, pair.value);
       }
-      logSorter.writeBuffer(destPath, buffer, 0);
+      writePart(destPath, buffer, 0);
 
       if (FinishMarker) {
         ns.create(SortedLogState.getFinishedMarkerPath(destPath));
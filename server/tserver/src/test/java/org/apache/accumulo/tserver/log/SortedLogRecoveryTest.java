@@ -64,7 +64,6 @@ import org.apache.accumulo.core.spi.cache.CacheType;
 import org.apache.accumulo.core.spi.crypto.CryptoServiceFactory;
 import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
 import org.apache.accumulo.core.tabletserver.log.LogEntry;
-import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.data.ServerMutation;
 import org.apache.accumulo.server.fs.VolumeManager;
@@ -86,6 +85,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -207,17 +207,17 @@ public class SortedLogRecoveryTest extends WithTestNames {
         String destPath = "file://" + workdir + "/" + entry.getKey() + "/"
             + VolumeManager.FileType.RECOVERY.getDirectory() + "/" + uuid;
         FileSystem ns = fs.getFileSystemByPath(new Path(destPath));
-        // convert test object to Pairs for LogSorter, flushing based on bufferSize
-        List<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+        // add the test objects to buffers for LogSorter, flushing based on bufferSize
+        LogSortBuffer buffer = new LogSortBuffer();
         int parts = 0;
         for (KeyValue pair : entry.getValue()) {
-          buffer.add(new Pair<>(pair.key, pair.value));
+          buffer.add(pair.key, pair.value);
           if (buffer.size() >= bufferSize) {
-            logSorter.writeBuffer(destPath, buffer, parts++);
-            buffer.clear();
+            writePart(logSorter, destPath, buffer, parts++);
+            buffer = new LogSortBuffer();
           }
         }
-        logSorter.writeBuffer(destPath, buffer, parts);
+        writePart(logSorter, destPath, buffer, parts);
 
         ns.create(SortedLogState.getFinishedMarkerPath(destPath)).close();
         dirs.add(ResolvedSortedLog.resolve(LogEntry.fromPath(origPath), fs));
@@ -231,6 +231,11 @@ public class SortedLogRecoveryTest extends WithTestNames {
     }
   }
 
+  private static void writePart(LogSorter sorter, String destPath, LogSortBuffer buffer, int part)
+      throws IOException {
+    sorter.writePart(destPath, buffer, part, MoreExecutors.newDirectExecutorService(), 1);
+  }
+
   @Test
   public void testCompactionCrossesLogs() throws IOException {
     Mutation ignored = new ServerMutation(new Text("ignored"));
@@ -1147,16 +1152,16 @@ public class SortedLogRecoveryTest extends WithTestNames {
               createKeyValue(MUTATION, 3, 1, ignored), createKeyValue(MUTATION, 5, 1, m)};
       String dest = workdir + "/testLogSortedProperties";
 
-      List<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+      LogSortBuffer buffer = new LogSortBuffer();
       int parts = 0;
       for (KeyValue pair : events) {
-        buffer.add(new Pair<>(pair.key, pair.value));
+        buffer.add(pair.key, pair.value);
         if (buffer.size() >= bufferSize) {
-          sorter.writeBuffer(dest, buffer, parts++);
-          buffer.clear();
+          writePart(sorter, dest, buffer, parts++);
+          buffer = new LogSortBuffer();
         }
       }
-      sorter.writeBuffer(dest, buffer, parts);
+      writePart(sorter, dest, buffer, parts);
       FileSystem fs = vm.getFileSystemByPath(workdirPath);
 
       // check contents of directory
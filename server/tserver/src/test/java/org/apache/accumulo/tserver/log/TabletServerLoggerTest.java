@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.easymock.EasyMock.anyBoolean;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
+import org.apache.accumulo.core.util.Retry;
+import org.apache.accumulo.core.util.Retry.RetryFactory;
+import org.apache.accumulo.core.util.cache.Caches;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.tserver.TabletMutations;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.WithTestNames;
+import org.apache.accumulo.tserver.tablet.CommitSession;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class TabletServerLoggerTest extends WithTestNames {
+
+  private static final int STRIPES = 3;
+
+  @TempDir
+  private static File tempDir;
+
+  private VolumeManager fs;
+  private ServerContext context;
+  private TabletServer server;
+
+  // the logs the tablet server was told about when they were created and closed
+  private final List<DfsLogger> created = Collections.synchronizedList(new ArrayList<>());
+  private final List<DfsLogger> closed = Collections.synchronizedList(new ArrayList<>());
+
+  // the logs each tablet was written to, by tablet id
+  private final Map<Integer,Set<DfsLogger>> logsUsed = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    File workDir = new File(tempDir, testName());
+    fs = VolumeManagerImpl.getLocalForTesting(workDir.getAbsolutePath());
+    context = createMock(ServerContext.class);
+    server = createMock(TabletServer.class);
+    expect(context.getConfiguration()).andReturn(DefaultConfiguration.getInstance()).anyTimes();
+    expect(context.getVolumeManager()).andReturn(fs).anyTimes();
+    expect(context.getBaseUris()).andReturn(Set.of("file:" + workDir.getAbsolutePath()))
+        .anyTimes();
+    expect(context.getCaches()).andReturn(Caches.getInstance()).anyTimes();
+    expect(context.getCryptoFactory()).andReturn(new GenericCryptoServiceFactory()).anyTimes();
+    expect(server.getContext()).andReturn(context).anyTimes();
+    expect(server.getVolumeManager()).andReturn(fs).anyTimes();
+    expect(server.getClientAddressString()).andReturn("localhost:9997").anyTimes();
+    server.addNewLogMarker(anyObject(DfsLogger.class));
+    expectLastCall().andAnswer(() -> {
+      created.add(getCurrentArgument(0));
+      return null;
+    }).anyTimes();
+    server.walogClosed(anyObject(DfsLogger.class));
+    expectLastCall().andAnswer(() -> {
+      closed.add(getCurrentArgument(0));
+      return null;
+    }).anyTimes();
+    replay(server, context);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    fs.close();
+    verify(server, context);
+  }
+
+  private TabletServerLogger createLogger(long maxSize) {
+    RetryFactory retryFactory = Retry.builder().maxRetries(3).retryAfter(Duration.ofMillis(10))
+        .incrementBy(Duration.ofMillis(10)).maxWait(Duration.ofMillis(100)).backOffFactor(1)
+        .logInterval(Duration.ofMinutes(1)).createFactory();
+    return new TabletServerLogger(server, maxSize, new AtomicLong(), new AtomicLong(),
+        retryFactory, retryFactory, Long.MAX_VALUE, STRIPES);
+  }
+
+  /**
+   * Creates the commit sessions of tablets that write to each stripe. Each tablet records the logs
+   * it is written to, after waiting for the given delay.
+   *
+   * @return the sessions of the tablets of each stripe
+   */
+  private List<List<CommitSession>> createTablets(int perStripe, long delayMillis, int firstId) {
+    List<List<CommitSession>> tablets = new ArrayList<>();
+    for (int i = 0; i < STRIPES; i++) {
+      tablets.add(new ArrayList<>());
+    }
+    int count = 0;
+    for (int tid = firstId; count < STRIPES * perStripe; tid++) {
+      Text endRow = new Text(String.format("r%04d", tid));
+      KeyExtent extent = new KeyExtent(TableId.of("1"), endRow, null);
+      // the logger assigns each tablet to a stripe by the hash of its extent
+      List<CommitSession> stripe = tablets.get(Math.floorMod(extent.hashCode(), STRIPES));
+      if (stripe.size() < perStripe) {
+        stripe.add(createSession(tid, extent, delayMillis));
+        count++;
+      }
+    }
+    return tablets;
+  }
+
+  private CommitSession createSession(int tid, KeyExtent extent, long delayMillis) {
+    CommitSession session = createMock(CommitSession.class);
+    expect(session.getExtent()).andReturn(extent).anyTimes();
+    expect(session.getLogId()).andReturn(tid).anyTimes();
+    expect(session.getWALogSeq()).andReturn(1L).anyTimes();
+    expect(session.beginUpdatingLogsUsed(anyObject(DfsLogger.class), anyBoolean()))
+        .andAnswer(() -> {
+          Thread.sleep(delayMillis);
+          logsUsed.computeIfAbsent(tid, k -> ConcurrentHashMap.newKeySet())
+              .add(getCurrentArgument(0));
+          return false;
+        }).anyTimes();
+    replay(session);
+    return session;
+  }
+
+  private static Map<CommitSession,TabletMutations> mutations(Collection<CommitSession> sessions,
+      int valueSize) {
+    Map<CommitSession,TabletMutations> loggables = new HashMap<>();
+    for (CommitSession session : sessions) {
+      Mutation m = new Mutation("row");
+      m.put("cf", "cq", "v".repeat(valueSize).getBytes(UTF_8));
+      loggables.put(session, new TabletMutations(session, List.of(m), Durability.SYNC));
+    }
+    return loggables;
+  }
+
+  private Set<DfsLogger> logsUsed(Collection<CommitSession> sessions) {
+    Set<DfsLogger> logs = new HashSet<>();
+    for (CommitSession session : sessions) {
+      logs.addAll(logsUsed.getOrDefault(session.getLogId(), Set.of()));
+    }
+    return logs;
+  }
+
+  @Test
+  public void testConcurrentStripes() throws Exception {
+    final int threads = 4;
+    final int batches = 25;
+    TabletServerLogger logger = createLogger(Long.MAX_VALUE);
+    List<List<CommitSession>> tablets = createTablets(4, 0, 0);
+    List<CommitSession> all = new ArrayList<>();
+    tablets.forEach(all::addAll);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int b = 0; b < batches; b++) {
+            logger.logManyTablets(mutations(all, 100));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // every stripe has its own log, and the tablets of a stripe were only written to its log
+    assertEquals(STRIPES, logger.getLogEntries().size());
+    Set<DfsLogger> stripeLogs = new HashSet<>();
+    for (List<CommitSession> stripe : tablets) {
+      Set<DfsLogger> logs = logsUsed(stripe);
+      assertEquals(1, logs.size());
+      stripeLogs.addAll(logs);
+    }
+    assertEquals(STRIPES, stripeLogs.size());
+
+    // the open entry, then one entry for each of the stripe's tablets in every batch
+    for (DfsLogger log : stripeLogs) {
+      assertEquals(1 + threads * batches * 4, log.getWrites());
+    }
+    assertTrue(closed.isEmpty());
+  }
+
+  @Test
+  public void testRollover() throws Exception {
+    final int batches = 20;
+    // a stripe writes about 4KB per batch, so it rolls its log every few batches
+    TabletServerLogger logger = createLogger(10_000);
+    List<List<CommitSession>> tablets = createTablets(4, 0, 0);
+    List<CommitSession> all = new ArrayList<>();
+    tablets.forEach(all::addAll);
+
+    for (int b = 0; b < batches; b++) {
+      logger.logManyTablets(mutations(all, 1000));
+    }
+
+    assertTrue(closed.size() >= STRIPES * (batches / 4), closed::toString);
+    assertTrue(created.containsAll(closed));
+    for (var entry : logger.getLogEntries()) {
+      assertTrue(closed.stream().noneMatch(log -> log.getLogEntry().equals(entry)));
+    }
+
+    // after a roll, a stripe continues in a new log that no other stripe writes to
+    Set<DfsLogger> seen = new HashSet<>();
+    for (List<CommitSession> stripe : tablets) {
+      Set<DfsLogger> logs = logsUsed(stripe);
+      assertTrue(logs.size() > 1);
+      for (CommitSession session : stripe) {
+        assertEquals(logs, logsUsed.get(session.getLogId()));
+      }
+      for (DfsLogger log : logs) {
+        assertTrue(seen.add(log));
+      }
+    }
+
+    // no entries were lost across the rolls, every log has an open entry and the mutations
+    long writes = 0;
+    synchronized (created) {
+      for (DfsLogger log : created) {
+        writes += log.getWrites();
+      }
+    }
+    assertEquals(created.size() + batches * all.size(), writes);
+  }
+
+  @Test
+  public void testFailureInOneStripe() throws Exception {
+    TabletServerLogger logger = createLogger(Long.MAX_VALUE);
+    // the healthy tablets are slow, so their stripes are still writing when the other one fails
+    List<List<CommitSession>> slow = createTablets(1, 200, 0);
+    List<List<CommitSession>> failing = createTablets(1, 0, 1000);
+
+    // fail each stripe in turn, so the failure is seen by the calling thread at least once
+    for (int f = 0; f < STRIPES; f++) {
+      Map<CommitSession,TabletMutations> loggables = new HashMap<>();
+      for (int i = 0; i < STRIPES; i++) {
+        if (i == f) {
+          CommitSession session = failing.get(i).get(0);
+          loggables.put(session, new TabletMutations(session, List.of(), Durability.SYNC));
+        } else {
+          loggables.putAll(mutations(slow.get(i), 100));
+        }
+      }
+
+      var e = assertThrows(IllegalArgumentException.class, () -> logger.logManyTablets(loggables));
+      assertEquals("logManyTablets: logging empty mutation list", e.getMessage());
+
+      // the writes to the other stripes finished before the failure was thrown
+      for (int i = 0; i < STRIPES; i++) {
+        List<CommitSession> sessions = new ArrayList<>(slow.get(i));
+        sessions.addAll(failing.get(i));
+        Set<DfsLogger> logs = logsUsed(sessions);
+        assertEquals(1, logs.size());
+        assertEquals(2 + f, logs.iterator().next().getWrites());
+      }
+    }
+
+    assertEquals(STRIPES, logger.getLogEntries().size());
+    assertFalse(created.isEmpty());
+    assertTrue(closed.isEmpty());
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.memory;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PredictiveMemoryManagerTest {
+
+  private static final long ONE_GIG = 1024 * 1024 * 1024;
+  private static final long ONE_MEG = 1024 * 1024;
+
+  private ServerContext context;
+
+  @BeforeEach
+  public void mockServerInfo() {
+    context = createMock(ServerContext.class);
+    AccumuloConfiguration conf = createMock(AccumuloConfiguration.class);
+    expect(context.getConfiguration()).andReturn(conf).anyTimes();
+    expect(conf.getAsBytes(Property.TSERV_MAXMEM)).andReturn(ONE_GIG).anyTimes();
+    expect(conf.getCount(Property.TSERV_MINC_MAXCONCURRENT)).andReturn(4).anyTimes();
+    replay(context, conf);
+  }
+
+  @Test
+  public void testEarlyFlush() {
+    PredictiveMemoryManagerUnderTest mgr = new PredictiveMemoryManagerUnderTest();
+    mgr.init(context);
+
+    assertEquals(List.of(), mgr.tabletsToMinorCompact(tablets(t(k("x"), 100 * ONE_MEG, 0),
+        t(k("y"), 50 * ONE_MEG, 0), t(k("z"), 20 * ONE_MEG, 0))));
+
+    // x starts a minor compaction, nothing is known about how long it takes
+    mgr.advance(1);
+    assertEquals(List.of(), mgr.tabletsToMinorCompact(tablets(t(k("x"), 0, 100 * ONE_MEG),
+        t(k("y"), 60 * ONE_MEG, 0), t(k("z"), 20 * ONE_MEG, 0))));
+
+    // the minor compaction of x took 10 seconds
+    mgr.advance(10);
+    assertEquals(List.of(), mgr.tabletsToMinorCompact(
+        tablets(t(k("x"), 0, 0), t(k("y"), 70 * ONE_MEG, 0), t(k("z"), 20 * ONE_MEG, 0))));
+    assertEquals(10 * ONE_MEG, mgr.getFlushRate(), 1);
+
+    // memory is far from full, but at this rate it would fill up long before y could be flushed
+    mgr.advance(1);
+    assertEquals(List.of(k("y"), k("z")), mgr.tabletsToMinorCompact(
+        tablets(t(k("x"), 0, 0), t(k("y"), 130 * ONE_MEG, 0), t(k("z"), 20 * ONE_MEG, 0))));
+  }
+
+  @Test
+  public void testSlowIngest() {
+    PredictiveMemoryManagerUnderTest mgr = new PredictiveMemoryManagerUnderTest();
+    mgr.init(context);
+
+    mgr.tabletsToMinorCompact(tablets(t(k("x"), 100 * ONE_MEG, 0), t(k("y"), 50 * ONE_MEG, 0)));
+    mgr.advance(1);
+    mgr.tabletsToMinorCompact(tablets(t(k("x"), 0, 100 * ONE_MEG), t(k("y"), 50 * ONE_MEG, 0)));
+    mgr.advance(1);
+    mgr.tabletsToMinorCompact(tablets(t(k("x"), 0, 0), t(k("y"), 50 * ONE_MEG, 0)));
+
+    // a small increase that will not fill memory before y could be flushed
+    mgr.advance(1);
+    assertEquals(List.of(),
+        mgr.tabletsToMinorCompact(tablets(t(k("x"), 0, 0), t(k("y"), 51 * ONE_MEG, 0))));
+    assertEquals(ONE_MEG, mgr.getIngestRate(), 1);
+  }
+
+  @Test
+  public void testHotTabletFirst() {
+    PredictiveMemoryManagerUnderTest mgr = new PredictiveMemoryManagerUnderTest();
+    mgr.init(context);
+
+    // learn the flush rate from f, while a and b are not written
+    mgr.tabletsToMinorCompact(tablets(t(k("a"), 100 * ONE_MEG, 0), t(k("b"), 20 * ONE_MEG, 0),
+        t(k("f"), 100 * ONE_MEG, 0)));
+    mgr.advance(1);
+    mgr.tabletsToMinorCompact(tablets(t(k("a"), 100 * ONE_MEG, 0), t(k("b"), 20 * ONE_MEG, 0),
+        t(k("f"), 0, 100 * ONE_MEG)));
+    mgr.advance(10);
+    assertEquals(List.of(), mgr.tabletsToMinorCompact(tablets(t(k("a"), 100 * ONE_MEG, 0),
+        t(k("b"), 20 * ONE_MEG, 0), t(k("f"), 0, 0))));
+    assertEquals(10 * ONE_MEG, mgr.getFlushRate(), 1);
+
+    // b is smaller than a, but is written fast enough that it will be larger by the time it could
+    // be flushed, so it is compacted first and that is enough. The flush takes as long as a flush
+    // of a, timing it by the size of b would not compact anything yet.
+    mgr.advance(1);
+    assertEquals(List.of(k("b")), mgr.tabletsToMinorCompact(tablets(
+        t(k("a"), 100 * ONE_MEG, 0), t(k("b"), 55 * ONE_MEG, 0), t(k("f"), 0, 0))));
+    assertEquals(35 * ONE_MEG, mgr.getIngestRate(), 1);
+  }
+
+  private static class PredictiveMemoryManagerUnderTest extends PredictiveMemoryManager {
+
+    private long nanos = 0;
+
+    void advance(long seconds) {
+      nanos += SECONDS.toNanos(seconds);
+    }
+
+    @Override
+    protected long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    protected long getMaxAge(KeyExtent extent) {
+      return MINUTES.toMillis(15);
+    }
+
+    @Override
+    protected boolean tableExists(TableId tableId) {
+      return true;
+    }
+
+    @Override
+    protected boolean tableBeingDeleted(TableId tableId) {
+      return false;
+    }
+  }
+
+  private static KeyExtent k(String endRow) {
+    return new KeyExtent(TableId.of("1"), new Text(endRow), null);
+  }
+
+  private TabletMemoryReport t(KeyExtent ke, long memSize, long compactingSize) {
+    return new TabletMemoryReport(null, memSize, compactingSize, null) {
+      @Override
+      public KeyExtent getExtent() {
+        return ke;
+      }
+    };
+  }
+
+  private static List<TabletMemoryReport> tablets(TabletMemoryReport... states) {
+    return Arrays.asList(states);
+  }
+}
@@ -78,12 +78,12 @@ public class PrintInfoIT extends SharedMiniClusterBase {
       String rFileName = getRFileName(accumuloClient, table);
 
       String output = execPrintInfo(rFileName, false);
-      assertTrue(output.contains("RFile Version            : 8"));
+      assertTrue(output.contains("RFile Version            : 11"));
       assertFalse(output.contains("Meta block     : accumulo.summaries.index"));
       assertFalse(output.contains("No summary data present in file"));
 
       output = execPrintInfo(rFileName, true);
-      assertTrue(output.contains("RFile Version            : 8"));
+      assertTrue(output.contains("RFile Version            : 11"));
       assertFalse(output.contains("Meta block     : accumulo.summaries.index"));
       assertTrue(output.contains("No summary data present in file"));
     }
@@ -100,12 +100,12 @@ public class PrintInfoIT extends SharedMiniClusterBase {
       String rFileName = getRFileName(accumuloClient, table);
 
       String output = execPrintInfo(rFileName, false);
-      assertTrue(output.contains("RFile Version            : 8"));
+      assertTrue(output.contains("RFile Version            : 11"));
       assertTrue(output.contains("Meta block     : accumulo.summaries.index"));
       assertFalse(output.contains("No summary data present in file"));
 
       output = execPrintInfo(rFileName, true);
-      assertTrue(output.contains("RFile Version            : 8"));
+      assertTrue(output.contains("RFile Version            : 11"));
       assertTrue(output.contains("Meta block     : accumulo.summaries.index"));
       assertFalse(output.contains("No summary data present in file"));
       assertTrue(output.contains("Summary data :"));